@@ -0,0 +1,167 @@
+package fer.solar.usermanagement.actuator;
+
+import com.auth0.json.auth.TokenHolder;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.common.auth0.RateLimitTrackingHttpClient;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.common.cache.StaleWhileRevalidateCache;
+import fer.solar.usermanagement.config.Auth0Config;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import fer.solar.usermanagement.sync.DirectorySynchronizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Performance view of the service for operators.
+ * <ul>
+ *     <li>{@code GET /actuator/usermgmt} reports cache sizes and hit rates, the Auth0 rate limit
+ *     budget, the Management API token's age and expiry, Auth0 call queues and bounded elastic
+ *     threads, and the directory snapshot version and lag</li>
+ *     <li>{@code DELETE /actuator/usermgmt/<cache>} flushes one cache by name, such as
+ *     {@code users.byId}, or all caches of a group ({@code users}, {@code roles} or
+ *     {@code permissions}); flushing a group also stops the snapshot being used for it until the
+ *     next synchronization</li>
+ *     <li>{@code POST /actuator/usermgmt} starts a directory synchronization right away</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "usermgmt")
+@RequiredArgsConstructor
+@Slf4j
+public class UserManagementEndpoint {
+
+    private final CacheRegistry cacheRegistry;
+    private final Auth0Config auth0Config;
+    private final RateLimitTrackingHttpClient auth0HttpClient;
+    private final Auth0CallExecutor auth0Calls;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final DirectorySynchronizer synchronizer;
+
+    @ReadOperation
+    public Report report() {
+        return new Report(caches(), auth0(), scheduler(), sync());
+    }
+
+    /**
+     * Returns the names of the flushed caches, empty when none matched.
+     */
+    @DeleteOperation
+    public List<String> flush(@Selector String cache) {
+        CacheGroup group = Arrays.stream(CacheGroup.values())
+                .filter(candidate -> candidate.name().equalsIgnoreCase(cache))
+                .findFirst()
+                .orElse(null);
+        List<String> flushed = cacheRegistry.getCaches().stream()
+                .filter(candidate -> group != null ? candidate.getGroup() == group : candidate.getName().equals(cache))
+                .peek(StaleWhileRevalidateCache::invalidateAll)
+                .map(StaleWhileRevalidateCache::getName)
+                .sorted()
+                .toList();
+        if (group != null) {
+            snapshotHolder.markDirty(group);
+        }
+        if (!flushed.isEmpty()) {
+            log.info("Flushed caches {} on operator request.", flushed);
+        }
+        return flushed;
+    }
+
+    @WriteOperation
+    public SyncTrigger resync() {
+        boolean alreadyRunning = synchronizer.isRunning();
+        synchronizer.synchronize().subscribe(
+                snapshot -> log.info("Operator requested directory sync finished at version {}", snapshot.getVersion()),
+                e -> log.error("Operator requested directory sync failed: {}", e.getMessage(), e));
+        return new SyncTrigger(!alreadyRunning);
+    }
+
+    private Map<String, CacheReport> caches() {
+        Map<String, CacheReport> caches = new LinkedHashMap<>();
+        cacheRegistry.getCaches().stream()
+                .sorted(Comparator.comparing(StaleWhileRevalidateCache::getName))
+                .forEach(cache -> {
+                    CacheStats stats = cache.stats();
+                    caches.put(cache.getName(), new CacheReport(cache.getGroup().name().toLowerCase(), cache.size(),
+                            stats.hitRate(), stats.hitCount(), stats.missCount(), stats.loadFailureCount(), stats.evictionCount()));
+                });
+        return caches;
+    }
+
+    private Auth0Report auth0() {
+        long reset = auth0HttpClient.getReset();
+        TokenHolder token = auth0Config.getCurrentTokenHolder();
+        Instant obtainedAt = auth0Config.getTokenObtainedAt();
+        Duration tokenAge = obtainedAt == null ? null : Duration.between(obtainedAt, Instant.now());
+        Instant tokenExpiresAt = obtainedAt == null || token == null ? null : obtainedAt.plusSeconds(token.getExpiresIn());
+        return new Auth0Report(auth0HttpClient.getRemaining(), auth0HttpClient.getLimit(),
+                reset < 0 ? null : Instant.ofEpochSecond(reset), tokenAge, tokenExpiresAt);
+    }
+
+    private SchedulerReport scheduler() {
+        Map<String, Integer> queued = new LinkedHashMap<>();
+        for (Auth0Priority priority : Auth0Priority.values()) {
+            queued.put(priority.getMetricName(), auth0Calls.getQueuedCalls(priority));
+        }
+        Scannable boundedElastic = Scannable.from(Schedulers.boundedElastic());
+        return new SchedulerReport(auth0Calls.getRunningCalls(), auth0Calls.getConcurrency(), queued,
+                boundedElastic.scanOrDefault(Scannable.Attr.BUFFERED, 0),
+                boundedElastic.scanOrDefault(Scannable.Attr.CAPACITY, 0));
+    }
+
+    private SyncReport sync() {
+        DirectorySnapshot snapshot = snapshotHolder.current().orElse(null);
+        if (snapshot == null) {
+            return new SyncReport(null, null, null, null, synchronizer.isRunning());
+        }
+        return new SyncReport(snapshot.getVersion(), snapshot.getCompletedAt(),
+                Duration.between(snapshot.getCompletedAt(), Instant.now()), snapshot.isUsersComplete(), synchronizer.isRunning());
+    }
+
+    public record Report(Map<String, CacheReport> caches, Auth0Report auth0, SchedulerReport scheduler, SyncReport sync) {
+    }
+
+    public record CacheReport(String group, long size, double hitRate, long hits, long misses, long loadFailures,
+                              long evictions) {
+    }
+
+    /**
+     * Rate limit values are -1 until an Auth0 response carried them.
+     */
+    public record Auth0Report(long rateLimitRemaining, long rateLimitLimit, Instant rateLimitReset, Duration tokenAge,
+                              Instant tokenExpiresAt) {
+    }
+
+    /**
+     * Auth0 calls running and waiting in the call executor, and the threads alive in the bounded
+     * elastic scheduler they run on.
+     */
+    public record SchedulerReport(int runningAuth0Calls, int maxAuth0Calls, Map<String, Integer> queuedAuth0Calls,
+                                  int boundedElasticThreads, int boundedElasticMaxThreads) {
+    }
+
+    public record SyncReport(Long version, Instant completedAt, Duration lag, Boolean usersComplete, boolean running) {
+    }
+
+    public record SyncTrigger(boolean started) {
+    }
+}
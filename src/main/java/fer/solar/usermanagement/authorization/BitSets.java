@@ -0,0 +1,109 @@
+package fer.solar.usermanagement.authorization;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static helpers for immutable {@code long[]} bitsets. Arrays are never modified after they have
+ * been returned, so they can be shared between readers without copying.
+ */
+final class BitSets {
+
+    static final long[] EMPTY = new long[0];
+
+    private BitSets() {
+    }
+
+    static long[] with(long[] bits, int index) {
+        int word = index >>> 6;
+        long[] result = Arrays.copyOf(bits, Math.max(bits.length, word + 1));
+        result[word] |= 1L << index;
+        return result;
+    }
+
+    static long[] without(long[] bits, int index) {
+        int word = index >>> 6;
+        if (word >= bits.length || (bits[word] & (1L << index)) == 0) {
+            return bits;
+        }
+        long[] result = bits.clone();
+        result[word] &= ~(1L << index);
+        return trim(result);
+    }
+
+    static boolean contains(long[] bits, int index) {
+        int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * ORs {@code source} into {@code target}, which must be at least as long as {@code source}.
+     */
+    static void orInto(long[] target, long[] source) {
+        for (int i = 0; i < source.length; i++) {
+            target[i] |= source[i];
+        }
+    }
+
+    static long[] and(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = left[i] & right[i];
+        }
+        return trim(result);
+    }
+
+    static long[] andNot(long[] left, long[] right) {
+        long[] result = left.clone();
+        int length = Math.min(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            result[i] &= ~right[i];
+        }
+        return trim(result);
+    }
+
+    static boolean intersects(long[] left, long[] right) {
+        int length = Math.min(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            if ((left[i] & right[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    static void forEach(long[] bits, IntConsumer action) {
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    static long[] trim(long[] bits) {
+        int length = bits.length;
+        while (length > 0 && bits[length - 1] == 0) {
+            length--;
+        }
+        return length == 0 ? EMPTY : (length == bits.length ? bits : Arrays.copyOf(bits, length));
+    }
+}
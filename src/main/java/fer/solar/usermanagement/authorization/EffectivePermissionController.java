@@ -0,0 +1,43 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.authorization.dto.BatchEffectivePermissionsRequest;
+import fer.solar.usermanagement.authorization.dto.BatchEffectivePermissionsResponse;
+import fer.solar.usermanagement.authorization.dto.EffectivePermissionsResponse;
+import fer.solar.usermanagement.common.web.ConditionalResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+public class EffectivePermissionController {
+
+    private static final CacheControl EFFECTIVE_PERMISSIONS_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private final EffectivePermissionService effectivePermissionService;
+    private final ConditionalResponses conditionalResponses;
+
+    @Value("${usermanagement.authorization.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @GetMapping("/{userId}/effective-permissions")
+    public Mono<ResponseEntity<EffectivePermissionsResponse>> getEffectivePermissions(@PathVariable String userId) {
+        return effectivePermissionService.getEffectivePermissions(userId)
+                .map(permissions -> conditionalResponses.ok(permissions, EFFECTIVE_PERMISSIONS_CACHE_CONTROL))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/effective-permissions")
+    public Mono<ResponseEntity<BatchEffectivePermissionsResponse>> getEffectivePermissions(
+            @RequestBody BatchEffectivePermissionsRequest request) {
+        if (request.getUserIds() == null || request.getUserIds().isEmpty() || request.getUserIds().size() > maxBatchSize) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return effectivePermissionService.getEffectivePermissions(request.getUserIds())
+                .map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,381 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.SnapshotPublishedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory user → roles → permissions index used to answer effective permission lookups
+ * without calling Auth0.
+ * <p>
+ * Role IDs and permission names are dictionary-encoded to dense ints. Each role's permissions
+ * are a {@code long[]} bitset, and each user maps to a bitset of role codes that is shared with
+ * every other user holding the same combination of roles, so a lookup is an OR over a few words.
+ * The inverse permission → roles bitsets are recomputed whenever role permissions change.
+ * <p>
+ * The index is rebuilt from every published {@link DirectorySnapshot}. Writes made through the
+ * caching services are applied immediately and re-applied on top of snapshots whose
+ * synchronization started before the write, so a slow sync never rolls back a local change.
+ * Reads are lock-free; writes and rebuilds are serialized.
+ */
+@Component
+@Slf4j
+public class EffectivePermissionIndex {
+
+    private volatile Index index = Index.empty();
+
+    private final Map<String, Pending> pendingUserRoles = new ConcurrentHashMap<>();
+    private final Map<String, Pending> pendingRolePermissions = new ConcurrentHashMap<>();
+
+    public boolean isReady() {
+        return index.version > 0;
+    }
+
+    /**
+     * Whether the index holds every user of the directory, so that a user it does not know does not exist.
+     */
+    public boolean isComplete() {
+        Index current = index;
+        return current.version > 0 && current.usersComplete;
+    }
+
+    public long getVersion() {
+        return index.version;
+    }
+
+    /**
+     * Returns the user's effective permissions, or empty when the index does not know the user.
+     */
+    public Optional<EffectivePermissions> lookup(String userId) {
+        Index current = index;
+        long[] roleBits = current.userRoles.get(userId);
+        if (roleBits == null) {
+            return Optional.empty();
+        }
+        long[][] rolePermissions = current.rolePermissions;
+        long[] permissionBits = new long[words(current.permissions.size())];
+        int[] roleCodes = new int[BitSets.cardinality(roleBits)];
+        int[] next = {0};
+        BitSets.forEach(roleBits, role -> {
+            roleCodes[next[0]++] = role;
+            if (role < rolePermissions.length && rolePermissions[role] != null) {
+                BitSets.orInto(permissionBits, rolePermissions[role]);
+            }
+        });
+        return Optional.of(new EffectivePermissions(userId,
+                decode(current.roles, roleCodes),
+                decode(current.permissions, permissionBits)));
+    }
+
+    /**
+     * Returns the permissions of a role, or empty when the index does not know the role.
+     */
+    public Optional<List<String>> permissionsOfRole(String roleId) {
+        Index current = index;
+        int role = current.roles.find(roleId);
+        long[][] rolePermissions = current.rolePermissions;
+        if (role < 0 || role >= rolePermissions.length || rolePermissions[role] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(decode(current.permissions, rolePermissions[role]));
+    }
+
+    /**
+     * Returns the roles granting a permission, or empty when the index does not know the permission.
+     */
+    public Optional<List<String>> rolesHolding(String permission) {
+        Index current = index;
+        int code = current.permissions.find(permission);
+        long[][] permissionRoles = current.permissionRoles;
+        if (code < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(code < permissionRoles.length && permissionRoles[code] != null
+                ? decode(current.roles, permissionRoles[code])
+                : List.of());
+    }
+
+    /**
+     * Lazily streams the users holding at least one of the given roles. The scan tests one shared
+     * role bitset per user, so it is cheap even for large directories.
+     */
+    public Stream<String> usersWithAnyRole(Collection<String> roleIds) {
+        Index current = index;
+        long[] wanted = BitSets.EMPTY;
+        for (String roleId : roleIds) {
+            int role = current.roles.find(roleId);
+            if (role >= 0) {
+                wanted = BitSets.with(wanted, role);
+            }
+        }
+        if (BitSets.isEmpty(wanted)) {
+            return Stream.empty();
+        }
+        long[] roleBits = wanted;
+        return current.userRoles.entrySet().stream()
+                .filter(entry -> BitSets.intersects(entry.getValue(), roleBits))
+                .map(Map.Entry::getKey);
+    }
+
+    @EventListener
+    public synchronized void onSnapshotPublished(SnapshotPublishedEvent event) {
+        DirectorySnapshot snapshot = event.snapshot();
+        Instant syncStartedAt = snapshot.getStartedAt();
+        pendingUserRoles.values().removeIf(pending -> !pending.appliedAt().isAfter(syncStartedAt));
+        pendingRolePermissions.values().removeIf(pending -> !pending.appliedAt().isAfter(syncStartedAt));
+
+        Set<String> roleIds = new HashSet<>(snapshot.getRoles().keySet());
+        roleIds.addAll(snapshot.getRolePermissions().keySet());
+        roleIds.addAll(snapshot.getRoleMembers().keySet());
+        Set<String> permissionNames = new HashSet<>(snapshot.getScopes().keySet());
+        snapshot.getRolePermissions().values().forEach(permissionNames::addAll);
+
+        Index rebuilt = new Index(snapshot.getVersion(), snapshot.isUsersComplete(),
+                IdDictionary.withSortedValues(roleIds), IdDictionary.withSortedValues(permissionNames));
+        rebuilt.rolePermissions = new long[rebuilt.roles.size()][];
+        snapshot.getRolePermissions().forEach((roleId, permissions) ->
+                rebuilt.rolePermissions[rebuilt.roles.encode(roleId)] = encode(rebuilt.permissions, permissions));
+
+        Map<RoleCombination, long[]> combinations = new HashMap<>();
+        snapshot.getUsers().keySet().forEach(userId -> rebuilt.userRoles.put(userId, BitSets.EMPTY));
+        snapshot.getUserRoles().forEach((userId, userRoleIds) -> {
+            long[] bits = encode(rebuilt.roles, userRoleIds);
+            rebuilt.userRoles.put(userId, combinations.computeIfAbsent(new RoleCombination(bits), RoleCombination::bits));
+        });
+
+        pendingRolePermissions.forEach((roleId, pending) -> setRolePermissions(rebuilt, roleId, pending.values()));
+        pendingUserRoles.forEach((userId, pending) -> setUserRoles(rebuilt, userId, pending.values()));
+        rebuilt.permissionRoles = invert(rebuilt);
+        index = rebuilt;
+        log.debug("Rebuilt effective permission index from snapshot version {}: {} users in {} role combinations, "
+                        + "{} roles, {} permissions, {} pending writes",
+                snapshot.getVersion(), rebuilt.userRoles.size(), combinations.size(), rebuilt.roles.size(),
+                rebuilt.permissions.size(), pendingUserRoles.size() + pendingRolePermissions.size());
+    }
+
+    public synchronized void userRolesChanged(String userId, Collection<String> roleIds) {
+        Set<String> values = roleIds != null ? Set.copyOf(roleIds) : Collections.emptySet();
+        pendingUserRoles.put(userId, new Pending(values, Instant.now()));
+        setUserRoles(index, userId, values);
+    }
+
+    public synchronized void userDeleted(String userId) {
+        usersDeleted(List.of(userId));
+    }
+
+    public synchronized void usersDeleted(Collection<String> userIds) {
+        Instant now = Instant.now();
+        for (String userId : userIds) {
+            pendingUserRoles.put(userId, new Pending(null, now));
+            setUserRoles(index, userId, null);
+        }
+    }
+
+    public synchronized void rolePermissionsChanged(String roleId, Collection<String> permissions) {
+        Set<String> values = permissions != null ? Set.copyOf(permissions) : Collections.emptySet();
+        pendingRolePermissions.put(roleId, new Pending(values, Instant.now()));
+        setRolePermissions(index, roleId, values);
+    }
+
+    public synchronized void roleDeleted(String roleId) {
+        rolesDeleted(List.of(roleId));
+    }
+
+    /** Removes the roles with one pass over the users and one rebuild of the reverse index. */
+    public synchronized void rolesDeleted(Collection<String> roleIds) {
+        Instant now = Instant.now();
+        Index current = index;
+        long[][] rolePermissions = current.rolePermissions.clone();
+        long[] deleted = BitSets.EMPTY;
+        for (String roleId : roleIds) {
+            pendingRolePermissions.put(roleId, new Pending(null, now));
+            int role = current.roles.find(roleId);
+            if (role >= 0) {
+                deleted = BitSets.with(deleted, role);
+                if (role < rolePermissions.length) {
+                    rolePermissions[role] = null;
+                }
+            }
+        }
+        if (BitSets.isEmpty(deleted)) {
+            return;
+        }
+        current.rolePermissions = rolePermissions;
+        current.permissionRoles = invert(current);
+        long[] deletedRoles = deleted;
+        current.userRoles.forEach((userId, roleBits) -> {
+            if (BitSets.intersects(roleBits, deletedRoles)) {
+                long[] remaining = BitSets.andNot(roleBits, deletedRoles);
+                pendingUserRoles.put(userId, new Pending(Set.copyOf(decode(current.roles, remaining)), now));
+                current.userRoles.put(userId, remaining);
+            }
+        });
+    }
+
+    /**
+     * Applies a replacement of the scope catalog: scopes that are no longer defined are dropped
+     * from every role, as Auth0 does.
+     */
+    public synchronized void scopesReplaced(Set<String> scopes) {
+        Instant now = Instant.now();
+        Index current = index;
+        long[] retained = encode(current.permissions, scopes);
+        long[][] rolePermissions = current.rolePermissions.clone();
+        for (int role = 0; role < rolePermissions.length; role++) {
+            long[] permissions = rolePermissions[role];
+            if (permissions == null) {
+                continue;
+            }
+            long[] remaining = BitSets.and(permissions, retained);
+            if (!Arrays.equals(remaining, BitSets.trim(permissions))) {
+                rolePermissions[role] = remaining;
+                pendingRolePermissions.put(current.roles.decode(role),
+                        new Pending(Set.copyOf(decode(current.permissions, remaining)), now));
+            }
+        }
+        current.rolePermissions = rolePermissions;
+        current.permissionRoles = invert(current);
+    }
+
+    /** A null value removes the user. */
+    private static void setUserRoles(Index target, String userId, Set<String> roleIds) {
+        if (roleIds == null) {
+            target.userRoles.remove(userId);
+        } else {
+            target.userRoles.put(userId, encode(target.roles, roleIds));
+        }
+    }
+
+    /** A null value removes the role. Replaces the array so concurrent readers see a consistent view. */
+    private static void setRolePermissions(Index target, String roleId, Set<String> permissions) {
+        int role = permissions == null ? target.roles.find(roleId) : target.roles.encode(roleId);
+        if (role < 0) {
+            return;
+        }
+        long[][] rolePermissions = Arrays.copyOf(target.rolePermissions,
+                Math.max(target.rolePermissions.length, role + 1));
+        rolePermissions[role] = permissions == null ? null : encode(target.permissions, permissions);
+        target.rolePermissions = rolePermissions;
+        target.permissionRoles = invert(target);
+    }
+
+    /** Builds the permission → roles bitsets from the role → permissions bitsets. */
+    private static long[][] invert(Index target) {
+        long[][] rolePermissions = target.rolePermissions;
+        long[][] permissionRoles = new long[target.permissions.size()][];
+        long[] roleMask = new long[words(rolePermissions.length)];
+        for (int role = 0; role < rolePermissions.length; role++) {
+            if (rolePermissions[role] == null) {
+                continue;
+            }
+            int roleCode = role;
+            BitSets.forEach(rolePermissions[role], permission -> {
+                long[] roles = permissionRoles[permission];
+                if (roles == null) {
+                    roles = new long[roleMask.length];
+                    permissionRoles[permission] = roles;
+                }
+                roles[roleCode >>> 6] |= 1L << roleCode;
+            });
+        }
+        for (int permission = 0; permission < permissionRoles.length; permission++) {
+            if (permissionRoles[permission] != null) {
+                permissionRoles[permission] = BitSets.trim(permissionRoles[permission]);
+            }
+        }
+        return permissionRoles;
+    }
+
+    private static long[] encode(IdDictionary dictionary, Collection<String> values) {
+        long[] bits = new long[words(dictionary.size() + values.size())];
+        for (String value : values) {
+            int code = dictionary.encode(value);
+            bits[code >>> 6] |= 1L << code;
+        }
+        return BitSets.trim(bits);
+    }
+
+    private static List<String> decode(IdDictionary dictionary, long[] bits) {
+        List<String> values = new ArrayList<>(BitSets.cardinality(bits));
+        BitSets.forEach(bits, code -> values.add(dictionary.decode(code)));
+        return sortIfNeeded(dictionary, values);
+    }
+
+    private static List<String> decode(IdDictionary dictionary, int[] codes) {
+        List<String> values = new ArrayList<>(codes.length);
+        for (int code : codes) {
+            values.add(dictionary.decode(code));
+        }
+        return sortIfNeeded(dictionary, values);
+    }
+
+    private static List<String> sortIfNeeded(IdDictionary dictionary, List<String> values) {
+        if (!dictionary.isSorted()) {
+            Collections.sort(values);
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /** Role IDs and permission names, both sorted. */
+    public record EffectivePermissions(String userId, List<String> roleIds, List<String> permissions) {
+    }
+
+    /** A local write; a null value records a deletion. */
+    private record Pending(Set<String> values, Instant appliedAt) {
+    }
+
+    private record RoleCombination(long[] bits) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RoleCombination combination && Arrays.equals(bits, combination.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bits);
+        }
+    }
+
+    private static final class Index {
+
+        final long version;
+        final boolean usersComplete;
+        final IdDictionary roles;
+        final IdDictionary permissions;
+        final Map<String, long[]> userRoles = new ConcurrentHashMap<>();
+        volatile long[][] rolePermissions = new long[0][];
+        volatile long[][] permissionRoles = new long[0][];
+
+        Index(long version, boolean usersComplete, IdDictionary roles, IdDictionary permissions) {
+            this.version = version;
+            this.usersComplete = usersComplete;
+            this.roles = roles;
+            this.permissions = permissions;
+        }
+
+        static Index empty() {
+            return new Index(0, false, new IdDictionary(), new IdDictionary());
+        }
+    }
+}
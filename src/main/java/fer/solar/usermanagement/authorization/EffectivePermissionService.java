@@ -0,0 +1,129 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex.EffectivePermissions;
+import fer.solar.usermanagement.authorization.dto.BatchEffectivePermissionsResponse;
+import fer.solar.usermanagement.authorization.dto.EffectivePermissionsResponse;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.role.RoleService;
+import fer.solar.usermanagement.user.UserService;
+import fer.solar.usermanagement.user.dto.RoleInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers "what can this user do" from the {@link EffectivePermissionIndex}. Once the index holds
+ * the whole directory, a user it does not know does not exist and no Auth0 call is made. Until
+ * then, unknown users are resolved through the user and role services, at most
+ * {@code usermanagement.authorization.max-concurrent-fallbacks} at once; further lookups are
+ * rejected with 503. Fallbacks are counted in {@code usermanagement.authorization.fallbacks} by
+ * outcome ({@code resolved} or {@code rejected}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EffectivePermissionService {
+
+    private static final FieldSelection USER_ROLES_ONLY = FieldSelection.of("id", "roles");
+    private static final int FALLBACK_CONCURRENCY = 8;
+
+    private final EffectivePermissionIndex index;
+    private final UserService userService;
+    private final RoleService roleService;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger fallbacksInFlight = new AtomicInteger();
+
+    @Value("${usermanagement.authorization.max-concurrent-fallbacks:16}")
+    private int maxConcurrentFallbacks;
+
+    public Mono<EffectivePermissionsResponse> getEffectivePermissions(String userId) {
+        Optional<EffectivePermissions> indexed = index.lookup(userId);
+        if (indexed.isPresent()) {
+            return Mono.just(toResponse(indexed.get(), index.getVersion()));
+        }
+        if (index.isComplete()) {
+            return Mono.empty();
+        }
+        return resolveViaServices(userId);
+    }
+
+    public Mono<BatchEffectivePermissionsResponse> getEffectivePermissions(Collection<String> userIds) {
+        return Flux.fromIterable(new LinkedHashSet<>(userIds))
+                .flatMapSequential(userId -> getEffectivePermissions(userId)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(result -> new BatchEntry(userId, result)), FALLBACK_CONCURRENCY)
+                .collectList()
+                .map(entries -> {
+                    List<EffectivePermissionsResponse> results = new ArrayList<>();
+                    List<String> notFound = new ArrayList<>();
+                    entries.forEach(entry -> entry.result().ifPresentOrElse(results::add, () -> notFound.add(entry.userId())));
+                    return BatchEffectivePermissionsResponse.builder()
+                            .results(results)
+                            .notFound(notFound)
+                            .build();
+                });
+    }
+
+    private Mono<EffectivePermissionsResponse> resolveViaServices(String userId) {
+        return Mono.defer(() -> {
+            if (fallbacksInFlight.incrementAndGet() > maxConcurrentFallbacks) {
+                fallbacksInFlight.decrementAndGet();
+                countFallback("rejected");
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Effective permission index is not loaded yet"));
+            }
+            countFallback("resolved");
+            log.debug("User {} is not in the effective permission index, resolving through Auth0", userId);
+            return userService.getUserById(userId, USER_ROLES_ONLY)
+                    .flatMap(user -> {
+                        List<String> roleIds = user.getRoles() == null ? List.of()
+                                : user.getRoles().stream().map(RoleInfo::getId).sorted().toList();
+                        return Flux.fromIterable(roleIds)
+                                .flatMap(this::permissionsOfRole, FALLBACK_CONCURRENCY)
+                                .collect(TreeSet<String>::new, Set::addAll)
+                                .map(permissions -> toResponse(
+                                        new EffectivePermissions(userId, roleIds, List.copyOf(permissions)), 0));
+                    })
+                    .doFinally(signal -> fallbacksInFlight.decrementAndGet());
+        });
+    }
+
+    private void countFallback(String outcome) {
+        meterRegistry.counter("usermanagement.authorization.fallbacks", "outcome", outcome).increment();
+    }
+
+    private Mono<Collection<String>> permissionsOfRole(String roleId) {
+        return index.permissionsOfRole(roleId)
+                .<Mono<Collection<String>>>map(Mono::just)
+                .orElseGet(() -> roleService.getRoleById(roleId)
+                        .map(role -> role.getPermissions() == null ? List.<String>of() : role.getPermissions()));
+    }
+
+    private EffectivePermissionsResponse toResponse(EffectivePermissions permissions, long version) {
+        return EffectivePermissionsResponse.builder()
+                .userId(permissions.userId())
+                .roleIds(permissions.roleIds())
+                .permissions(permissions.permissions())
+                .indexVersion(version)
+                .build();
+    }
+
+    private record BatchEntry(String userId, Optional<EffectivePermissionsResponse> result) {
+    }
+}
@@ -0,0 +1,75 @@
+package fer.solar.usermanagement.authorization;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only mapping of strings (role IDs, permission names) to dense ints, so sets of them can
+ * be stored as bitsets. Lookups are lock-free; assigning new codes is serialized.
+ * <p>
+ * Codes handed out by {@link #withSortedValues} follow the natural order of the values, which
+ * lets callers decode a bitset into a sorted list without sorting. Values added later are
+ * appended and clear {@link #isSorted()} if they break that order.
+ */
+final class IdDictionary {
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private volatile int size;
+    private volatile boolean sorted = true;
+
+    static IdDictionary withSortedValues(Collection<String> values) {
+        IdDictionary dictionary = new IdDictionary();
+        values.stream().distinct().sorted().forEach(dictionary::encode);
+        return dictionary;
+    }
+
+    /**
+     * Returns the code of a value, assigning the next free code if the value is new.
+     */
+    int encode(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : assign(value);
+    }
+
+    /**
+     * Returns the code of a value, or -1 if it has never been encoded.
+     */
+    int find(String value) {
+        return codes.getOrDefault(value, -1);
+    }
+
+    String decode(int code) {
+        return values[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isSorted() {
+        return sorted;
+    }
+
+    private synchronized int assign(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int code = size;
+        String[] current = values;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[code] = value;
+        if (code > 0 && current[code - 1].compareTo(value) > 0) {
+            sorted = false;
+        }
+        values = current;
+        size = code + 1;
+        codes.put(value, code);
+        return code;
+    }
+}
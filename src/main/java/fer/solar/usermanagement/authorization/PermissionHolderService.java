@@ -0,0 +1,132 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.authorization.dto.PermissionHolder;
+import fer.solar.usermanagement.authorization.dto.PermissionHoldersResponse;
+import fer.solar.usermanagement.authorization.dto.PermissionUpdatePreview;
+import fer.solar.usermanagement.permission.PermissionService;
+import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Answers "who holds this permission" and "who is affected by this catalog change" from the
+ * {@link EffectivePermissionIndex}, without listing role permissions or role members in Auth0.
+ * Names are taken from the latest directory snapshot when available.
+ */
+@Service
+@RequiredArgsConstructor
+public class PermissionHolderService {
+
+    private final EffectivePermissionIndex index;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final PermissionService permissionService;
+
+    public boolean isReady() {
+        return index.isReady();
+    }
+
+    public boolean isKnown(String permissionName) {
+        return index.rolesHolding(permissionName).isPresent();
+    }
+
+    /**
+     * Streams the roles granting the permission, followed by their members when requested.
+     * Completes empty for unknown permissions.
+     */
+    public Flux<PermissionHolder> streamHolders(String permissionName, boolean includeUsers) {
+        return Flux.defer(() -> {
+            Optional<List<String>> roleIds = index.rolesHolding(permissionName);
+            if (roleIds.isEmpty()) {
+                return Flux.empty();
+            }
+            Optional<DirectorySnapshot> snapshot = snapshotHolder.current();
+            Flux<PermissionHolder> roles = Flux.fromIterable(roleIds.get())
+                    .map(roleId -> new PermissionHolder(PermissionHolder.ROLE, roleId, roleName(snapshot, roleId)));
+            if (!includeUsers) {
+                return roles;
+            }
+            Flux<PermissionHolder> users = Flux.fromStream(() -> index.usersWithAnyRole(roleIds.get()))
+                    .map(userId -> new PermissionHolder(PermissionHolder.USER, userId, userName(snapshot, userId)));
+            return roles.concatWith(users);
+        });
+    }
+
+    public Mono<PermissionHoldersResponse> getHolders(String permissionName, boolean includeUsers) {
+        if (!isKnown(permissionName)) {
+            return Mono.empty();
+        }
+        return streamHolders(permissionName, includeUsers)
+                .collectList()
+                .map(holders -> PermissionHoldersResponse.builder()
+                        .permissionName(permissionName)
+                        .roles(holders.stream().filter(holder -> PermissionHolder.ROLE.equals(holder.getType())).toList())
+                        .users(includeUsers
+                                ? holders.stream().filter(holder -> PermissionHolder.USER.equals(holder.getType())).toList()
+                                : null)
+                        .build());
+    }
+
+    /**
+     * Describes what replacing the scope catalog with the request would change, without applying it.
+     */
+    public Mono<PermissionUpdatePreview> previewUpdate(UpdatePermissionsRequest request) {
+        return permissionService.listPermissions()
+                .map(current -> {
+                    Map<String, String> existing = new HashMap<>();
+                    current.getContent().forEach(permission ->
+                            existing.put(permission.getPermissionName(), permission.getDescription()));
+                    Map<String, String> requested = new HashMap<>();
+                    if (request.getPermissions() != null) {
+                        request.getPermissions().forEach(permission ->
+                                requested.put(permission.getPermissionName(), permission.getDescription()));
+                    }
+
+                    TreeSet<String> removed = new TreeSet<>(existing.keySet());
+                    removed.removeAll(requested.keySet());
+                    TreeSet<String> added = new TreeSet<>(requested.keySet());
+                    added.removeAll(existing.keySet());
+                    List<String> changed = requested.keySet().stream()
+                            .filter(existing::containsKey)
+                            .filter(name -> !Objects.equals(existing.get(name), requested.get(name)))
+                            .sorted()
+                            .toList();
+
+                    Map<String, List<String>> lostByRole = new TreeMap<>();
+                    removed.forEach(permission -> index.rolesHolding(permission).ifPresent(roleIds ->
+                            roleIds.forEach(roleId -> lostByRole.computeIfAbsent(roleId, key -> new ArrayList<>()).add(permission))));
+                    Optional<DirectorySnapshot> snapshot = snapshotHolder.current();
+
+                    return PermissionUpdatePreview.builder()
+                            .addedPermissions(List.copyOf(added))
+                            .removedPermissions(List.copyOf(removed))
+                            .changedDescriptions(changed)
+                            .affectedRoles(lostByRole.entrySet().stream()
+                                    .map(entry -> new PermissionUpdatePreview.AffectedRole(
+                                            entry.getKey(), roleName(snapshot, entry.getKey()), entry.getValue()))
+                                    .toList())
+                            .affectedUserCount(lostByRole.isEmpty() ? 0 : index.usersWithAnyRole(lostByRole.keySet()).count())
+                            .build();
+                });
+    }
+
+    private String roleName(Optional<DirectorySnapshot> snapshot, String roleId) {
+        return snapshot.flatMap(s -> s.findRole(roleId)).map(DirectorySnapshot.RoleEntry::name).orElse(null);
+    }
+
+    private String userName(Optional<DirectorySnapshot> snapshot, String userId) {
+        return snapshot.flatMap(s -> s.findUser(userId)).map(DirectorySnapshot.UserEntry::name).orElse(null);
+    }
+}
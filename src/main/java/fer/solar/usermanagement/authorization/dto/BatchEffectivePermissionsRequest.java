@@ -0,0 +1,12 @@
+package fer.solar.usermanagement.authorization.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchEffectivePermissionsRequest {
+    private List<String> userIds;
+}
@@ -0,0 +1,13 @@
+package fer.solar.usermanagement.authorization.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchEffectivePermissionsResponse {
+    private List<EffectivePermissionsResponse> results;
+    private List<String> notFound; // Requested user IDs unknown to Auth0
+}
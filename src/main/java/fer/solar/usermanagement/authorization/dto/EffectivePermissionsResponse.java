@@ -0,0 +1,15 @@
+package fer.solar.usermanagement.authorization.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class EffectivePermissionsResponse {
+    private String userId;
+    private List<String> roleIds;      // Roles assigned to the user, sorted
+    private List<String> permissions;  // Union of the roles' permissions, sorted
+    private long indexVersion;         // Snapshot version the answer was computed from, 0 if computed via Auth0
+}
@@ -0,0 +1,20 @@
+package fer.solar.usermanagement.authorization.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionHolder {
+
+    public static final String ROLE = "role";
+    public static final String USER = "user";
+
+    private String type; // "role" or "user"
+    private String id;
+    private String name;
+}
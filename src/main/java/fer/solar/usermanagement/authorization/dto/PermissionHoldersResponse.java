@@ -0,0 +1,16 @@
+package fer.solar.usermanagement.authorization.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@Builder
+public class PermissionHoldersResponse {
+    private String permissionName;
+    private List<PermissionHolder> roles;
+    private List<PermissionHolder> users; // Only present when users were requested
+}
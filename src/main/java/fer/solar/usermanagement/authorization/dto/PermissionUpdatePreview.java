@@ -0,0 +1,27 @@
+package fer.solar.usermanagement.authorization.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PermissionUpdatePreview {
+    private List<String> addedPermissions;
+    private List<String> removedPermissions;
+    private List<String> changedDescriptions;
+    private List<AffectedRole> affectedRoles;
+    private long affectedUserCount; // Members of at least one affected role
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AffectedRole {
+        private String roleId;
+        private String roleName;
+        private List<String> lostPermissions;
+    }
+}
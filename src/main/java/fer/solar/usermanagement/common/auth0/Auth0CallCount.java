@@ -0,0 +1,28 @@
+package fer.solar.usermanagement.common.auth0;
+
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-request count of the Auth0 calls made to answer it. It travels in the Reactor context, is
+ * incremented by the {@link Auth0CallExecutor} and recorded by {@code Auth0CallCountWebFilter}.
+ */
+public class Auth0CallCount {
+
+    public static final Class<Auth0CallCount> CONTEXT_KEY = Auth0CallCount.class;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    public static void increment(ContextView context) {
+        context.<Auth0CallCount>getOrEmpty(CONTEXT_KEY).ifPresent(Auth0CallCount::increment);
+    }
+
+    public void increment() {
+        calls.incrementAndGet();
+    }
+
+    public int get() {
+        return calls.get();
+    }
+}
@@ -0,0 +1,148 @@
+package fer.solar.usermanagement.common.auth0;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs at most {@code concurrency} Auth0 calls at once and queues the rest by
+ * {@link Auth0Priority}. Waiting calls are started by weighted fair queuing (stride scheduling):
+ * each class advances a pass value by the inverse of its weight every time one of its calls
+ * starts, and the waiting class with the lowest pass goes next. Under contention interactive calls
+ * get most of the capacity, while bulk and sync work still progresses and takes everything left
+ * when nothing interactive waits.
+ * <p>
+ * Time spent waiting is recorded in {@code usermanagement.auth0.queue.wait} and the number of
+ * waiting calls in {@code usermanagement.auth0.queue.size}, both by priority.
+ */
+final class Auth0CallDispatcher {
+
+    private final int concurrency;
+    private final Map<Auth0Priority, ArrayDeque<Ticket>> queues = new EnumMap<>(Auth0Priority.class);
+    private final Map<Auth0Priority, Double> passes = new EnumMap<>(Auth0Priority.class);
+    private final Map<Auth0Priority, Timer> waitTimers = new EnumMap<>(Auth0Priority.class);
+    private double virtualTime;
+    private int running;
+
+    Auth0CallDispatcher(int concurrency, MeterRegistry meterRegistry) {
+        this.concurrency = concurrency;
+        for (Auth0Priority priority : Auth0Priority.values()) {
+            ArrayDeque<Ticket> queue = new ArrayDeque<>();
+            queues.put(priority, queue);
+            passes.put(priority, 0.0);
+            waitTimers.put(priority, Timer.builder("usermanagement.auth0.queue.wait")
+                    .tag("priority", priority.getMetricName())
+                    .description("Time Auth0 calls waited for a free slot")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+            Gauge.builder("usermanagement.auth0.queue.size", this, dispatcher -> dispatcher.queued(priority))
+                    .tag("priority", priority.getMetricName())
+                    .description("Auth0 calls waiting for a free slot")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Subscribes to {@code call} once a slot is free and it is the turn of its priority. Cancelling
+     * before that takes it out of the queue, cancelling later cancels the call.
+     */
+    <T> Mono<T> dispatch(Auth0Priority priority, Mono<T> call) {
+        return Mono.create(sink -> {
+            Disposable.Swap subscription = Disposables.swap();
+            Ticket ticket = new Ticket(priority, System.nanoTime(), () -> subscription.update(call
+                    .doFinally(signal -> release())
+                    .subscribe(sink::success, sink::error, sink::success)));
+            sink.onCancel(() -> {
+                if (!remove(ticket)) {
+                    subscription.dispose();
+                }
+            });
+            enqueue(ticket);
+        });
+    }
+
+    private void enqueue(Ticket ticket) {
+        synchronized (this) {
+            ArrayDeque<Ticket> queue = queues.get(ticket.priority());
+            if (queue.isEmpty()) {
+                // An idle class joins at the current round instead of cashing in the time it was away
+                passes.put(ticket.priority(), Math.max(passes.get(ticket.priority()), virtualTime));
+            }
+            queue.add(ticket);
+        }
+        startWaiting();
+    }
+
+    /**
+     * Whether a call dispatched now would start right away without taking a slot from one waiting.
+     */
+    synchronized boolean hasIdleSlot() {
+        return running < concurrency && queues.values().stream().allMatch(ArrayDeque::isEmpty);
+    }
+
+    private synchronized boolean remove(Ticket ticket) {
+        return queues.get(ticket.priority()).remove(ticket);
+    }
+
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+        startWaiting();
+    }
+
+    private void startWaiting() {
+        List<Ticket> started = new ArrayList<>();
+        synchronized (this) {
+            Ticket next;
+            while (running < concurrency && (next = poll()) != null) {
+                running++;
+                started.add(next);
+            }
+        }
+        started.forEach(ticket -> {
+            waitTimers.get(ticket.priority()).record(Duration.ofNanos(System.nanoTime() - ticket.enqueuedAt()));
+            ticket.start().run();
+        });
+    }
+
+    private Ticket poll() {
+        Auth0Priority next = null;
+        for (Auth0Priority priority : Auth0Priority.values()) {
+            if (!queues.get(priority).isEmpty() && (next == null || passes.get(priority) < passes.get(next))) {
+                next = priority;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+        virtualTime = passes.get(next);
+        passes.put(next, virtualTime + 1.0 / next.getWeight());
+        return queues.get(next).poll();
+    }
+
+    synchronized int queued(Auth0Priority priority) {
+        return queues.get(priority).size();
+    }
+
+    synchronized int running() {
+        return running;
+    }
+
+    int concurrency() {
+        return concurrency;
+    }
+
+    private record Ticket(Auth0Priority priority, long enqueuedAt, Runnable start) {
+    }
+}
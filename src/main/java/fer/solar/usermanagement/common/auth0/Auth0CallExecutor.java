@@ -0,0 +1,377 @@
+package fer.solar.usermanagement.common.auth0;
+
+import com.auth0.exception.APIException;
+import fer.solar.usermanagement.common.jfr.Auth0CallEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs blocking Management API calls on the bounded elastic scheduler, bounded by the request
+ * {@link Deadline} and stopped when nobody waits for them anymore. At most
+ * {@code usermanagement.auth0.concurrency} calls run at once, the others wait in an
+ * {@link Auth0CallDispatcher} that favours interactive requests over bulk and sync work.
+ * <ul>
+ *     <li>a call whose deadline has passed, or whose caller cancelled while it was still queued, is
+ *     never sent</li>
+ *     <li>a running read is aborted by interrupting its thread when the caller cancels or the
+ *     deadline passes; the SDK's HTTP client gives up at its next read or write</li>
+ *     <li>a running write is left to finish, its caller just stops waiting; the
+ *     {@link DetachedWriteListener} in the caller's context runs once it has finished. A write made
+ *     of several calls is kept together the same way by {@link #detached(Auth0Operation, Mono)}</li>
+ * </ul>
+ * Calls dropped or aborted this way are counted in {@code usermanagement.auth0.calls.abandoned}
+ * by operation, reason ({@code deadline} or {@code cancelled}) and stage ({@code queued} or
+ * {@code in_flight}).
+ * <p>
+ * Every call that reaches Auth0 is timed in {@code usermanagement.auth0.calls} by operation and
+ * outcome ({@code success}, {@code client_error}, {@code rate_limited}, {@code server_error},
+ * {@code error} or {@code aborted}), and counted towards the request's {@link Auth0CallCount}.
+ * <p>
+ * With {@code usermanagement.auth0.hedging.enabled}, an interactive read still unanswered after the
+ * operation's recent p95 latency is sent a second time if a slot is free and the hedge budget (by
+ * default 5% of interactive reads) allows; the first answer wins and the other call is aborted. A
+ * failing hedge never wins, the primary's outcome is awaited instead.
+ * Hedges are counted in {@code usermanagement.auth0.hedges.sent}, {@code .won} and
+ * {@code .skipped}.
+ * <p>
+ * Each call is traced as an {@code auth0 <operation>} span, a child of the inbound request's span,
+ * tagged with its operation, priority and final {@code auth0.status}. A nested
+ * {@code auth0 scheduling} span covers the wait for a dispatcher slot and a bounded elastic thread.
+ * The run itself is also recorded as an {@link Auth0CallEvent} for Flight Recorder, and its outcome
+ * kept in {@link #getRecentOutcomes()} for health checks; a read aborted while in flight counts
+ * there as failed after the time it ran, the losing side of a hedge not at all.
+ */
+@Component
+public class Auth0CallExecutor {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int ABANDONED = 3;
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Auth0CallDispatcher dispatcher;
+    private final HedgingPolicy hedgingPolicy = new HedgingPolicy();
+    private final Auth0CallOutcomes recentOutcomes = new Auth0CallOutcomes();
+    // Times hedges; tests swap in a virtual clock to decide when a hedge is sent
+    private Scheduler hedgeTimer = Schedulers.parallel();
+
+    @Value("${usermanagement.auth0.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${usermanagement.auth0.hedging.budget:0.05}")
+    private double hedgingBudget;
+
+    @Value("${usermanagement.auth0.hedging.min-delay:PT0.01S}")
+    private Duration hedgingMinDelay;
+
+    public Auth0CallExecutor(MeterRegistry meterRegistry, ObjectProvider<Tracer> tracer,
+                             @Value("${usermanagement.auth0.concurrency:16}") int concurrency) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+        this.dispatcher = new Auth0CallDispatcher(concurrency, meterRegistry);
+    }
+
+    public <T> Mono<T> call(Auth0Operation operation, Callable<T> call) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context).orElse(null);
+            if (deadline != null && deadline.isExpired()) {
+                recordAbandoned(operation, "deadline", "queued");
+                return Mono.error(new DeadlineExceededException(operation));
+            }
+            Auth0CallCount.increment(context);
+
+            Auth0Priority priority = Auth0Priority.of(context, operation);
+            Span span = startSpan(context, operation, priority);
+            TrackedCall<T> tracked = new TrackedCall<>(operation, priority, call, span);
+            Mono<T> execution;
+            if (operation.isMutating()) {
+                Mono<T> blocking = attempt(priority, tracked);
+                DetachedWriteListener listener = DetachedWriteListener.from(context).orElse(null);
+                // Subscribed on its own, so cancelling the caller cannot interrupt it
+                execution = Mono.defer(() -> {
+                    CompletableFuture<T> write = blocking.toFuture();
+                    if (listener != null) {
+                        write.whenComplete((result, error) -> {
+                            if (tracked.callerGone) {
+                                listener.listener().run();
+                            }
+                        });
+                    }
+                    return Mono.fromFuture(write, true);
+                });
+            } else if (hedgingEnabled && priority == Auth0Priority.INTERACTIVE_READ) {
+                execution = hedged(operation, priority, tracked, call);
+            } else {
+                execution = attempt(priority, tracked);
+            }
+            execution = execution.doOnCancel(tracked::abandon);
+            if (deadline != null) {
+                execution = execution.timeout(Mono.delay(deadline.remaining()).doOnNext(tick -> tracked.deadlineReached = true),
+                        Mono.error(() -> new DeadlineExceededException(operation)));
+            }
+            return execution
+                    .doOnSuccess(result -> span.tag("auth0.status", "success").end())
+                    .doOnError(e -> span.tag("auth0.status", outcomeOf(e)).error(e).end())
+                    .doOnCancel(() -> span.tag("auth0.status", "cancelled").end());
+        });
+    }
+
+    /**
+     * Runs a write made of several calls to the end even when its caller stops waiting, as a single
+     * write call is. The caller's deadline only bounds how long the caller waits, and its
+     * {@link DetachedWriteListener} runs once the whole write has finished.
+     */
+    public <T> Mono<T> detached(Auth0Operation operation, Mono<T> write) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context).orElse(null);
+            if (deadline != null && deadline.isExpired()) {
+                recordAbandoned(operation, "deadline", "queued");
+                return Mono.error(new DeadlineExceededException(operation));
+            }
+            AtomicBoolean callerGone = new AtomicBoolean();
+            CompletableFuture<T> result = write
+                    .contextWrite(Context.of(context).delete(Deadline.CONTEXT_KEY).delete(DetachedWriteListener.CONTEXT_KEY))
+                    .toFuture();
+            DetachedWriteListener.from(context).ifPresent(listener -> result.whenComplete((value, error) -> {
+                if (callerGone.get()) {
+                    listener.listener().run();
+                }
+            }));
+            Mono<T> waiting = Mono.fromFuture(result, true).doOnCancel(() -> callerGone.set(true));
+            if (deadline != null) {
+                waiting = waiting.timeout(Mono.delay(deadline.remaining()),
+                        Mono.error(() -> new DeadlineExceededException(operation)));
+            }
+            return waiting;
+        });
+    }
+
+    public Mono<Void> run(Auth0Operation operation, Runnable call) {
+        return call(operation, () -> {
+            call.run();
+            return null;
+        }).then();
+    }
+
+    public Auth0CallOutcomes getRecentOutcomes() {
+        return recentOutcomes;
+    }
+
+    public int getConcurrency() {
+        return dispatcher.concurrency();
+    }
+
+    public int getRunningCalls() {
+        return dispatcher.running();
+    }
+
+    public int getQueuedCalls(Auth0Priority priority) {
+        return dispatcher.queued(priority);
+    }
+
+    private <T> Mono<T> attempt(Auth0Priority priority, TrackedCall<T> tracked) {
+        return Mono.defer(() -> {
+            tracked.startWaiting();
+            return dispatcher.dispatch(priority, Mono.fromCallable(tracked::run).subscribeOn(Schedulers.boundedElastic()));
+        });
+    }
+
+    private Span startSpan(ContextView context, Auth0Operation operation, Auth0Priority priority) {
+        Span parent = requestSpan(context);
+        return (parent != null ? tracer.nextSpan(parent) : tracer.nextSpan())
+                .name("auth0 " + operation.getMetricName())
+                .tag("auth0.operation", operation.getMetricName())
+                .tag("auth0.priority", priority.getMetricName())
+                .start();
+    }
+
+    /**
+     * The span of the inbound request, which WebFlux keeps with its observation in the Reactor context.
+     */
+    private static Span requestSpan(ContextView context) {
+        Observation observation = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        if (observation == null) {
+            return null;
+        }
+        TracingObservationHandler.TracingContext tracing = observation.getContextView().get(TracingObservationHandler.TracingContext.class);
+        return tracing != null ? tracing.getSpan() : null;
+    }
+
+    private <T> Mono<T> hedged(Auth0Operation operation, Auth0Priority priority, TrackedCall<T> primary, Callable<T> call) {
+        hedgingPolicy.earn(hedgingBudget);
+        Duration threshold = hedgingPolicy.threshold(operation);
+        if (threshold == null) {
+            return attempt(priority, primary);
+        }
+        TrackedCall<T> hedge = new TrackedCall<>(operation, priority, call, primary.span);
+        Mono<T> hedgeAttempt = Mono.delay(threshold.compareTo(hedgingMinDelay) > 0 ? threshold : hedgingMinDelay, hedgeTimer)
+                .flatMap(tick -> {
+                    // Hedges only use spare capacity, never a slot some other call is waiting for
+                    if (!dispatcher.hasIdleSlot()) {
+                        meterRegistry.counter("usermanagement.auth0.hedges.skipped",
+                                "operation", operation.getMetricName(), "reason", "busy").increment();
+                        return Mono.<T>never();
+                    }
+                    if (!hedgingPolicy.trySpend()) {
+                        meterRegistry.counter("usermanagement.auth0.hedges.skipped",
+                                "operation", operation.getMetricName(), "reason", "budget").increment();
+                        return Mono.<T>never();
+                    }
+                    meterRegistry.counter("usermanagement.auth0.hedges.sent", "operation", operation.getMetricName()).increment();
+                    primary.span.event("hedge sent");
+                    return attempt(priority, hedge)
+                            .doOnSuccess(result -> meterRegistry.counter("usermanagement.auth0.hedges.won",
+                                    "operation", operation.getMetricName()).increment())
+                            // A failed hedge, such as one rate limited, leaves the answer to the primary
+                            .onErrorResume(e -> Mono.never());
+                })
+                .doOnCancel(hedge::discard);
+        return Mono.firstWithSignal(attempt(priority, primary).doOnCancel(primary::discard), hedgeAttempt);
+    }
+
+    private void recordCall(Auth0Operation operation, String outcome, long nanos) {
+        Timer.builder("usermanagement.auth0.calls")
+                .tag("operation", operation.getMetricName())
+                .tag("outcome", outcome)
+                .description("Duration of Auth0 Management API calls")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcomeOf(Throwable error) {
+        if (error instanceof DeadlineExceededException) {
+            return "deadline_exceeded";
+        }
+        // Services wrap SDK exceptions, the status is on the cause
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof APIException apiException) {
+                int status = apiException.getStatusCode();
+                if (status == 429) {
+                    return "rate_limited";
+                }
+                return status >= 500 ? "server_error" : "client_error";
+            }
+        }
+        return "error";
+    }
+
+    private void recordAbandoned(Auth0Operation operation, String reason, String stage) {
+        meterRegistry.counter("usermanagement.auth0.calls.abandoned",
+                "operation", operation.getMetricName(), "reason", reason, "stage", stage).increment();
+    }
+
+    private final class TrackedCall<T> {
+
+        private final Auth0Operation operation;
+        private final Auth0Priority priority;
+        private final Callable<T> call;
+        private final Span span;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final AtomicReference<Span> waitSpan = new AtomicReference<>();
+        private volatile boolean deadlineReached;
+        private volatile boolean callerGone;
+        private volatile long startedAt;
+
+        private TrackedCall(Auth0Operation operation, Auth0Priority priority, Callable<T> call, Span span) {
+            this.operation = operation;
+            this.priority = priority;
+            this.call = call;
+            this.span = span;
+        }
+
+        void startWaiting() {
+            waitSpan.set(tracer.nextSpan(span).name("auth0 scheduling").start());
+        }
+
+        private void endWaiting() {
+            Span waiting = waitSpan.getAndSet(null);
+            if (waiting != null) {
+                waiting.end();
+            }
+        }
+
+        T run() throws Exception {
+            endWaiting();
+            long start = System.nanoTime();
+            startedAt = start;
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return null;
+            }
+            Auth0CallEvent event = Auth0CallEvent.start(operation.getMetricName(), priority.getMetricName());
+            try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+                T result = call.call();
+                long elapsed = System.nanoTime() - start;
+                if (state.compareAndSet(RUNNING, DONE)) {
+                    hedgingPolicy.recordLatency(operation, elapsed);
+                    recentOutcomes.record(false, elapsed);
+                }
+                recordCall(operation, "success", elapsed);
+                event.end("success");
+                return result;
+            } catch (Exception e) {
+                long elapsed = System.nanoTime() - start;
+                if (!state.compareAndSet(RUNNING, DONE)) {
+                    // Aborted, the failure is the interrupt and nobody is waiting for it; its outcome was
+                    // recorded when it was abandoned
+                    recordCall(operation, "aborted", elapsed);
+                    event.end("aborted");
+                    return null;
+                }
+                String outcome = outcomeOf(e);
+                recordCall(operation, outcome, elapsed);
+                // A client error is still an answer, Auth0 itself is fine
+                recentOutcomes.record(!outcome.equals("client_error"), elapsed);
+                event.end(outcome);
+                throw e;
+            }
+        }
+
+        void abandon() {
+            callerGone = true;
+            endWaiting();
+            String reason = deadlineReached ? "deadline" : "cancelled";
+            if (state.compareAndSet(QUEUED, ABANDONED)) {
+                recordAbandoned(operation, reason, "queued");
+            } else if (!operation.isMutating() && state.compareAndSet(RUNNING, ABANDONED)) {
+                recordAbandoned(operation, reason, "in_flight");
+                // A call Auth0 did not answer in time is the clearest sign of an outage
+                recentOutcomes.record(true, System.nanoTime() - startedAt);
+            }
+        }
+
+        /**
+         * Stops the call like {@link #abandon()} without counting it, for the losing side of a hedge.
+         */
+        void discard() {
+            endWaiting();
+            if (!state.compareAndSet(QUEUED, ABANDONED)) {
+                state.compareAndSet(RUNNING, ABANDONED);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package fer.solar.usermanagement.common.auth0;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * The last {@value #SIZE} Auth0 call outcomes with their latency, for health checks that must not
+ * call Auth0 themselves. Calls record without locking: each takes the next slot of a ring and
+ * writes its outcome there as a single long (when it ended, its latency and whether it failed), so
+ * readers never see half an entry.
+ */
+public final class Auth0CallOutcomes {
+
+    private static final int SIZE = 256;
+    private static final long MAX_LATENCY_MILLIS = (1L << 22) - 1;
+
+    private final AtomicLongArray entries = new AtomicLongArray(SIZE);
+    private final AtomicLong next = new AtomicLong();
+    private final LongSupplier clock;
+    private final long origin;
+
+    public Auth0CallOutcomes() {
+        this(System::currentTimeMillis);
+    }
+
+    Auth0CallOutcomes(LongSupplier clock) {
+        this.clock = clock;
+        // Times are kept relative to one millisecond before creation, so an empty slot (0) is never a call
+        this.origin = clock.getAsLong() - 1;
+    }
+
+    public void record(boolean failed, long latencyNanos) {
+        long endedAt = clock.getAsLong() - origin;
+        long latency = Math.min(TimeUnit.NANOSECONDS.toMillis(latencyNanos), MAX_LATENCY_MILLIS);
+        int slot = (int) (next.getAndIncrement() & (SIZE - 1));
+        entries.set(slot, endedAt << 23 | latency << 1 | (failed ? 1 : 0));
+    }
+
+    /**
+     * Summarizes the recorded calls that ended within {@code period}.
+     */
+    public Summary summarize(Duration period) {
+        long since = clock.getAsLong() - origin - period.toMillis();
+        long[] latencies = new long[SIZE];
+        int calls = 0;
+        int failures = 0;
+        for (int i = 0; i < SIZE; i++) {
+            long entry = entries.get(i);
+            if (entry == 0 || (entry >>> 23) < since) {
+                continue;
+            }
+            latencies[calls++] = (entry >>> 1) & MAX_LATENCY_MILLIS;
+            failures += (int) (entry & 1);
+        }
+        if (calls == 0) {
+            return new Summary(0, 0, Duration.ZERO);
+        }
+        Arrays.sort(latencies, 0, calls);
+        long p95 = latencies[(int) Math.ceil(calls * 0.95) - 1];
+        return new Summary(calls, failures, Duration.ofMillis(p95));
+    }
+
+    public record Summary(int calls, int failures, Duration p95Latency) {
+
+        public double errorRate() {
+            return calls == 0 ? 0 : (double) failures / calls;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package fer.solar.usermanagement.common.auth0;
+
+/**
+ * The kinds of Management API work run through the {@link Auth0CallExecutor}. Mutating operations
+ * are never aborted once they have started, since their effect upstream could not be known.
+ */
+public enum Auth0Operation {
+
+    USERS_LIST("users.list", false),
+    USERS_GET("users.get", false),
+    USERS_LIST_ROLES("users.listRoles", false),
+    USERS_CREATE("users.create", true),
+    USERS_UPDATE_ROLES("users.updateRoles", true),
+    USERS_DELETE("users.delete", true),
+    ROLES_LIST("roles.list", false),
+    ROLES_GET("roles.get", false),
+    ROLES_LIST_PERMISSIONS("roles.listPermissions", false),
+    ROLES_LIST_USERS("roles.listUsers", false),
+    ROLES_CREATE("roles.create", true),
+    ROLES_UPDATE("roles.update", true),
+    ROLES_DELETE("roles.delete", true),
+    ROLES_ADD_PERMISSIONS("roles.addPermissions", true),
+    ROLES_REMOVE_PERMISSIONS("roles.removePermissions", true),
+    ROLES_ASSIGN_USERS("roles.assignUsers", true),
+    USERS_ADD_ROLES("users.addRoles", true),
+    USERS_REMOVE_ROLES("users.removeRoles", true),
+    TICKETS_PASSWORD_CHANGE("tickets.passwordChange", true),
+    SCOPES_GET("scopes.get", false),
+    SCOPES_UPDATE("scopes.update", true),
+    HEALTH_PROBE("health.probe", false);
+
+    private final String metricName;
+    private final boolean mutating;
+
+    Auth0Operation(String metricName, boolean mutating) {
+        this.metricName = metricName;
+        this.mutating = mutating;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public boolean isMutating() {
+        return mutating;
+    }
+}
@@ -0,0 +1,39 @@
+package fer.solar.usermanagement.common.auth0;
+
+import reactor.util.context.ContextView;
+
+/**
+ * Class of Auth0 work, deciding its share of the {@link Auth0CallExecutor}'s capacity when calls
+ * have to wait. It travels in the Reactor context; calls without one are interactive reads or
+ * writes depending on their {@link Auth0Operation}.
+ */
+public enum Auth0Priority {
+
+    INTERACTIVE_READ("interactive_read", 16),
+    INTERACTIVE_WRITE("interactive_write", 8),
+    BULK_JOB("bulk_job", 2),
+    BACKGROUND_SYNC("background_sync", 1);
+
+    public static final Class<Auth0Priority> CONTEXT_KEY = Auth0Priority.class;
+
+    private final String metricName;
+    private final int weight;
+
+    Auth0Priority(String metricName, int weight) {
+        this.metricName = metricName;
+        this.weight = weight;
+    }
+
+    public static Auth0Priority of(ContextView context, Auth0Operation operation) {
+        return context.<Auth0Priority>getOrEmpty(CONTEXT_KEY)
+                .orElse(operation.isMutating() ? INTERACTIVE_WRITE : INTERACTIVE_READ);
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
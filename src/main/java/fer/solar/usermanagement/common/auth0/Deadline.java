@@ -0,0 +1,31 @@
+package fer.solar.usermanagement.common.auth0;
+
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Point in time by which the caller stops waiting for a response. It travels in the Reactor
+ * context, set by {@code DeadlineWebFilter}, and bounds every Auth0 call made for the request.
+ */
+public record Deadline(long expiresAtNanos) {
+
+    public static final Class<Deadline> CONTEXT_KEY = Deadline.class;
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    public static Optional<Deadline> from(ContextView context) {
+        return context.getOrEmpty(CONTEXT_KEY);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,15 @@
+package fer.solar.usermanagement.common.auth0;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The request deadline passed before an Auth0 call it needed could complete.
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(Auth0Operation operation) {
+        super("Request deadline exceeded before " + operation.getMetricName() + " completed");
+    }
+}
@@ -0,0 +1,34 @@
+package fer.solar.usermanagement.common.auth0;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Work to run once a write whose caller stopped waiting for it has finished in Auth0, such as
+ * invalidating caches again: the caller's own invalidation ran when it gave up, and a read since
+ * then may have cached what Auth0 returned before the write landed. It travels in the Reactor
+ * context, added with {@link #onFinished(Runnable)}, and is run by the {@link Auth0CallExecutor}.
+ */
+public record DetachedWriteListener(Runnable listener) {
+
+    public static final Class<DetachedWriteListener> CONTEXT_KEY = DetachedWriteListener.class;
+
+    /**
+     * Adds {@code listener} to the context, after any listener of an enclosing operation.
+     */
+    public static Function<Context, Context> onFinished(Runnable listener) {
+        return context -> context.put(CONTEXT_KEY, from(context)
+                .map(enclosing -> new DetachedWriteListener(() -> {
+                    listener.run();
+                    enclosing.listener().run();
+                }))
+                .orElseGet(() -> new DetachedWriteListener(listener)));
+    }
+
+    public static Optional<DetachedWriteListener> from(ContextView context) {
+        return context.getOrEmpty(CONTEXT_KEY);
+    }
+}
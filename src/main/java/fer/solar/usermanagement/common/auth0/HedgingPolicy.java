@@ -0,0 +1,75 @@
+package fer.solar.usermanagement.common.auth0;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Decides when a slow read is worth a second, hedged call: after the 95th percentile of the
+ * operation's recent latency, and only while the hedge budget allows. Every primary call earns a
+ * fraction of a hedge, so hedges stay within that fraction of all calls, with a small reserve for
+ * bursts.
+ */
+final class HedgingPolicy {
+
+    private static final int WINDOW = 200;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 20;
+    private static final double PERCENTILE = 0.95;
+    private static final double MAX_TOKENS = 10;
+
+    private final Map<Auth0Operation, LatencyWindow> latencies = new EnumMap<>(Auth0Operation.class);
+    private double tokens;
+
+    HedgingPolicy() {
+        for (Auth0Operation operation : Auth0Operation.values()) {
+            latencies.put(operation, new LatencyWindow());
+        }
+    }
+
+    void recordLatency(Auth0Operation operation, long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    /**
+     * Returns how long to wait for the operation before hedging it, or {@code null} while too
+     * little is known about its latency.
+     */
+    Duration threshold(Auth0Operation operation) {
+        return latencies.get(operation).percentile();
+    }
+
+    synchronized void earn(double ratio) {
+        tokens = Math.min(MAX_TOKENS, tokens + ratio);
+    }
+
+    synchronized boolean trySpend() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private Duration percentile;
+
+        synchronized void record(long nanos) {
+            samples[count % WINDOW] = nanos;
+            count++;
+            if (count >= MIN_SAMPLES && count % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                percentile = Duration.ofNanos(sorted[(int) Math.ceil(PERCENTILE * sorted.length) - 1]);
+            }
+        }
+
+        synchronized Duration percentile() {
+            return percentile;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package fer.solar.usermanagement.common.auth0;
+
+import com.auth0.net.client.Auth0HttpClient;
+import com.auth0.net.client.Auth0HttpRequest;
+import com.auth0.net.client.Auth0HttpResponse;
+import fer.solar.usermanagement.common.jfr.Auth0HttpRequestEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP client for the Auth0 SDK that remembers the rate limit headers of the last response and
+ * exports them as {@code usermanagement.auth0.ratelimit.remaining}, {@code .limit} and
+ * {@code .reset} (epoch seconds). The gauges stay at -1 until a response carried the headers.
+ * Every request is also recorded as an {@link Auth0HttpRequestEvent} for Flight Recorder.
+ */
+public class RateLimitTrackingHttpClient implements Auth0HttpClient, MeterBinder {
+
+    private final Auth0HttpClient delegate;
+    private final AtomicLong remaining = new AtomicLong(-1);
+    private final AtomicLong limit = new AtomicLong(-1);
+    private final AtomicLong reset = new AtomicLong(-1);
+
+    public RateLimitTrackingHttpClient(Auth0HttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Auth0HttpResponse sendRequest(Auth0HttpRequest request) throws IOException {
+        Auth0HttpRequestEvent event = Auth0HttpRequestEvent.start(request.getMethod().name(), request.getUrl());
+        Auth0HttpResponse response = null;
+        try {
+            response = delegate.sendRequest(request);
+            return track(response);
+        } finally {
+            event.end(response);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Auth0HttpResponse> sendRequestAsync(Auth0HttpRequest request) {
+        Auth0HttpRequestEvent event = Auth0HttpRequestEvent.start(request.getMethod().name(), request.getUrl());
+        return delegate.sendRequestAsync(request)
+                .whenComplete((response, error) -> event.end(response))
+                .thenApply(this::track);
+    }
+
+    public long getRemaining() {
+        return remaining.get();
+    }
+
+    public long getLimit() {
+        return limit.get();
+    }
+
+    public long getReset() {
+        return reset.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("usermanagement.auth0.ratelimit.remaining", remaining, AtomicLong::get)
+                .description("X-RateLimit-Remaining of the last Auth0 response")
+                .register(registry);
+        Gauge.builder("usermanagement.auth0.ratelimit.limit", limit, AtomicLong::get)
+                .description("X-RateLimit-Limit of the last Auth0 response")
+                .register(registry);
+        Gauge.builder("usermanagement.auth0.ratelimit.reset", reset, AtomicLong::get)
+                .description("X-RateLimit-Reset of the last Auth0 response, in epoch seconds")
+                .register(registry);
+    }
+
+    private Auth0HttpResponse track(Auth0HttpResponse response) {
+        if (response.getHeaders() == null) {
+            return response;
+        }
+        // Header names arrive as sent, which over HTTP/2 means lower case
+        response.getHeaders().forEach((name, value) -> {
+            if ("X-RateLimit-Remaining".equalsIgnoreCase(name)) {
+                update(remaining, value);
+            } else if ("X-RateLimit-Limit".equalsIgnoreCase(name)) {
+                update(limit, value);
+            } else if ("X-RateLimit-Reset".equalsIgnoreCase(name)) {
+                update(reset, value);
+            }
+        });
+        return response;
+    }
+
+    private static void update(AtomicLong target, String value) {
+        try {
+            target.set(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // Not a number, keep the last value that was
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package fer.solar.usermanagement.common.batch;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchDeleteRequest {
+    private List<String> ids;
+}
@@ -0,0 +1,21 @@
+package fer.solar.usermanagement.common.batch;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Data
+@Builder
+public class BatchDeleteResponse {
+    private List<BatchDeleteResult> results; // Ordered by ID
+    private long failed;
+
+    public static BatchDeleteResponse of(List<BatchDeleteResult> results) {
+        return BatchDeleteResponse.builder()
+                .results(results.stream().sorted(Comparator.comparing(BatchDeleteResult::getId)).toList())
+                .failed(results.stream().filter(result -> !result.isSuccessful()).count())
+                .build();
+    }
+}
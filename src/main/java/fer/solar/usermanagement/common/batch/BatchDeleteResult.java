@@ -0,0 +1,45 @@
+package fer.solar.usermanagement.common.batch;
+
+import com.auth0.exception.APIException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of deleting one item of a batch. An item Auth0 does not know is reported as
+ * {@link Status#NOT_FOUND} and counts as deleted, so a retried batch converges.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchDeleteResult {
+    private String id;
+    private Status status;
+    private String error;
+
+    public static BatchDeleteResult deleted(String id) {
+        return new BatchDeleteResult(id, Status.DELETED, null);
+    }
+
+    public static BatchDeleteResult failed(String id, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof APIException apiException && apiException.getStatusCode() == 404) {
+            return new BatchDeleteResult(id, Status.NOT_FOUND, null);
+        }
+        return new BatchDeleteResult(id, Status.FAILED, cause.getMessage());
+    }
+
+    @JsonIgnore
+    public boolean isSuccessful() {
+        return status != Status.FAILED;
+    }
+
+    public enum Status {
+        DELETED,
+        NOT_FOUND,
+        FAILED
+    }
+}
@@ -0,0 +1,32 @@
+package fer.solar.usermanagement.common.cache;
+
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request holder for the age of the oldest cached value used to build the response.
+ * It travels in the Reactor context and is turned into an {@code Age} header by {@code CacheAgeWebFilter}.
+ */
+public class CacheAge {
+
+    public static final Class<CacheAge> CONTEXT_KEY = CacheAge.class;
+
+    private final AtomicLong maxAgeSeconds = new AtomicLong(-1);
+
+    public static void record(ContextView context, long ageSeconds) {
+        context.<CacheAge>getOrEmpty(CONTEXT_KEY).ifPresent(holder -> holder.record(ageSeconds));
+    }
+
+    public void record(long ageSeconds) {
+        maxAgeSeconds.accumulateAndGet(ageSeconds, Math::max);
+    }
+
+    public boolean isPresent() {
+        return maxAgeSeconds.get() >= 0;
+    }
+
+    public long getSeconds() {
+        return maxAgeSeconds.get();
+    }
+}
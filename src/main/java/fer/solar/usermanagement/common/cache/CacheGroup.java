@@ -0,0 +1,10 @@
+package fer.solar.usermanagement.common.cache;
+
+/**
+ * Resource types with their own freshness and staleness limits.
+ */
+public enum CacheGroup {
+    USERS,
+    ROLES,
+    PERMISSIONS
+}
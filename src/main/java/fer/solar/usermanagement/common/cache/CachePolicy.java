@@ -0,0 +1,16 @@
+package fer.solar.usermanagement.common.cache;
+
+import java.time.Duration;
+
+/**
+ * Freshness limits of a cache: values are refreshed after {@code freshFor} and never served
+ * once older than {@code maxStale}.
+ */
+public record CachePolicy(Duration freshFor, Duration maxStale, long maxEntries) {
+
+    public CachePolicy {
+        if (maxStale.compareTo(freshFor) <= 0) {
+            throw new IllegalArgumentException("maxStale must be longer than freshFor");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package fer.solar.usermanagement.common.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Creates the stale-while-revalidate caches with their per resource type policy and keeps track
+ * of them so whole resource types can be invalidated after writes.
+ */
+@Component
+public class CacheRegistry {
+
+    private final Map<String, StaleWhileRevalidateCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    @Value("${usermanagement.cache.users.fresh-for:30s}")
+    private Duration usersFreshFor;
+
+    @Value("${usermanagement.cache.users.max-stale:10m}")
+    private Duration usersMaxStale;
+
+    @Value("${usermanagement.cache.roles.fresh-for:60s}")
+    private Duration rolesFreshFor;
+
+    @Value("${usermanagement.cache.roles.max-stale:30m}")
+    private Duration rolesMaxStale;
+
+    @Value("${usermanagement.cache.permissions.fresh-for:60s}")
+    private Duration permissionsFreshFor;
+
+    @Value("${usermanagement.cache.permissions.max-stale:1h}")
+    private Duration permissionsMaxStale;
+
+    @Value("${usermanagement.cache.max-entries:10000}")
+    private long maxEntries;
+
+    public <K, V> StaleWhileRevalidateCache<K, V> create(String name, CacheGroup group, Function<K, Mono<V>> loader) {
+        StaleWhileRevalidateCache<K, V> cache = new StaleWhileRevalidateCache<>(name, group, policyFor(group), loader);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    public CachePolicy policyFor(CacheGroup group) {
+        return switch (group) {
+            case USERS -> new CachePolicy(usersFreshFor, usersMaxStale, maxEntries);
+            case ROLES -> new CachePolicy(rolesFreshFor, rolesMaxStale, maxEntries);
+            case PERMISSIONS -> new CachePolicy(permissionsFreshFor, permissionsMaxStale, maxEntries);
+        };
+    }
+
+    public void invalidateAll(CacheGroup... groups) {
+        for (CacheGroup group : groups) {
+            caches.values().stream()
+                    .filter(cache -> cache.getGroup() == group)
+                    .forEach(StaleWhileRevalidateCache::invalidateAll);
+        }
+    }
+
+    public Collection<StaleWhileRevalidateCache<?, ?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+}
@@ -0,0 +1,193 @@
+package fer.solar.usermanagement.common.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fer.solar.usermanagement.common.auth0.Auth0CallCount;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.common.auth0.Deadline;
+import fer.solar.usermanagement.common.jfr.CacheEvent;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache that serves the last known good value while refreshing it in the background.
+ * <ul>
+ *     <li>younger than {@code freshFor}: served as is</li>
+ *     <li>older than {@code freshFor}: served immediately, a single background reload is started</li>
+ *     <li>older than {@code maxStale}: evicted, the next read waits for the loader and fails if it fails</li>
+ * </ul>
+ * A failed background reload keeps the previous value, so reads stay available during upstream
+ * incidents until the staleness cap is hit. Concurrent misses for the same key share one load. It
+ * runs with the {@link Deadline} and {@link Auth0Priority} of the read that started it, its Auth0
+ * calls count towards that read's {@link Auth0CallCount} and are traced under that read's request
+ * observation, and it is cancelled once none of the reads waiting for it is left.
+ * <p>
+ * Reads and evictions are recorded as {@link CacheEvent}s for Flight Recorder; a miss lasts until
+ * its load completes.
+ */
+@Slf4j
+public class StaleWhileRevalidateCache<K, V> {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final CacheGroup group;
+
+    // Context entries a load takes over from the read that started it
+    private static final List<Object> PROPAGATED_KEYS = List.of(Deadline.CONTEXT_KEY, Auth0Priority.CONTEXT_KEY,
+            Auth0CallCount.CONTEXT_KEY, ObservationThreadLocalAccessor.KEY);
+
+    private final Function<K, Mono<V>> loader;
+    private final AsyncLoadingCache<K, V> cache;
+    private final Policy.FixedExpiration<K, V> expiration;
+    private final Map<CompletableFuture<V>, Waiters> waiters = new ConcurrentHashMap<>();
+
+    public StaleWhileRevalidateCache(String name, CacheGroup group, CachePolicy policy, Function<K, Mono<V>> loader) {
+        this(name, group, policy, loader, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    StaleWhileRevalidateCache(String name, CacheGroup group, CachePolicy policy, Function<K, Mono<V>> loader,
+                              Ticker ticker, Executor executor) {
+        this.name = name;
+        this.group = group;
+        this.loader = loader;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(policy.maxEntries())
+                .refreshAfterWrite(policy.freshFor())
+                .expireAfterWrite(policy.maxStale())
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .removalListener((K key, V value, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        CacheEvent.start(name).end("evict", cause.name().toLowerCase());
+                    }
+                })
+                .buildAsync((key, ignored) -> load(key, Context.empty()));
+        this.expiration = cache.synchronous().policy().expireAfterWrite().orElseThrow();
+    }
+
+    private CompletableFuture<V> load(K key, ContextView context) {
+        return loader.apply(key)
+                .doOnError(e -> log.warn("Cache {}: loading {} failed: {}", name, key, e.getMessage()))
+                .contextWrite(Context.of(context))
+                .toFuture();
+    }
+
+    private CompletableFuture<V> loadFor(K key, ContextView readContext) {
+        Map<Object, Object> propagated = new HashMap<>();
+        for (Object contextKey : PROPAGATED_KEYS) {
+            readContext.getOrEmpty(contextKey).ifPresent(value -> propagated.put(contextKey, value));
+        }
+        CompletableFuture<V> load = load(key, Context.of(propagated));
+        if (!load.isDone()) {
+            waiters.put(load, new Waiters());
+            load.whenComplete((value, error) -> waiters.remove(load));
+        }
+        return load;
+    }
+
+    public Mono<V> get(K key) {
+        return Mono.deferContextual(context -> {
+            CacheEvent event = CacheEvent.start(name);
+            // Checked through the map view, a lookup would count in the hit rate operators see
+            String action = event.isEnabled() && !cache.asMap().containsKey(key) ? "miss" : "hit";
+            CompletableFuture<V> value = cache.get(key, (missing, executor) -> loadFor(missing, context));
+            Waiters loadWaiters = waiters.get(value);
+            Mono<V> result = Mono.fromFuture(value, true);
+            if (loadWaiters != null) {
+                if (!loadWaiters.join()) {
+                    // The load was just cancelled by its last reader, start another one
+                    cache.asMap().remove(key, value);
+                    return get(key);
+                }
+                result = result
+                        .doOnCancel(() -> {
+                            if (loadWaiters.leave()) {
+                                value.cancel(true);
+                            }
+                        })
+                        .doOnSuccess(ignored -> loadWaiters.leave())
+                        .doOnError(ignored -> loadWaiters.leave());
+            }
+            return result
+                    .doOnNext(loaded -> CacheAge.record(context, ageOf(key).getSeconds()))
+                    .doFinally(signal -> event.end(action));
+        });
+    }
+
+    public Duration ageOf(K key) {
+        return expiration.ageOf(key).orElse(Duration.ZERO);
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, CompletableFuture.completedFuture(value));
+    }
+
+    public void invalidate(K key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        cache.synchronous().asMap().keySet().removeIf(predicate);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Reads waiting for a load. The last one to go away cancels the load, and a load cancelled
+     * that way takes no more readers.
+     */
+    private static final class Waiters {
+
+        private int count;
+        private boolean cancelled;
+
+        synchronized boolean join() {
+            if (cancelled) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        /**
+         * Returns whether the load is to be cancelled, when the last reader went away.
+         */
+        synchronized boolean leave() {
+            count--;
+            cancelled = count == 0;
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package fer.solar.usermanagement.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One Management API call run by the {@code Auth0CallExecutor}, from the moment it got a thread to
+ * its answer. The HTTP requests it made are the {@link Auth0HttpRequestEvent}s nested in it on the
+ * same thread.
+ */
+@Name("fer.solar.usermanagement.Auth0Call")
+@Label("Auth0 Call")
+@Category({"Solar User Management", "Auth0"})
+@StackTrace(false)
+public class Auth0CallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Priority")
+    String priority;
+
+    @Label("Outcome")
+    @Description("success, client_error, rate_limited, server_error, error or aborted")
+    String outcome;
+
+    private Auth0CallEvent(String operation, String priority) {
+        this.operation = operation;
+        this.priority = priority;
+    }
+
+    public static Auth0CallEvent start(String operation, String priority) {
+        Auth0CallEvent event = new Auth0CallEvent(operation, priority);
+        event.begin();
+        return event;
+    }
+
+    public void end(String outcome) {
+        this.outcome = outcome;
+        commit();
+    }
+}
@@ -0,0 +1,63 @@
+package fer.solar.usermanagement.common.jfr;
+
+import com.auth0.net.client.Auth0HttpResponse;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single HTTP request to the Auth0 Management or Authentication API. The query string is left
+ * out of the path, it can carry e-mail addresses.
+ */
+@Name("fer.solar.usermanagement.Auth0HttpRequest")
+@Label("Auth0 HTTP Request")
+@Category({"Solar User Management", "Auth0"})
+@StackTrace(false)
+public class Auth0HttpRequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseSize;
+
+    private transient String url;
+
+    private Auth0HttpRequestEvent(String method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    public static Auth0HttpRequestEvent start(String method, String url) {
+        Auth0HttpRequestEvent event = new Auth0HttpRequestEvent(method, url);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the request with its response, or with status 0 when it failed without one.
+     */
+    public void end(Auth0HttpResponse response) {
+        if (shouldCommit()) {
+            int query = url.indexOf('?');
+            this.path = query < 0 ? url : url.substring(0, query);
+            if (response != null) {
+                this.status = response.getCode();
+                this.responseSize = response.getBody() == null ? 0 : response.getBody().getBytes(StandardCharsets.UTF_8).length;
+            }
+            commit();
+        }
+    }
+}
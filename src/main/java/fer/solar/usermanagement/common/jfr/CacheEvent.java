@@ -0,0 +1,49 @@
+package fer.solar.usermanagement.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A read served from a {@code StaleWhileRevalidateCache} or an entry leaving it.
+ */
+@Name("fer.solar.usermanagement.Cache")
+@Label("Cache Access")
+@Category({"Solar User Management", "Cache"})
+@StackTrace(false)
+public class CacheEvent extends Event {
+
+    @Label("Cache")
+    String cache;
+
+    @Label("Action")
+    @Description("hit, miss or evict")
+    String action;
+
+    @Label("Cause")
+    @Description("Why an entry was evicted: expired, size or explicit")
+    String cause;
+
+    private CacheEvent(String cache) {
+        this.cache = cache;
+    }
+
+    public static CacheEvent start(String cache) {
+        CacheEvent event = new CacheEvent(cache);
+        event.begin();
+        return event;
+    }
+
+    public void end(String action) {
+        end(action, null);
+    }
+
+    public void end(String action, String cause) {
+        this.action = action;
+        this.cause = cause;
+        commit();
+    }
+}
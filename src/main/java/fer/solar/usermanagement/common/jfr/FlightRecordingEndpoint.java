@@ -0,0 +1,151 @@
+package fer.solar.usermanagement.common.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Starts, stops and downloads a Flight Recorder recording of the service, including the
+ * {@code fer.solar.usermanagement} events, so GC, thread parking on the bounded elastic scheduler
+ * and Auth0 latency can be read in one timeline.
+ * <ul>
+ *     <li>{@code POST /actuator/jfr} starts a recording with the JDK's {@code profile} settings, or
+ *     the {@code settings} given, replacing the previous one</li>
+ *     <li>{@code GET /actuator/jfr} describes the current recording</li>
+ *     <li>{@code GET /actuator/jfr/<file name>} downloads what was recorded so far</li>
+ *     <li>{@code DELETE /actuator/jfr} stops the recording, it can still be downloaded until the
+ *     next start</li>
+ * </ul>
+ * Recordings keep at most {@code usermanagement.jfr.max-age} and {@code usermanagement.jfr.max-size}
+ * of data.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Slf4j
+public class FlightRecordingEndpoint {
+
+    @Value("${usermanagement.jfr.max-age:PT1H}")
+    private Duration maxAge;
+
+    @Value("${usermanagement.jfr.max-size:256MB}")
+    private DataSize maxSize;
+
+    private Recording recording;
+    private String settings;
+    private Path lastDump;
+
+    @ReadOperation
+    public synchronized RecordingDescriptor status() {
+        return describe();
+    }
+
+    @WriteOperation
+    public synchronized RecordingDescriptor start(@Nullable String settings) throws IOException, ParseException {
+        String name = settings == null ? "profile" : settings;
+        Recording started = new Recording(Configuration.getConfiguration(name));
+        started.setName("usermanagement");
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSize.toBytes());
+        started.setToDisk(true);
+        if (recording != null) {
+            recording.close();
+        }
+        started.start();
+        recording = started;
+        this.settings = name;
+        log.info("Flight recording started with {} settings.", name);
+        return describe();
+    }
+
+    @DeleteOperation
+    public synchronized RecordingDescriptor stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Flight recording stopped.");
+        }
+        return describe();
+    }
+
+    /**
+     * The recording so far, or nothing (404) when none was started. The file name only names the
+     * download. The dump is streamed from a temporary file, deleted once read or, if the client
+     * went away first, on the next dump.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized Resource dump(@Selector String fileName) throws IOException {
+        if (recording == null) {
+            return null;
+        }
+        if (lastDump != null) {
+            Files.deleteIfExists(lastDump);
+        }
+        Path file = Files.createTempFile("usermanagement-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        lastDump = file;
+        return new TemporaryFileResource(file);
+    }
+
+    private RecordingDescriptor describe() {
+        if (recording == null) {
+            return new RecordingDescriptor("NONE", null, null, null, 0);
+        }
+        return new RecordingDescriptor(recording.getState().name(), settings, recording.getStartTime(),
+                recording.getStopTime(), recording.getSize());
+    }
+
+    /**
+     * A file deleted once read. It does not present itself as a file, so it is read through its
+     * channel rather than sent with zero-copy transfer, which would never close it.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        private TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            return Files.newByteChannel(getFile().toPath(), StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+    }
+
+    public record RecordingDescriptor(String state, String settings, Instant startTime, Instant stopTime, long size) {
+    }
+}
@@ -0,0 +1,66 @@
+package fer.solar.usermanagement.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One step of a multi-call user operation, such as creating the user or assigning its roles during
+ * {@code createUser}, including the rollback steps. Steps are chained with {@link #next(String)},
+ * so the step that was running when the operation failed is the one ended with {@link #failed()}.
+ */
+@Name("fer.solar.usermanagement.SagaStep")
+@Label("Saga Step")
+@Category({"Solar User Management", "Saga"})
+@StackTrace(false)
+public class SagaStepEvent extends Event {
+
+    @Label("Saga")
+    String saga;
+
+    @Label("Step")
+    String step;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    private transient boolean ended;
+
+    private SagaStepEvent(String saga, String step) {
+        this.saga = saga;
+        this.step = step;
+    }
+
+    public static SagaStepEvent start(String saga, String step) {
+        SagaStepEvent event = new SagaStepEvent(saga, step);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends this step as succeeded and starts the next one.
+     */
+    public SagaStepEvent next(String step) {
+        succeeded();
+        return start(saga, step);
+    }
+
+    public void succeeded() {
+        end(true);
+    }
+
+    public void failed() {
+        end(false);
+    }
+
+    private void end(boolean succeeded) {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        this.succeeded = succeeded;
+        commit();
+    }
+}
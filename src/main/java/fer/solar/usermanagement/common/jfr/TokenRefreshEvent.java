@@ -0,0 +1,41 @@
+package fer.solar.usermanagement.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A request for a new Management API token.
+ */
+@Name("fer.solar.usermanagement.TokenRefresh")
+@Label("Auth0 Token Refresh")
+@Category({"Solar User Management", "Auth0"})
+@StackTrace(false)
+public class TokenRefreshEvent extends Event {
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Expires In")
+    @Timespan(Timespan.SECONDS)
+    long expiresIn;
+
+    public static TokenRefreshEvent start() {
+        TokenRefreshEvent event = new TokenRefreshEvent();
+        event.begin();
+        return event;
+    }
+
+    public void succeeded(long expiresIn) {
+        this.succeeded = true;
+        this.expiresIn = expiresIn;
+        commit();
+    }
+
+    public void failed() {
+        commit();
+    }
+}
@@ -0,0 +1,69 @@
+package fer.solar.usermanagement.common.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Parsed {@code fields=} and {@code include=} query parameters.
+ * <p>
+ * {@code fields} restricts which response fields are populated (absent means all fields).
+ * {@code include} lists the related collections to enrich with (e.g. {@code roles}, {@code permissions}).
+ * When {@code include} is absent, a relation is enriched only if {@code fields} is absent or names it,
+ * so {@code fields=id,email} results in a single Auth0 call without any enrichment fan-out.
+ */
+@EqualsAndHashCode
+@ToString
+public final class FieldSelection {
+
+    private static final FieldSelection ALL = new FieldSelection(null, null);
+
+    private final Set<String> fields;   // null means every field
+    private final Set<String> includes; // null means "derive from fields"
+
+    private FieldSelection(Set<String> fields, Set<String> includes) {
+        this.fields = fields;
+        this.includes = includes;
+    }
+
+    public static FieldSelection all() {
+        return ALL;
+    }
+
+    public static FieldSelection of(String fields, String include) {
+        Set<String> parsedFields = fields == null || fields.isBlank() ? null : parse(fields);
+        Set<String> parsedIncludes = include == null ? null : parse(include);
+        if (parsedFields == null && parsedIncludes == null) {
+            return ALL;
+        }
+        return new FieldSelection(parsedFields, parsedIncludes);
+    }
+
+    public boolean isRestricted() {
+        return fields != null;
+    }
+
+    public boolean hasField(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public boolean includes(String relation) {
+        return includes != null ? includes.contains(relation) : hasField(relation);
+    }
+
+    public Set<String> getFields() {
+        return fields == null ? Collections.emptySet() : fields;
+    }
+
+    private static Set<String> parse(String value) {
+        return Arrays.stream(value.split("[,|]"))
+                .map(String::trim)
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
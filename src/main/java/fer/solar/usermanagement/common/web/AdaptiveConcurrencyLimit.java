@@ -0,0 +1,93 @@
+package fer.solar.usermanagement.common.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows latency, in the style of Netflix's gradient limiter. A long
+ * running average of request latency stands in for the latency without queueing; while recent
+ * requests stay close to it the limit grows by roughly its square root, and as they slow down the
+ * limit shrinks in proportion. Requests that fail with an overload error cut the limit outright.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private static final double LONG_WINDOW = 600;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRtt;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot if one is free. Returns the number of requests in flight including this one,
+     * or -1 when the limit is reached.
+     */
+    int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot without learning from the request, e.g. when the client went away.
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Frees a slot and adjusts the limit to how long the request took.
+     *
+     * @param inFlightAtStart value returned by {@link #tryAcquire()}
+     * @param dropped         whether the request failed because a dependency was overloaded
+     */
+    void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        onSample(rttNanos, inFlightAtStart, dropped);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        double shortRtt = Math.max(1, rttNanos);
+        longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) / LONG_WINDOW;
+        if (longRtt / shortRtt > 2) {
+            // Load went away, let the baseline catch up instead of growing the limit unchecked
+            longRtt *= 0.95;
+        }
+
+        double newLimit;
+        if (dropped) {
+            newLimit = limit * BACKOFF_RATIO;
+        } else if (inFlightAtStart < limit / 2) {
+            // The limit was not what held these requests back, so their latency says nothing about it
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+            newLimit = limit * gradient + Math.sqrt(limit);
+        }
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,43 @@
+package fer.solar.usermanagement.common.web;
+
+import fer.solar.usermanagement.common.auth0.Auth0CallCount;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records how many Auth0 calls each API request made, by method and route, in
+ * {@code usermanagement.auth0.calls.per_request}. A route whose count creeps up has started fanning
+ * out.
+ */
+@Component
+@RequiredArgsConstructor
+public class Auth0CallCountWebFilter implements WebFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Auth0CallCount callCount = new Auth0CallCount();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    Object route = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    if (route != null && route.toString().startsWith("/api/")) {
+                        DistributionSummary.builder("usermanagement.auth0.calls.per_request")
+                                .tag("method", exchange.getRequest().getMethod().name())
+                                .tag("uri", route.toString())
+                                .description("Auth0 calls made to answer one request")
+                                .publishPercentiles(0.5, 0.99)
+                                .register(meterRegistry)
+                                .record(callCount.get());
+                    }
+                })
+                .contextWrite(context -> context.put(Auth0CallCount.CONTEXT_KEY, callCount));
+    }
+}
@@ -0,0 +1,29 @@
+package fer.solar.usermanagement.common.web;
+
+import fer.solar.usermanagement.common.cache.CacheAge;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Adds an {@code Age} header to responses that were served from a cache.
+ */
+@Component
+public class CacheAgeWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        CacheAge cacheAge = new CacheAge();
+        exchange.getResponse().beforeCommit(() -> {
+            if (cacheAge.isPresent()) {
+                exchange.getResponse().getHeaders().set(HttpHeaders.AGE, Long.toString(cacheAge.getSeconds()));
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(CacheAge.CONTEXT_KEY, cacheAge));
+    }
+}
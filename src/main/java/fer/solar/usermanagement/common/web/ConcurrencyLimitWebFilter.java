@@ -0,0 +1,129 @@
+package fer.solar.usermanagement.common.web;
+
+import fer.solar.usermanagement.common.auth0.DeadlineExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sheds load on the user, role and permission APIs before it queues up behind a slow Auth0.
+ * Reads and writes are limited separately by an {@link AdaptiveConcurrencyLimit}, so cheap cached
+ * reads keep flowing while writes back off. Requests over the limit get an immediate {@code 503}
+ * with {@code Retry-After}.
+ * <p>
+ * Exported per bucket as {@code usermanagement.concurrency.limit}, {@code .in_flight} and
+ * {@code .rejected}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    private static final List<String> LIMITED_PATHS = List.of("/api/v1/users", "/api/v1/roles", "/api/v1/permissions");
+
+    private final MeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimit readLimit;
+    private AdaptiveConcurrencyLimit writeLimit;
+
+    @Value("${usermanagement.concurrency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${usermanagement.concurrency.min-limit:4}")
+    private int minLimit;
+
+    @Value("${usermanagement.concurrency.read.initial-limit:50}")
+    private int readInitialLimit;
+
+    @Value("${usermanagement.concurrency.read.max-limit:500}")
+    private int readMaxLimit;
+
+    @Value("${usermanagement.concurrency.write.initial-limit:10}")
+    private int writeInitialLimit;
+
+    @Value("${usermanagement.concurrency.write.max-limit:100}")
+    private int writeMaxLimit;
+
+    @Value("${usermanagement.concurrency.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    @PostConstruct
+    void init() {
+        readLimit = register("read", new AdaptiveConcurrencyLimit(readInitialLimit, minLimit, readMaxLimit));
+        writeLimit = register("write", new AdaptiveConcurrencyLimit(writeInitialLimit, minLimit, writeMaxLimit));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!enabled || LIMITED_PATHS.stream().noneMatch(path::startsWith)) {
+            return chain.filter(exchange);
+        }
+        boolean read = isRead(exchange.getRequest().getMethod());
+        String bucket = read ? "read" : "write";
+        AdaptiveConcurrencyLimit limit = read ? readLimit : writeLimit;
+
+        int inFlight = limit.tryAcquire();
+        if (inFlight < 0) {
+            log.debug("Rejecting {} {}, {} limit of {} reached", exchange.getRequest().getMethod(), path, bucket, limit.getLimit());
+            meterRegistry.counter("usermanagement.concurrency.rejected", "bucket", bucket).increment();
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+            return exchange.getResponse().setComplete();
+        }
+
+        long start = System.nanoTime();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        return chain.filter(exchange)
+                .doOnError(error::set)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        limit.release();
+                    } else {
+                        limit.release(System.nanoTime() - start, inFlight, isOverloaded(exchange, error.get()));
+                    }
+                });
+    }
+
+    private static boolean isRead(HttpMethod method) {
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+    }
+
+    private static boolean isOverloaded(ServerWebExchange exchange, Throwable error) {
+        if (error != null) {
+            return error instanceof DeadlineExceededException || error instanceof TimeoutException;
+        }
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        return status != null
+                && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value() || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+    }
+
+    private AdaptiveConcurrencyLimit register(String bucket, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("usermanagement.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("bucket", bucket)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("usermanagement.concurrency.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("bucket", bucket)
+                .description("Requests currently holding a concurrency slot")
+                .register(meterRegistry);
+        return limit;
+    }
+}
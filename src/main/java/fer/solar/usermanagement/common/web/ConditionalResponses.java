@@ -0,0 +1,42 @@
+package fer.solar.usermanagement.common.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Builds {@code 200 OK} responses carrying a strong ETag derived from the serialized body.
+ * <p>
+ * For GET/HEAD requests WebFlux compares the ETag with {@code If-None-Match} and answers
+ * {@code 304 Not Modified} without writing the body.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalResponses {
+
+    private final ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<T> ok(T body, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .eTag(strongETag(body))
+                .cacheControl(cacheControl)
+                .body(body);
+    }
+
+    public String strongETag(Object body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body));
+            // 128 bits of the digest are plenty to tell representations apart
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to compute ETag", e);
+        }
+    }
+}
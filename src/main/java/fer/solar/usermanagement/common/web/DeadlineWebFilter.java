@@ -0,0 +1,52 @@
+package fer.solar.usermanagement.common.web;
+
+import fer.solar.usermanagement.common.auth0.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Turns the timeout the gateway sends, in milliseconds, into a {@link Deadline} for the request.
+ * The budget is capped at {@code max} and shortened by {@code margin}, the time left to write the
+ * response. Requests without the header, or with an unreadable one, get no deadline.
+ */
+@Component
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    @Value("${usermanagement.deadline.header:X-Request-Timeout-Ms}")
+    private String header;
+
+    @Value("${usermanagement.deadline.max:PT60S}")
+    private Duration max;
+
+    @Value("${usermanagement.deadline.margin:PT0.05S}")
+    private Duration margin;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String timeout = exchange.getRequest().getHeaders().getFirst(header);
+        if (timeout == null) {
+            return chain.filter(exchange);
+        }
+        Duration budget;
+        try {
+            budget = Duration.ofMillis(Long.parseLong(timeout.trim()));
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring unreadable {} header: {}", header, timeout);
+            return chain.filter(exchange);
+        }
+        if (budget.compareTo(max) > 0) {
+            budget = max;
+        }
+        Deadline deadline = Deadline.after(budget.minus(margin));
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, deadline));
+    }
+}
@@ -0,0 +1,123 @@
+package fer.solar.usermanagement.common.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Executes a request at most once per {@code Idempotency-Key}.
+ * <p>
+ * The first request with a key runs, detached from its caller so that a client giving up does not
+ * abort it halfway. Duplicates arriving while it runs wait for the same execution, and once it
+ * completes with a 2xx response the response is replayed for {@code ttl}, marked with
+ * {@code Idempotent-Replayed: true}. Errors and other statuses are not kept, the next retry runs
+ * again. A key reused with a different request body is rejected with {@code 422}.
+ * <p>
+ * Keys are remembered per instance, retries routed to another instance run again.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotentRequests {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private Cache<String, Execution> executions;
+
+    @Value("${usermanagement.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${usermanagement.idempotency.max-entries:10000}")
+    private long maxEntries;
+
+    @PostConstruct
+    void init() {
+        executions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    /**
+     * Runs {@code action} unless a request with the same key and scope ran before, in which case its
+     * response is shared. Without a key the action simply runs.
+     *
+     * @param scope distinguishes endpoints, the same key may be used once per scope
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<ResponseEntity<T>> execute(String idempotencyKey, String scope, Object request,
+                                               Supplier<Mono<ResponseEntity<T>>> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        // The detached execution keeps the caller's context: its deadline, priority and trace
+        return Mono.deferContextual(context -> {
+            String cacheKey = scope + ':' + idempotencyKey;
+            Execution execution = new Execution(fingerprint(request), new CompletableFuture<>());
+            Execution existing = executions.asMap().putIfAbsent(cacheKey, execution);
+            if (existing != null) {
+                if (!Arrays.equals(existing.fingerprint(), execution.fingerprint())) {
+                    return Mono.error(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                            KEY_HEADER + " was already used for a different request"));
+                }
+                return Mono.fromFuture(existing.response(), true)
+                        .map(response -> replayed((ResponseEntity<T>) response));
+            }
+
+            Mono.defer(action).contextWrite(context).toFuture().whenComplete((response, error) -> {
+                if (error != null || response == null || !response.getStatusCode().is2xxSuccessful()) {
+                    executions.asMap().remove(cacheKey, execution);
+                }
+                if (error != null) {
+                    execution.response().completeExceptionally(error);
+                } else {
+                    execution.response().complete(response);
+                }
+            });
+            return Mono.fromFuture(execution.response(), true)
+                    .map(response -> (ResponseEntity<T>) response);
+        });
+    }
+
+    private <T> ResponseEntity<T> replayed(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private record Execution(byte[] fingerprint, CompletableFuture<ResponseEntity<?>> response) {
+    }
+}
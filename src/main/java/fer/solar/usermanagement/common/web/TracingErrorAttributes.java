@@ -0,0 +1,31 @@
+package fer.solar.usermanagement.common.web;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Adds the {@code traceId} of the failed request to error responses, so a report of an error can
+ * be matched with its trace.
+ */
+@Component
+public class TracingErrorAttributes extends DefaultErrorAttributes {
+
+    @Override
+    public Map<String, Object> getErrorAttributes(ServerRequest request, ErrorAttributeOptions options) {
+        Map<String, Object> attributes = super.getErrorAttributes(request, options);
+        ServerRequestObservationContext.findCurrent(request.exchange().getAttributes())
+                .map(context -> context.<TracingObservationHandler.TracingContext>get(TracingObservationHandler.TracingContext.class))
+                .flatMap(tracing -> Optional.ofNullable(tracing.getSpan()))
+                .map(Span::context)
+                .ifPresent(span -> attributes.put("traceId", span.traceId()));
+        return attributes;
+    }
+}
@@ -0,0 +1,15 @@
+package fer.solar.usermanagement.compensation;
+
+import java.util.Set;
+
+/**
+ * Knows how to undo the operation types it declares. {@link #compensate} may run more than once for
+ * the same operation, after a crash at any point of it, so it has to be idempotent and must not rely
+ * on steps having been recorded: a step can be done upstream and still be missing from the log.
+ */
+public interface CompensationHandler {
+
+    Set<String> types();
+
+    void compensate(CompensationLog.Operation operation) throws Exception;
+}
@@ -0,0 +1,359 @@
+package fer.solar.usermanagement.compensation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fer.solar.usermanagement.compensation.CompensationRecord.Outcome;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-ahead log of multi-step Auth0 operations, so that an operation interrupted by a crash can be
+ * compensated on the next start instead of leaving Auth0 half-mutated.
+ * <p>
+ * An operation records its intent before the first upstream call, each completed step after it and
+ * an end record once it is committed or undone. Every append returns only after the record is on
+ * disk. Appends are handed to a single writer thread which writes whatever has queued up since its
+ * last write and forces the file once for the whole batch, so concurrent operations share one fsync
+ * instead of paying for their own. When no operation is open and the file has outgrown
+ * {@code compact-threshold}, it is truncated.
+ * <p>
+ * On startup the log is replayed; operations without an end record are handed to the
+ * {@link CompensationRecoveryWorker}, as are operations whose in-process compensation failed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompensationLog {
+
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Operation> pendingRecovery = new ConcurrentHashMap<>();
+    // Only touched by the writer thread once it runs
+    private final Set<String> openOperations = new HashSet<>();
+
+    @Value("${usermanagement.compensation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${usermanagement.compensation.path:${java.io.tmpdir}/solar-user-management/compensation.log}")
+    private Path path;
+
+    @Value("${usermanagement.compensation.max-batch:512}")
+    private int maxBatch;
+
+    @Value("${usermanagement.compensation.append-timeout:PT10S}")
+    private Duration appendTimeout;
+
+    @Value("${usermanagement.compensation.compact-threshold:4MB}")
+    private DataSize compactThreshold;
+
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validLength = replay();
+        // Drops a torn tail, or everything when nothing was left open
+        channel.truncate(pendingRecovery.isEmpty() ? 0 : validLength);
+        channel.position(channel.size());
+        channel.force(true);
+        openOperations.addAll(pendingRecovery.keySet());
+        if (!pendingRecovery.isEmpty()) {
+            log.warn("Compensation log {} has {} unfinished operations, they will be compensated.",
+                    path, pendingRecovery.size());
+        }
+
+        running = true;
+        writer = new Thread(this::writeLoop, "compensation-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // The writer is stopped, not interrupted: an interrupt would close the channel mid-write
+        running = false;
+        writer.join(appendTimeout.toMillis());
+        writer = null;
+        channel.close();
+    }
+
+    /**
+     * Records the intent of a new operation. Nothing may be changed upstream before this returns.
+     *
+     * @throws IllegalStateException if the record could not be written
+     */
+    public Operation begin(String type, Map<String, Object> intent) {
+        Operation operation = new Operation(UUID.randomUUID().toString(), type, Instant.now(), intent);
+        append(CompensationRecord.begin(operation.id, operation.beganAt, type, intent));
+        return operation;
+    }
+
+    /**
+     * Operations waiting for compensation, oldest first.
+     */
+    public List<Operation> pendingRecovery() {
+        List<Operation> pending = new ArrayList<>(pendingRecovery.values());
+        pending.sort((a, b) -> a.beganAt.compareTo(b.beganAt));
+        return pending;
+    }
+
+    private long replay() throws IOException {
+        byte[] content = new byte[(int) channel.size()];
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // keep reading
+        }
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        int offset = 0;
+        int records = 0;
+        for (int newline = indexOf(content, offset); newline >= 0; newline = indexOf(content, offset)) {
+            CompensationRecord record;
+            try {
+                record = objectMapper.readValue(content, offset, newline - offset, CompensationRecord.class);
+            } catch (IOException e) {
+                break;
+            }
+            offset = newline + 1;
+            records++;
+            switch (record.kind()) {
+                case BEGIN -> operations.put(record.operationId(),
+                        new Operation(record.operationId(), record.type(), record.at(), record.data()));
+                case STEP -> {
+                    Operation operation = operations.get(record.operationId());
+                    if (operation != null) {
+                        operation.steps.put(record.step(), record.data());
+                    }
+                }
+                case END -> operations.remove(record.operationId());
+            }
+        }
+        if (offset < content.length) {
+            log.warn("Compensation log {} ends with an unreadable record after {} records, ignoring the rest.",
+                    path, records);
+        }
+        pendingRecovery.putAll(operations);
+        return offset;
+    }
+
+    private static int indexOf(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(CompensationRecord record) {
+        if (!enabled) {
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Compensation log " + path + " is closed");
+        }
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        queue.add(new PendingAppend(record, durable));
+        try {
+            durable.get(appendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to write to compensation log " + path, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out writing to compensation log " + path, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing to compensation log " + path, e);
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            PendingAppend first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            commit(batch);
+            batch.clear();
+        }
+        queue.drainTo(batch);
+        batch.forEach(pending -> pending.durable()
+                .completeExceptionally(new IllegalStateException("Compensation log is closed")));
+    }
+
+    private void commit(List<PendingAppend> batch) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream(batch.size() * 256);
+            for (PendingAppend pending : batch) {
+                objectMapper.writeValue(lines, pending.record());
+                lines.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("Failed to write {} records to compensation log {}: {}", batch.size(), path, e.getMessage(), e);
+            batch.forEach(pending -> pending.durable().completeExceptionally(e));
+            return;
+        }
+
+        for (PendingAppend pending : batch) {
+            CompensationRecord record = pending.record();
+            if (record.kind() == CompensationRecord.Kind.BEGIN) {
+                openOperations.add(record.operationId());
+            } else if (record.kind() == CompensationRecord.Kind.END) {
+                openOperations.remove(record.operationId());
+            }
+            pending.durable().complete(null);
+        }
+        compactIfIdle();
+    }
+
+    private void compactIfIdle() {
+        try {
+            if (openOperations.isEmpty() && channel.size() > compactThreshold.toBytes()) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            log.error("Failed to compact compensation log {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * An operation in the log. Steps and outcomes are appended synchronously, callers run on
+     * blocking threads anyway since the upstream calls they record are blocking.
+     */
+    public class Operation {
+
+        private final String id;
+        private final String type;
+        private final Instant beganAt;
+        private final Map<String, Object> intent;
+        private final Map<String, Map<String, Object>> steps = new ConcurrentHashMap<>();
+
+        private Operation(String id, String type, Instant beganAt, Map<String, Object> intent) {
+            this.id = id;
+            this.type = type;
+            this.beganAt = beganAt;
+            this.intent = intent == null ? Map.of() : intent;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Instant getBeganAt() {
+            return beganAt;
+        }
+
+        public Map<String, Object> getIntent() {
+            return Collections.unmodifiableMap(intent);
+        }
+
+        public Optional<Map<String, Object>> getStep(String step) {
+            return Optional.ofNullable(steps.get(step));
+        }
+
+        /**
+         * Records a step that is done upstream, with whatever compensating it needs.
+         */
+        public void completeStep(String step, Map<String, Object> data) {
+            Map<String, Object> stepData = data == null ? Map.of() : data;
+            append(CompensationRecord.step(id, step, stepData));
+            steps.put(step, stepData);
+        }
+
+        /**
+         * Commits the operation. A commit the log cannot record is not a commit: the exception tells
+         * the caller to compensate, as the operation would be compensated after a restart anyway.
+         */
+        public void complete() {
+            append(CompensationRecord.end(id, Outcome.COMPLETED));
+        }
+
+        /**
+         * Records that the operation was undone in process.
+         */
+        public void compensated() {
+            end(Outcome.COMPENSATED);
+        }
+
+        /**
+         * Leaves the operation open and hands it to the {@link CompensationRecoveryWorker}, for when
+         * compensating in process failed.
+         */
+        public void handOverToRecovery() {
+            pendingRecovery.put(id, this);
+        }
+
+        void recovered() {
+            end(Outcome.RECOVERED);
+        }
+
+        // Losing an end record only means compensating again after a restart, which is idempotent
+        private void end(Outcome outcome) {
+            try {
+                append(CompensationRecord.end(id, outcome));
+                pendingRecovery.remove(id);
+            } catch (IllegalStateException e) {
+                log.error("Failed to record {} {} as {}: {}", type, id, outcome, e.getMessage());
+            }
+        }
+    }
+
+    private record PendingAppend(CompensationRecord record, CompletableFuture<Void> durable) {
+    }
+}
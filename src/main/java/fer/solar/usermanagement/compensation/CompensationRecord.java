@@ -0,0 +1,38 @@
+package fer.solar.usermanagement.compensation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One line of the {@link CompensationLog}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record CompensationRecord(Kind kind, String operationId, Instant at, String type, String step,
+                          Map<String, Object> data, Outcome outcome) {
+
+    enum Kind {
+        BEGIN,
+        STEP,
+        END
+    }
+
+    enum Outcome {
+        COMPLETED,
+        COMPENSATED,
+        RECOVERED
+    }
+
+    static CompensationRecord begin(String operationId, Instant at, String type, Map<String, Object> intent) {
+        return new CompensationRecord(Kind.BEGIN, operationId, at, type, null, intent, null);
+    }
+
+    static CompensationRecord step(String operationId, String step, Map<String, Object> data) {
+        return new CompensationRecord(Kind.STEP, operationId, null, null, step, data, null);
+    }
+
+    static CompensationRecord end(String operationId, Outcome outcome) {
+        return new CompensationRecord(Kind.END, operationId, null, null, null, null, outcome);
+    }
+}
@@ -0,0 +1,49 @@
+package fer.solar.usermanagement.compensation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compensates the operations the {@link CompensationLog} has pending: those left unfinished by the
+ * previous run, shortly after startup, and those whose in-process compensation failed. An operation
+ * whose compensation fails again stays pending and is retried on the next run.
+ */
+@Component
+@Slf4j
+public class CompensationRecoveryWorker {
+
+    private final CompensationLog compensationLog;
+    private final Map<String, CompensationHandler> handlers = new HashMap<>();
+
+    public CompensationRecoveryWorker(CompensationLog compensationLog, List<CompensationHandler> handlers) {
+        this.compensationLog = compensationLog;
+        handlers.forEach(handler -> handler.types().forEach(type -> this.handlers.put(type, handler)));
+    }
+
+    @Scheduled(initialDelayString = "${usermanagement.compensation.recovery.initial-delay:PT5S}",
+            fixedDelayString = "${usermanagement.compensation.recovery.interval:PT1M}")
+    public void recoverPending() {
+        for (CompensationLog.Operation operation : compensationLog.pendingRecovery()) {
+            CompensationHandler handler = handlers.get(operation.getType());
+            if (handler == null) {
+                log.error("No compensation handler for {} operation {}, leaving it pending.",
+                        operation.getType(), operation.getId());
+                continue;
+            }
+            try {
+                handler.compensate(operation);
+                operation.recovered();
+                log.info("Compensated {} operation {} begun at {}.", operation.getType(), operation.getId(),
+                        operation.getBeganAt());
+            } catch (Exception e) {
+                log.warn("Failed to compensate {} operation {}, will retry: {}", operation.getType(),
+                        operation.getId(), e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -4,8 +4,9 @@ import com.auth0.client.auth.AuthAPI;
 import com.auth0.client.mgmt.ManagementAPI;
 import com.auth0.exception.Auth0Exception;
 import com.auth0.json.auth.TokenHolder;
-import com.auth0.net.client.Auth0HttpClient;
 import com.auth0.net.client.DefaultHttpClient;
+import fer.solar.usermanagement.common.auth0.RateLimitTrackingHttpClient;
+import fer.solar.usermanagement.common.jfr.TokenRefreshEvent;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +15,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.time.Instant;
+
 @Configuration
 @EnableScheduling
 @Slf4j
@@ -37,7 +40,14 @@ public class Auth0Config {
 
     private volatile TokenHolder tokenHolder;
 
-    private final Auth0HttpClient httpClient = DefaultHttpClient.newBuilder().build();
+    private volatile Instant tokenObtainedAt;
+
+    private final RateLimitTrackingHttpClient httpClient = new RateLimitTrackingHttpClient(DefaultHttpClient.newBuilder().build());
+
+    @Bean
+    public RateLimitTrackingHttpClient auth0HttpClient() {
+        return httpClient;
+    }
 
     @Bean
     public AuthAPI authAPI() {
@@ -67,7 +77,16 @@ public class Auth0Config {
     }
 
     private TokenHolder fetchManagementApiToken(AuthAPI authAPI) throws Auth0Exception {
-        return authAPI.requestToken(apiAudience).execute().getBody();
+        TokenRefreshEvent event = TokenRefreshEvent.start();
+        try {
+            TokenHolder token = authAPI.requestToken(apiAudience).execute().getBody();
+            tokenObtainedAt = Instant.now();
+            event.succeeded(token.getExpiresIn());
+            return token;
+        } catch (Auth0Exception | RuntimeException e) {
+            event.failed();
+            throw e;
+        }
     }
 
     public TokenHolder getCurrentTokenHolder() {
@@ -0,0 +1,23 @@
+package fer.solar.usermanagement.config;
+
+import fer.solar.usermanagement.health.Auth0HealthIndicator;
+import org.springframework.boot.actuate.health.SimpleStatusAggregator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.actuate.health.StatusAggregator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Places {@link Auth0HealthIndicator#DEGRADED} between {@code OUT_OF_SERVICE} and {@code UP}, so a
+ * degraded Auth0 shows in the overall status without hiding a component that is down. Degraded
+ * still answers 200. This replaces {@code management.endpoint.health.status.order}.
+ */
+@Configuration
+public class HealthConfig {
+
+    @Bean
+    public StatusAggregator healthStatusAggregator() {
+        return new SimpleStatusAggregator(Status.DOWN, Status.OUT_OF_SERVICE, Auth0HealthIndicator.DEGRADED,
+                Status.UP, Status.UNKNOWN);
+    }
+}
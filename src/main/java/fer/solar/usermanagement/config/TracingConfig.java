@@ -0,0 +1,27 @@
+package fer.solar.usermanagement.config;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Local and test tracing: every request is sampled and its spans are written to the log. Other
+ * environments keep Spring Boot's sampling and plug in their own exporter.
+ */
+@Configuration
+@Profile({"dev", "test"})
+public class TracingConfig {
+
+    @Bean
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+
+    @Bean
+    public Sampler alwaysOnSampler() {
+        return Sampler.alwaysOn();
+    }
+}
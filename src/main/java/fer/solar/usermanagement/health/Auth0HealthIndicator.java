@@ -0,0 +1,112 @@
+package fer.solar.usermanagement.health;
+
+import com.auth0.exception.Auth0Exception;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0CallOutcomes;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.config.Auth0Config;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Auth0 health judged from the outcomes of the calls the service makes anyway, so checking it
+ * costs no rate limit budget. Over the last {@code usermanagement.health.auth0.window}:
+ * <ul>
+ *     <li>{@code DOWN} when at least {@code down-error-rate} of the calls failed</li>
+ *     <li>{@code DEGRADED} when at least {@code degraded-error-rate} failed or the p95 latency
+ *     reached {@code degraded-latency}</li>
+ *     <li>{@code UP} otherwise</li>
+ * </ul>
+ * Client errors count as answers. Only when there was no call in the window is a single cheap read
+ * sent as a probe, at background priority.
+ */
+@Component("auth0HealthIndicator")
+@RequiredArgsConstructor
+public class Auth0HealthIndicator implements ReactiveHealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "Auth0 is slow or failing some calls");
+
+    private final Auth0CallExecutor auth0Calls;
+    private final Auth0Config auth0Config;
+
+    private final AtomicReference<Mono<Void>> probe = new AtomicReference<>();
+
+    @Value("${usermanagement.health.auth0.window:PT1M}")
+    private Duration window;
+
+    @Value("${usermanagement.health.auth0.degraded-error-rate:0.1}")
+    private double degradedErrorRate;
+
+    @Value("${usermanagement.health.auth0.down-error-rate:0.5}")
+    private double downErrorRate;
+
+    @Value("${usermanagement.health.auth0.degraded-latency:PT2S}")
+    private Duration degradedLatency;
+
+    @Value("${usermanagement.health.auth0.probe-timeout:PT5S}")
+    private Duration probeTimeout;
+
+    @Override
+    public Mono<Health> health() {
+        Auth0CallOutcomes outcomes = auth0Calls.getRecentOutcomes();
+        if (outcomes.summarize(window).calls() > 0) {
+            return Mono.fromSupplier(() -> evaluate(outcomes.summarize(window), false));
+        }
+        return probe().then(Mono.fromSupplier(() -> evaluate(outcomes.summarize(window), true)));
+    }
+
+    private Health evaluate(Auth0CallOutcomes.Summary summary, boolean probed) {
+        if (summary.calls() == 0) {
+            return Health.down()
+                    .withDetail("probed", probed)
+                    .withDetail("reason", "no answer from Auth0 within " + probeTimeout)
+                    .build();
+        }
+        Status status;
+        if (summary.errorRate() >= downErrorRate) {
+            status = Status.DOWN;
+        } else if (summary.errorRate() >= degradedErrorRate || summary.p95Latency().compareTo(degradedLatency) >= 0) {
+            status = DEGRADED;
+        } else {
+            status = Status.UP;
+        }
+        return Health.status(status)
+                .withDetail("window", window.toString())
+                .withDetail("calls", summary.calls())
+                .withDetail("errorRate", summary.errorRate())
+                .withDetail("p95LatencyMs", summary.p95Latency().toMillis())
+                .withDetail("probed", probed)
+                .build();
+    }
+
+    /**
+     * Reads the API's resource server once, shared by concurrent health checks. Its outcome is
+     * recorded like any other call; a probe that gets no answer leaves the window empty.
+     */
+    private Mono<Void> probe() {
+        Mono<Void> started = auth0Calls.call(Auth0Operation.HEALTH_PROBE, () -> {
+                    try {
+                        return auth0Config.getRefreshedManagementAPI().resourceServers()
+                                .get(auth0Config.getApiGatewayIdentifier()).execute().getBody();
+                    } catch (Auth0Exception e) {
+                        throw new RuntimeException("Failed to probe Auth0", e);
+                    }
+                })
+                .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BACKGROUND_SYNC))
+                .timeout(probeTimeout)
+                .onErrorResume(e -> Mono.empty())
+                .then()
+                .doFinally(signal -> probe.set(null))
+                .cache();
+        return probe.updateAndGet(running -> running != null ? running : started);
+    }
+}
@@ -0,0 +1,52 @@
+package fer.solar.usermanagement.health;
+
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Takes the service out of readiness while Auth0 is {@code DOWN} and there is no readable
+ * directory snapshot to answer from, and puts it back once either recovers. Readiness set by
+ * anything else, such as shutdown, is left alone.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReadinessUpdater {
+
+    private final Auth0HealthIndicator auth0Health;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${usermanagement.health.auth0.probe-timeout:PT5S}")
+    private Duration probeTimeout;
+
+    private boolean refusing;
+
+    @Scheduled(initialDelayString = "${usermanagement.health.readiness.initial-delay:PT30S}",
+            fixedDelayString = "${usermanagement.health.readiness.interval:PT10S}")
+    public synchronized void update() {
+        Health health = auth0Health.health().block(probeTimeout.multipliedBy(2));
+        boolean auth0Down = health == null || Status.DOWN.equals(health.getStatus());
+        boolean canServe = !auth0Down || snapshotHolder.readable().isPresent();
+        if (!canServe && !refusing) {
+            log.warn("Auth0 is down and there is no readable directory snapshot, refusing traffic.");
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+            refusing = true;
+        } else if (canServe && refusing) {
+            log.info("Auth0 or the directory snapshot is available again, accepting traffic.");
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+            refusing = false;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package fer.solar.usermanagement.job;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The job type is unknown or its input cannot be split into items.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidJobException extends RuntimeException {
+
+    public InvalidJobException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,167 @@
+package fer.solar.usermanagement.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import fer.solar.usermanagement.job.dto.JobItemResult;
+import fer.solar.usermanagement.job.dto.JobStatusResponse;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Mutable state of one job. All state changes go through synchronized methods, item results are
+ * written by the job's workers while status requests read them.
+ */
+final class Job {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final String type;
+    @Getter
+    private final JobPriority priority;
+    @Getter
+    private final Instant submittedAt;
+    @Getter
+    private final List<JsonNode> items;
+    private final JobItemResult[] results;
+
+    private JobState state = JobState.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private int succeededItems;
+    private int failedItems;
+    private long sequence; // Queue order among jobs of equal priority
+
+    Job(String id, String type, JobPriority priority, Instant submittedAt, List<JsonNode> items) {
+        this.id = id;
+        this.type = type;
+        this.priority = priority;
+        this.submittedAt = submittedAt;
+        this.items = List.copyOf(items);
+        this.results = new JobItemResult[items.size()];
+    }
+
+    synchronized void enqueue(long sequence) {
+        this.sequence = sequence;
+        this.state = JobState.QUEUED;
+    }
+
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    synchronized JobState getState() {
+        return state;
+    }
+
+    synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Returns the indexes of items without a result, or null when the job was cancelled after it
+     * left the queue.
+     */
+    synchronized List<Integer> start(Instant now) {
+        if (state != JobState.QUEUED) {
+            return null;
+        }
+        state = JobState.RUNNING;
+        startedAt = now;
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                pending.add(i);
+            }
+        }
+        return pending;
+    }
+
+    synchronized boolean isCancelRequested() {
+        return state == JobState.CANCELLING || state == JobState.CANCELLED;
+    }
+
+    /**
+     * Cancels a queued job at once and marks a running one for cancellation. Returns false when
+     * the job has already finished.
+     */
+    synchronized boolean cancel(Instant now) {
+        switch (state) {
+            case QUEUED -> {
+                state = JobState.CANCELLED;
+                finishedAt = now;
+            }
+            case RUNNING -> state = JobState.CANCELLING;
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized void record(JobItemResult result) {
+        if (results[result.getIndex()] != null) {
+            return;
+        }
+        results[result.getIndex()] = result;
+        if (result.isSucceeded()) {
+            succeededItems++;
+        } else {
+            failedItems++;
+        }
+    }
+
+    synchronized JobState finish(Instant now) {
+        state = state == JobState.CANCELLING ? JobState.CANCELLED : JobState.COMPLETED;
+        finishedAt = now;
+        return state;
+    }
+
+    synchronized void fail(Instant now) {
+        state = JobState.FAILED;
+        finishedAt = now;
+    }
+
+    /**
+     * Applies a journaled state change. Running jobs are only marked, they are requeued once the
+     * whole journal has been read.
+     */
+    synchronized void restore(JobState restoredState, Instant at) {
+        state = restoredState;
+        if (restoredState == JobState.RUNNING) {
+            startedAt = at;
+        } else if (restoredState.isFinished()) {
+            finishedAt = at;
+        }
+    }
+
+    synchronized List<JobRecord> toRecords() {
+        List<JobRecord> records = new ArrayList<>();
+        records.add(JobRecord.submitted(this));
+        Arrays.stream(results).filter(Objects::nonNull).forEach(result -> records.add(JobRecord.item(id, result)));
+        if (state != JobState.QUEUED) {
+            records.add(JobRecord.state(id, state, state.isFinished() ? finishedAt : startedAt));
+        }
+        return records;
+    }
+
+    synchronized JobStatusResponse toResponse(boolean includeResults) {
+        return JobStatusResponse.builder()
+                .id(id)
+                .type(type)
+                .priority(priority)
+                .state(state)
+                .totalItems(results.length)
+                .succeededItems(succeededItems)
+                .failedItems(failedItems)
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .results(includeResults ? Arrays.stream(results).filter(Objects::nonNull).toList() : null)
+                .build();
+    }
+}
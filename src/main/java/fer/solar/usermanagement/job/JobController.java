@@ -0,0 +1,50 @@
+package fer.solar.usermanagement.job;
+
+import fer.solar.usermanagement.common.web.IdempotentRequests;
+import fer.solar.usermanagement.job.dto.JobStatusResponse;
+import fer.solar.usermanagement.job.dto.SubmitJobRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/v1/jobs")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final JobService jobService;
+    private final IdempotentRequests idempotentRequests;
+
+    @PostMapping
+    public Mono<ResponseEntity<JobStatusResponse>> submitJob(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody SubmitJobRequest request
+    ) {
+        // A replay points at the job the first submission created, whatever state it is in by now
+        return idempotentRequests.execute(idempotencyKey, "jobs.submit", request,
+                () -> jobService.submit(request)
+                        .map(job -> ResponseEntity.accepted()
+                                .location(URI.create("/api/v1/jobs/" + job.getId()))
+                                .body(job)));
+    }
+
+    @GetMapping("/{jobId}")
+    public Mono<ResponseEntity<JobStatusResponse>> getJob(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "true") boolean includeResults
+    ) {
+        return Mono.just(jobService.getJob(jobId, includeResults)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    public Mono<ResponseEntity<JobStatusResponse>> cancelJob(@PathVariable String jobId) {
+        return jobService.cancel(jobId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,26 @@
+package fer.solar.usermanagement.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Work a job of one type performs. A job is split into items when it is submitted, items are
+ * processed independently and their results are journaled, so a job interrupted by a restart
+ * resumes with the items that have no result yet. An item may therefore be processed again if
+ * the instance stopped while it was in flight.
+ */
+public interface JobHandler {
+
+    String type();
+
+    /**
+     * Splits the submitted input into items.
+     *
+     * @throws IllegalArgumentException when the input is not valid for this job type
+     */
+    List<JsonNode> split(JsonNode input);
+
+    Mono<JsonNode> process(JsonNode item);
+}
@@ -0,0 +1,132 @@
+package fer.solar.usermanagement.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Append-only file of {@link JobRecord}s, one JSON document per line. Submissions and final states
+ * are forced to disk, item results are not: an item whose result was lost in a crash is processed
+ * again. Replay stops at the first line that cannot be parsed, which is where a write was torn.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class JobJournal {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${usermanagement.jobs.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${usermanagement.jobs.journal.path:${java.io.tmpdir}/solar-user-management/jobs.journal}")
+    private Path path;
+
+    private FileChannel channel;
+
+    synchronized void append(JobRecord record, boolean force) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (channel == null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.error("Failed to append {} record of job {} to {}: {}", record.op(), record.jobId(), path, e.getMessage(), e);
+        }
+    }
+
+    synchronized List<JobRecord> replay() {
+        List<JobRecord> records = new ArrayList<>();
+        if (!enabled || !Files.isRegularFile(path)) {
+            return records;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    records.add(objectMapper.readValue(line, JobRecord.class));
+                } catch (IOException e) {
+                    log.warn("Job journal {} ends with an unreadable record after {} records, ignoring the rest.",
+                            path, records.size());
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to read job journal {}: {}", path, e.getMessage(), e);
+        }
+        return records;
+    }
+
+    /**
+     * Replaces the journal with the records supplied, dropping everything else. The records are
+     * taken under the append lock, so callers that change their state before appending lose
+     * nothing: an append either finished before the snapshot, which then contains its change, or
+     * waits and goes to the new file.
+     */
+    synchronized void rewrite(Supplier<List<JobRecord>> snapshot) {
+        if (!enabled) {
+            return;
+        }
+        List<JobRecord> records = snapshot.get();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            close();
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (JobRecord record : records) {
+                    ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+                    while (line.hasRemaining()) {
+                        out.write(line);
+                    }
+                }
+                out.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.error("Failed to compact job journal {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package fer.solar.usermanagement.job;
+
+/**
+ * Order in which queued jobs are started; jobs of equal priority start in submission order.
+ */
+public enum JobPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,35 @@
+package fer.solar.usermanagement.job;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import fer.solar.usermanagement.job.dto.JobItemResult;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One line of the {@link JobJournal}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record JobRecord(Op op, String jobId, Instant at, String type, JobPriority priority, List<JsonNode> items,
+                 JobItemResult item, JobState state) {
+
+    enum Op {
+        SUBMITTED,
+        ITEM,
+        STATE
+    }
+
+    static JobRecord submitted(Job job) {
+        return new JobRecord(Op.SUBMITTED, job.getId(), job.getSubmittedAt(), job.getType(), job.getPriority(),
+                job.getItems(), null, null);
+    }
+
+    static JobRecord item(String jobId, JobItemResult item) {
+        return new JobRecord(Op.ITEM, jobId, null, null, null, null, item, null);
+    }
+
+    static JobRecord state(String jobId, JobState state, Instant at) {
+        return new JobRecord(Op.STATE, jobId, at, null, null, null, null, state);
+    }
+}
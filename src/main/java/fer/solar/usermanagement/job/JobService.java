@@ -0,0 +1,256 @@
+package fer.solar.usermanagement.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.job.dto.JobItemResult;
+import fer.solar.usermanagement.job.dto.JobStatusResponse;
+import fer.solar.usermanagement.job.dto.SubmitJobRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs long admin operations outside the request that submitted them.
+ * <p>
+ * Jobs wait in a priority queue and at most {@code concurrency} of them run at once, each
+ * processing up to {@code item-concurrency} items in parallel on a dedicated scheduler.
+ * Submissions, item results and state changes are written to the {@link JobJournal}; on startup
+ * the journal is replayed and unfinished jobs continue with their remaining items.
+ */
+@Service
+@Slf4j
+public class JobService {
+
+    private static final Comparator<Job> QUEUE_ORDER = Comparator.comparing(Job::getPriority)
+            .thenComparingLong(Job::getSequence);
+
+    private final Map<String, JobHandler> handlers;
+    private final JobJournal journal;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final PriorityQueue<Job> queue = new PriorityQueue<>(QUEUE_ORDER);
+    private long nextSequence;
+    private int running;
+    private Scheduler scheduler;
+
+    @Value("${usermanagement.jobs.concurrency:2}")
+    private int concurrency;
+
+    @Value("${usermanagement.jobs.item-concurrency:4}")
+    private int itemConcurrency;
+
+    @Value("${usermanagement.jobs.threads:8}")
+    private int threads;
+
+    @Value("${usermanagement.jobs.retention:24h}")
+    private Duration retention;
+
+    public JobService(List<JobHandler> handlers, JobJournal journal) {
+        this.handlers = handlers.stream().collect(Collectors.toMap(JobHandler::type, Function.identity()));
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    void startScheduler() {
+        scheduler = Schedulers.newBoundedElastic(threads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "jobs");
+    }
+
+    @PreDestroy
+    void stopScheduler() {
+        scheduler.dispose();
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void resumeOnStartup() {
+        Map<String, Job> restored = new LinkedHashMap<>();
+        for (JobRecord record : journal.replay()) {
+            if (record.op() == JobRecord.Op.SUBMITTED) {
+                restored.put(record.jobId(), new Job(record.jobId(), record.type(), record.priority(), record.at(), record.items()));
+                continue;
+            }
+            Job job = restored.get(record.jobId());
+            if (job == null) {
+                continue;
+            }
+            if (record.op() == JobRecord.Op.ITEM) {
+                job.record(record.item());
+            } else {
+                job.restore(record.state(), record.at());
+            }
+        }
+
+        Instant now = Instant.now();
+        List<Job> resumed = new ArrayList<>();
+        restored.values().forEach(job -> {
+            JobState state = job.getState();
+            if (state.isFinished() && job.getFinishedAt().isBefore(now.minus(retention))) {
+                return;
+            }
+            jobs.put(job.getId(), job);
+            if (state == JobState.CANCELLING) {
+                job.restore(JobState.CANCELLED, now);
+            } else if (!state.isFinished()) {
+                if (handlers.containsKey(job.getType())) {
+                    resumed.add(job);
+                } else {
+                    log.error("No handler for type {} of restored job {}, marking it failed.", job.getType(), job.getId());
+                    job.fail(now);
+                }
+            }
+        });
+        compact();
+        synchronized (this) {
+            resumed.forEach(this::enqueue);
+        }
+        if (!resumed.isEmpty()) {
+            log.info("Resuming {} unfinished jobs from the journal.", resumed.size());
+        }
+        dispatch();
+    }
+
+    public Mono<JobStatusResponse> submit(SubmitJobRequest request) {
+        JobHandler handler = handlers.get(request.getType());
+        if (handler == null) {
+            return Mono.error(new InvalidJobException("Unknown job type " + request.getType()));
+        }
+        return Mono.fromCallable(() -> {
+                    List<JsonNode> items;
+                    try {
+                        items = handler.split(request.getInput());
+                    } catch (IllegalArgumentException e) {
+                        throw new InvalidJobException("Invalid input for job type " + request.getType() + ": " + e.getMessage());
+                    }
+                    JobPriority priority = request.getPriority() != null ? request.getPriority() : JobPriority.NORMAL;
+                    Job job = new Job(UUID.randomUUID().toString(), handler.type(), priority, Instant.now(), items);
+                    // Known before it is journaled, so a compaction in between keeps it
+                    jobs.put(job.getId(), job);
+                    journal.append(JobRecord.submitted(job), true);
+                    synchronized (this) {
+                        enqueue(job);
+                    }
+                    log.info("Submitted {} job {} with {} items at {} priority.", job.getType(), job.getId(), items.size(), priority);
+                    dispatch();
+                    return job.toResponse(false);
+                })
+                // The journal write is blocking
+                .subscribeOn(scheduler);
+    }
+
+    public Optional<JobStatusResponse> getJob(String jobId, boolean includeResults) {
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> job.toResponse(includeResults));
+    }
+
+    public Mono<JobStatusResponse> cancel(String jobId) {
+        return Mono.justOrEmpty(jobs.get(jobId))
+                .publishOn(scheduler)
+                .map(job -> {
+                    synchronized (this) {
+                        if (job.cancel(Instant.now())) {
+                            queue.remove(job);
+                            journal.append(JobRecord.state(job.getId(), job.getState(), Instant.now()), true);
+                            log.info("Cancellation of job {} requested, now {}.", job.getId(), job.getState());
+                        }
+                    }
+                    return job.toResponse(false);
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${usermanagement.jobs.cleanup-interval:PT1H}")
+    public void evictExpiredJobs() {
+        Instant expiredBefore = Instant.now().minus(retention);
+        boolean evicted = jobs.values().removeIf(job -> job.getState().isFinished() && job.getFinishedAt().isBefore(expiredBefore));
+        if (evicted) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        journal.rewrite(() -> jobs.values().stream()
+                .sorted(Comparator.comparing(Job::getSubmittedAt))
+                .flatMap(job -> job.toRecords().stream())
+                .toList());
+    }
+
+    private void enqueue(Job job) {
+        job.enqueue(nextSequence++);
+        queue.add(job);
+    }
+
+    private void dispatch() {
+        List<Job> started = new ArrayList<>();
+        synchronized (this) {
+            while (running < concurrency && !queue.isEmpty()) {
+                running++;
+                started.add(queue.poll());
+            }
+        }
+        started.forEach(this::run);
+    }
+
+    private void run(Job job) {
+        JobHandler handler = handlers.get(job.getType());
+        Instant now = Instant.now();
+        List<Integer> pending = job.start(now);
+        if (pending == null) {
+            synchronized (this) {
+                running--;
+            }
+            dispatch();
+            return;
+        }
+        journal.append(JobRecord.state(job.getId(), JobState.RUNNING, now), false);
+        log.info("Started {} job {} with {} of {} items remaining.", job.getType(), job.getId(), pending.size(), job.getItems().size());
+
+        Flux.fromIterable(pending)
+                .takeWhile(index -> !job.isCancelRequested())
+                .flatMap(index -> Mono.defer(() -> handler.process(job.getItems().get(index)))
+                        .subscribeOn(scheduler)
+                        .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BULK_JOB))
+                        .map(result -> JobItemResult.succeeded(index, result))
+                        .defaultIfEmpty(JobItemResult.succeeded(index, null))
+                        .onErrorResume(e -> Mono.just(JobItemResult.failed(index, e))), itemConcurrency)
+                .publishOn(scheduler)
+                .doOnNext(result -> {
+                    job.record(result);
+                    journal.append(JobRecord.item(job.getId(), result), false);
+                })
+                .doFinally(signal -> finish(job))
+                .subscribe(
+                        result -> { },
+                        e -> log.error("Job {} stopped unexpectedly: {}", job.getId(), e.getMessage(), e));
+    }
+
+    private void finish(Job job) {
+        Instant now = Instant.now();
+        JobState state = job.finish(now);
+        journal.append(JobRecord.state(job.getId(), state, now), true);
+        JobStatusResponse status = job.toResponse(false);
+        log.info("Job {} {}: {} items succeeded, {} failed.", job.getId(), state, status.getSucceededItems(), status.getFailedItems());
+        synchronized (this) {
+            running--;
+        }
+        dispatch();
+    }
+}
@@ -0,0 +1,14 @@
+package fer.solar.usermanagement.job;
+
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    CANCELLING, // Cancelled while running, items already started are finishing
+    CANCELLED,
+    COMPLETED, // All items were processed, some of them may have failed
+    FAILED; // The job could not run at all
+
+    public boolean isFinished() {
+        return this == CANCELLED || this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,27 @@
+package fer.solar.usermanagement.job.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobItemResult {
+    private int index; // Position of the item in the job
+    private boolean succeeded;
+    private JsonNode result;
+    private String error;
+
+    public static JobItemResult succeeded(int index, JsonNode result) {
+        return new JobItemResult(index, true, result, null);
+    }
+
+    public static JobItemResult failed(int index, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return new JobItemResult(index, false, null, cause.getMessage());
+    }
+}
@@ -0,0 +1,27 @@
+package fer.solar.usermanagement.job.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import fer.solar.usermanagement.job.JobPriority;
+import fer.solar.usermanagement.job.JobState;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobStatusResponse {
+    private String id;
+    private String type;
+    private JobPriority priority;
+    private JobState state;
+    private int totalItems;
+    private int succeededItems;
+    private int failedItems;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private List<JobItemResult> results; // Finished items so far, ordered by index
+}
@@ -0,0 +1,14 @@
+package fer.solar.usermanagement.job.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import fer.solar.usermanagement.job.JobPriority;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class SubmitJobRequest {
+    private String type;
+    private JobPriority priority = JobPriority.NORMAL;
+    private JsonNode input; // Shape depends on the job type
+}
@@ -4,19 +4,25 @@ import com.auth0.client.mgmt.ManagementAPI;
 import com.auth0.exception.Auth0Exception;
 import com.auth0.json.mgmt.resourceserver.ResourceServer;
 import com.auth0.json.mgmt.resourceserver.Scope;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
 import fer.solar.usermanagement.config.Auth0Config;
 import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
 import fer.solar.usermanagement.permission.dto.PermissionResponse;
 import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import fer.solar.usermanagement.common.util.SortingUtils;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,16 +31,32 @@ import java.util.stream.Collectors;
 public class Auth0PermissionService implements PermissionService {
 
     private final Auth0Config auth0Config;
+    private final Auth0CallExecutor auth0Calls;
+    private final Object catalogWriteLock = new Object();
+    // Completes when the last patch queued has finished, the next one waits for it
+    private final AtomicReference<CompletableFuture<Void>> lastPatch =
+            new AtomicReference<>(CompletableFuture.completedFuture(null));
 
     @Override
     public Mono<PaginatedPermissionResponse> listPermissions() {
         return fetchScopesFromApi()
-                .map(this::buildPaginatedPermissionResponse)
-                .subscribeOn(Schedulers.boundedElastic());
+                .map(this::buildPaginatedPermissionResponse);
+    }
+
+    @Override
+    public Mono<PermissionCatalog> getCatalog() {
+        return fetchScopesFromApi()
+                .map(this::toCatalog);
+    }
+
+    private PermissionCatalog toCatalog(List<Scope> scopes) {
+        Map<String, String> descriptions = new HashMap<>();
+        scopes.forEach(scope -> descriptions.put(scope.getValue(), scope.getDescription()));
+        return PermissionCatalog.of(descriptions);
     }
 
     private Mono<List<Scope>> fetchScopesFromApi() {
-        return Mono.fromCallable(() -> {
+        return auth0Calls.call(Auth0Operation.SCOPES_GET, () -> {
             ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
             String apiIdentifier = auth0Config.getApiGatewayIdentifier();
             try {
@@ -44,7 +66,7 @@ public class Auth0PermissionService implements PermissionService {
                 log.error("Failed to fetch scopes for resource server {}: {}", apiIdentifier, e.getMessage());
                 throw new RuntimeException("Failed to fetch API scopes", e);
             }
-        }).onErrorReturn(Collections.emptyList());
+        });
     }
 
     private PaginatedPermissionResponse buildPaginatedPermissionResponse(List<Scope> scopes) {
@@ -57,8 +79,8 @@ public class Auth0PermissionService implements PermissionService {
 
         permissionResponses.sort(SortingUtils.createNullsFirstCaseInsensitiveComparator(PermissionResponse::getPermissionName));
 
-        // We fetch all scopes at once since there is no pagination in Auth0
-        // In the future, we can add caching and pagination to this method
+        // We fetch all scopes at once since there is no pagination in Auth0,
+        // paging and filtering are served from the cached PermissionCatalog
         int totalElements = permissionResponses.size();
         return PaginatedPermissionResponse.builder()
                 .content(permissionResponses)
@@ -69,9 +91,63 @@ public class Auth0PermissionService implements PermissionService {
                 .build();
     }
 
+    /**
+     * Reads the current scopes, verifies the expected version and writes the merged scope list
+     * back only if the operations changed anything. Auth0 has no conditional update, so patches
+     * from this instance are serialized to keep the read-check-write window closed locally. They
+     * queue for each other before asking for an Auth0 call slot, so waiting patches cannot take
+     * every slot; the lock only still matters for a patch left running by a caller that gave up.
+     */
+    @Override
+    public Mono<PermissionCatalog> patchPermissions(PatchPermissionsRequest request, String expectedVersion) {
+        return afterPreviousPatch(auth0Calls.call(Auth0Operation.SCOPES_UPDATE, () -> {
+            synchronized (catalogWriteLock) {
+                ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+                String apiIdentifier = auth0Config.getApiGatewayIdentifier();
+                try {
+                    ResourceServer server = mgmt.resourceServers().get(apiIdentifier).execute().getBody();
+                    PermissionCatalog current = toCatalog(server.getScopes() != null ? server.getScopes() : Collections.emptyList());
+                    if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                        throw new CatalogVersionMismatchException(expectedVersion, current.getVersion());
+                    }
+                    PermissionCatalog patched = current.apply(request.getOperations());
+                    if (patched == current) {
+                        log.debug("Permission patch for resource server {} changes nothing, skipping update", apiIdentifier);
+                        return current;
+                    }
+                    ResourceServer serverUpdates = new ResourceServer();
+                    serverUpdates.setScopes(patched.getPermissions().stream()
+                            .map(permission -> {
+                                Scope scope = new Scope(permission.getPermissionName());
+                                scope.setDescription(permission.getDescription());
+                                return scope;
+                            })
+                            .collect(Collectors.toList()));
+                    mgmt.resourceServers().update(apiIdentifier, serverUpdates).execute();
+                    log.info("Patched scopes for resource server {}: {} -> {} scopes", apiIdentifier, current.size(), patched.size());
+                    return patched;
+                } catch (Auth0Exception e) {
+                    log.error("Failed to patch scopes for resource server {}: {}", apiIdentifier, e.getMessage(), e);
+                    throw new RuntimeException("Failed to patch API scopes", e);
+                }
+            }
+        }));
+    }
+
+    private <T> Mono<T> afterPreviousPatch(Mono<T> patch) {
+        return Mono.defer(() -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            CompletableFuture<Void> previous = lastPatch.getAndSet(done);
+            return Mono.fromFuture(previous, true)
+                    .then(patch)
+                    // A patch given up while still waiting lets the next one go only after its predecessor
+                    .doFinally(signal -> previous.whenComplete((ignored, error) -> done.complete(null)));
+        });
+    }
+
     @Override
     public Mono<Void> updatePermissions(UpdatePermissionsRequest request) {
-        return Mono.fromRunnable(() -> {
+        return auth0Calls.run(Auth0Operation.SCOPES_UPDATE, () -> {
             ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
             String apiIdentifier = auth0Config.getApiGatewayIdentifier();
 
@@ -94,6 +170,6 @@ public class Auth0PermissionService implements PermissionService {
                 log.error("Failed to update scopes for resource server {}: {}", apiIdentifier, e.getMessage(), e);
                 throw new RuntimeException("Failed to update API scopes", e);
             }
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+        });
     }
 } 
\ No newline at end of file
@@ -0,0 +1,125 @@
+package fer.solar.usermanagement.permission;
+
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex;
+import fer.solar.usermanagement.common.auth0.DetachedWriteListener;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.common.cache.StaleWhileRevalidateCache;
+import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
+import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the permission catalog from the synchronized directory snapshot when it is usable,
+ * otherwise from a stale-while-revalidate cache in front of {@link Auth0PermissionService}.
+ * Writes invalidate both, again once a write left running past its caller has finished, and
+ * update the {@link EffectivePermissionIndex}.
+ */
+@Service
+@Primary
+public class CachingPermissionService implements PermissionService {
+
+    private static final String CATALOG_KEY = "catalog";
+
+    private final Auth0PermissionService delegate;
+    private final CacheRegistry cacheRegistry;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final EffectivePermissionIndex permissionIndex;
+    private final StaleWhileRevalidateCache<String, PermissionCatalog> catalog;
+    private final AtomicReference<SnapshotCatalog> snapshotCatalog = new AtomicReference<>();
+
+    public CachingPermissionService(Auth0PermissionService delegate, CacheRegistry cacheRegistry,
+                                    DirectorySnapshotHolder snapshotHolder, EffectivePermissionIndex permissionIndex) {
+        this.delegate = delegate;
+        this.cacheRegistry = cacheRegistry;
+        this.snapshotHolder = snapshotHolder;
+        this.permissionIndex = permissionIndex;
+        this.catalog = cacheRegistry.create("permissions.catalog", CacheGroup.PERMISSIONS,
+                key -> delegate.getCatalog());
+    }
+
+    @Override
+    public Mono<PaginatedPermissionResponse> listPermissions() {
+        return getCatalog().map(PermissionCatalog::toResponse);
+    }
+
+    @Override
+    public Mono<PermissionCatalog> getCatalog() {
+        return snapshotHolder.readable(CacheGroup.PERMISSIONS)
+                .map(snapshot -> snapshotHolder.serve(snapshot, catalogOf(snapshot)))
+                .orElseGet(() -> catalog.get(CATALOG_KEY));
+    }
+
+    // Building the catalog hashes every scope, so it is done once per snapshot
+    private PermissionCatalog catalogOf(DirectorySnapshot snapshot) {
+        SnapshotCatalog cached = snapshotCatalog.get();
+        if (cached != null && cached.snapshot() == snapshot) {
+            return cached.catalog();
+        }
+        PermissionCatalog built = PermissionCatalog.of(snapshot.getScopes());
+        snapshotCatalog.set(new SnapshotCatalog(snapshot, built));
+        return built;
+    }
+
+    @Override
+    public Mono<Void> updatePermissions(UpdatePermissionsRequest request) {
+        // Auth0 drops removed scopes from roles, so role caches go as well
+        return delegate.updatePermissions(request)
+                .doOnSuccess(ignored -> permissionIndex.scopesReplaced(request.getPermissions().stream()
+                        .map(UpdatePermissionsRequest.PermissionUpdate::getPermissionName)
+                        .collect(Collectors.toSet())))
+                .doOnTerminate(this::invalidateCatalog)
+                .contextWrite(DetachedWriteListener.onFinished(this::invalidateCatalog));
+    }
+
+    /**
+     * Checks the patch against the cached catalog first: a patch that changes nothing in a catalog
+     * of the expected version is answered without calling Auth0. Everything else goes to
+     * {@link Auth0PermissionService}, which re-checks the version against the live scopes, so a
+     * stale cache can neither accept a lost update nor reject a current client.
+     */
+    @Override
+    public Mono<PermissionCatalog> patchPermissions(PatchPermissionsRequest request, String expectedVersion) {
+        return getCatalog()
+                .flatMap(cached -> {
+                    boolean versionMatches = expectedVersion == null || expectedVersion.equals(cached.getVersion());
+                    if (versionMatches && changesNothing(cached, request)) {
+                        return Mono.just(cached);
+                    }
+                    return delegate.patchPermissions(request, expectedVersion)
+                            .doOnSuccess(patched -> {
+                                if (patched != null && !patched.getVersion().equals(cached.getVersion())) {
+                                    permissionIndex.scopesReplaced(patched.getDescriptions().keySet());
+                                    invalidateCatalog();
+                                    catalog.put(CATALOG_KEY, patched);
+                                }
+                            })
+                            .contextWrite(DetachedWriteListener.onFinished(this::invalidateCatalog));
+                });
+    }
+
+    private boolean changesNothing(PermissionCatalog cached, PatchPermissionsRequest request) {
+        try {
+            return cached.apply(request.getOperations()) == cached;
+        } catch (PermissionPatchConflictException e) {
+            // Let the live catalog decide, the cached one may be behind
+            return false;
+        }
+    }
+
+    private void invalidateCatalog() {
+        snapshotHolder.markDirty(CacheGroup.PERMISSIONS, CacheGroup.ROLES);
+        cacheRegistry.invalidateAll(CacheGroup.PERMISSIONS, CacheGroup.ROLES);
+    }
+
+    private record SnapshotCatalog(DirectorySnapshot snapshot, PermissionCatalog catalog) {
+    }
+}
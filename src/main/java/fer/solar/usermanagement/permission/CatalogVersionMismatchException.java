@@ -0,0 +1,20 @@
+package fer.solar.usermanagement.permission;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The catalog changed since the client read the version it sent in {@code If-Match}.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+@Getter
+public class CatalogVersionMismatchException extends RuntimeException {
+
+    private final String currentVersion;
+
+    public CatalogVersionMismatchException(String expectedVersion, String currentVersion) {
+        super("Permission catalog version " + expectedVersion + " is outdated, current version is " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+}
@@ -0,0 +1,185 @@
+package fer.solar.usermanagement.permission;
+
+import fer.solar.usermanagement.common.util.SortingUtils;
+import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
+import fer.solar.usermanagement.permission.dto.PermissionResponse;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Immutable, sorted view of the API scopes with a version derived from their content.
+ * <p>
+ * The version is formatted as a strong ETag and changes whenever a scope is added, removed or
+ * re-described, so it can be used for {@code If-Match} checks. Pages and filtered views are
+ * computed from the sorted list on demand, without calling Auth0.
+ */
+@Getter
+public final class PermissionCatalog {
+
+    private final String version;
+    private final List<PermissionResponse> permissions;
+    private final Map<String, String> descriptions;
+    @Getter(AccessLevel.NONE)
+    private final String[] searchText;
+
+    private PermissionCatalog(Map<String, String> descriptions) {
+        this.descriptions = Collections.unmodifiableMap(descriptions);
+        this.permissions = descriptions.entrySet().stream()
+                .map(scope -> PermissionResponse.builder()
+                        .permissionName(scope.getKey())
+                        .description(scope.getValue())
+                        .build())
+                .sorted(SortingUtils.createNullsFirstCaseInsensitiveComparator(PermissionResponse::getPermissionName))
+                .toList();
+        this.searchText = permissions.stream()
+                .map(permission -> (permission.getPermissionName() + "\n"
+                        + (permission.getDescription() != null ? permission.getDescription() : "")).toLowerCase(Locale.ROOT))
+                .toArray(String[]::new);
+        this.version = computeVersion(descriptions);
+    }
+
+    /**
+     * @param scopes scope value to description, descriptions may be null
+     */
+    public static PermissionCatalog of(Map<String, String> scopes) {
+        return new PermissionCatalog(new TreeMap<>(scopes));
+    }
+
+    public boolean contains(String permissionName) {
+        return descriptions.containsKey(permissionName);
+    }
+
+    public int size() {
+        return descriptions.size();
+    }
+
+    public PaginatedPermissionResponse toResponse() {
+        return page(0, 0, null, null);
+    }
+
+    /**
+     * Returns one page of the scopes whose name starts with {@code prefix} and whose name or
+     * description contains {@code query}, both case-insensitive and optional. A {@code size} of 0
+     * returns all matches as one page. The prefix range is found by binary search in the sorted
+     * list; only that range is scanned for the query.
+     */
+    public PaginatedPermissionResponse page(int page, int size, String prefix, String query) {
+        int from = 0;
+        int to = permissions.size();
+        if (prefix != null && !prefix.isEmpty()) {
+            from = firstNotBefore(prefix);
+            to = from;
+            while (to < permissions.size() && startsWithIgnoreCase(permissions.get(to).getPermissionName(), prefix)) {
+                to++;
+            }
+        }
+        List<PermissionResponse> matches = permissions.subList(from, to);
+        if (query != null && !query.isBlank()) {
+            String needle = query.trim().toLowerCase(Locale.ROOT);
+            List<PermissionResponse> filtered = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (searchText[i].contains(needle)) {
+                    filtered.add(permissions.get(i));
+                }
+            }
+            matches = filtered;
+        }
+        if (size == 0) {
+            return PaginatedPermissionResponse.builder()
+                    .content(matches)
+                    .currentPage(0)
+                    .pageSize(matches.size())
+                    .totalElements(matches.size())
+                    .totalPages(matches.isEmpty() ? 0 : 1)
+                    .build();
+        }
+        int start = (int) Math.min((long) page * size, matches.size());
+        int end = Math.min(start + size, matches.size());
+        return PaginatedPermissionResponse.builder()
+                .content(matches.subList(start, end))
+                .currentPage(page)
+                .pageSize(size)
+                .totalElements(matches.size())
+                .totalPages((int) Math.ceil((double) matches.size() / size))
+                .build();
+    }
+
+    private int firstNotBefore(String prefix) {
+        int low = 0;
+        int high = permissions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(permissions.get(middle).getPermissionName(), prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * Applies patch operations and returns the resulting catalog, which is this instance when
+     * nothing changed. Adding an existing scope with the same description and removing a missing
+     * scope are no-ops, so retried patches are harmless.
+     *
+     * @throws PermissionPatchConflictException if an operation contradicts the current catalog
+     */
+    public PermissionCatalog apply(List<PatchPermissionsRequest.Operation> operations) {
+        Map<String, String> next = new TreeMap<>(descriptions);
+        for (PatchPermissionsRequest.Operation operation : operations) {
+            String name = operation.getPermissionName();
+            switch (operation.getOp()) {
+                case ADD -> {
+                    if (next.containsKey(name) && !Objects.equals(next.get(name), operation.getDescription())) {
+                        throw new PermissionPatchConflictException("Permission " + name + " already exists with a different description");
+                    }
+                    next.put(name, operation.getDescription());
+                }
+                case REMOVE -> next.remove(name);
+                case UPDATE_DESCRIPTION -> {
+                    if (!next.containsKey(name)) {
+                        throw new PermissionPatchConflictException("Permission " + name + " does not exist");
+                    }
+                    next.put(name, operation.getDescription());
+                }
+            }
+        }
+        return next.equals(descriptions) ? this : new PermissionCatalog(next);
+    }
+
+    private static String computeVersion(Map<String, String> sortedDescriptions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            sortedDescriptions.forEach((name, description) -> {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (description != null) {
+                    digest.update(description.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) (description == null ? 1 : 2));
+            });
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to compute catalog version", e);
+        }
+    }
+}
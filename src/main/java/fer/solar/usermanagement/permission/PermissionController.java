@@ -1,28 +1,127 @@
 package fer.solar.usermanagement.permission;
 
+import fer.solar.usermanagement.authorization.PermissionHolderService;
+import fer.solar.usermanagement.authorization.dto.PermissionHolder;
+import fer.solar.usermanagement.authorization.dto.PermissionHoldersResponse;
+import fer.solar.usermanagement.authorization.dto.PermissionUpdatePreview;
 import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
 import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/v1/permissions")
 @RequiredArgsConstructor
 public class PermissionController {
 
     private final PermissionService permissionService;
+    private final PermissionHolderService permissionHolderService;
+
+    // The scope catalog changes rarely, so the gateway may reuse it briefly before revalidating
+    @Value("${usermanagement.http.permissions-max-age:30s}")
+    private Duration permissionsMaxAge;
 
+    // The ETag is the catalog version, which PATCH expects back in If-Match. Every view of a URL
+    // is derived from the catalog alone, so it is also a valid ETag for pages and filtered views.
     @GetMapping
-    public Mono<PaginatedPermissionResponse> listPermissions() {
-        return permissionService.listPermissions();
+    public Mono<ResponseEntity<PaginatedPermissionResponse>> listPermissions(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String q
+    ) {
+        int pageNumber = page == null || page < 0 ? 0 : page;
+        // Without size the whole (filtered) catalog is one page, as before paging existed
+        int pageSize = size == null ? 0 : (size < 1 ? 20 : size);
+        return permissionService.getCatalog()
+                .map(catalog -> ResponseEntity.ok()
+                        .eTag(catalog.getVersion())
+                        .cacheControl(CacheControl.maxAge(permissionsMaxAge).cachePrivate().mustRevalidate())
+                        .body(catalog.page(pageNumber, pageSize, prefix, q)));
     }
 
+    @GetMapping(value = "/{permissionName}/holders", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<PermissionHoldersResponse>> getHolders(
+            @PathVariable String permissionName,
+            @RequestParam(defaultValue = "false") boolean includeUsers
+    ) {
+        if (!permissionHolderService.isReady()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }
+        return permissionHolderService.getHolders(permissionName, includeUsers)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // Large holder lists are streamed one JSON object per line
+    @GetMapping(value = "/{permissionName}/holders", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PermissionHolder> streamHolders(
+            @PathVariable String permissionName,
+            @RequestParam(defaultValue = "false") boolean includeUsers
+    ) {
+        if (!permissionHolderService.isReady()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Permission index is not loaded yet"));
+        }
+        if (!permissionHolderService.isKnown(permissionName)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown permission " + permissionName));
+        }
+        return permissionHolderService.streamHolders(permissionName, includeUsers);
+    }
+
+    /**
+     * Replaces the scope catalog. With {@code preview=true} nothing is changed and the response
+     * lists the added and removed scopes and the roles that would lose scopes.
+     */
     @PutMapping
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> updatePermissions(@RequestBody UpdatePermissionsRequest request) {
-        return permissionService.updatePermissions(request);
+    public Mono<ResponseEntity<PermissionUpdatePreview>> updatePermissions(
+            @RequestBody UpdatePermissionsRequest request,
+            @RequestParam(defaultValue = "false") boolean preview
+    ) {
+        if (preview) {
+            if (!permissionHolderService.isReady()) {
+                return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+            }
+            return permissionHolderService.previewUpdate(request).map(ResponseEntity::ok);
+        }
+        return permissionService.updatePermissions(request)
+                .then(Mono.fromSupplier(() -> ResponseEntity.noContent().<PermissionUpdatePreview>build()));
+    }
+
+    /**
+     * Adds, removes or re-describes individual scopes. {@code If-Match} must carry the catalog
+     * version (the ETag of GET) or {@code *}; a patch based on an outdated catalog is rejected
+     * with {@code 412 Precondition Failed}.
+     */
+    @PatchMapping
+    public Mono<ResponseEntity<PaginatedPermissionResponse>> patchPermissions(
+            @RequestBody PatchPermissionsRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build());
+        }
+        if (request.getOperations() == null || request.getOperations().isEmpty()
+                || request.getOperations().stream().anyMatch(operation -> operation.getOp() == null
+                        || operation.getPermissionName() == null || operation.getPermissionName().isBlank())) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        String expectedVersion = "*".equals(ifMatch.trim()) ? null : ifMatch.trim();
+        return permissionService.patchPermissions(request, expectedVersion)
+                .map(catalog -> ResponseEntity.ok()
+                        .eTag(catalog.getVersion())
+                        .body(catalog.toResponse()));
     }
-    
-} 
\ No newline at end of file
+
+}
@@ -0,0 +1,12 @@
+package fer.solar.usermanagement.permission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PermissionPatchConflictException extends RuntimeException {
+
+    public PermissionPatchConflictException(String message) {
+        super(message);
+    }
+}
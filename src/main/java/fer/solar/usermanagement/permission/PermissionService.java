@@ -1,10 +1,20 @@
 package fer.solar.usermanagement.permission;
 
 import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
 import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
 import reactor.core.publisher.Mono;
 
 public interface PermissionService {
     Mono<PaginatedPermissionResponse> listPermissions();
+    Mono<PermissionCatalog> getCatalog();
     Mono<Void> updatePermissions(UpdatePermissionsRequest request);
-} 
\ No newline at end of file
+
+    /**
+     * Applies add/remove/updateDescription operations to the scope catalog.
+     *
+     * @param expectedVersion catalog version the client based the patch on, or null to skip the check
+     * @return the catalog after the patch
+     */
+    Mono<PermissionCatalog> patchPermissions(PatchPermissionsRequest request, String expectedVersion);
+}
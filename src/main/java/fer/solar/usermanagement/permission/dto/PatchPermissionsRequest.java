@@ -0,0 +1,30 @@
+package fer.solar.usermanagement.permission.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class PatchPermissionsRequest {
+
+    private List<Operation> operations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+        private Op op;
+        private String permissionName;
+        private String description; // Used by add and updateDescription
+    }
+
+    public enum Op {
+        @JsonProperty("add") ADD,
+        @JsonProperty("remove") REMOVE,
+        @JsonProperty("updateDescription") UPDATE_DESCRIPTION
+    }
+}
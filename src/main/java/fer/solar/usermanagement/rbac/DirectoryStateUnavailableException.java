@@ -0,0 +1,15 @@
+package fer.solar.usermanagement.rbac;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * No fresh directory snapshot exists and a synchronization is already running.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DirectoryStateUnavailableException extends RuntimeException {
+
+    public DirectoryStateUnavailableException() {
+        super("Directory state is being synchronized, retry shortly");
+    }
+}
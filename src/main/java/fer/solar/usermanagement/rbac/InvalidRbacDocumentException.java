@@ -0,0 +1,15 @@
+package fer.solar.usermanagement.rbac;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The desired-state document contradicts itself or references scopes that would not exist.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRbacDocumentException extends RuntimeException {
+
+    public InvalidRbacDocumentException(String message) {
+        super(message);
+    }
+}
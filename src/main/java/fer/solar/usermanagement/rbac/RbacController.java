@@ -0,0 +1,25 @@
+package fer.solar.usermanagement.rbac;
+
+import fer.solar.usermanagement.rbac.dto.RbacDocument;
+import fer.solar.usermanagement.rbac.dto.ReconcilePlan;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/rbac")
+@RequiredArgsConstructor
+public class RbacController {
+
+    private final RbacReconciler rbacReconciler;
+
+    @PostMapping("/reconcile")
+    public Mono<ResponseEntity<ReconcilePlan>> reconcile(@RequestBody RbacDocument document,
+                                                         @RequestParam(defaultValue = "false") boolean dryRun) {
+        // Changes that Auth0 rejected are listed in the plan, the status makes scripted promotions fail
+        return rbacReconciler.reconcile(document, dryRun)
+                .map(plan -> ResponseEntity.status(plan.hasFailures() ? HttpStatus.BAD_GATEWAY : HttpStatus.OK).body(plan));
+    }
+}
@@ -0,0 +1,255 @@
+package fer.solar.usermanagement.rbac;
+
+import fer.solar.usermanagement.rbac.dto.PlannedChange;
+import fer.solar.usermanagement.rbac.dto.PlannedChange.Action;
+import fer.solar.usermanagement.rbac.dto.RbacDocument;
+import fer.solar.usermanagement.rbac.dto.RbacDocument.RoleDefinition;
+import fer.solar.usermanagement.rbac.dto.ReconcilePlan;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Computes the smallest set of changes that turns a {@link DirectorySnapshot} into the state an
+ * {@link RbacDocument} describes. Permissions of pruned scopes are not removed role by role,
+ * Auth0 drops them from every role when the scope itself is deleted.
+ */
+final class RbacPlanner {
+
+    private RbacPlanner() {
+    }
+
+    static ReconcilePlan plan(RbacDocument document, DirectorySnapshot snapshot, int batchSize) {
+        List<String> warnings = new ArrayList<>();
+        List<PlannedChange> changes = new ArrayList<>();
+
+        Map<String, String> liveScopes = snapshot.getScopes();
+        Map<String, String> desiredScopes = document.getScopes() == null ? liveScopes : validScopes(document.getScopes());
+        Set<String> removedScopes = new TreeSet<>();
+        if (document.getScopes() != null) {
+            Set<String> added = new TreeSet<>();
+            Set<String> updated = new TreeSet<>();
+            desiredScopes.forEach((name, description) -> {
+                if (!liveScopes.containsKey(name)) {
+                    added.add(name);
+                } else if (!Objects.equals(liveScopes.get(name), description)) {
+                    updated.add(name);
+                }
+            });
+            if (document.isPrune()) {
+                liveScopes.keySet().stream().filter(name -> !desiredScopes.containsKey(name)).forEach(removedScopes::add);
+            }
+            addIfNotEmpty(changes, Action.ADD_SCOPES, null, null, added);
+            addIfNotEmpty(changes, Action.UPDATE_SCOPE_DESCRIPTIONS, null, null, updated);
+        }
+
+        List<PlannedChange> deletions = new ArrayList<>();
+        if (document.getRoles() != null) {
+            Map<String, RoleEntry> liveRoles = rolesByName(snapshot, warnings);
+            MemberResolver memberResolver = new MemberResolver(snapshot);
+            Set<String> desiredNames = new HashSet<>();
+            for (RoleDefinition role : validRoles(document.getRoles(), desiredScopes)) {
+                desiredNames.add(role.getName());
+                planRole(role, liveRoles.get(role.getName()), snapshot, removedScopes, memberResolver, changes, warnings);
+            }
+            if (document.isPrune()) {
+                liveRoles.values().stream()
+                        .filter(role -> !desiredNames.contains(role.name()))
+                        .forEach(role -> deletions.add(change(Action.DELETE_ROLE, role.name(), role.id(), null)));
+            }
+        }
+        changes.addAll(deletions);
+        addIfNotEmpty(changes, Action.REMOVE_SCOPES, null, null, removedScopes);
+
+        return ReconcilePlan.builder()
+                .snapshotVersion(snapshot.getVersion())
+                .dryRun(true)
+                .changes(changes)
+                .warnings(warnings)
+                .upstreamCalls(countUpstreamCalls(changes, batchSize))
+                .build();
+    }
+
+    private static void planRole(RoleDefinition role, RoleEntry live, DirectorySnapshot snapshot, Set<String> removedScopes,
+                                 MemberResolver memberResolver, List<PlannedChange> changes, List<String> warnings) {
+        String roleId = live == null ? null : live.id();
+        if (live == null) {
+            PlannedChange create = change(Action.CREATE_ROLE, role.getName(), null, null);
+            create.setDescription(role.getDescription());
+            changes.add(create);
+        } else if (role.getDescription() != null && !role.getDescription().equals(live.description())) {
+            PlannedChange update = change(Action.UPDATE_ROLE_DESCRIPTION, role.getName(), roleId, null);
+            update.setDescription(role.getDescription());
+            changes.add(update);
+        }
+
+        if (role.getPermissions() != null) {
+            Set<String> current = live == null ? Collections.emptySet() : snapshot.permissionsOfRole(roleId);
+            Set<String> desired = new TreeSet<>(role.getPermissions());
+            Set<String> removed = minus(minus(current, desired), removedScopes);
+            addIfNotEmpty(changes, Action.ADD_ROLE_PERMISSIONS, role.getName(), roleId, minus(desired, current));
+            addIfNotEmpty(changes, Action.REMOVE_ROLE_PERMISSIONS, role.getName(), roleId, removed);
+        }
+
+        if (role.getMembers() != null) {
+            Set<String> current = live == null
+                    ? Collections.emptySet()
+                    : snapshot.getRoleMembers().getOrDefault(roleId, Collections.emptySet());
+            Set<String> desired = new TreeSet<>();
+            boolean resolvedAll = memberResolver.resolve(role, desired, warnings);
+            addIfNotEmpty(changes, Action.ADD_ROLE_MEMBERS, role.getName(), roleId, minus(desired, current));
+            Set<String> removed = minus(current, desired);
+            if (resolvedAll) {
+                addIfNotEmpty(changes, Action.REMOVE_ROLE_MEMBERS, role.getName(), roleId, removed);
+            } else if (!removed.isEmpty()) {
+                warnings.add("Members of role " + role.getName() + " are not removed because some entries could not be resolved");
+            }
+        }
+    }
+
+    private static Map<String, String> validScopes(Map<String, String> scopes) {
+        scopes.keySet().forEach(name -> {
+            if (name == null || name.isBlank()) {
+                throw new InvalidRbacDocumentException("Scope names must not be blank");
+            }
+        });
+        return scopes;
+    }
+
+    private static List<RoleDefinition> validRoles(List<RoleDefinition> roles, Map<String, String> scopes) {
+        Set<String> names = new HashSet<>();
+        for (RoleDefinition role : roles) {
+            if (role.getName() == null || role.getName().isBlank()) {
+                throw new InvalidRbacDocumentException("Role names must not be blank");
+            }
+            if (!names.add(role.getName())) {
+                throw new InvalidRbacDocumentException("Role " + role.getName() + " is defined more than once");
+            }
+            if (role.getPermissions() != null) {
+                Set<String> unknown = new TreeSet<>(role.getPermissions());
+                unknown.removeAll(scopes.keySet());
+                if (!unknown.isEmpty()) {
+                    throw new InvalidRbacDocumentException("Role " + role.getName() + " references unknown scopes " + unknown);
+                }
+            }
+        }
+        return roles;
+    }
+
+    private static Map<String, RoleEntry> rolesByName(DirectorySnapshot snapshot, List<String> warnings) {
+        Map<String, RoleEntry> byName = new LinkedHashMap<>();
+        for (RoleEntry role : snapshot.getRolesByName()) {
+            if (byName.putIfAbsent(role.name(), role) != null) {
+                warnings.add("Role name " + role.name() + " is used by more than one role, only " + byName.get(role.name()).id() + " is reconciled");
+            }
+        }
+        return byName;
+    }
+
+    private static int countUpstreamCalls(List<PlannedChange> changes, int batchSize) {
+        int calls = 0;
+        boolean scopesAddedOrUpdated = false;
+        Set<String> usersLosingRoles = new HashSet<>();
+        for (PlannedChange change : changes) {
+            switch (change.getAction()) {
+                // Scope patches read and replace the whole resource server
+                case ADD_SCOPES, UPDATE_SCOPE_DESCRIPTIONS -> scopesAddedOrUpdated = true;
+                case REMOVE_SCOPES -> calls += 2;
+                case CREATE_ROLE, UPDATE_ROLE_DESCRIPTION, DELETE_ROLE -> calls++;
+                case ADD_ROLE_PERMISSIONS, REMOVE_ROLE_PERMISSIONS, ADD_ROLE_MEMBERS ->
+                        calls += (change.getItems().size() + batchSize - 1) / batchSize;
+                // Auth0 removes role members only per user, one call covers all of a user's roles
+                case REMOVE_ROLE_MEMBERS -> usersLosingRoles.addAll(change.getItems());
+            }
+        }
+        return calls + (scopesAddedOrUpdated ? 2 : 0) + usersLosingRoles.size();
+    }
+
+    private static void addIfNotEmpty(List<PlannedChange> changes, Action action, String roleName, String roleId,
+                                      Collection<String> items) {
+        if (!items.isEmpty()) {
+            changes.add(change(action, roleName, roleId, List.copyOf(items)));
+        }
+    }
+
+    private static PlannedChange change(Action action, String roleName, String roleId, List<String> items) {
+        return PlannedChange.builder()
+                .action(action)
+                .roleName(roleName)
+                .roleId(roleId)
+                .items(items)
+                .status(PlannedChange.Status.PLANNED)
+                .build();
+    }
+
+    private static Set<String> minus(Set<String> values, Set<String> removed) {
+        Set<String> result = new TreeSet<>(values);
+        result.removeAll(removed);
+        return result;
+    }
+
+    /**
+     * Members are given as user IDs or emails, so the same document works across tenants.
+     */
+    private static final class MemberResolver {
+
+        private final DirectorySnapshot snapshot;
+        private Map<String, List<String>> usersByEmail;
+
+        MemberResolver(DirectorySnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        boolean resolve(RoleDefinition role, Set<String> userIds, List<String> warnings) {
+            boolean resolvedAll = true;
+            for (String member : role.getMembers()) {
+                if (member == null || member.isBlank()) {
+                    continue;
+                }
+                if (!member.contains("@")) {
+                    if (snapshot.isUsersComplete() && snapshot.findUser(member).isEmpty()) {
+                        warnings.add("Unknown user " + member + " in role " + role.getName() + " is skipped");
+                        continue;
+                    }
+                    userIds.add(member);
+                    continue;
+                }
+                List<String> matches = usersByEmail().getOrDefault(member.toLowerCase(Locale.ROOT), List.of());
+                if (matches.size() == 1) {
+                    userIds.add(matches.get(0));
+                } else {
+                    warnings.add((matches.isEmpty() ? "No user" : "More than one user") + " has email " + member
+                            + ", it is skipped in role " + role.getName());
+                    resolvedAll = false;
+                }
+            }
+            return resolvedAll;
+        }
+
+        private Map<String, List<String>> usersByEmail() {
+            if (usersByEmail == null) {
+                usersByEmail = new HashMap<>();
+                for (UserEntry user : snapshot.getUsers().values()) {
+                    if (user.email() != null) {
+                        usersByEmail.computeIfAbsent(user.email().toLowerCase(Locale.ROOT), ignored -> new ArrayList<>())
+                                .add(user.id());
+                    }
+                }
+            }
+            return usersByEmail;
+        }
+    }
+}
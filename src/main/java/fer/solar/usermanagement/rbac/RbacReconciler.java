@@ -0,0 +1,306 @@
+package fer.solar.usermanagement.rbac;
+
+import com.auth0.client.mgmt.ManagementAPI;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.mgmt.permissions.Permission;
+import com.auth0.json.mgmt.roles.Role;
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.config.Auth0Config;
+import fer.solar.usermanagement.permission.PermissionService;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
+import fer.solar.usermanagement.rbac.dto.PlannedChange;
+import fer.solar.usermanagement.rbac.dto.PlannedChange.Action;
+import fer.solar.usermanagement.rbac.dto.PlannedChange.Status;
+import fer.solar.usermanagement.rbac.dto.RbacDocument;
+import fer.solar.usermanagement.rbac.dto.ReconcilePlan;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import fer.solar.usermanagement.sync.DirectorySynchronizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Brings Auth0 to the state described by an {@link RbacDocument}.
+ * <p>
+ * The plan is computed against a directory snapshot no older than {@code max-snapshot-age} and
+ * applied in phases: scope additions, role creation, per role changes, member removals, role
+ * deletion and scope removal. Role permissions and members are sent in batches, roles are
+ * processed with bounded concurrency. A failed change is reported in the plan and does not stop
+ * independent ones.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RbacReconciler {
+
+    private static final Set<Action> ROLE_CHANGES = EnumSet.of(Action.UPDATE_ROLE_DESCRIPTION,
+            Action.ADD_ROLE_PERMISSIONS, Action.REMOVE_ROLE_PERMISSIONS, Action.ADD_ROLE_MEMBERS);
+
+    private final Auth0Config auth0Config;
+    private final Auth0CallExecutor auth0Calls;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final DirectorySynchronizer synchronizer;
+    private final PermissionService permissionService;
+    private final EffectivePermissionIndex permissionIndex;
+    private final CacheRegistry cacheRegistry;
+
+    @Value("${usermanagement.rbac.concurrency:4}")
+    private int concurrency;
+
+    @Value("${usermanagement.rbac.batch-size:100}")
+    private int batchSize;
+
+    @Value("${usermanagement.rbac.max-snapshot-age:1m}")
+    private Duration maxSnapshotAge;
+
+    public Mono<ReconcilePlan> reconcile(RbacDocument document, boolean dryRun) {
+        return liveSnapshot().flatMap(snapshot -> {
+            ReconcilePlan plan = RbacPlanner.plan(document, snapshot, batchSize);
+            plan.setDryRun(dryRun);
+            if (dryRun || plan.getChanges().isEmpty()) {
+                return Mono.just(plan);
+            }
+            log.info("Reconciling RBAC against snapshot {}: {} changes, {} Auth0 calls",
+                    snapshot.getVersion(), plan.getChanges().size(), plan.getUpstreamCalls());
+            return apply(document, plan, snapshot);
+        });
+    }
+
+    private Mono<DirectorySnapshot> liveSnapshot() {
+        return Mono.defer(() -> {
+                    Instant freshAfter = Instant.now().minus(maxSnapshotAge);
+                    return Mono.justOrEmpty(snapshotHolder.readable(CacheGroup.USERS, CacheGroup.ROLES, CacheGroup.PERMISSIONS)
+                            .filter(snapshot -> snapshot.getCompletedAt().isAfter(freshAfter)));
+                })
+                .switchIfEmpty(synchronizer.synchronize())
+                .switchIfEmpty(Mono.error(new DirectoryStateUnavailableException()));
+    }
+
+    private Mono<ReconcilePlan> apply(RbacDocument document, ReconcilePlan plan, DirectorySnapshot snapshot) {
+        List<PlannedChange> changes = plan.getChanges();
+        return patchScopes(document, changes, EnumSet.of(Action.ADD_SCOPES, Action.UPDATE_SCOPE_DESCRIPTIONS))
+                .then(each(changes, EnumSet.of(Action.CREATE_ROLE), change -> createRole(change, changes)))
+                .then(each(changes, ROLE_CHANGES, this::changeRole))
+                .then(removeMembers(changes))
+                .then(Mono.fromRunnable(() -> updateIndex(changes, snapshot)))
+                .then(each(changes, EnumSet.of(Action.DELETE_ROLE), this::deleteRole))
+                .then(patchScopes(document, changes, EnumSet.of(Action.REMOVE_SCOPES)))
+                .doFinally(signal -> {
+                    snapshotHolder.markDirty(CacheGroup.ROLES, CacheGroup.USERS);
+                    cacheRegistry.invalidateAll(CacheGroup.ROLES, CacheGroup.USERS);
+                })
+                .then(Mono.fromCallable(() -> {
+                    if (plan.hasFailures()) {
+                        // Partially applied changes are not in the index, a fresh sync puts them there
+                        synchronizer.synchronize().subscribe(
+                                ignored -> { },
+                                e -> log.error("Directory sync after partial RBAC reconciliation failed: {}", e.getMessage(), e));
+                    }
+                    return plan;
+                }))
+                .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BULK_JOB));
+    }
+
+    private Mono<Void> each(List<PlannedChange> changes, Set<Action> actions, Function<PlannedChange, Mono<Void>> operation) {
+        return Flux.fromIterable(changes)
+                .filter(change -> actions.contains(change.getAction()) && change.getStatus() == Status.PLANNED)
+                .flatMap(change -> operation.apply(change)
+                        .doOnSuccess(ignored -> change.setStatus(Status.APPLIED))
+                        .onErrorResume(e -> {
+                            failed(change, e);
+                            return Mono.empty();
+                        }), concurrency)
+                .then();
+    }
+
+    private Mono<Void> patchScopes(RbacDocument document, List<PlannedChange> changes, Set<Action> actions) {
+        return Mono.defer(() -> {
+            List<PlannedChange> scopeChanges = changes.stream()
+                    .filter(change -> actions.contains(change.getAction()) && change.getStatus() == Status.PLANNED)
+                    .toList();
+            if (scopeChanges.isEmpty()) {
+                return Mono.empty();
+            }
+            List<PatchPermissionsRequest.Operation> operations = new ArrayList<>();
+            scopeChanges.forEach(change -> change.getItems().forEach(name -> operations.add(switch (change.getAction()) {
+                case ADD_SCOPES -> new PatchPermissionsRequest.Operation(
+                        PatchPermissionsRequest.Op.ADD, name, document.getScopes().get(name));
+                case UPDATE_SCOPE_DESCRIPTIONS -> new PatchPermissionsRequest.Operation(
+                        PatchPermissionsRequest.Op.UPDATE_DESCRIPTION, name, document.getScopes().get(name));
+                default -> new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.REMOVE, name, null);
+            })));
+            PatchPermissionsRequest request = new PatchPermissionsRequest();
+            request.setOperations(operations);
+            // One read and one replace of the resource server, whatever the number of scopes
+            return permissionService.patchPermissions(request, null)
+                    .doOnSuccess(ignored -> scopeChanges.forEach(change -> change.setStatus(Status.APPLIED)))
+                    .onErrorResume(e -> {
+                        scopeChanges.forEach(change -> failed(change, e));
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    private Mono<Void> createRole(PlannedChange create, List<PlannedChange> changes) {
+        List<PlannedChange> followUps = changes.stream()
+                .filter(change -> change != create && create.getRoleName().equals(change.getRoleName()))
+                .toList();
+        return call(Auth0Operation.ROLES_CREATE, "create role " + create.getRoleName(), mgmt -> {
+                    Role role = new Role();
+                    role.setName(create.getRoleName());
+                    role.setDescription(create.getDescription());
+                    return mgmt.roles().create(role).execute().getBody().getId();
+                })
+                .doOnNext(roleId -> {
+                    log.info("Created Auth0 role {} with ID: {}", create.getRoleName(), roleId);
+                    create.setRoleId(roleId);
+                    followUps.forEach(change -> change.setRoleId(roleId));
+                })
+                .doOnError(e -> followUps.forEach(change -> change.setStatus(Status.SKIPPED)))
+                .then();
+    }
+
+    private Mono<Void> changeRole(PlannedChange change) {
+        String roleId = change.getRoleId();
+        return switch (change.getAction()) {
+            case UPDATE_ROLE_DESCRIPTION -> call(Auth0Operation.ROLES_UPDATE, "update role " + roleId, mgmt -> {
+                Role role = new Role();
+                role.setDescription(change.getDescription());
+                return mgmt.roles().update(roleId, role).execute();
+            }).then();
+            case ADD_ROLE_PERMISSIONS -> inBatches(change.getItems(), batch -> call(Auth0Operation.ROLES_ADD_PERMISSIONS, "add permissions to role " + roleId,
+                    mgmt -> mgmt.roles().addPermissions(roleId, toPermissions(batch)).execute()).then());
+            case REMOVE_ROLE_PERMISSIONS -> inBatches(change.getItems(), batch -> call(Auth0Operation.ROLES_REMOVE_PERMISSIONS, "remove permissions from role " + roleId,
+                    mgmt -> mgmt.roles().removePermissions(roleId, toPermissions(batch)).execute()).then());
+            case ADD_ROLE_MEMBERS -> inBatches(change.getItems(), batch -> call(Auth0Operation.ROLES_ASSIGN_USERS, "assign users to role " + roleId,
+                    mgmt -> mgmt.roles().assignUsers(roleId, batch).execute()).then());
+            default -> Mono.error(new IllegalStateException("Unexpected role change " + change.getAction()));
+        };
+    }
+
+    /**
+     * Auth0 only removes role members per user, so removals of all roles are grouped by user.
+     */
+    private Mono<Void> removeMembers(List<PlannedChange> changes) {
+        return Mono.defer(() -> {
+            List<PlannedChange> removals = changes.stream()
+                    .filter(change -> change.getAction() == Action.REMOVE_ROLE_MEMBERS && change.getStatus() == Status.PLANNED)
+                    .toList();
+            Map<String, List<PlannedChange>> byUser = new LinkedHashMap<>();
+            removals.forEach(change -> change.getItems().forEach(userId ->
+                    byUser.computeIfAbsent(userId, ignored -> new ArrayList<>()).add(change)));
+            return Flux.fromIterable(byUser.entrySet())
+                    .flatMap(entry -> call(Auth0Operation.USERS_REMOVE_ROLES, "remove roles from user " + entry.getKey(), mgmt -> mgmt.users()
+                                    .removeRoles(entry.getKey(), entry.getValue().stream().map(PlannedChange::getRoleId).toList())
+                                    .execute())
+                            .then()
+                            .onErrorResume(e -> {
+                                entry.getValue().forEach(change -> failed(change, e));
+                                return Mono.empty();
+                            }), concurrency)
+                    .then(Mono.fromRunnable(() -> removals.stream()
+                            .filter(change -> change.getStatus() == Status.PLANNED)
+                            .forEach(change -> change.setStatus(Status.APPLIED))));
+        });
+    }
+
+    private Mono<Void> deleteRole(PlannedChange change) {
+        return call(Auth0Operation.ROLES_DELETE, "delete role " + change.getRoleId(), mgmt -> mgmt.roles().delete(change.getRoleId()).execute())
+                .doOnSuccess(ignored -> permissionIndex.roleDeleted(change.getRoleId()))
+                .then();
+    }
+
+    private void updateIndex(List<PlannedChange> changes, DirectorySnapshot snapshot) {
+        Map<String, Set<String>> rolePermissions = new HashMap<>();
+        Map<String, Set<String>> userRoles = new HashMap<>();
+        for (PlannedChange change : changes) {
+            if (change.getStatus() != Status.APPLIED) {
+                continue;
+            }
+            String roleId = change.getRoleId();
+            switch (change.getAction()) {
+                case CREATE_ROLE -> permissionsOf(rolePermissions, snapshot, roleId);
+                case ADD_ROLE_PERMISSIONS -> permissionsOf(rolePermissions, snapshot, roleId).addAll(change.getItems());
+                case REMOVE_ROLE_PERMISSIONS -> permissionsOf(rolePermissions, snapshot, roleId).removeAll(change.getItems());
+                case ADD_ROLE_MEMBERS -> change.getItems().forEach(userId -> rolesOf(userRoles, snapshot, userId).add(roleId));
+                case REMOVE_ROLE_MEMBERS -> change.getItems().forEach(userId -> rolesOf(userRoles, snapshot, userId).remove(roleId));
+                default -> {
+                }
+            }
+        }
+        rolePermissions.forEach(permissionIndex::rolePermissionsChanged);
+        userRoles.forEach(permissionIndex::userRolesChanged);
+    }
+
+    private static Set<String> permissionsOf(Map<String, Set<String>> rolePermissions, DirectorySnapshot snapshot, String roleId) {
+        return rolePermissions.computeIfAbsent(roleId, id -> new TreeSet<>(snapshot.permissionsOfRole(id)));
+    }
+
+    private static Set<String> rolesOf(Map<String, Set<String>> userRoles, DirectorySnapshot snapshot, String userId) {
+        return userRoles.computeIfAbsent(userId, id -> new TreeSet<>(snapshot.rolesOfUser(id)));
+    }
+
+    private Mono<Void> inBatches(List<String> items, Function<List<String>, Mono<Void>> operation) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            batches.add(items.subList(from, Math.min(from + batchSize, items.size())));
+        }
+        return Flux.fromIterable(batches).concatMap(operation).then();
+    }
+
+    private List<Permission> toPermissions(List<String> names) {
+        return names.stream().map(name -> {
+            Permission permission = new Permission();
+            permission.setName(name);
+            permission.setResourceServerId(auth0Config.getApiGatewayIdentifier());
+            return permission;
+        }).toList();
+    }
+
+    private <T> Mono<T> call(Auth0Operation operation, String description, Auth0Call<T> call) {
+        return auth0Calls.call(operation, () -> {
+            ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+            try {
+                return call.execute(mgmt);
+            } catch (Auth0Exception e) {
+                log.error("Failed to {}: {}", description, e.getMessage());
+                throw new RuntimeException("Failed to " + description, e);
+            }
+        });
+    }
+
+    private static void failed(PlannedChange change, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        synchronized (change) {
+            change.setStatus(Status.FAILED);
+            change.setError(cause.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Auth0Call<T> {
+        T execute(ManagementAPI mgmt) throws Auth0Exception;
+    }
+}
@@ -0,0 +1,43 @@
+package fer.solar.usermanagement.rbac;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fer.solar.usermanagement.job.JobHandler;
+import fer.solar.usermanagement.rbac.dto.RbacDocument;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Applies an {@link RbacDocument} as a single item. Reconciling is idempotent, so an interrupted
+ * job is simply reconciled again after a restart.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReconcileJobHandler implements JobHandler {
+
+    private final RbacReconciler rbacReconciler;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String type() {
+        return "rbac.reconcile";
+    }
+
+    @Override
+    public List<JsonNode> split(JsonNode input) {
+        if (input == null || !input.isObject()) {
+            throw new IllegalArgumentException("expected an RBAC document");
+        }
+        objectMapper.convertValue(input, RbacDocument.class);
+        return List.of(input);
+    }
+
+    @Override
+    public Mono<JsonNode> process(JsonNode item) {
+        return rbacReconciler.reconcile(objectMapper.convertValue(item, RbacDocument.class), false)
+                .map(plan -> objectMapper.valueToTree(plan));
+    }
+}
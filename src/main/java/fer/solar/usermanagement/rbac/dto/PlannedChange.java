@@ -0,0 +1,40 @@
+package fer.solar.usermanagement.rbac.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlannedChange {
+    private Action action;
+    private String roleName;
+    private String roleId; // Null for roles that are yet to be created
+    private String description;
+    private List<String> items; // Scope names or user IDs, depending on the action
+    private Status status;
+    private String error;
+
+    public enum Action {
+        ADD_SCOPES,
+        UPDATE_SCOPE_DESCRIPTIONS,
+        CREATE_ROLE,
+        UPDATE_ROLE_DESCRIPTION,
+        ADD_ROLE_PERMISSIONS,
+        REMOVE_ROLE_PERMISSIONS,
+        ADD_ROLE_MEMBERS,
+        REMOVE_ROLE_MEMBERS,
+        DELETE_ROLE,
+        REMOVE_SCOPES
+    }
+
+    public enum Status {
+        PLANNED,
+        APPLIED,
+        FAILED,
+        SKIPPED
+    }
+}
@@ -0,0 +1,30 @@
+package fer.solar.usermanagement.rbac.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Desired RBAC state of the tenant. A {@code null} section is left as it is in Auth0.
+ */
+@Data
+@NoArgsConstructor
+public class RbacDocument {
+
+    private Map<String, String> scopes; // Scope name to description
+    private List<RoleDefinition> roles;
+    private boolean prune; // Delete scopes and roles the document does not list
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RoleDefinition {
+        private String name;
+        private String description;
+        private List<String> permissions;
+        private List<String> members; // User IDs or emails, null leaves membership unmanaged
+    }
+}
@@ -0,0 +1,20 @@
+package fer.solar.usermanagement.rbac.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ReconcilePlan {
+    private long snapshotVersion; // Directory snapshot the plan was computed against
+    private boolean dryRun;
+    private List<PlannedChange> changes;
+    private List<String> warnings;
+    private int upstreamCalls; // Auth0 requests needed to apply the changes
+
+    public boolean hasFailures() {
+        return changes.stream().anyMatch(change -> change.getStatus() == PlannedChange.Status.FAILED);
+    }
+}
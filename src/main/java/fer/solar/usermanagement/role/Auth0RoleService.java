@@ -9,19 +9,30 @@ import com.auth0.json.mgmt.roles.RolesPage;
 import com.auth0.json.mgmt.permissions.Permission;
 import com.auth0.json.mgmt.roles.Role;
 import com.auth0.json.mgmt.resourceserver.Scope;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.util.FieldSelection;
 import fer.solar.usermanagement.config.Auth0Config;
 import fer.solar.usermanagement.role.dto.*;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import fer.solar.usermanagement.common.util.SortingUtils;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,10 +41,17 @@ import java.util.stream.Collectors;
 public class Auth0RoleService implements RoleService {
 
     private final Auth0Config auth0Config;
+    private final Auth0CallExecutor auth0Calls;
+
+    @Value("${usermanagement.roles.bulk-concurrency:8}")
+    private int bulkConcurrency;
+
+    @Value("${usermanagement.batch-delete.concurrency:4}")
+    private int batchDeleteConcurrency;
 
     @Override
     public Mono<RoleResponse> createRole(CreateRoleRequest request) {
-        return Mono.fromCallable(() -> {
+        return auth0Calls.call(Auth0Operation.ROLES_CREATE, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     Role newRole = new Role();
                     newRole.setName(request.getName());
@@ -41,24 +59,23 @@ public class Auth0RoleService implements RoleService {
                     try {
                         Role createdRole = mgmt.roles().create(newRole).execute().getBody();
                         log.info("Created Auth0 role: {}", createdRole.getId());
-                        return getRoleById(createdRole.getId()).block();
+                        return createdRole;
                     } catch (Auth0Exception e) {
                         log.error("Error creating Auth0 role with name {}: {}", request.getName(), e.getMessage(), e);
                         throw new RuntimeException("Failed to create role in Auth0", e);
                     }
                 })
-                .subscribeOn(Schedulers.boundedElastic());
+                .flatMap(createdRole -> getRoleById(createdRole.getId()));
     }
 
     @Override
-    public Mono<PaginatedRoleResponse> listRoles(int page, int size) {
+    public Mono<PaginatedRoleResponse> listRoles(int page, int size, FieldSelection selection) {
         return fetchRolesPageFromAuth0(page, size)
-                .flatMap(this::buildPaginatedRoleResponse)
-                .subscribeOn(Schedulers.boundedElastic());
+                .flatMap(rolesPage -> buildPaginatedRoleResponse(rolesPage, selection));
     }
 
     private Mono<RolesPage> fetchRolesPageFromAuth0(int page, int size) {
-        return Mono.fromCallable(() -> {
+        return auth0Calls.call(Auth0Operation.ROLES_LIST, () -> {
             ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
             RolesFilter filter = new RolesFilter().withPage(page, size).withTotals(true);
             try {
@@ -70,10 +87,12 @@ public class Auth0RoleService implements RoleService {
         });
     }
 
-    private Mono<PaginatedRoleResponse> buildPaginatedRoleResponse(RolesPage rolesPage) {
+    private Mono<PaginatedRoleResponse> buildPaginatedRoleResponse(RolesPage rolesPage, FieldSelection selection) {
         Flux<RoleResponse> roleResponseFlux = Flux.fromIterable(rolesPage.getItems())
-                                                  .flatMap(role -> fetchPermissionsForRole(role.getId())
-                                                  .flatMap(permissions -> mapRoleToResponse(role, permissions)));
+                                                  .flatMap(role -> selection.includes("permissions")
+                                                          ? fetchPermissionsForRole(role.getId())
+                                                                  .map(permissions -> projectRoleResponse(role, permissions, selection))
+                                                          : Mono.just(projectRoleResponse(role, null, selection)));
 
         return roleResponseFlux.collectList().map(roleResponses -> {
             roleResponses.sort(SortingUtils.createNullsFirstCaseInsensitiveComparator(RoleResponse::getName));
@@ -94,7 +113,7 @@ public class Auth0RoleService implements RoleService {
     }
 
     private Mono<List<Permission>> fetchPermissionsForRole(String roleId) {
-        return Mono.fromCallable(() -> {
+        return auth0Calls.call(Auth0Operation.ROLES_LIST_PERMISSIONS, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     PageFilter filter = new PageFilter();
                     try {
@@ -105,9 +124,7 @@ public class Auth0RoleService implements RoleService {
                         log.error("Error fetching permissions for role {}: {}", roleId, e.getMessage());
                         throw new RuntimeException("Failed to fetch permissions for role " + roleId, e);
                     }
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .onErrorReturn(Collections.emptyList());
+                });
     }
 
     private Mono<RoleResponse> mapRoleToResponse(Role role, List<Permission> permissions) {
@@ -123,13 +140,23 @@ public class Auth0RoleService implements RoleService {
                 .build());
     }
 
+    private RoleResponse projectRoleResponse(Role role, List<Permission> permissions, FieldSelection selection) {
+        return RoleResponse.builder()
+                .id(selection.hasField("id") ? role.getId() : null)
+                .name(selection.hasField("name") ? role.getName() : null)
+                .description(selection.hasField("description") ? role.getDescription() : null)
+                .permissions(permissions != null
+                        ? permissions.stream().map(Permission::getName).collect(Collectors.toList())
+                        : null)
+                .build();
+    }
+
     @Override
     public Mono<RoleResponse> getRoleById(String roleId) {
-        return Mono.fromCallable(() -> {
+        return auth0Calls.call(Auth0Operation.ROLES_GET, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     return mgmt.roles().get(roleId).execute().getBody();
                 })
-                .subscribeOn(Schedulers.boundedElastic())
                 .flatMap(role -> fetchPermissionsForRole(roleId)
                     .flatMap(permissions -> mapRoleToResponse(role, permissions))
                 )
@@ -138,7 +165,7 @@ public class Auth0RoleService implements RoleService {
 
     @Override
     public Mono<RoleResponse> updateRole(String roleId, UpdateRoleRequest request) {
-        Mono<Role> updateDetailsMono = Mono.fromCallable(() -> {
+        Mono<Role> updateDetailsMono = auth0Calls.call(Auth0Operation.ROLES_UPDATE, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     Role roleUpdates = new Role();
                     if (request.getName() != null) {
@@ -150,8 +177,7 @@ public class Auth0RoleService implements RoleService {
                     Role updatedRole = mgmt.roles().update(roleId, roleUpdates).execute().getBody();
                     log.info("Updated Auth0 role base details: {}", roleId);
                     return updatedRole;
-                })
-                .subscribeOn(Schedulers.boundedElastic());
+                });
 
         Mono<Void> updatePermissionsMono = Mono.defer(() -> {
             if (request.getPermissions() != null) {
@@ -205,6 +231,77 @@ public class Auth0RoleService implements RoleService {
                 .then();
     }
 
+    /**
+     * Sets the permissions of several roles. The API scopes are read once, then every role is
+     * diffed against its current permissions and updated concurrently. A failing role is reported
+     * in its result and does not fail the others.
+     */
+    @Override
+    public Mono<BulkRolePermissionsResponse> updateRolePermissions(Map<String, List<String>> permissionsByRole) {
+        return fetchAllScopesForApi()
+                .map(apiScopes -> apiScopes.stream().map(Scope::getValue).collect(Collectors.toSet()))
+                .flatMapMany(scopeNames -> Flux.fromIterable(permissionsByRole.entrySet())
+                        .flatMap(entry -> replaceRolePermissions(entry.getKey(), entry.getValue(), scopeNames), bulkConcurrency))
+                .sort(Comparator.comparing(RolePermissionsResult::getRoleId))
+                .collectList()
+                .map(BulkRolePermissionsResponse::new)
+                .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BULK_JOB));
+    }
+
+    private Mono<RolePermissionsResult> replaceRolePermissions(String roleId, List<String> requested, Set<String> scopeNames) {
+        Set<String> desired = new TreeSet<>(requested);
+        Set<String> unknown = new TreeSet<>(desired);
+        unknown.removeAll(scopeNames);
+        if (!unknown.isEmpty()) {
+            return Mono.just(failedResult(roleId, "Unknown permissions " + unknown));
+        }
+        return fetchPermissionsForRole(roleId)
+                .flatMap(currentPermissions -> {
+                    // Grants of other APIs are left alone, only this API's scopes are replaced
+                    String apiIdentifier = auth0Config.getApiGatewayIdentifier();
+                    Set<String> current = currentPermissions.stream()
+                            .filter(permission -> apiIdentifier.equals(permission.getResourceServerId()))
+                            .map(Permission::getName)
+                            .collect(Collectors.toSet());
+                    List<String> namesToAdd = desired.stream().filter(name -> !current.contains(name)).toList();
+                    List<String> namesToRemove = current.stream().filter(name -> !desired.contains(name)).sorted().toList();
+                    RolePermissionsResult.RolePermissionsResultBuilder result = RolePermissionsResult.builder()
+                            .roleId(roleId)
+                            .permissions(List.copyOf(desired));
+                    if (namesToAdd.isEmpty() && namesToRemove.isEmpty()) {
+                        return Mono.just(result.status(RolePermissionsResult.Status.UNCHANGED).build());
+                    }
+                    Mono<Void> removeMono = namesToRemove.isEmpty() ? Mono.empty() : removePermissionsFromRoleApiCall(roleId, toPermissions(namesToRemove));
+                    Mono<Void> addMono = namesToAdd.isEmpty() ? Mono.empty() : addPermissionsToRoleApiCall(roleId, toPermissions(namesToAdd));
+                    return Mono.when(removeMono, addMono)
+                            .thenReturn(result.status(RolePermissionsResult.Status.UPDATED)
+                                    .addedPermissions(namesToAdd)
+                                    .removedPermissions(namesToRemove)
+                                    .build());
+                })
+                .onErrorResume(e -> Mono.just(failedResult(roleId, (e.getCause() != null ? e.getCause() : e).getMessage())));
+    }
+
+    private RolePermissionsResult failedResult(String roleId, String error) {
+        return RolePermissionsResult.builder()
+                .roleId(roleId)
+                .status(RolePermissionsResult.Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    private List<Permission> toPermissions(Collection<String> names) {
+        String apiIdentifier = auth0Config.getApiGatewayIdentifier();
+        return names.stream()
+                .map(name -> {
+                    Permission p = new Permission();
+                    p.setName(name);
+                    p.setResourceServerId(apiIdentifier);
+                    return p;
+                })
+                .collect(Collectors.toList());
+    }
+
     private List<Permission> mapNamesToPermissions(List<String> names, List<Scope> allApiScopes, String apiIdentifier) {
         if (names == null || names.isEmpty()) {
             return Collections.emptyList();
@@ -221,7 +318,7 @@ public class Auth0RoleService implements RoleService {
     }
 
     private Mono<Void> removePermissionsFromRoleApiCall(String roleId, List<Permission> permissionsToRemove) {
-        return Mono.fromRunnable(() -> {
+        return auth0Calls.run(Auth0Operation.ROLES_REMOVE_PERMISSIONS, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     try {
                         mgmt.roles().removePermissions(roleId, permissionsToRemove).execute();
@@ -232,9 +329,7 @@ public class Auth0RoleService implements RoleService {
                                 permissionsToRemove.stream().map(Permission::getName).collect(Collectors.toList()), e.getMessage());
                         throw new RuntimeException("Failed to remove permissions from role " + roleId, e);
                     }
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+                });
     }
 
     private Mono<Void> addPermissionsToRoleApiCall(String roleId, List<Permission> permissionsToAdd) {
@@ -249,7 +344,7 @@ public class Auth0RoleService implements RoleService {
             return Mono.empty();
         }
 
-        return Mono.fromRunnable(() -> {
+        return auth0Calls.run(Auth0Operation.ROLES_ADD_PERMISSIONS, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     try {
                         mgmt.roles().addPermissions(roleId, permissionsToAdd).execute();
@@ -260,13 +355,11 @@ public class Auth0RoleService implements RoleService {
                                 permissionsToAdd.stream().map(Permission::getName).collect(Collectors.toList()), e.getMessage());
                         throw new RuntimeException("Failed to add permissions to role " + roleId, e);
                     }
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+                });
     }
 
     private Mono<List<Scope>> fetchAllScopesForApi() {
-        return Mono.fromCallable(() -> {
+        return auth0Calls.call(Auth0Operation.SCOPES_GET, () -> {
             ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
             String apiIdentifier = auth0Config.getApiGatewayIdentifier();
             try {
@@ -275,12 +368,12 @@ public class Auth0RoleService implements RoleService {
                  log.error("Failed to fetch scopes for resource server {}: {}", apiIdentifier, e.getMessage());
                  throw new RuntimeException("Failed to fetch API scopes", e);
             }
-        }).subscribeOn(Schedulers.boundedElastic());
+        });
     }
 
     @Override
     public Mono<Void> deleteRole(String roleId) {
-        return Mono.fromRunnable(() -> {
+        return auth0Calls.run(Auth0Operation.ROLES_DELETE, () -> {
                     try {
                         ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                         mgmt.roles().delete(roleId).execute();
@@ -289,9 +382,15 @@ public class Auth0RoleService implements RoleService {
                         log.error("Error deleting Auth0 role with ID {}: {}", roleId, e.getMessage(), e);
                         throw new RuntimeException("Failed to delete role in Auth0", e);
                     }
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .then();
+                });
+    }
+
+    @Override
+    public Flux<BatchDeleteResult> deleteRoles(Collection<String> roleIds) {
+        return Flux.fromIterable(new LinkedHashSet<>(roleIds))
+                .flatMap(roleId -> deleteRole(roleId)
+                        .thenReturn(BatchDeleteResult.deleted(roleId))
+                        .onErrorResume(e -> Mono.just(BatchDeleteResult.failed(roleId, e))), batchDeleteConcurrency)
+                .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BULK_JOB));
     }
-    
-} 
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package fer.solar.usermanagement.role;
+
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex;
+import fer.solar.usermanagement.common.auth0.DetachedWriteListener;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.common.cache.StaleWhileRevalidateCache;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.role.dto.*;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Serves role reads from the synchronized directory snapshot when it is usable, otherwise from
+ * stale-while-revalidate caches in front of {@link Auth0RoleService}. Writes invalidate the caches
+ * and the written roles in the snapshot, again once a write left running past its caller has
+ * finished, and update the {@link EffectivePermissionIndex}.
+ */
+@Service
+@Primary
+public class CachingRoleService implements RoleService {
+
+    private final Auth0RoleService delegate;
+    private final CacheRegistry cacheRegistry;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final EffectivePermissionIndex permissionIndex;
+    private final StaleWhileRevalidateCache<PageKey, PaginatedRoleResponse> rolePages;
+    private final StaleWhileRevalidateCache<String, RoleResponse> rolesById;
+
+    public CachingRoleService(Auth0RoleService delegate, CacheRegistry cacheRegistry, DirectorySnapshotHolder snapshotHolder,
+                              EffectivePermissionIndex permissionIndex) {
+        this.delegate = delegate;
+        this.cacheRegistry = cacheRegistry;
+        this.snapshotHolder = snapshotHolder;
+        this.permissionIndex = permissionIndex;
+        this.rolePages = cacheRegistry.create("roles.pages", CacheGroup.ROLES,
+                key -> delegate.listRoles(key.page(), key.size(), key.selection()));
+        this.rolesById = cacheRegistry.create("roles.byId", CacheGroup.ROLES, delegate::getRoleById);
+    }
+
+    @Override
+    public Mono<RoleResponse> createRole(CreateRoleRequest request) {
+        return delegate.createRole(request)
+                .doOnNext(role -> {
+                    rolesById.put(role.getId(), role);
+                    permissionIndex.rolePermissionsChanged(role.getId(), role.getPermissions());
+                })
+                .doOnTerminate(this::invalidateRolePages)
+                .contextWrite(DetachedWriteListener.onFinished(this::invalidateRolePages));
+    }
+
+    @Override
+    public Mono<PaginatedRoleResponse> listRoles(int page, int size, FieldSelection selection) {
+        return snapshotHolder.readable(CacheGroup.ROLES)
+                .map(snapshot -> snapshotHolder.serve(snapshot, toPage(snapshot, page, size, selection)))
+                .orElseGet(() -> rolePages.get(new PageKey(page, size, selection)));
+    }
+
+    @Override
+    public Mono<RoleResponse> getRoleById(String roleId) {
+        return snapshotHolder.fresh()
+                .filter(snapshot -> snapshotHolder.isClean(snapshot, CacheGroup.ROLES, roleId))
+                .flatMap(snapshot -> snapshot.findRole(roleId)
+                        .map(role -> snapshotHolder.serve(snapshot, toResponse(snapshot, role, FieldSelection.all()))))
+                .orElseGet(() -> rolesById.get(roleId));
+    }
+
+    @Override
+    public Mono<RoleResponse> updateRole(String roleId, UpdateRoleRequest request) {
+        return delegate.updateRole(roleId, request)
+                .doOnNext(role -> permissionIndex.rolePermissionsChanged(roleId, role.getPermissions()))
+                .doOnTerminate(() -> invalidateRoles(List.of(roleId)))
+                .contextWrite(DetachedWriteListener.onFinished(() -> invalidateRoles(List.of(roleId))));
+    }
+
+    @Override
+    public Mono<Void> deleteRole(String roleId) {
+        return delegate.deleteRole(roleId)
+                .doOnSuccess(ignored -> permissionIndex.roleDeleted(roleId))
+                .doOnTerminate(() -> invalidateRoles(List.of(roleId)))
+                .contextWrite(DetachedWriteListener.onFinished(() -> invalidateRoles(List.of(roleId))));
+    }
+
+    @Override
+    public Flux<BatchDeleteResult> deleteRoles(Collection<String> roleIds) {
+        return Flux.defer(() -> {
+            List<String> deleted = new ArrayList<>();
+            return delegate.deleteRoles(roleIds)
+                    .doOnNext(result -> {
+                        if (result.isSuccessful()) {
+                            deleted.add(result.getId());
+                        }
+                    })
+                    .doFinally(signal -> {
+                        permissionIndex.rolesDeleted(deleted);
+                        invalidateRoles(roleIds);
+                    });
+        }).contextWrite(DetachedWriteListener.onFinished(() -> invalidateRoles(roleIds)));
+    }
+
+    @Override
+    public Mono<BulkRolePermissionsResponse> updateRolePermissions(Map<String, List<String>> permissionsByRole) {
+        return delegate.updateRolePermissions(permissionsByRole)
+                .doOnNext(response -> response.getResults().stream()
+                        .filter(result -> result.getStatus() == RolePermissionsResult.Status.UPDATED)
+                        .forEach(result -> permissionIndex.rolePermissionsChanged(result.getRoleId(), result.getPermissions())))
+                .doOnTerminate(() -> invalidateRoles(permissionsByRole.keySet()))
+                .contextWrite(DetachedWriteListener.onFinished(() -> invalidateRoles(permissionsByRole.keySet())));
+    }
+
+    private void invalidateRolePages() {
+        snapshotHolder.markListingDirty(CacheGroup.ROLES);
+        rolePages.invalidateAll();
+    }
+
+    private void invalidateRoles(Collection<String> roleIds) {
+        // Role names are embedded in user responses, so user caches go as well. Snapshot reads of
+        // users holding these roles check the roles themselves.
+        snapshotHolder.markDirty(CacheGroup.ROLES, roleIds);
+        cacheRegistry.invalidateAll(CacheGroup.ROLES, CacheGroup.USERS);
+    }
+
+    private PaginatedRoleResponse toPage(DirectorySnapshot snapshot, int page, int size, FieldSelection selection) {
+        List<RoleEntry> roles = snapshot.getRolesByName();
+        int from = (int) Math.min((long) page * size, roles.size());
+        int to = Math.min(from + size, roles.size());
+        int totalPages = (size > 0) ? (int) Math.ceil((double) roles.size() / size) : 0;
+        return PaginatedRoleResponse.builder()
+                .content(roles.subList(from, to).stream()
+                        .map(role -> toResponse(snapshot, role, selection))
+                        .collect(Collectors.toList()))
+                .currentPage(page)
+                .pageSize(size)
+                .totalElements(roles.size())
+                .totalPages(totalPages)
+                .build();
+    }
+
+    private RoleResponse toResponse(DirectorySnapshot snapshot, RoleEntry role, FieldSelection selection) {
+        return RoleResponse.builder()
+                .id(selection.hasField("id") ? role.id() : null)
+                .name(selection.hasField("name") ? role.name() : null)
+                .description(selection.hasField("description") ? role.description() : null)
+                .permissions(selection.includes("permissions")
+                        ? new ArrayList<>(snapshot.permissionsOfRole(role.id()))
+                        : null)
+                .build();
+    }
+
+    private record PageKey(int page, int size, FieldSelection selection) {
+    }
+}
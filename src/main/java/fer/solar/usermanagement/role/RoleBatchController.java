@@ -0,0 +1,83 @@
+package fer.solar.usermanagement.role;
+
+import fer.solar.usermanagement.common.batch.BatchDeleteRequest;
+import fer.solar.usermanagement.common.batch.BatchDeleteResponse;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.web.IdempotentRequests;
+import fer.solar.usermanagement.role.dto.BulkRolePermissionsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operations on several roles at once. Mapped separately because the {@code roles:} prefix is
+ * not a path segment below {@code /api/v1/roles}.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+public class RoleBatchController {
+
+    private final RoleService roleService;
+    private final IdempotentRequests idempotentRequests;
+
+    @Value("${usermanagement.roles.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${usermanagement.batch-delete.max-size:500}")
+    private int maxDeleteBatchSize;
+
+    @PutMapping("/roles:permissions")
+    public Mono<ResponseEntity<BulkRolePermissionsResponse>> updateRolePermissions(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody Map<String, List<String>> permissionsByRole) {
+        if (permissionsByRole.isEmpty() || permissionsByRole.size() > maxBatchSize || permissionsByRole.containsValue(null)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return idempotentRequests.execute(idempotencyKey, "roles.permissions", permissionsByRole,
+                () -> roleService.updateRolePermissions(permissionsByRole).map(ResponseEntity::ok));
+    }
+
+    @PostMapping(value = "/roles:batchDelete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BatchDeleteResponse>> deleteRoles(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody BatchDeleteRequest request) {
+        if (!isValid(request)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return idempotentRequests.execute(idempotencyKey, "roles.batchDelete", request,
+                () -> roleService.deleteRoles(request.getIds())
+                        .collectList()
+                        .map(results -> ResponseEntity.ok(BatchDeleteResponse.of(results))));
+    }
+
+    @PostMapping(value = "/roles:batchDelete", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchDeleteResult> streamRoleDeletions(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody BatchDeleteRequest request) {
+        if (!isValid(request)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + maxDeleteBatchSize + " IDs are required"));
+        }
+        if (idempotencyKey == null) {
+            return roleService.deleteRoles(request.getIds());
+        }
+        // A replayable stream has to be complete, so keyed requests are buffered
+        return idempotentRequests.execute(idempotencyKey, "roles.batchDelete.stream", request,
+                        () -> roleService.deleteRoles(request.getIds()).collectList().map(ResponseEntity::ok))
+                .flatMapMany(response -> Flux.fromIterable(response.getBody()));
+    }
+
+    private boolean isValid(BatchDeleteRequest request) {
+        return request.getIds() != null && !request.getIds().isEmpty() && request.getIds().size() <= maxDeleteBatchSize;
+    }
+}
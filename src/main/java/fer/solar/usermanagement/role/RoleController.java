@@ -1,7 +1,11 @@
 package fer.solar.usermanagement.role;
 
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.common.web.ConditionalResponses;
+import fer.solar.usermanagement.common.web.IdempotentRequests;
 import fer.solar.usermanagement.role.dto.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,18 +16,28 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class RoleController {
 
+    private static final CacheControl ROLE_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final RoleService roleService;
+    private final ConditionalResponses conditionalResponses;
+    private final IdempotentRequests idempotentRequests;
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Mono<RoleResponse> createRole(@RequestBody CreateRoleRequest createRoleRequest) {
-        return roleService.createRole(createRoleRequest);
+    public Mono<ResponseEntity<RoleResponse>> createRole(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody CreateRoleRequest createRoleRequest
+    ) {
+        return idempotentRequests.execute(idempotencyKey, "roles.create", createRoleRequest,
+                () -> roleService.createRole(createRoleRequest)
+                        .map(role -> ResponseEntity.status(HttpStatus.CREATED).body(role)));
     }
 
     @GetMapping
     public Mono<PaginatedRoleResponse> listRoles(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include
     ) {
         if (size < 1) {
             size = 20;
@@ -31,13 +45,13 @@ public class RoleController {
         if (page < 0) {
             page = 0;
         }
-        return roleService.listRoles(page, size);
+        return roleService.listRoles(page, size, FieldSelection.of(fields, include));
     }
 
     @GetMapping("/{roleId}")
     public Mono<ResponseEntity<RoleResponse>> getRoleById(@PathVariable String roleId) {
         return roleService.getRoleById(roleId)
-                .map(ResponseEntity::ok)
+                .map(role -> conditionalResponses.ok(role, ROLE_CACHE_CONTROL))
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
@@ -1,12 +1,24 @@
 package fer.solar.usermanagement.role;
 
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.util.FieldSelection;
 import fer.solar.usermanagement.role.dto.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface RoleService {
     Mono<RoleResponse> createRole(CreateRoleRequest request);
-    Mono<PaginatedRoleResponse> listRoles(int page, int size);
+    default Mono<PaginatedRoleResponse> listRoles(int page, int size) {
+        return listRoles(page, size, FieldSelection.all());
+    }
+    Mono<PaginatedRoleResponse> listRoles(int page, int size, FieldSelection selection);
     Mono<RoleResponse> getRoleById(String roleId);
     Mono<RoleResponse> updateRole(String roleId, UpdateRoleRequest request);
     Mono<Void> deleteRole(String roleId);
+    Flux<BatchDeleteResult> deleteRoles(Collection<String> roleIds);
+    Mono<BulkRolePermissionsResponse> updateRolePermissions(Map<String, List<String>> permissionsByRole);
 } 
\ No newline at end of file
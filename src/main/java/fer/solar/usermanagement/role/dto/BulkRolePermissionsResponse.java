@@ -0,0 +1,14 @@
+package fer.solar.usermanagement.role.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRolePermissionsResponse {
+    private List<RolePermissionsResult> results; // Ordered by role ID
+}
@@ -0,0 +1,25 @@
+package fer.solar.usermanagement.role.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@Builder
+public class RolePermissionsResult {
+    private String roleId;
+    private Status status;
+    private List<String> addedPermissions;
+    private List<String> removedPermissions;
+    private List<String> permissions; // Permissions of the role after the update
+    private String error;
+
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        FAILED
+    }
+}
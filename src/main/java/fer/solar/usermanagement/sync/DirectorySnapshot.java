@@ -0,0 +1,116 @@
+package fer.solar.usermanagement.sync;
+
+import fer.solar.usermanagement.common.util.SortingUtils;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of the Auth0 directory: users, roles, role memberships, role permissions and
+ * resource server scopes. A new version is published only when the content changed.
+ */
+@Getter
+public final class DirectorySnapshot {
+
+    private final long version;
+    private final Instant startedAt;
+    private final Instant completedAt;
+    /** False when Auth0's paging limit stopped the user listing before all users were read. */
+    private final boolean usersComplete;
+    private final Map<String, UserEntry> users;
+    private final Map<String, RoleEntry> roles;
+    private final Map<String, Set<String>> roleMembers;
+    private final Map<String, Set<String>> rolePermissions;
+    private final Map<String, String> scopes;
+
+    private final Map<String, Set<String>> userRoles;
+    private final List<UserEntry> usersByName;
+    private final List<RoleEntry> rolesByName;
+
+    private DirectorySnapshot(long version, Instant startedAt, Instant completedAt, boolean usersComplete,
+                              Map<String, UserEntry> users, Map<String, RoleEntry> roles,
+                              Map<String, Set<String>> roleMembers, Map<String, Set<String>> rolePermissions,
+                              Map<String, String> scopes, Map<String, Set<String>> userRoles,
+                              List<UserEntry> usersByName, List<RoleEntry> rolesByName) {
+        this.version = version;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.usersComplete = usersComplete;
+        this.users = users;
+        this.roles = roles;
+        this.roleMembers = roleMembers;
+        this.rolePermissions = rolePermissions;
+        this.scopes = scopes;
+        this.userRoles = userRoles;
+        this.usersByName = usersByName;
+        this.rolesByName = rolesByName;
+    }
+
+    public static DirectorySnapshot of(long version, Instant startedAt, Instant completedAt, boolean usersComplete,
+                                       Map<String, UserEntry> users, Map<String, RoleEntry> roles,
+                                       Map<String, Set<String>> roleMembers, Map<String, Set<String>> rolePermissions,
+                                       Map<String, String> scopes) {
+        Map<String, Set<String>> immutableMembers = copyOfSets(roleMembers);
+        return new DirectorySnapshot(version, startedAt, completedAt, usersComplete,
+                Map.copyOf(users),
+                Map.copyOf(roles),
+                immutableMembers,
+                copyOfSets(rolePermissions),
+                Collections.unmodifiableMap(new TreeMap<>(scopes)),
+                invert(immutableMembers),
+                users.values().stream()
+                        .sorted(SortingUtils.createNullsFirstCaseInsensitiveComparator(UserEntry::name))
+                        .toList(),
+                roles.values().stream()
+                        .sorted(SortingUtils.createNullsFirstCaseInsensitiveComparator(RoleEntry::name))
+                        .toList());
+    }
+
+    public DirectorySnapshot withVersion(long newVersion, Instant newStartedAt, Instant newCompletedAt) {
+        return new DirectorySnapshot(newVersion, newStartedAt, newCompletedAt, usersComplete, users, roles,
+                roleMembers, rolePermissions, scopes, userRoles, usersByName, rolesByName);
+    }
+
+    public Optional<UserEntry> findUser(String userId) {
+        return Optional.ofNullable(users.get(userId));
+    }
+
+    public Optional<RoleEntry> findRole(String roleId) {
+        return Optional.ofNullable(roles.get(roleId));
+    }
+
+    public Set<String> rolesOfUser(String userId) {
+        return userRoles.getOrDefault(userId, Collections.emptySet());
+    }
+
+    public Set<String> permissionsOfRole(String roleId) {
+        return rolePermissions.getOrDefault(roleId, Collections.emptySet());
+    }
+
+    private static Map<String, Set<String>> copyOfSets(Map<String, Set<String>> source) {
+        Map<String, Set<String>> copy = new HashMap<>(source.size());
+        source.forEach((key, values) -> copy.put(key, Set.copyOf(values)));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Map<String, Set<String>> invert(Map<String, Set<String>> roleMembers) {
+        Map<String, Set<String>> inverted = new HashMap<>();
+        roleMembers.forEach((roleId, userIds) -> userIds.forEach(userId ->
+                inverted.computeIfAbsent(userId, ignored -> new HashSet<>()).add(roleId)));
+        return copyOfSets(inverted);
+    }
+
+    public record UserEntry(String id, String email, String name, String picture, String lastLogin) {
+    }
+
+    public record RoleEntry(String id, String name, String description) {
+    }
+}
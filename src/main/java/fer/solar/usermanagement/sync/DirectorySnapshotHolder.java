@@ -0,0 +1,147 @@
+package fer.solar.usermanagement.sync;
+
+import fer.solar.usermanagement.common.cache.CacheAge;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the latest published {@link DirectorySnapshot}.
+ * <p>
+ * Writes done through this service mark the entries they touched dirty; a dirty entry, and the
+ * listing of its resource type, is not read from the snapshot again until a synchronization that
+ * started after the write has been published. Untouched entries keep being served. Creating an
+ * entry only marks the listing dirty, since the snapshot does not contain the new entry anyway,
+ * and changes that cannot name their entries mark the whole resource type.
+ * A snapshot restored from disk stays readable for {@code usermanagement.sync.restored-max-age}
+ * so reads are served while the first synchronization after a restart is still running.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DirectorySnapshotHolder {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<DirectorySnapshot> current = new AtomicReference<>();
+    private final AtomicReference<DirectorySnapshot> restored = new AtomicReference<>();
+    private final Map<CacheGroup, Instant> dirtySince = new ConcurrentHashMap<>();
+    private final Map<CacheGroup, Instant> listingDirtySince = new ConcurrentHashMap<>();
+    private final Map<CacheGroup, Map<String, Instant>> entriesDirtySince = new ConcurrentHashMap<>();
+
+    @Value("${usermanagement.sync.max-age:15m}")
+    private Duration maxAge;
+
+    @Value("${usermanagement.sync.restored-max-age:24h}")
+    private Duration restoredMaxAge;
+
+    public Optional<DirectorySnapshot> current() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Returns the snapshot if it is recent enough, regardless of writes. Callers check the entries
+     * they read with {@link #isClean}.
+     */
+    public Optional<DirectorySnapshot> fresh() {
+        DirectorySnapshot snapshot = current.get();
+        Duration allowedAge = snapshot != null && snapshot == restored.get() ? restoredMaxAge : maxAge;
+        if (snapshot == null || snapshot.getCompletedAt().plus(allowedAge).isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+
+    /**
+     * Returns the snapshot if it is recent enough and none of the given resource types changed
+     * since its synchronization started, so whole listings can be served from it.
+     */
+    public Optional<DirectorySnapshot> readable(CacheGroup... groups) {
+        return fresh().filter(snapshot -> Arrays.stream(groups).allMatch(group -> isListingClean(snapshot, group)));
+    }
+
+    public boolean isClean(DirectorySnapshot snapshot, CacheGroup group, String id) {
+        return syncedAfter(snapshot, dirtySince.get(group)) && syncedAfter(snapshot, entriesDirtySince(group).get(id));
+    }
+
+    /**
+     * Marks every entry of the given resource types dirty, for changes that cannot name the
+     * entries they touched.
+     */
+    public void markDirty(CacheGroup... groups) {
+        Instant now = Instant.now();
+        for (CacheGroup group : groups) {
+            dirtySince.put(group, now);
+        }
+    }
+
+    public void markListingDirty(CacheGroup group) {
+        listingDirtySince.put(group, Instant.now());
+    }
+
+    public void markDirty(CacheGroup group, Collection<String> ids) {
+        Instant now = Instant.now();
+        Map<String, Instant> dirty = entriesDirtySince(group);
+        for (String id : ids) {
+            dirty.put(id, now);
+        }
+    }
+
+    private boolean isListingClean(DirectorySnapshot snapshot, CacheGroup group) {
+        return syncedAfter(snapshot, dirtySince.get(group))
+                && syncedAfter(snapshot, listingDirtySince.get(group))
+                && entriesDirtySince(group).values().stream().allMatch(dirty -> syncedAfter(snapshot, dirty));
+    }
+
+    private static boolean syncedAfter(DirectorySnapshot snapshot, Instant dirty) {
+        return dirty == null || snapshot.getStartedAt().isAfter(dirty);
+    }
+
+    private Map<String, Instant> entriesDirtySince(CacheGroup group) {
+        return entriesDirtySince.computeIfAbsent(group, ignored -> new ConcurrentHashMap<>());
+    }
+
+    public void publish(DirectorySnapshot snapshot, SnapshotDelta delta) {
+        current.set(snapshot);
+        // Entries written before this synchronization started are covered by it
+        entriesDirtySince.values().forEach(dirty -> dirty.values().removeIf(since -> syncedAfter(snapshot, since)));
+        log.info("Published directory snapshot version {} ({} users, {} roles, {} scopes)",
+                snapshot.getVersion(), snapshot.getUsers().size(), snapshot.getRoles().size(), snapshot.getScopes().size());
+        eventPublisher.publishEvent(new SnapshotPublishedEvent(snapshot, delta));
+    }
+
+    /**
+     * Publishes a snapshot loaded from local storage. It is replaced by the next synchronization.
+     */
+    public void restore(DirectorySnapshot snapshot) {
+        if (!current.compareAndSet(null, snapshot)) {
+            log.debug("Not restoring directory snapshot version {}, a newer one is already published.", snapshot.getVersion());
+            return;
+        }
+        restored.set(snapshot);
+        eventPublisher.publishEvent(new SnapshotPublishedEvent(snapshot, SnapshotDelta.between(null, snapshot)));
+    }
+
+    /**
+     * Emits a value read from the snapshot, reporting the snapshot age like a cache hit.
+     */
+    public <T> Mono<T> serve(DirectorySnapshot snapshot, T value) {
+        return Mono.deferContextual(context -> {
+            CacheAge.record(context, Duration.between(snapshot.getCompletedAt(), Instant.now()).getSeconds());
+            return Mono.just(value);
+        });
+    }
+}
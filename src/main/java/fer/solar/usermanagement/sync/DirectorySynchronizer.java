@@ -0,0 +1,315 @@
+package fer.solar.usermanagement.sync;
+
+import com.auth0.client.mgmt.ManagementAPI;
+import com.auth0.client.mgmt.filter.PageFilter;
+import com.auth0.client.mgmt.filter.RolesFilter;
+import com.auth0.client.mgmt.filter.UserFilter;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.mgmt.Page;
+import com.auth0.json.mgmt.permissions.Permission;
+import com.auth0.json.mgmt.resourceserver.ResourceServer;
+import com.auth0.json.mgmt.resourceserver.Scope;
+import com.auth0.json.mgmt.roles.Role;
+import com.auth0.json.mgmt.users.User;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.config.Auth0Config;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically reads the whole directory from Auth0 and publishes it as a {@link DirectorySnapshot}.
+ * <p>
+ * Users and roles are read with offset paging, role members with checkpoint paging. Per role
+ * details are fetched with bounded concurrency. Auth0 only serves the first 1000 users through
+ * offset paging, larger tenants get a snapshot flagged as incomplete for users.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DirectorySynchronizer {
+
+    private static final int AUTH0_OFFSET_PAGING_LIMIT = 1000;
+
+    private final Auth0Config auth0Config;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final MeterRegistry meterRegistry;
+    private final Auth0CallExecutor auth0Calls;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Map<String, AtomicLong> itemCounts = new ConcurrentHashMap<>();
+    private final AtomicLong publishedVersion = new AtomicLong();
+
+    @Value("${usermanagement.sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${usermanagement.sync.concurrency:4}")
+    private int concurrency;
+
+    @Value("${usermanagement.sync.page-size:100}")
+    private int pageSize;
+
+    @PostConstruct
+    void registerMeters() {
+        Gauge.builder("usermanagement.sync.version", publishedVersion, AtomicLong::get)
+                .description("Version of the published directory snapshot")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${usermanagement.sync.initial-delay:PT10S}",
+            fixedDelayString = "${usermanagement.sync.interval:PT5M}")
+    public void scheduledSync() {
+        if (!enabled) {
+            return;
+        }
+        synchronize().subscribe(
+                snapshot -> log.debug("Scheduled directory sync finished at version {}", snapshot.getVersion()),
+                e -> log.error("Scheduled directory sync failed: {}", e.getMessage(), e));
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Runs a full synchronization unless one is already running, in which case it completes empty.
+     */
+    public Mono<DirectorySnapshot> synchronize() {
+        return Mono.defer(() -> {
+            if (!running.compareAndSet(false, true)) {
+                log.debug("Directory sync already running, skipping.");
+                return Mono.<DirectorySnapshot>empty();
+            }
+            Instant startedAt = Instant.now();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return Mono.zip(fetchUsers(), fetchRolesWithDetails(), fetchScopes())
+                    .map(fetched -> buildAndPublish(startedAt, fetched.getT1(), fetched.getT2(), fetched.getT3()))
+                    .doOnSuccess(snapshot -> sample.stop(syncTimer("success")))
+                    .doOnError(e -> sample.stop(syncTimer("error")))
+                    .doFinally(signal -> running.set(false))
+                    .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BACKGROUND_SYNC));
+        });
+    }
+
+    private DirectorySnapshot buildAndPublish(Instant startedAt, PagedItems<User> users, RoleData roleData, List<Scope> scopes) {
+        Map<String, UserEntry> userEntries = users.items().stream()
+                .collect(Collectors.toMap(User::getId, this::toUserEntry, (first, second) -> first));
+        Map<String, String> scopeEntries = new HashMap<>();
+        scopes.forEach(scope -> scopeEntries.put(scope.getValue(), scope.getDescription()));
+
+        DirectorySnapshot previous = snapshotHolder.current().orElse(null);
+        DirectorySnapshot candidate = DirectorySnapshot.of(0, startedAt, Instant.now(), users.complete(),
+                userEntries, roleData.roles(), roleData.members(), roleData.permissions(), scopeEntries);
+
+        SnapshotDelta delta = SnapshotDelta.between(previous, candidate);
+        long version = previous == null ? 1 : (delta.isEmpty() ? previous.getVersion() : previous.getVersion() + 1);
+        DirectorySnapshot snapshot = candidate.withVersion(version, startedAt, candidate.getCompletedAt());
+
+        snapshotHolder.publish(snapshot, delta);
+        recordMetrics(snapshot, delta);
+        if (!users.complete()) {
+            log.warn("Directory sync read {} users, Auth0 offset paging stops at {}; user reads keep using Auth0.",
+                    users.items().size(), AUTH0_OFFSET_PAGING_LIMIT);
+        }
+        return snapshot;
+    }
+
+    private UserEntry toUserEntry(User user) {
+        return new UserEntry(user.getId(), user.getEmail(), user.getName(), user.getPicture(),
+                user.getLastLogin() != null ? user.getLastLogin().toString() : null);
+    }
+
+    private Mono<PagedItems<User>> fetchUsers() {
+        return fetchAllPages(Auth0Operation.USERS_LIST, "users", AUTH0_OFFSET_PAGING_LIMIT,
+                pageIndex -> mgmt -> mgmt.users()
+                        .list(new UserFilter().withPage(pageIndex, pageSize).withTotals(true))
+                        .execute().getBody());
+    }
+
+    private Mono<RoleData> fetchRolesWithDetails() {
+        return fetchAllPages(Auth0Operation.ROLES_LIST, "roles", Integer.MAX_VALUE,
+                        pageIndex -> mgmt -> mgmt.roles()
+                                .list(new RolesFilter().withPage(pageIndex, pageSize).withTotals(true))
+                                .execute().getBody())
+                .flatMap(roles -> Flux.fromIterable(roles.items())
+                        .flatMap(role -> Mono.zip(fetchRoleMembers(role.getId()), fetchRolePermissions(role.getId()))
+                                .map(details -> Map.entry(role, details)), concurrency)
+                        .collectList()
+                        .map(this::toRoleData));
+    }
+
+    private RoleData toRoleData(List<Map.Entry<Role, Tuple2<Set<String>, Set<String>>>> roles) {
+        Map<String, RoleEntry> roleEntries = new HashMap<>();
+        Map<String, Set<String>> members = new HashMap<>();
+        Map<String, Set<String>> permissions = new HashMap<>();
+        for (Map.Entry<Role, Tuple2<Set<String>, Set<String>>> entry : roles) {
+            Role role = entry.getKey();
+            roleEntries.put(role.getId(), new RoleEntry(role.getId(), role.getName(), role.getDescription()));
+            members.put(role.getId(), entry.getValue().getT1());
+            permissions.put(role.getId(), entry.getValue().getT2());
+        }
+        return new RoleData(roleEntries, members, permissions);
+    }
+
+    private Mono<Set<String>> fetchRoleMembers(String roleId) {
+        return fetchAllCheckpoints(Auth0Operation.ROLES_LIST_USERS, "members of role " + roleId,
+                        from -> mgmt -> mgmt.roles().listUsers(roleId, checkpointFilter(from)).execute().getBody())
+                .map(users -> users.stream().map(User::getId).collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    private Mono<Set<String>> fetchRolePermissions(String roleId) {
+        return fetchAllPages(Auth0Operation.ROLES_LIST_PERMISSIONS, "permissions of role " + roleId, Integer.MAX_VALUE,
+                        pageIndex -> mgmt -> mgmt.roles()
+                                .listPermissions(roleId, new PageFilter().withPage(pageIndex, pageSize).withTotals(true))
+                                .execute().getBody())
+                .map(permissions -> permissions.items().stream()
+                        .map(Permission::getName)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    private Mono<List<Scope>> fetchScopes() {
+        String apiIdentifier = auth0Config.getApiGatewayIdentifier();
+        return call(Auth0Operation.SCOPES_GET, "scopes of " + apiIdentifier, mgmt -> {
+            ResourceServer server = mgmt.resourceServers().get(apiIdentifier).execute().getBody();
+            return server.getScopes() != null ? server.getScopes() : Collections.<Scope>emptyList();
+        });
+    }
+
+    private PageFilter checkpointFilter(String from) {
+        PageFilter filter = new PageFilter().withTake(pageSize);
+        return from == null ? filter : filter.withFrom(from);
+    }
+
+    private <T> Mono<PagedItems<T>> fetchAllPages(Auth0Operation operation, String description, int maxItems,
+                                                  IntFunction<Auth0Call<? extends Page<T>>> pageCall) {
+        return this.<T>fetchPage(operation, description, pageCall, 0)
+                .expand(page -> hasNextPage(page, maxItems)
+                        ? fetchPage(operation, description, pageCall, page.index() + 1)
+                        : Mono.empty())
+                .collectList()
+                .map(pages -> {
+                    List<T> items = pages.stream().flatMap(page -> page.items().stream()).toList();
+                    Integer total = pages.get(0).page().getTotal();
+                    return new PagedItems<>(items, total == null || items.size() >= total);
+                });
+    }
+
+    private <T> Mono<IndexedPage<T>> fetchPage(Auth0Operation operation, String description,
+                                               IntFunction<Auth0Call<? extends Page<T>>> pageCall, int index) {
+        return call(operation, description + " (page " + index + ")", pageCall.apply(index))
+                .map(page -> new IndexedPage<T>(index, page));
+    }
+
+    private boolean hasNextPage(IndexedPage<?> page, int maxItems) {
+        Integer total = page.page().getTotal();
+        int fetchedSoFar = (page.index() + 1) * pageSize;
+        return !page.items().isEmpty() && total != null && fetchedSoFar < total && fetchedSoFar < maxItems;
+    }
+
+    private <T> Mono<List<T>> fetchAllCheckpoints(Auth0Operation operation, String description,
+                                                  Function<String, Auth0Call<? extends Page<T>>> pageCall) {
+        return this.<Page<T>>call(operation, description, pageCall.apply(null))
+                .expand(page -> page.getNext() != null && page.getItems() != null && !page.getItems().isEmpty()
+                        ? call(operation, description, pageCall.apply(page.getNext()))
+                        : Mono.empty())
+                .concatMapIterable(page -> page.getItems() != null ? page.getItems() : Collections.<T>emptyList())
+                .collectList();
+    }
+
+    private <R> Mono<R> call(Auth0Operation operation, String description, Auth0Call<? extends R> auth0Call) {
+        return auth0Calls.<R>call(operation, () -> {
+            ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+            try {
+                return auth0Call.execute(mgmt);
+            } catch (Auth0Exception e) {
+                log.error("Directory sync failed to fetch {}: {}", description, e.getMessage());
+                throw new RuntimeException("Failed to fetch " + description + " from Auth0", e);
+            }
+        });
+    }
+
+    private void recordMetrics(DirectorySnapshot snapshot, SnapshotDelta delta) {
+        itemGauge("users").set(snapshot.getUsers().size());
+        itemGauge("roles").set(snapshot.getRoles().size());
+        itemGauge("memberships").set(snapshot.getRoleMembers().values().stream().mapToLong(Set::size).sum());
+        itemGauge("role_permissions").set(snapshot.getRolePermissions().values().stream().mapToLong(Set::size).sum());
+        itemGauge("scopes").set(snapshot.getScopes().size());
+        publishedVersion.set(snapshot.getVersion());
+
+        recordDelta("users", delta.users());
+        recordDelta("roles", delta.roles());
+        recordDelta("memberships", delta.memberships());
+        recordDelta("role_permissions", delta.rolePermissions());
+        recordDelta("scopes", delta.scopes());
+    }
+
+    private AtomicLong itemGauge(String type) {
+        return itemCounts.computeIfAbsent(type, key -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("usermanagement.sync.items", value, AtomicLong::get)
+                    .tag("type", key)
+                    .description("Number of items in the published directory snapshot")
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    private void recordDelta(String type, SnapshotDelta.Change change) {
+        meterRegistry.counter("usermanagement.sync.delta", "type", type, "change", "added").increment(change.added());
+        meterRegistry.counter("usermanagement.sync.delta", "type", type, "change", "removed").increment(change.removed());
+        meterRegistry.counter("usermanagement.sync.delta", "type", type, "change", "changed").increment(change.changed());
+    }
+
+    private Timer syncTimer(String outcome) {
+        return Timer.builder("usermanagement.sync.duration")
+                .tag("outcome", outcome)
+                .description("Duration of full directory synchronizations")
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface Auth0Call<R> {
+        R execute(ManagementAPI mgmt) throws Auth0Exception;
+    }
+
+    private record IndexedPage<T>(int index, Page<T> page) {
+
+        List<T> items() {
+            return page.getItems() != null ? page.getItems() : Collections.emptyList();
+        }
+    }
+
+    private record PagedItems<T>(List<T> items, boolean complete) {
+    }
+
+    private record RoleData(Map<String, RoleEntry> roles, Map<String, Set<String>> members,
+                            Map<String, Set<String>> permissions) {
+    }
+}
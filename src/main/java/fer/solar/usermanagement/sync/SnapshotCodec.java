@@ -0,0 +1,250 @@
+package fer.solar.usermanagement.sync;
+
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of a {@link DirectorySnapshot}.
+ * <p>
+ * Layout: a fixed header (magic, format, flags, snapshot version, timestamps, body length, body
+ * checksum, header checksum) followed by the body. The body starts with a table of every distinct
+ * string; all later sections refer to strings by varint index, so user and role IDs repeated in
+ * memberships are stored once.
+ */
+final class SnapshotCodec {
+
+    static final int MAGIC = 0x554D534E; // "UMSN"
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_LENGTH = 48;
+
+    private static final short FLAG_USERS_COMPLETE = 1;
+
+    private SnapshotCodec() {
+    }
+
+    static byte[] encode(DirectorySnapshot snapshot) {
+        StringTable strings = new StringTable();
+        VarintOutput body = new VarintOutput();
+
+        body.writeVarint(snapshot.getUsers().size());
+        for (UserEntry user : snapshot.getUsers().values()) {
+            body.writeVarint(strings.ref(user.id()));
+            body.writeVarint(strings.ref(user.email()));
+            body.writeVarint(strings.ref(user.name()));
+            body.writeVarint(strings.ref(user.picture()));
+            body.writeVarint(strings.ref(user.lastLogin()));
+        }
+        body.writeVarint(snapshot.getRoles().size());
+        for (RoleEntry role : snapshot.getRoles().values()) {
+            body.writeVarint(strings.ref(role.id()));
+            body.writeVarint(strings.ref(role.name()));
+            body.writeVarint(strings.ref(role.description()));
+        }
+        writeSets(body, strings, snapshot.getRoleMembers());
+        writeSets(body, strings, snapshot.getRolePermissions());
+        body.writeVarint(snapshot.getScopes().size());
+        snapshot.getScopes().forEach((value, description) -> {
+            body.writeVarint(strings.ref(value));
+            body.writeVarint(strings.ref(description));
+        });
+
+        VarintOutput table = new VarintOutput();
+        table.writeVarint(strings.values.size());
+        for (String value : strings.values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            table.writeVarint(bytes.length);
+            table.writeBytes(bytes);
+        }
+        table.writeBytes(body.toByteArray());
+        byte[] bodyBytes = table.toByteArray();
+
+        ByteBuffer file = ByteBuffer.allocate(HEADER_LENGTH + bodyBytes.length);
+        file.putInt(MAGIC);
+        file.putShort(FORMAT_VERSION);
+        file.putShort(snapshot.isUsersComplete() ? FLAG_USERS_COMPLETE : 0);
+        file.putLong(snapshot.getVersion());
+        file.putLong(snapshot.getStartedAt().toEpochMilli());
+        file.putLong(snapshot.getCompletedAt().toEpochMilli());
+        file.putInt(bodyBytes.length);
+        file.putInt(checksum(bodyBytes, 0, bodyBytes.length));
+        file.putInt(checksum(file.array(), 0, HEADER_LENGTH - 8));
+        file.putInt(0); // reserved
+        file.put(bodyBytes);
+        return file.array();
+    }
+
+    /**
+     * Decodes a snapshot, verifying both checksums first.
+     *
+     * @throws IllegalStateException if the data is not a valid snapshot of a supported format
+     */
+    static DirectorySnapshot decode(ByteBuffer buffer) {
+        try {
+            return decodeVerified(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Directory snapshot file is truncated or corrupt", e);
+        }
+    }
+
+    private static DirectorySnapshot decodeVerified(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            throw new IllegalStateException("Directory snapshot file is shorter than its header");
+        }
+        int start = buffer.position();
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a directory snapshot file");
+        }
+        short format = buffer.getShort();
+        if (format != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported directory snapshot format " + format);
+        }
+        short flags = buffer.getShort();
+        long version = buffer.getLong();
+        Instant startedAt = Instant.ofEpochMilli(buffer.getLong());
+        Instant completedAt = Instant.ofEpochMilli(buffer.getLong());
+        int bodyLength = buffer.getInt();
+        int bodyChecksum = buffer.getInt();
+        int headerChecksum = buffer.getInt();
+        buffer.getInt(); // reserved
+
+        if (checksum(buffer.slice(start, HEADER_LENGTH - 8)) != headerChecksum) {
+            throw new IllegalStateException("Directory snapshot header checksum mismatch");
+        }
+        if (bodyLength < 0 || buffer.remaining() < bodyLength) {
+            throw new IllegalStateException("Directory snapshot body is truncated");
+        }
+        ByteBuffer body = buffer.slice(buffer.position(), bodyLength);
+        if (checksum(body.duplicate()) != bodyChecksum) {
+            throw new IllegalStateException("Directory snapshot body checksum mismatch");
+        }
+
+        String[] strings = new String[readVarint(body)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readVarint(body)];
+            body.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int userCount = readVarint(body);
+        Map<String, UserEntry> users = new HashMap<>(userCount * 2);
+        for (int i = 0; i < userCount; i++) {
+            UserEntry user = new UserEntry(string(body, strings), string(body, strings), string(body, strings),
+                    string(body, strings), string(body, strings));
+            users.put(user.id(), user);
+        }
+        int roleCount = readVarint(body);
+        Map<String, RoleEntry> roles = new HashMap<>(roleCount * 2);
+        for (int i = 0; i < roleCount; i++) {
+            RoleEntry role = new RoleEntry(string(body, strings), string(body, strings), string(body, strings));
+            roles.put(role.id(), role);
+        }
+        Map<String, Set<String>> roleMembers = readSets(body, strings);
+        Map<String, Set<String>> rolePermissions = readSets(body, strings);
+        int scopeCount = readVarint(body);
+        Map<String, String> scopes = new HashMap<>(scopeCount * 2);
+        for (int i = 0; i < scopeCount; i++) {
+            scopes.put(string(body, strings), string(body, strings));
+        }
+
+        return DirectorySnapshot.of(version, startedAt, completedAt, (flags & FLAG_USERS_COMPLETE) != 0,
+                users, roles, roleMembers, rolePermissions, scopes);
+    }
+
+    private static void writeSets(VarintOutput body, StringTable strings, Map<String, Set<String>> sets) {
+        body.writeVarint(sets.size());
+        sets.forEach((key, values) -> {
+            body.writeVarint(strings.ref(key));
+            body.writeVarint(values.size());
+            values.forEach(value -> body.writeVarint(strings.ref(value)));
+        });
+    }
+
+    private static Map<String, Set<String>> readSets(ByteBuffer body, String[] strings) {
+        int count = readVarint(body);
+        Map<String, Set<String>> sets = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = string(body, strings);
+            int size = readVarint(body);
+            Set<String> values = new LinkedHashSet<>(size * 2);
+            for (int j = 0; j < size; j++) {
+                values.add(string(body, strings));
+            }
+            sets.put(key, values);
+        }
+        return sets;
+    }
+
+    /** Reference 0 encodes null, any other value is the string table index plus one. */
+    private static String string(ByteBuffer body, String[] strings) {
+        int ref = readVarint(body);
+        return ref == 0 ? null : strings[ref - 1];
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Negative varint");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static final class StringTable {
+
+        private final Map<String, Integer> refs = new LinkedHashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int ref(String value) {
+            if (value == null) {
+                return 0;
+            }
+            return refs.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size();
+            });
+        }
+    }
+
+    private static final class VarintOutput extends ByteArrayOutputStream {
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+}
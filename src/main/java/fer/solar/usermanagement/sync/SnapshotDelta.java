@@ -0,0 +1,77 @@
+package fer.solar.usermanagement.sync;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Differences between two consecutive directory snapshots. Memberships and role permissions
+ * are counted as individual (role, user) and (role, permission) pairs.
+ */
+public record SnapshotDelta(Change users, Change roles, Change memberships, Change rolePermissions, Change scopes) {
+
+    public static SnapshotDelta between(DirectorySnapshot previous, DirectorySnapshot next) {
+        if (previous == null) {
+            return new SnapshotDelta(
+                    new Change(next.getUsers().size(), 0, 0),
+                    new Change(next.getRoles().size(), 0, 0),
+                    new Change(countPairs(next.getRoleMembers()), 0, 0),
+                    new Change(countPairs(next.getRolePermissions()), 0, 0),
+                    new Change(next.getScopes().size(), 0, 0));
+        }
+        return new SnapshotDelta(
+                compareEntries(previous.getUsers(), next.getUsers()),
+                compareEntries(previous.getRoles(), next.getRoles()),
+                comparePairs(previous.getRoleMembers(), next.getRoleMembers()),
+                comparePairs(previous.getRolePermissions(), next.getRolePermissions()),
+                compareEntries(previous.getScopes(), next.getScopes()));
+    }
+
+    public boolean isEmpty() {
+        return users.isEmpty() && roles.isEmpty() && memberships.isEmpty()
+                && rolePermissions.isEmpty() && scopes.isEmpty();
+    }
+
+    private static <V> Change compareEntries(Map<String, V> previous, Map<String, V> next) {
+        long added = 0;
+        long changed = 0;
+        for (Map.Entry<String, V> entry : next.entrySet()) {
+            if (!previous.containsKey(entry.getKey())) {
+                added++;
+            } else if (!Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                changed++;
+            }
+        }
+        long removed = previous.keySet().stream().filter(key -> !next.containsKey(key)).count();
+        return new Change(added, removed, changed);
+    }
+
+    private static Change comparePairs(Map<String, Set<String>> previous, Map<String, Set<String>> next) {
+        return new Change(countMissing(next, previous), countMissing(previous, next), 0);
+    }
+
+    private static long countMissing(Map<String, Set<String>> source, Map<String, Set<String>> target) {
+        long missing = 0;
+        for (Map.Entry<String, Set<String>> entry : source.entrySet()) {
+            Set<String> targetValues = target.getOrDefault(entry.getKey(), Collections.emptySet());
+            missing += entry.getValue().stream().filter(value -> !targetValues.contains(value)).count();
+        }
+        return missing;
+    }
+
+    private static long countPairs(Map<String, Set<String>> pairs) {
+        return pairs.values().stream().mapToLong(Set::size).sum();
+    }
+
+    public record Change(long added, long removed, long changed) {
+
+        public boolean isEmpty() {
+            return added == 0 && removed == 0 && changed == 0;
+        }
+
+        public long total() {
+            return added + removed + changed;
+        }
+    }
+}
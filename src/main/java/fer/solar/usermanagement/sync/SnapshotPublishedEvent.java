@@ -0,0 +1,7 @@
+package fer.solar.usermanagement.sync;
+
+/**
+ * Published after a directory synchronization produced a new snapshot.
+ */
+public record SnapshotPublishedEvent(DirectorySnapshot snapshot, SnapshotDelta delta) {
+}
@@ -0,0 +1,115 @@
+package fer.solar.usermanagement.sync;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists published directory snapshots to a local file so a restarted instance can serve reads
+ * before its first synchronization with Auth0 has finished.
+ * <p>
+ * Files are written to a temporary file next to the target, forced to disk and then atomically
+ * renamed, so readers only ever see a complete file. On startup the file is memory-mapped,
+ * verified and published, and a background synchronization reconciles it with Auth0.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SnapshotStore {
+
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final DirectorySynchronizer synchronizer;
+
+    private final AtomicLong persistedVersion = new AtomicLong(-1);
+
+    @Value("${usermanagement.sync.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${usermanagement.sync.snapshot.path:${java.io.tmpdir}/solar-user-management/directory.snapshot}")
+    private Path path;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void restoreOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        load().ifPresent(snapshot -> {
+            persistedVersion.set(snapshot.getVersion());
+            snapshotHolder.restore(snapshot);
+            log.info("Restored directory snapshot version {} from {}, reconciling with Auth0 in the background.",
+                    snapshot.getVersion(), path);
+            synchronizer.scheduledSync();
+        });
+    }
+
+    @EventListener
+    public void onSnapshotPublished(SnapshotPublishedEvent event) {
+        DirectorySnapshot snapshot = event.snapshot();
+        if (!enabled || persistedVersion.get() == snapshot.getVersion()) {
+            return;
+        }
+        try {
+            write(snapshot);
+            persistedVersion.set(snapshot.getVersion());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to persist directory snapshot version {} to {}: {}",
+                    snapshot.getVersion(), path, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the persisted snapshot, returning empty when there is none or it fails verification.
+     */
+    public Optional<DirectorySnapshot> load() {
+        if (!Files.isRegularFile(path)) {
+            log.debug("No persisted directory snapshot at {}", path);
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(SnapshotCodec.decode(mapped));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring persisted directory snapshot at {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    void write(DirectorySnapshot snapshot) throws IOException {
+        byte[] bytes = SnapshotCodec.encode(snapshot);
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.debug("Persisted directory snapshot version {} ({} bytes) to {}", snapshot.getVersion(), bytes.length, path);
+    }
+}
@@ -2,11 +2,19 @@ package fer.solar.usermanagement.user;
 
 import com.auth0.client.mgmt.ManagementAPI;
 import com.auth0.client.mgmt.filter.UserFilter;
+import com.auth0.exception.APIException;
 import com.auth0.exception.Auth0Exception;
 import com.auth0.json.mgmt.roles.Role;
 import com.auth0.json.mgmt.tickets.PasswordChangeTicket;
 import com.auth0.json.mgmt.users.User;
 import com.auth0.json.mgmt.users.UsersPage;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.jfr.SagaStepEvent;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.compensation.CompensationLog;
 import fer.solar.usermanagement.config.Auth0Config;
 import fer.solar.usermanagement.user.dto.CreateUserRequest;
 import fer.solar.usermanagement.user.dto.CreateUserResponse;
@@ -18,6 +26,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import fer.solar.usermanagement.common.util.SortingUtils;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -25,40 +34,110 @@ import reactor.core.scheduler.Schedulers;
 
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class Auth0UserService implements UserService {
 
-    private final Auth0Config auth0Config;
+    // Response field name -> Auth0 user attribute, used for the fields/include_fields filter
+    private static final Map<String, String> AUTH0_USER_FIELDS = Map.of(
+            "id", "user_id",
+            "email", "email",
+            "name", "name",
+            "picture", "picture",
+            "lastLogin", "last_login");
 
+    private final Auth0Config auth0Config;
+    private final CompensationLog compensationLog;
+    private final Auth0CallExecutor auth0Calls;
+
+    @Value("${usermanagement.batch-delete.concurrency:4}")
+    private int batchDeleteConcurrency;
+
+    /**
+     * Creates the user, assigns its roles and issues a password change ticket, one Auth0 call each.
+     * The calls run to the end even if the caller stops waiting. The operation is
+     * recorded in the {@link CompensationLog}, so a user left behind by a crash before the ticket
+     * was returned is deleted on the next start, just as it is deleted here when a later step fails.
+     * When the create call itself fails without Auth0 rejecting it, the user may exist all the same,
+     * so recovery looks for it by the operation id written into its {@code app_metadata}.
+     * Each step, and the rollback, is recorded as a {@link SagaStepEvent}.
+     */
     @Override
     public Mono<CreateUserResponse> createUser(CreateUserRequest request) {
-        return Mono.fromCallable(() -> {
-            User createdUser = null;
-            try {
-                createdUser = createAuth0User(request);
-                assignRolesToUser(createdUser, request.getRoleIds());
-                return new CreateUserResponse(generatePasswordChangeTicket(createdUser, request.getResultUrl()));
-            } catch (Auth0Exception e) {
-                log.error("Error during user creation flow for email {}: {}", request.getEmail(), e.getMessage(), e);
-                if (createdUser != null) {
-                    attemptUserDeletionRollback(createdUser.getId());
-                }
-                throw new RuntimeException("Failed to complete user creation process: " + e.getMessage(), e);
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+        // Neither is validated, so a null-tolerant map
+        Map<String, Object> intent = new HashMap<>();
+        intent.put("email", request.getEmail());
+        intent.put("connection", request.getConnection());
+        return auth0Calls.detached(Auth0Operation.USERS_CREATE,
+                Mono.fromCallable(() -> compensationLog.begin(UserOperationCompensator.CREATE_USER, intent))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(operation -> createUser(request, operation)));
     }
 
-    private User createAuth0User(CreateUserRequest request) throws Auth0Exception {
+    private Mono<CreateUserResponse> createUser(CreateUserRequest request, CompensationLog.Operation operation) {
+        AtomicReference<SagaStepEvent> step = new AtomicReference<>(
+                SagaStepEvent.start(UserOperationCompensator.CREATE_USER, "createUser"));
+        AtomicReference<User> createdUser = new AtomicReference<>();
+        return auth0Calls.call(Auth0Operation.USERS_CREATE, () -> createAuth0User(request, operation.getId()))
+                .flatMap(user -> {
+                    createdUser.set(user);
+                    operation.completeStep(UserOperationCompensator.USER_CREATED_STEP, Map.of("userId", user.getId()));
+                    step.set(step.get().next("assignRoles"));
+                    return assignRolesToUser(user, request.getRoleIds())
+                            .then(Mono.defer(() -> {
+                                step.set(step.get().next("passwordChangeTicket"));
+                                return generatePasswordChangeTicket(user, request.getResultUrl());
+                            }));
+                })
+                .map(ticketUrl -> {
+                    operation.complete();
+                    step.get().succeeded();
+                    return new CreateUserResponse(createdUser.get().getId(), ticketUrl);
+                })
+                .onErrorResume(e -> {
+                    step.get().failed();
+                    log.error("Error during user creation flow for email {}: {}", request.getEmail(), e.getMessage(), e);
+                    Mono<Void> rollback = Mono.empty();
+                    if (createdUser.get() != null) {
+                        rollback = attemptUserDeletionRollback(createdUser.get().getId(), operation);
+                    } else if (mayHaveBeenApplied(e)) {
+                        log.warn("Creation of user {} may have succeeded in Auth0, leaving it to recovery", request.getEmail());
+                        operation.handOverToRecovery();
+                    } else {
+                        operation.compensated();
+                    }
+                    return rollback.then(Mono.error(
+                            new RuntimeException("Failed to complete user creation process: " + e.getMessage(), e)));
+                });
+    }
+
+    // A client error is a certain rejection, while a timeout or server error may follow the commit in Auth0
+    private static boolean mayHaveBeenApplied(Throwable e) {
+        if (e instanceof APIException apiException) {
+            return apiException.getStatusCode() >= 500;
+        }
+        return e instanceof Auth0Exception;
+    }
+
+    private User createAuth0User(CreateUserRequest request, String operationId) throws Auth0Exception {
         ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
         User newUser = new User(request.getConnection());
         newUser.setEmail(request.getEmail());
         newUser.setEmailVerified(false); // Explicitly false, ticket handles verification if needed
+        // Lets recovery tell this user from one created by a retry of the same request
+        newUser.setAppMetadata(Map.of(UserOperationCompensator.CREATED_BY_OPERATION, operationId));
 
         char[] temporaryPassword = generateRandomPasswordChars(16);
         newUser.setPassword(temporaryPassword);
@@ -75,53 +154,68 @@ public class Auth0UserService implements UserService {
         }
     }
 
-    private void assignRolesToUser(User user, List<String> roleIds) throws Auth0Exception {
+    private Mono<Void> assignRolesToUser(User user, List<String> roleIds) {
         if (roleIds == null || roleIds.isEmpty()) {
             log.debug("No roles specified for user {}, skipping role assignment.", user.getId());
-            return;
+            return Mono.empty();
         }
 
-        ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
-        try {
-            mgmt.users().addRoles(user.getId(), roleIds).execute();
-            log.info("Successfully assigned roles {} to user {}", roleIds, user.getId());
-        } catch (Auth0Exception e) {
-            log.error("Failed to assign roles {} to user {}: {}", roleIds, user.getId(), e.getMessage());
-            throw e;
-        }
+        return auth0Calls.call(Auth0Operation.USERS_ADD_ROLES, () -> {
+            ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+            try {
+                mgmt.users().addRoles(user.getId(), roleIds).execute();
+                log.info("Successfully assigned roles {} to user {}", roleIds, user.getId());
+                return null;
+            } catch (Auth0Exception e) {
+                log.error("Failed to assign roles {} to user {}: {}", roleIds, user.getId(), e.getMessage());
+                throw e;
+            }
+        }).then();
     }
 
-    private String generatePasswordChangeTicket(User user, String resultUrl) throws Auth0Exception {
-        ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
-        PasswordChangeTicket ticketRequest = new PasswordChangeTicket(user.getId());
-        ticketRequest.setResultUrl(resultUrl);
-        ticketRequest.setMarkEmailAsVerified(false); // Configurable: false means user verifies via password change
-        ticketRequest.setIncludeEmailInRedirect(false); // Configurable: Usually false for privacy/cleaner URLs
+    private Mono<String> generatePasswordChangeTicket(User user, String resultUrl) {
+        return auth0Calls.call(Auth0Operation.TICKETS_PASSWORD_CHANGE, () -> {
+            ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+            PasswordChangeTicket ticketRequest = new PasswordChangeTicket(user.getId());
+            ticketRequest.setResultUrl(resultUrl);
+            ticketRequest.setMarkEmailAsVerified(false); // Configurable: false means user verifies via password change
+            ticketRequest.setIncludeEmailInRedirect(false); // Configurable: Usually false for privacy/cleaner URLs
 
-        try {
-            String ticketUrl = mgmt.tickets()
-                    .requestPasswordChange(ticketRequest)
-                    .addParameter("ttl_sec", 86400) // Ticket valid for 24 hours
-                    .execute()
-                    .getBody()
-                    .getTicket();
-            log.info("Successfully generated password change ticket URL for user {}", user.getId());
-            return ticketUrl;
-        } catch (Auth0Exception e) {
-            log.error("Failed to generate password change ticket for user {}: {}", user.getId(), e.getMessage());
-            throw e;
-        }
+            try {
+                String ticketUrl = mgmt.tickets()
+                        .requestPasswordChange(ticketRequest)
+                        .addParameter("ttl_sec", 86400) // Ticket valid for 24 hours
+                        .execute()
+                        .getBody()
+                        .getTicket();
+                log.info("Successfully generated password change ticket URL for user {}", user.getId());
+                return ticketUrl;
+            } catch (Auth0Exception e) {
+                log.error("Failed to generate password change ticket for user {}: {}", user.getId(), e.getMessage());
+                throw e;
+            }
+        });
     }
 
-    private void attemptUserDeletionRollback(String userId) {
-        try {
-            log.warn("Attempting transaction rollback: Deleting user with ID {} due to creation process failure.", userId);
-            ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
-            mgmt.users().delete(userId).execute();
-            log.info("Rollback successful: Deleted user with ID {}", userId);
-        } catch (Auth0Exception rollbackEx) {
-            log.error("Rollback failed: Could not delete user with ID {} during cleanup: {}", userId, rollbackEx.getMessage(), rollbackEx);
-        }
+    private Mono<Void> attemptUserDeletionRollback(String userId, CompensationLog.Operation operation) {
+        SagaStepEvent step = SagaStepEvent.start(UserOperationCompensator.CREATE_USER, "rollbackDeleteUser");
+        log.warn("Attempting transaction rollback: Deleting user with ID {} due to creation process failure.", userId);
+        return auth0Calls.call(Auth0Operation.USERS_DELETE, () -> {
+                    ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+                    return mgmt.users().delete(userId).execute();
+                })
+                .then(Mono.<Void>fromRunnable(() -> {
+                    log.info("Rollback successful: Deleted user with ID {}", userId);
+                    step.succeeded();
+                    operation.compensated();
+                }))
+                .onErrorResume(rollbackEx -> {
+                    step.failed();
+                    log.error("Rollback failed: Could not delete user with ID {} during cleanup, leaving it to recovery: {}",
+                            userId, rollbackEx.getMessage(), rollbackEx);
+                    operation.handOverToRecovery();
+                    return Mono.empty();
+                });
     }
 
     private char[] generateRandomPasswordChars(int length) {
@@ -154,18 +248,18 @@ public class Auth0UserService implements UserService {
     }
 
     @Override
-    public Mono<PaginatedUserResponse> listUsers(int page, int size) {
-        return fetchUsersPageFromAuth0(page, size)
-                .flatMap(usersPage -> buildPaginatedUserResponse(usersPage, page, size))
-                .subscribeOn(Schedulers.boundedElastic());
+    public Mono<PaginatedUserResponse> listUsers(int page, int size, FieldSelection selection) {
+        return fetchUsersPageFromAuth0(page, size, selection)
+                .flatMap(usersPage -> buildPaginatedUserResponse(usersPage, page, size, selection));
     }
 
-    private Mono<UsersPage> fetchUsersPageFromAuth0(int page, int size) {
-        return Mono.fromCallable(() -> {
+    private Mono<UsersPage> fetchUsersPageFromAuth0(int page, int size, FieldSelection selection) {
+        return auth0Calls.call(Auth0Operation.USERS_LIST, () -> {
             ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
             UserFilter filter = new UserFilter()
                     .withPage(page, size)
                     .withTotals(true);
+            applyFieldSelection(filter, selection);
             try {
                 return mgmt.users().list(filter).execute().getBody();
             } catch (Auth0Exception e) {
@@ -175,9 +269,21 @@ public class Auth0UserService implements UserService {
         });
     }
 
-    private Mono<PaginatedUserResponse> buildPaginatedUserResponse(UsersPage usersPage, int page, int size) {
+    private void applyFieldSelection(UserFilter filter, FieldSelection selection) {
+        if (!selection.isRestricted()) {
+            return;
+        }
+        // user_id is always requested, it is needed for role enrichment
+        String auth0Fields = Stream.concat(Stream.of("user_id"),
+                        selection.getFields().stream().map(AUTH0_USER_FIELDS::get).filter(Objects::nonNull))
+                .distinct()
+                .collect(Collectors.joining(","));
+        filter.withFields(auth0Fields, true);
+    }
+
+    private Mono<PaginatedUserResponse> buildPaginatedUserResponse(UsersPage usersPage, int page, int size, FieldSelection selection) {
         Flux<UserResponse> userResponseFlux = Flux.fromIterable(usersPage.getItems())
-                .flatMap(this::mapUserToResponse);
+                .flatMap(user -> mapUserToResponse(user, selection));
 
         return userResponseFlux.collectList().map(userResponses -> {
             userResponses.sort(SortingUtils.createNullsFirstCaseInsensitiveComparator(UserResponse::getName));
@@ -195,50 +301,53 @@ public class Auth0UserService implements UserService {
         });
     }
 
-    private Mono<UserResponse> mapUserToResponse(User user) {
-        return Mono.fromCallable(() -> {
+    private Mono<UserResponse> mapUserToResponse(User user, FieldSelection selection) {
+        if (!selection.includes("roles")) {
+            return Mono.just(toUserResponse(user, null, selection));
+        }
+        return auth0Calls.call(Auth0Operation.USERS_LIST_ROLES, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                     List<Role> roles = mgmt.users().listRoles(user.getId(), null).execute().getBody().getItems();
                     List<RoleInfo> roleInfos = roles.stream()
                             .map(role -> new RoleInfo(role.getId(), role.getName()))
                             .collect(Collectors.toList());
 
-                    return UserResponse.builder()
-                            .id(user.getId())
-                            .email(user.getEmail())
-                            .name(user.getName())
-                            .picture(user.getPicture())
-                            .lastLogin(user.getLastLogin() != null ? user.getLastLogin().toString() : null)
-                            .roles(roleInfos)
-                            .build();
+                    return toUserResponse(user, roleInfos, selection);
                 })
-                .subscribeOn(Schedulers.boundedElastic())
                 .onErrorResume(Auth0Exception.class, e -> {
                     log.error("Error fetching roles for user {}: {}", user.getId(), e.getMessage());
-                    return Mono.just(UserResponse.builder()
-                            .id(user.getId())
-                            .email(user.getEmail())
-                            .name(user.getName())
-                            .picture(user.getPicture())
-                            .lastLogin(user.getLastLogin() != null ? user.getLastLogin().toString() : null)
-                            .roles(Collections.emptyList())
-                            .build());
+                    return Mono.just(toUserResponse(user, Collections.emptyList(), selection));
                 });
     }
 
+    private UserResponse toUserResponse(User user, List<RoleInfo> roles, FieldSelection selection) {
+        return UserResponse.builder()
+                .id(selection.hasField("id") ? user.getId() : null)
+                .email(selection.hasField("email") ? user.getEmail() : null)
+                .name(selection.hasField("name") ? user.getName() : null)
+                .picture(selection.hasField("picture") ? user.getPicture() : null)
+                .lastLogin(selection.hasField("lastLogin") && user.getLastLogin() != null ? user.getLastLogin().toString() : null)
+                .roles(roles)
+                .build();
+    }
+
     @Override
-    public Mono<UserResponse> getUserById(String userId) {
-        return Mono.fromCallable(() -> {
+    public Mono<UserResponse> getUserById(String userId, FieldSelection selection) {
+        return auth0Calls.call(Auth0Operation.USERS_GET, () -> {
                     ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
-                    return mgmt.users().get(userId, null).execute().getBody();
+                    UserFilter filter = null;
+                    if (selection.isRestricted()) {
+                        filter = new UserFilter();
+                        applyFieldSelection(filter, selection);
+                    }
+                    return mgmt.users().get(userId, filter).execute().getBody();
                 })
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(this::mapUserToResponse);
+                .flatMap(user -> mapUserToResponse(user, selection));
     }
 
     @Override
     public Mono<Void> deleteUser(String userId) {
-        return Mono.fromRunnable(() -> {
+        return auth0Calls.run(Auth0Operation.USERS_DELETE, () -> {
             try {
                 ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
                 mgmt.users().delete(userId).execute();
@@ -247,68 +356,133 @@ public class Auth0UserService implements UserService {
                 log.error("Error deleting Auth0 user with ID {}: {}", userId, e.getMessage(), e);
                 throw new RuntimeException("Failed to delete user in Auth0", e);
             }
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+        });
+    }
+
+    @Override
+    public Flux<BatchDeleteResult> deleteUsers(Collection<String> userIds) {
+        return Flux.fromIterable(new LinkedHashSet<>(userIds))
+                .flatMap(userId -> deleteUser(userId)
+                        .thenReturn(BatchDeleteResult.deleted(userId))
+                        .onErrorResume(e -> Mono.just(BatchDeleteResult.failed(userId, e))), batchDeleteConcurrency)
+                .contextWrite(context -> context.put(Auth0Priority.CONTEXT_KEY, Auth0Priority.BULK_JOB));
     }
 
+    /**
+     * Replaces the roles of the user, removals first, one Auth0 call each. The calls run to the end
+     * even if the caller stops waiting. The change is recorded in the
+     * {@link CompensationLog} and reverted to the previous roles when it fails half way, here or,
+     * after a crash, on the next start. A call that fails without Auth0 rejecting it may still have
+     * been applied, so such a change is left to recovery, which removes the added roles as well.
+     */
     @Override
     public Mono<Void> updateUser(String userId, UpdateUserRequest request) {
-        return Mono.fromRunnable(() -> {
-            ManagementAPI mgmt = null;
+        List<String> requestedRoleIds = request.getRoleIds() == null ? Collections.emptyList() : request.getRoleIds();
+        return auth0Calls.detached(Auth0Operation.USERS_UPDATE_ROLES, Mono.defer(() -> {
+            AtomicReference<SagaStepEvent> step = new AtomicReference<>(
+                    SagaStepEvent.start(UserOperationCompensator.UPDATE_USER_ROLES, "listRoles"));
+            AtomicReference<CompensationLog.Operation> operation = new AtomicReference<>();
             List<String> successfullyRemovedRoles = new ArrayList<>();
-            List<String> rolesToRemove = Collections.emptyList();
-            List<String> rolesToAdd = Collections.emptyList();
-
-            try {
-                mgmt = auth0Config.getRefreshedManagementAPI();
-                List<String> requestedRoleIds = request.getRoleIds() == null ? Collections.emptyList() : request.getRoleIds();
-
-                List<Role> currentRoles = mgmt.users().listRoles(userId, null).execute().getBody().getItems();
-                List<String> currentRoleIds = currentRoles.stream().map(Role::getId).collect(Collectors.toList());
-
-                rolesToAdd = requestedRoleIds.stream()
-                        .filter(roleId -> !currentRoleIds.contains(roleId))
-                        .collect(Collectors.toList());
-
-                rolesToRemove = currentRoleIds.stream()
-                        .filter(roleId -> !requestedRoleIds.contains(roleId))
-                        .collect(Collectors.toList());
-
-                if (!rolesToRemove.isEmpty()) {
-                    mgmt.users().removeRoles(userId, rolesToRemove).execute();
-                    successfullyRemovedRoles.addAll(rolesToRemove);
-                }
-
-                if (!rolesToAdd.isEmpty()) {
-                    mgmt.users().addRoles(userId, rolesToAdd).execute();
-                }
-            } catch (Auth0Exception addEx) {
-                log.error("Error adding roles {} to Auth0 user {}: {}. Initiating rollback.", rolesToAdd, userId, addEx.getMessage(), addEx);
-                if (!successfullyRemovedRoles.isEmpty()) {
-                    attemptRoleAdditionRollback(mgmt, userId, successfullyRemovedRoles);
-                }
-                throw new RuntimeException("Failed to add roles for user in Auth0, rollback attempted.", addEx);
-
-            } catch (Exception e) {
-                log.error("An unexpected error occurred during role update for user {}: {}", userId, e.getMessage(), e);
-                throw new RuntimeException("Failed to update roles for user: " + e.getMessage(), e);
-            }
-        })
-        .subscribeOn(Schedulers.boundedElastic())
-        .then();
+            AtomicReference<List<String>> rolesToAdd = new AtomicReference<>(Collections.emptyList());
+
+            return auth0Calls.call(Auth0Operation.USERS_LIST_ROLES, () -> {
+                        ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+                        return mgmt.users().listRoles(userId, null).execute().getBody().getItems().stream()
+                                .map(Role::getId)
+                                .collect(Collectors.toList());
+                    })
+                    .flatMap(currentRoleIds -> {
+                        rolesToAdd.set(requestedRoleIds.stream()
+                                .filter(roleId -> !currentRoleIds.contains(roleId))
+                                .collect(Collectors.toList()));
+
+                        List<String> rolesToRemove = currentRoleIds.stream()
+                                .filter(roleId -> !requestedRoleIds.contains(roleId))
+                                .collect(Collectors.toList());
+
+                        if (rolesToRemove.isEmpty() && rolesToAdd.get().isEmpty()) {
+                            step.get().succeeded();
+                            return Mono.empty();
+                        }
+                        operation.set(compensationLog.begin(UserOperationCompensator.UPDATE_USER_ROLES,
+                                Map.of("userId", userId, "rolesToRemove", rolesToRemove, "rolesToAdd", rolesToAdd.get())));
+
+                        Mono<Void> removal = Mono.empty();
+                        if (!rolesToRemove.isEmpty()) {
+                            removal = Mono.defer(() -> {
+                                step.set(step.get().next("removeRoles"));
+                                return auth0Calls.call(Auth0Operation.USERS_REMOVE_ROLES, () -> {
+                                            ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+                                            return mgmt.users().removeRoles(userId, rolesToRemove).execute();
+                                        })
+                                        .then(Mono.fromRunnable(() -> {
+                                            successfullyRemovedRoles.addAll(rolesToRemove);
+                                            operation.get().completeStep("rolesRemoved", null);
+                                        }));
+                            });
+                        }
+
+                        Mono<Void> addition = Mono.empty();
+                        if (!rolesToAdd.get().isEmpty()) {
+                            addition = Mono.defer(() -> {
+                                step.set(step.get().next("addRoles"));
+                                return auth0Calls.call(Auth0Operation.USERS_ADD_ROLES, () -> {
+                                    ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+                                    return mgmt.users().addRoles(userId, rolesToAdd.get()).execute();
+                                }).then();
+                            });
+                        }
+                        return removal.then(addition).then(Mono.fromRunnable(() -> {
+                            operation.get().complete();
+                            step.get().succeeded();
+                        }));
+                    })
+                    .then()
+                    .onErrorResume(e -> {
+                        step.get().failed();
+                        CompensationLog.Operation begun = operation.get();
+                        if (!(e instanceof Auth0Exception)) {
+                            log.error("An unexpected error occurred during role update for user {}: {}", userId, e.getMessage(), e);
+                            if (begun != null) {
+                                begun.handOverToRecovery();
+                            }
+                            return Mono.error(new RuntimeException("Failed to update roles for user: " + e.getMessage(), e));
+                        }
+                        log.error("Error adding roles {} to Auth0 user {}: {}. Initiating rollback.", rolesToAdd.get(), userId, e.getMessage(), e);
+                        Mono<Void> rollback = Mono.empty();
+                        if (begun != null && mayHaveBeenApplied(e)) {
+                            log.warn("Role update of user {} may have been applied in Auth0, leaving it to recovery", userId);
+                            begun.handOverToRecovery();
+                        } else if (!successfullyRemovedRoles.isEmpty()) {
+                            rollback = attemptRoleAdditionRollback(userId, successfullyRemovedRoles, begun);
+                        } else if (begun != null) {
+                            begun.compensated();
+                        }
+                        return rollback.then(Mono.error(
+                                new RuntimeException("Failed to add roles for user in Auth0, rollback attempted.", e)));
+                    });
+        }));
     }
 
-    private void attemptRoleAdditionRollback(ManagementAPI mgmt, String userId, List<String> rolesToReAdd) {
-        if (mgmt == null) {
-            log.error("Rollback impossible: ManagementAPI client was not initialized before failure.");
-            return;
-        }
+    private Mono<Void> attemptRoleAdditionRollback(String userId, List<String> rolesToReAdd,
+                                                   CompensationLog.Operation operation) {
         log.warn("Rollback: Attempting to re-add previously removed roles {} for user {}", rolesToReAdd, userId);
-        try {
-            mgmt.users().addRoles(userId, rolesToReAdd).execute();
-        } catch (Auth0Exception rollbackEx) {
-            log.error("Rollback attempt failed for user {}: {}", userId, rollbackEx.getMessage(), rollbackEx);
-        }
-        log.info("Rollback successful: Re-added roles {} for user {}", rolesToReAdd, userId);
+        SagaStepEvent step = SagaStepEvent.start(UserOperationCompensator.UPDATE_USER_ROLES, "rollbackAddRoles");
+        return auth0Calls.call(Auth0Operation.USERS_ADD_ROLES, () -> {
+                    ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+                    return mgmt.users().addRoles(userId, rolesToReAdd).execute();
+                })
+                .then(Mono.<Void>fromRunnable(() -> {
+                    step.succeeded();
+                    log.info("Rollback successful: Re-added roles {} for user {}", rolesToReAdd, userId);
+                    operation.compensated();
+                }))
+                .onErrorResume(rollbackEx -> {
+                    step.failed();
+                    log.error("Rollback attempt failed for user {}, leaving it to recovery: {}", userId, rollbackEx.getMessage(), rollbackEx);
+                    operation.handOverToRecovery();
+                    return Mono.empty();
+                });
     }
 
 } 
\ No newline at end of file
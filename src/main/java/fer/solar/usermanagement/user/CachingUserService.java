@@ -0,0 +1,185 @@
+package fer.solar.usermanagement.user;
+
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex;
+import fer.solar.usermanagement.common.auth0.DetachedWriteListener;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.common.cache.StaleWhileRevalidateCache;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import fer.solar.usermanagement.user.dto.CreateUserRequest;
+import fer.solar.usermanagement.user.dto.CreateUserResponse;
+import fer.solar.usermanagement.user.dto.PaginatedUserResponse;
+import fer.solar.usermanagement.user.dto.RoleInfo;
+import fer.solar.usermanagement.user.dto.UpdateUserRequest;
+import fer.solar.usermanagement.user.dto.UserResponse;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Serves user reads from the synchronized directory snapshot when it is usable, otherwise from
+ * stale-while-revalidate caches in front of {@link Auth0UserService}. Writes invalidate the caches
+ * and the written users in the snapshot, again once a write left running past its caller has
+ * finished, and update the {@link EffectivePermissionIndex}.
+ */
+@Service
+@Primary
+public class CachingUserService implements UserService {
+
+    private final Auth0UserService delegate;
+    private final DirectorySnapshotHolder snapshotHolder;
+    private final EffectivePermissionIndex permissionIndex;
+    private final StaleWhileRevalidateCache<PageKey, PaginatedUserResponse> userPages;
+    private final StaleWhileRevalidateCache<UserKey, UserResponse> usersById;
+
+    public CachingUserService(Auth0UserService delegate, CacheRegistry cacheRegistry, DirectorySnapshotHolder snapshotHolder,
+                              EffectivePermissionIndex permissionIndex) {
+        this.delegate = delegate;
+        this.snapshotHolder = snapshotHolder;
+        this.permissionIndex = permissionIndex;
+        this.userPages = cacheRegistry.create("users.pages", CacheGroup.USERS,
+                key -> delegate.listUsers(key.page(), key.size(), key.selection()));
+        this.usersById = cacheRegistry.create("users.byId", CacheGroup.USERS,
+                key -> delegate.getUserById(key.userId(), key.selection()));
+    }
+
+    @Override
+    public Mono<CreateUserResponse> createUser(CreateUserRequest request) {
+        return delegate.createUser(request)
+                .doOnNext(response -> permissionIndex.userRolesChanged(response.getUserId(), request.getRoleIds()))
+                .doOnTerminate(this::invalidateUserPages)
+                .contextWrite(DetachedWriteListener.onFinished(this::invalidateUserPages));
+    }
+
+    @Override
+    public Mono<PaginatedUserResponse> listUsers(int page, int size, FieldSelection selection) {
+        return snapshotHolder.readable(groupsFor(selection))
+                .filter(DirectorySnapshot::isUsersComplete)
+                .map(snapshot -> snapshotHolder.serve(snapshot, toPage(snapshot, page, size, selection)))
+                .orElseGet(() -> userPages.get(new PageKey(page, size, selection)));
+    }
+
+    @Override
+    public Mono<UserResponse> getUserById(String userId, FieldSelection selection) {
+        return snapshotHolder.fresh()
+                .filter(snapshot -> isClean(snapshot, userId, selection))
+                .flatMap(snapshot -> snapshot.findUser(userId)
+                        .map(user -> snapshotHolder.serve(snapshot, toResponse(snapshot, user, selection))))
+                .orElseGet(() -> usersById.get(new UserKey(userId, selection)));
+    }
+
+    private CacheGroup[] groupsFor(FieldSelection selection) {
+        // Role names are embedded in user responses
+        return selection.includes("roles")
+                ? new CacheGroup[]{CacheGroup.USERS, CacheGroup.ROLES}
+                : new CacheGroup[]{CacheGroup.USERS};
+    }
+
+    private boolean isClean(DirectorySnapshot snapshot, String userId, FieldSelection selection) {
+        return snapshotHolder.isClean(snapshot, CacheGroup.USERS, userId)
+                && (!selection.includes("roles") || snapshot.rolesOfUser(userId).stream()
+                        .allMatch(roleId -> snapshotHolder.isClean(snapshot, CacheGroup.ROLES, roleId)));
+    }
+
+    private PaginatedUserResponse toPage(DirectorySnapshot snapshot, int page, int size, FieldSelection selection) {
+        List<UserEntry> users = snapshot.getUsersByName();
+        int from = (int) Math.min((long) page * size, users.size());
+        int to = Math.min(from + size, users.size());
+        int totalPages = (size > 0) ? (int) Math.ceil((double) users.size() / size) : 0;
+        return PaginatedUserResponse.builder()
+                .content(users.subList(from, to).stream()
+                        .map(user -> toResponse(snapshot, user, selection))
+                        .collect(Collectors.toList()))
+                .currentPage(page)
+                .pageSize(size)
+                .totalElements(users.size())
+                .totalPages(totalPages)
+                .build();
+    }
+
+    private UserResponse toResponse(DirectorySnapshot snapshot, UserEntry user, FieldSelection selection) {
+        List<RoleInfo> roles = null;
+        if (selection.includes("roles")) {
+            roles = snapshot.rolesOfUser(user.id()).stream()
+                    .map(roleId -> new RoleInfo(roleId, snapshot.findRole(roleId).map(RoleEntry::name).orElse(null)))
+                    .collect(Collectors.toList());
+        }
+        return UserResponse.builder()
+                .id(selection.hasField("id") ? user.id() : null)
+                .email(selection.hasField("email") ? user.email() : null)
+                .name(selection.hasField("name") ? user.name() : null)
+                .picture(selection.hasField("picture") ? user.picture() : null)
+                .lastLogin(selection.hasField("lastLogin") ? user.lastLogin() : null)
+                .roles(roles)
+                .build();
+    }
+
+    @Override
+    public Mono<Void> updateUser(String userId, UpdateUserRequest request) {
+        // Invalidate on any outcome, a failed multi-step update may still have changed the user
+        return delegate.updateUser(userId, request)
+                .doOnSuccess(ignored -> permissionIndex.userRolesChanged(userId, request.getRoleIds()))
+                .doOnTerminate(() -> invalidateUser(userId))
+                .contextWrite(DetachedWriteListener.onFinished(() -> invalidateUser(userId)));
+    }
+
+    @Override
+    public Mono<Void> deleteUser(String userId) {
+        return delegate.deleteUser(userId)
+                .doOnSuccess(ignored -> permissionIndex.userDeleted(userId))
+                .doOnTerminate(() -> invalidateUser(userId))
+                .contextWrite(DetachedWriteListener.onFinished(() -> invalidateUser(userId)));
+    }
+
+    @Override
+    public Flux<BatchDeleteResult> deleteUsers(Collection<String> userIds) {
+        return Flux.defer(() -> {
+            List<String> deleted = new ArrayList<>();
+            return delegate.deleteUsers(userIds)
+                    .doOnNext(result -> {
+                        if (result.isSuccessful()) {
+                            deleted.add(result.getId());
+                        }
+                    })
+                    .doFinally(signal -> {
+                        permissionIndex.usersDeleted(deleted);
+                        invalidateUsers(userIds);
+                    });
+        }).contextWrite(DetachedWriteListener.onFinished(() -> invalidateUsers(userIds)));
+    }
+
+    private void invalidateUserPages() {
+        snapshotHolder.markListingDirty(CacheGroup.USERS);
+        userPages.invalidateAll();
+    }
+
+    private void invalidateUsers(Collection<String> userIds) {
+        // Failed deletes are marked as well, their outcome may be unknown
+        snapshotHolder.markDirty(CacheGroup.USERS, userIds);
+        usersById.invalidateAll();
+        userPages.invalidateAll();
+    }
+
+    private void invalidateUser(String userId) {
+        snapshotHolder.markDirty(CacheGroup.USERS, List.of(userId));
+        usersById.invalidateIf(key -> key.userId().equals(userId));
+        userPages.invalidateAll();
+    }
+
+    private record PageKey(int page, int size, FieldSelection selection) {
+    }
+
+    private record UserKey(String userId, FieldSelection selection) {
+    }
+}
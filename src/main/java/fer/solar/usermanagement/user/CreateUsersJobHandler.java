@@ -0,0 +1,47 @@
+package fer.solar.usermanagement.user;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fer.solar.usermanagement.job.JobHandler;
+import fer.solar.usermanagement.user.dto.CreateUserRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates users from an array of {@link CreateUserRequest}s, one item per user.
+ */
+@Component
+@RequiredArgsConstructor
+public class CreateUsersJobHandler implements JobHandler {
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String type() {
+        return "users.create";
+    }
+
+    @Override
+    public List<JsonNode> split(JsonNode input) {
+        if (input == null || !input.isArray() || input.isEmpty()) {
+            throw new IllegalArgumentException("expected a non-empty array of users");
+        }
+        List<JsonNode> items = new ArrayList<>(input.size());
+        input.forEach(user -> {
+            objectMapper.convertValue(user, CreateUserRequest.class);
+            items.add(user);
+        });
+        return items;
+    }
+
+    @Override
+    public Mono<JsonNode> process(JsonNode item) {
+        return userService.createUser(objectMapper.convertValue(item, CreateUserRequest.class))
+                .map(response -> objectMapper.valueToTree(response));
+    }
+}
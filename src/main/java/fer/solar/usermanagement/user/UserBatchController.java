@@ -0,0 +1,65 @@
+package fer.solar.usermanagement.user;
+
+import fer.solar.usermanagement.common.batch.BatchDeleteRequest;
+import fer.solar.usermanagement.common.batch.BatchDeleteResponse;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.web.IdempotentRequests;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Operations on several users at once. Mapped separately because the {@code users:} prefix is
+ * not a path segment below {@code /api/v1/users}.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+public class UserBatchController {
+
+    private final UserService userService;
+    private final IdempotentRequests idempotentRequests;
+
+    @Value("${usermanagement.batch-delete.max-size:500}")
+    private int maxBatchSize;
+
+    @PostMapping(value = "/users:batchDelete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BatchDeleteResponse>> deleteUsers(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody BatchDeleteRequest request) {
+        if (!isValid(request)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return idempotentRequests.execute(idempotencyKey, "users.batchDelete", request,
+                () -> userService.deleteUsers(request.getIds())
+                        .collectList()
+                        .map(results -> ResponseEntity.ok(BatchDeleteResponse.of(results))));
+    }
+
+    @PostMapping(value = "/users:batchDelete", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchDeleteResult> streamUserDeletions(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody BatchDeleteRequest request) {
+        if (!isValid(request)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + maxBatchSize + " IDs are required"));
+        }
+        if (idempotencyKey == null) {
+            return userService.deleteUsers(request.getIds());
+        }
+        // A replayable stream has to be complete, so keyed requests are buffered
+        return idempotentRequests.execute(idempotencyKey, "users.batchDelete.stream", request,
+                        () -> userService.deleteUsers(request.getIds()).collectList().map(ResponseEntity::ok))
+                .flatMapMany(response -> Flux.fromIterable(response.getBody()));
+    }
+
+    private boolean isValid(BatchDeleteRequest request) {
+        return request.getIds() != null && !request.getIds().isEmpty() && request.getIds().size() <= maxBatchSize;
+    }
+}
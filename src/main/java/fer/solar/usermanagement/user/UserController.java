@@ -1,11 +1,15 @@
 package fer.solar.usermanagement.user;
 
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.common.web.ConditionalResponses;
+import fer.solar.usermanagement.common.web.IdempotentRequests;
 import fer.solar.usermanagement.user.dto.CreateUserRequest;
 import fer.solar.usermanagement.user.dto.CreateUserResponse;
 import fer.solar.usermanagement.user.dto.PaginatedUserResponse;
 import fer.solar.usermanagement.user.dto.UpdateUserRequest;
 import fer.solar.usermanagement.user.dto.UserResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,17 +20,27 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final CacheControl USER_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final UserService userService;
+    private final ConditionalResponses conditionalResponses;
+    private final IdempotentRequests idempotentRequests;
 
     @PostMapping
-    public Mono<CreateUserResponse> createUser(@RequestBody CreateUserRequest createUserRequest) {
-        return userService.createUser(createUserRequest);
+    public Mono<ResponseEntity<CreateUserResponse>> createUser(
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody CreateUserRequest createUserRequest
+    ) {
+        return idempotentRequests.execute(idempotencyKey, "users.create", createUserRequest,
+                () -> userService.createUser(createUserRequest).map(ResponseEntity::ok));
     }
 
     @GetMapping
     public Mono<PaginatedUserResponse> listUsers(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include
     ) {
         if (size < 1) {
             size = 20;
@@ -34,13 +48,17 @@ public class UserController {
         if (page < 0) {
             page = 0;
         }
-        return userService.listUsers(page, size);
+        return userService.listUsers(page, size, FieldSelection.of(fields, include));
     }
 
     @GetMapping("/{userId}")
-    public Mono<ResponseEntity<UserResponse>> getUserById(@PathVariable String userId) {
-        return userService.getUserById(userId)
-                .map(ResponseEntity::ok)
+    public Mono<ResponseEntity<UserResponse>> getUserById(
+            @PathVariable String userId,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String include
+    ) {
+        return userService.getUserById(userId, FieldSelection.of(fields, include))
+                .map(user -> conditionalResponses.ok(user, USER_CACHE_CONTROL))
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
@@ -0,0 +1,106 @@
+package fer.solar.usermanagement.user;
+
+import com.auth0.client.mgmt.ManagementAPI;
+import com.auth0.exception.APIException;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.mgmt.users.User;
+import fer.solar.usermanagement.compensation.CompensationHandler;
+import fer.solar.usermanagement.compensation.CompensationLog;
+import fer.solar.usermanagement.config.Auth0Config;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compensates the multi-step operations of {@link Auth0UserService} left unfinished by a crash.
+ * Both are undone rather than finished, since their caller never saw them succeed: a created user
+ * is deleted, its password ticket never reached anyone, and a role update is reverted to the roles
+ * the user had before it. Only users carrying the operation's id in their {@code app_metadata} are
+ * taken as created by it, so a user created by a retry of the same request is never deleted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserOperationCompensator implements CompensationHandler {
+
+    static final String CREATE_USER = "users.create";
+    static final String UPDATE_USER_ROLES = "users.updateRoles";
+    static final String USER_CREATED_STEP = "userCreated";
+    static final String CREATED_BY_OPERATION = "createdByOperation";
+
+    private final Auth0Config auth0Config;
+
+    @Override
+    public Set<String> types() {
+        return Set.of(CREATE_USER, UPDATE_USER_ROLES);
+    }
+
+    @Override
+    public void compensate(CompensationLog.Operation operation) throws Auth0Exception {
+        ManagementAPI mgmt = auth0Config.getRefreshedManagementAPI();
+        switch (operation.getType()) {
+            case CREATE_USER -> deleteCreatedUsers(mgmt, operation);
+            case UPDATE_USER_ROLES -> revertRoles(mgmt, operation);
+            default -> throw new IllegalArgumentException("Unsupported operation type: " + operation.getType());
+        }
+    }
+
+    private void deleteCreatedUsers(ManagementAPI mgmt, CompensationLog.Operation operation) throws Auth0Exception {
+        List<String> userIds = new ArrayList<>();
+        operation.getStep(USER_CREATED_STEP).ifPresent(step -> userIds.add((String) step.get("userId")));
+        if (userIds.isEmpty()) {
+            // The crash, or an ambiguous failure of the create call, may have hit before its step record
+            userIds.addAll(findUsersCreatedBy(mgmt, operation));
+        }
+        for (String userId : userIds) {
+            try {
+                mgmt.users().delete(userId).execute();
+                log.info("Deleted user {} left behind by unfinished creation {}", userId, operation.getId());
+            } catch (APIException e) {
+                if (e.getStatusCode() != 404) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private List<String> findUsersCreatedBy(ManagementAPI mgmt, CompensationLog.Operation operation) throws Auth0Exception {
+        String email = (String) operation.getIntent().get("email");
+        List<String> userIds = new ArrayList<>();
+        for (User user : mgmt.users().listByEmail(email, null).execute().getBody()) {
+            Map<String, Object> appMetadata = user.getAppMetadata();
+            if (appMetadata != null && operation.getId().equals(appMetadata.get(CREATED_BY_OPERATION))) {
+                userIds.add(user.getId());
+            }
+        }
+        return userIds;
+    }
+
+    // Both calls are no-ops when already applied, so the steps recorded do not matter
+    @SuppressWarnings("unchecked")
+    private void revertRoles(ManagementAPI mgmt, CompensationLog.Operation operation) throws Auth0Exception {
+        Map<String, Object> intent = operation.getIntent();
+        String userId = (String) intent.get("userId");
+        List<String> rolesToAdd = (List<String>) intent.getOrDefault("rolesToAdd", List.of());
+        List<String> rolesToRemove = (List<String>) intent.getOrDefault("rolesToRemove", List.of());
+        try {
+            if (!rolesToAdd.isEmpty()) {
+                mgmt.users().removeRoles(userId, rolesToAdd).execute();
+            }
+            if (!rolesToRemove.isEmpty()) {
+                mgmt.users().addRoles(userId, rolesToRemove).execute();
+            }
+            log.info("Reverted unfinished role update {} of user {}", operation.getId(), userId);
+        } catch (APIException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+            log.info("User {} of unfinished role update {} no longer exists", userId, operation.getId());
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package fer.solar.usermanagement.user;
 
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.util.FieldSelection;
 import fer.solar.usermanagement.user.dto.CreateUserRequest;
 import fer.solar.usermanagement.user.dto.CreateUserResponse;
 import fer.solar.usermanagement.user.dto.PaginatedUserResponse;
 import fer.solar.usermanagement.user.dto.UpdateUserRequest;
 import fer.solar.usermanagement.user.dto.UserResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface UserService {
 
     Mono<CreateUserResponse> createUser(CreateUserRequest request);
 
-    Mono<PaginatedUserResponse> listUsers(int page, int size);
+    default Mono<PaginatedUserResponse> listUsers(int page, int size) {
+        return listUsers(page, size, FieldSelection.all());
+    }
+
+    Mono<PaginatedUserResponse> listUsers(int page, int size, FieldSelection selection);
 
-    Mono<UserResponse> getUserById(String userId);
+    default Mono<UserResponse> getUserById(String userId) {
+        return getUserById(userId, FieldSelection.all());
+    }
+
+    Mono<UserResponse> getUserById(String userId, FieldSelection selection);
 
     Mono<Void> updateUser(String userId, UpdateUserRequest request);
 
     Mono<Void> deleteUser(String userId);
+
+    Flux<BatchDeleteResult> deleteUsers(Collection<String> userIds);
 } 
\ No newline at end of file
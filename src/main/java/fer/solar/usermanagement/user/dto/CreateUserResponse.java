@@ -1,10 +1,14 @@
 package fer.solar.usermanagement.user.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
 @AllArgsConstructor
 public class CreateUserResponse {
+    // Not returned to clients, lets the caching layer index the new user's roles
+    @JsonIgnore
+    private String userId;
     private String ticketUrl;
 }
@@ -0,0 +1,167 @@
+package fer.solar.usermanagement.actuator;
+
+import com.auth0.json.auth.TokenHolder;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.RateLimitTrackingHttpClient;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.common.cache.StaleWhileRevalidateCache;
+import fer.solar.usermanagement.config.Auth0Config;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import fer.solar.usermanagement.sync.DirectorySynchronizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserManagementEndpointTest {
+
+    @Mock
+    private CacheRegistry cacheRegistry;
+
+    @Mock
+    private Auth0Config auth0Config;
+
+    @Mock
+    private RateLimitTrackingHttpClient auth0HttpClient;
+
+    @Mock
+    private Auth0CallExecutor auth0Calls;
+
+    @Mock
+    private DirectorySnapshotHolder snapshotHolder;
+
+    @Mock
+    private DirectorySynchronizer synchronizer;
+
+    @Mock
+    private StaleWhileRevalidateCache<Object, Object> usersById;
+
+    @Mock
+    private StaleWhileRevalidateCache<Object, Object> rolesById;
+
+    private UserManagementEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        endpoint = new UserManagementEndpoint(cacheRegistry, auth0Config, auth0HttpClient, auth0Calls, snapshotHolder, synchronizer);
+    }
+
+    @Test
+    void report_should_describeCachesRateLimitTokenAndSnapshot_when_allAreKnown() {
+        when(cacheRegistry.getCaches()).thenReturn(List.of(usersById, rolesById));
+        when(usersById.getName()).thenReturn("users.byId");
+        when(usersById.getGroup()).thenReturn(CacheGroup.USERS);
+        when(usersById.size()).thenReturn(3L);
+        when(usersById.stats()).thenReturn(CacheStats.of(3, 1, 1, 0, 0, 2, 2));
+        when(rolesById.getName()).thenReturn("roles.byId");
+        when(rolesById.getGroup()).thenReturn(CacheGroup.ROLES);
+        when(rolesById.stats()).thenReturn(CacheStats.empty());
+        when(auth0HttpClient.getRemaining()).thenReturn(40L);
+        when(auth0HttpClient.getLimit()).thenReturn(50L);
+        when(auth0HttpClient.getReset()).thenReturn(1_800_000_000L);
+        TokenHolder token = mock(TokenHolder.class);
+        when(token.getExpiresIn()).thenReturn(86_400L);
+        Instant obtainedAt = Instant.now().minus(Duration.ofMinutes(10));
+        when(auth0Config.getCurrentTokenHolder()).thenReturn(token);
+        when(auth0Config.getTokenObtainedAt()).thenReturn(obtainedAt);
+        Instant completedAt = Instant.now().minus(Duration.ofSeconds(30));
+        when(snapshotHolder.current()).thenReturn(Optional.of(DirectorySnapshot.of(7, completedAt.minusSeconds(5), completedAt,
+                true, Map.of(), Map.of(), Map.of(), Map.of(), Map.of())));
+
+        UserManagementEndpoint.Report report = endpoint.report();
+
+        assertThat(report.caches().keySet()).containsExactly("roles.byId", "users.byId");
+        UserManagementEndpoint.CacheReport users = report.caches().get("users.byId");
+        assertThat(users.group()).isEqualTo("users");
+        assertThat(users.size()).isEqualTo(3);
+        assertThat(users.hitRate()).isEqualTo(0.75);
+        assertThat(users.hits()).isEqualTo(3);
+        assertThat(users.misses()).isEqualTo(1);
+        assertThat(users.evictions()).isEqualTo(2);
+        assertThat(report.caches().get("roles.byId").hitRate()).isEqualTo(1.0);
+        assertThat(report.auth0().rateLimitRemaining()).isEqualTo(40);
+        assertThat(report.auth0().rateLimitLimit()).isEqualTo(50);
+        assertThat(report.auth0().rateLimitReset()).isEqualTo(Instant.ofEpochSecond(1_800_000_000L));
+        assertThat(report.auth0().tokenAge()).isBetween(Duration.ofMinutes(10), Duration.ofMinutes(11));
+        assertThat(report.auth0().tokenExpiresAt()).isEqualTo(obtainedAt.plusSeconds(86_400));
+        assertThat(report.sync().version()).isEqualTo(7);
+        assertThat(report.sync().completedAt()).isEqualTo(completedAt);
+        assertThat(report.sync().lag()).isBetween(Duration.ofSeconds(30), Duration.ofSeconds(90));
+        assertThat(report.sync().usersComplete()).isTrue();
+    }
+
+    @Test
+    void report_should_leaveValuesUnknown_when_noAuth0ResponseTokenOrSnapshotYet() {
+        when(auth0HttpClient.getRemaining()).thenReturn(-1L);
+        when(auth0HttpClient.getLimit()).thenReturn(-1L);
+        when(auth0HttpClient.getReset()).thenReturn(-1L);
+        when(snapshotHolder.current()).thenReturn(Optional.empty());
+
+        UserManagementEndpoint.Report report = endpoint.report();
+
+        assertThat(report.caches()).isEmpty();
+        assertThat(report.auth0().rateLimitRemaining()).isEqualTo(-1);
+        assertThat(report.auth0().rateLimitLimit()).isEqualTo(-1);
+        assertThat(report.auth0().rateLimitReset()).isNull();
+        assertThat(report.auth0().tokenAge()).isNull();
+        assertThat(report.auth0().tokenExpiresAt()).isNull();
+        assertThat(report.sync().version()).isNull();
+        assertThat(report.sync().lag()).isNull();
+        assertThat(report.sync().running()).isFalse();
+    }
+
+    @Test
+    void flush_should_flushGroupAndMarkSnapshotDirty_when_groupNameGiven() {
+        when(cacheRegistry.getCaches()).thenReturn(List.of(usersById, rolesById));
+        when(usersById.getGroup()).thenReturn(CacheGroup.USERS);
+        when(usersById.getName()).thenReturn("users.byId");
+        when(rolesById.getGroup()).thenReturn(CacheGroup.ROLES);
+
+        assertThat(endpoint.flush("users")).containsExactly("users.byId");
+
+        verify(usersById).invalidateAll();
+        verify(rolesById, never()).invalidateAll();
+        verify(snapshotHolder).markDirty(CacheGroup.USERS);
+    }
+
+    @Test
+    void flush_should_flushOnlyThatCache_when_cacheNameGiven() {
+        when(cacheRegistry.getCaches()).thenReturn(List.of(usersById, rolesById));
+        when(usersById.getName()).thenReturn("users.byId");
+        when(rolesById.getName()).thenReturn("roles.byId");
+
+        assertThat(endpoint.flush("roles.byId")).containsExactly("roles.byId");
+        assertThat(endpoint.flush("unknown")).isEmpty();
+
+        verify(rolesById).invalidateAll();
+        verify(usersById, never()).invalidateAll();
+        verify(snapshotHolder, never()).markDirty(CacheGroup.ROLES);
+    }
+
+    @Test
+    void resync_should_reportNotStarted_when_syncAlreadyRunning() {
+        when(synchronizer.isRunning()).thenReturn(true);
+        when(synchronizer.synchronize()).thenReturn(Mono.empty());
+
+        assertThat(endpoint.resync().started()).isFalse();
+        verify(synchronizer).synchronize();
+    }
+}
@@ -0,0 +1,147 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+import fer.solar.usermanagement.sync.SnapshotDelta;
+import fer.solar.usermanagement.sync.SnapshotPublishedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EffectivePermissionIndexTest {
+
+    private EffectivePermissionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EffectivePermissionIndex();
+    }
+
+    @Test
+    void lookup_should_returnUnionOfRolePermissions_when_snapshotIsPublished() {
+        publish(1, Instant.now());
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.lookup("auth0|1")).hasValueSatisfying(result -> {
+            assertThat(result.roleIds()).containsExactly("role_admin", "role_viewer");
+            assertThat(result.permissions()).containsExactly("read:data", "write:data");
+        });
+        assertThat(index.lookup("auth0|2")).hasValueSatisfying(result -> {
+            assertThat(result.roleIds()).isEmpty();
+            assertThat(result.permissions()).isEmpty();
+        });
+        assertThat(index.lookup("auth0|unknown")).isEmpty();
+    }
+
+    @Test
+    void isComplete_should_followSnapshotUsersCompleteness_when_snapshotIsPublished() {
+        assertThat(index.isComplete()).isFalse();
+
+        publish(1, Instant.now(), false);
+        assertThat(index.isComplete()).isFalse();
+
+        publish(2, Instant.now(), true);
+        assertThat(index.isComplete()).isTrue();
+    }
+
+    @Test
+    void lookup_should_keepLocalWrite_when_olderSyncIsPublishedAfterIt() {
+        Instant syncStartedBeforeWrite = Instant.now().minusSeconds(30);
+        publish(1, syncStartedBeforeWrite);
+
+        index.userRolesChanged("auth0|2", List.of("role_viewer"));
+        publish(2, syncStartedBeforeWrite);
+
+        assertThat(index.lookup("auth0|2")).hasValueSatisfying(result ->
+                assertThat(result.permissions()).containsExactly("read:data"));
+
+        publish(3, Instant.now().plusSeconds(1));
+
+        assertThat(index.lookup("auth0|2")).hasValueSatisfying(result ->
+                assertThat(result.permissions()).isEmpty());
+    }
+
+    @Test
+    void lookup_should_reflectRoleDeletionAndScopeRemoval_when_writtenLocally() {
+        publish(1, Instant.now().minusSeconds(30));
+
+        index.roleDeleted("role_viewer");
+        index.scopesReplaced(Set.of("read:data"));
+
+        assertThat(index.lookup("auth0|1")).hasValueSatisfying(result -> {
+            assertThat(result.roleIds()).containsExactly("role_admin");
+            assertThat(result.permissions()).containsExactly("read:data");
+        });
+        assertThat(index.permissionsOfRole("role_viewer")).isEmpty();
+    }
+
+    @Test
+    void lookup_should_returnSortedPermissions_when_newPermissionIsAddedLocally() {
+        publish(1, Instant.now().minusSeconds(30));
+
+        index.rolePermissionsChanged("role_viewer", List.of("read:data", "audit:logs"));
+        index.rolePermissionsChanged("role_new", List.of("zeta:all"));
+        index.userRolesChanged("auth0|2", List.of("role_new", "role_admin"));
+
+        assertThat(index.lookup("auth0|1")).hasValueSatisfying(result ->
+                assertThat(result.permissions()).containsExactly("audit:logs", "read:data", "write:data"));
+        assertThat(index.lookup("auth0|2")).hasValueSatisfying(result -> {
+            assertThat(result.roleIds()).containsExactly("role_admin", "role_new");
+            assertThat(result.permissions()).containsExactly("read:data", "write:data", "zeta:all");
+        });
+        assertThat(index.permissionsOfRole("role_viewer")).hasValue(List.of("audit:logs", "read:data"));
+    }
+
+    @Test
+    void lookup_should_returnEmpty_when_userWasDeletedLocally() {
+        publish(1, Instant.now().minusSeconds(30));
+
+        index.userDeleted("auth0|1");
+        publish(2, Instant.now().minusSeconds(30));
+
+        assertThat(index.lookup("auth0|1")).isEmpty();
+    }
+
+    @Test
+    void lookup_should_dropDeletedRolesFromAllUsers_when_rolesAreDeletedTogether() {
+        publish(1, Instant.now().minusSeconds(30));
+
+        index.rolesDeleted(List.of("role_admin", "role_viewer", "role_unknown"));
+        publish(2, Instant.now().minusSeconds(30));
+
+        assertThat(index.lookup("auth0|1")).hasValueSatisfying(result -> {
+            assertThat(result.roleIds()).isEmpty();
+            assertThat(result.permissions()).isEmpty();
+        });
+        assertThat(index.rolesHolding("read:data")).hasValue(List.of());
+    }
+
+    private void publish(long version, Instant startedAt) {
+        publish(version, startedAt, true);
+    }
+
+    private void publish(long version, Instant startedAt, boolean usersComplete) {
+        DirectorySnapshot snapshot = DirectorySnapshot.of(version, startedAt, startedAt.plusSeconds(1), usersComplete,
+                Map.of(
+                        "auth0|1", new UserEntry("auth0|1", "ana@example.com", "Ana", null, null),
+                        "auth0|2", new UserEntry("auth0|2", "ivo@example.com", "Ivo", null, null)),
+                Map.of(
+                        "role_admin", new RoleEntry("role_admin", "Admin", null),
+                        "role_viewer", new RoleEntry("role_viewer", "Viewer", null)),
+                Map.of(
+                        "role_admin", Set.of("auth0|1"),
+                        "role_viewer", Set.of("auth0|1")),
+                Map.of(
+                        "role_admin", Set.of("read:data", "write:data"),
+                        "role_viewer", Set.of("read:data")),
+                Map.of("read:data", "Read data", "write:data", "Write data"));
+        index.onSnapshotPublished(new SnapshotPublishedEvent(snapshot, SnapshotDelta.between(null, snapshot)));
+    }
+}
@@ -0,0 +1,116 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex.EffectivePermissions;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.role.RoleService;
+import fer.solar.usermanagement.role.dto.RoleResponse;
+import fer.solar.usermanagement.user.UserService;
+import fer.solar.usermanagement.user.dto.RoleInfo;
+import fer.solar.usermanagement.user.dto.UserResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EffectivePermissionServiceTest {
+
+    @Mock
+    private EffectivePermissionIndex index;
+    @Mock
+    private UserService userService;
+    @Mock
+    private RoleService roleService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EffectivePermissionService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new EffectivePermissionService(index, userService, roleService, meterRegistry);
+        ReflectionTestUtils.setField(service, "maxConcurrentFallbacks", 1);
+    }
+
+    @Test
+    void getEffectivePermissions_should_answerFromIndex_when_userIsIndexed() {
+        when(index.lookup("auth0|1")).thenReturn(Optional.of(
+                new EffectivePermissions("auth0|1", List.of("role_viewer"), List.of("read:data"))));
+        when(index.getVersion()).thenReturn(3L);
+
+        StepVerifier.create(service.getEffectivePermissions("auth0|1"))
+                .assertNext(response -> {
+                    assertThat(response.getPermissions()).containsExactly("read:data");
+                    assertThat(response.getIndexVersion()).isEqualTo(3);
+                })
+                .verifyComplete();
+
+        verify(userService, never()).getUserById(anyString(), any());
+    }
+
+    @Test
+    void getEffectivePermissions_should_completeEmptyWithoutAuth0Call_when_completeIndexDoesNotKnowUser() {
+        when(index.lookup("auth0|unknown")).thenReturn(Optional.empty());
+        when(index.isComplete()).thenReturn(true);
+
+        StepVerifier.create(service.getEffectivePermissions("auth0|unknown"))
+                .verifyComplete();
+
+        verify(userService, never()).getUserById(anyString(), any());
+        assertThat(meterRegistry.find("usermanagement.authorization.fallbacks").counters()).isEmpty();
+    }
+
+    @Test
+    void getEffectivePermissions_should_resolveThroughServices_when_indexIsIncomplete() {
+        when(index.lookup("auth0|1")).thenReturn(Optional.empty());
+        when(index.isComplete()).thenReturn(false);
+        when(index.permissionsOfRole("role_viewer")).thenReturn(Optional.empty());
+        when(userService.getUserById("auth0|1", FieldSelection.of("id", "roles"))).thenReturn(Mono.just(
+                UserResponse.builder().id("auth0|1").roles(List.of(new RoleInfo("role_viewer", "Viewer"))).build()));
+        when(roleService.getRoleById("role_viewer")).thenReturn(Mono.just(
+                RoleResponse.builder().id("role_viewer").permissions(List.of("read:data")).build()));
+
+        StepVerifier.create(service.getEffectivePermissions("auth0|1"))
+                .assertNext(response -> assertThat(response.getPermissions()).containsExactly("read:data"))
+                .verifyComplete();
+
+        assertThat(meterRegistry.get("usermanagement.authorization.fallbacks").tag("outcome", "resolved").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void getEffectivePermissions_should_rejectWith503_when_fallbackLimitIsReached() {
+        when(index.lookup(anyString())).thenReturn(Optional.empty());
+        when(index.isComplete()).thenReturn(false);
+        when(userService.getUserById("auth0|1", FieldSelection.of("id", "roles"))).thenReturn(Mono.never());
+
+        Disposable pending = service.getEffectivePermissions("auth0|1").subscribe();
+        StepVerifier.create(service.getEffectivePermissions("auth0|2"))
+                .expectErrorSatisfies(error -> assertThat(error).isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)))
+                .verify();
+        pending.dispose();
+
+        assertThat(meterRegistry.get("usermanagement.authorization.fallbacks").tag("outcome", "rejected").counter().count())
+                .isEqualTo(1);
+        verify(userService, never()).getUserById("auth0|2", FieldSelection.of("id", "roles"));
+    }
+}
@@ -0,0 +1,123 @@
+package fer.solar.usermanagement.authorization;
+
+import fer.solar.usermanagement.authorization.dto.PermissionHolder;
+import fer.solar.usermanagement.permission.PermissionService;
+import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PermissionResponse;
+import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import fer.solar.usermanagement.sync.SnapshotDelta;
+import fer.solar.usermanagement.sync.SnapshotPublishedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PermissionHolderServiceTest {
+
+    @Mock
+    private DirectorySnapshotHolder snapshotHolder;
+
+    @Mock
+    private PermissionService permissionService;
+
+    private EffectivePermissionIndex index;
+    private PermissionHolderService permissionHolderService;
+    private DirectorySnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        index = new EffectivePermissionIndex();
+        permissionHolderService = new PermissionHolderService(index, snapshotHolder, permissionService);
+
+        Instant now = Instant.now();
+        snapshot = DirectorySnapshot.of(1, now, now, true,
+                Map.of(
+                        "auth0|1", new UserEntry("auth0|1", "ana@example.com", "Ana", null, null),
+                        "auth0|2", new UserEntry("auth0|2", "ivo@example.com", "Ivo", null, null),
+                        "auth0|3", new UserEntry("auth0|3", "eva@example.com", "Eva", null, null)),
+                Map.of(
+                        "role_admin", new RoleEntry("role_admin", "Admin", null),
+                        "role_viewer", new RoleEntry("role_viewer", "Viewer", null)),
+                Map.of(
+                        "role_admin", Set.of("auth0|1"),
+                        "role_viewer", Set.of("auth0|2")),
+                Map.of(
+                        "role_admin", Set.of("read:data", "write:data"),
+                        "role_viewer", Set.of("read:data")),
+                Map.of("read:data", "Read data", "write:data", "Write data"));
+        index.onSnapshotPublished(new SnapshotPublishedEvent(snapshot, SnapshotDelta.between(null, snapshot)));
+    }
+
+    @Test
+    void streamHolders_should_emitRolesThenMembers_when_usersAreIncluded() {
+        when(snapshotHolder.current()).thenReturn(Optional.of(snapshot));
+
+        StepVerifier.create(permissionHolderService.streamHolders("read:data", true).collectList())
+                .assertNext(holders -> {
+                    assertThat(holders).extracting(PermissionHolder::getType)
+                            .containsExactly("role", "role", "user", "user");
+                    assertThat(holders.subList(0, 2)).extracting(PermissionHolder::getName)
+                            .containsExactly("Admin", "Viewer");
+                    assertThat(holders.subList(2, 4)).extracting(PermissionHolder::getId)
+                            .containsExactlyInAnyOrder("auth0|1", "auth0|2");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getHolders_should_completeEmpty_when_permissionIsUnknown() {
+        StepVerifier.create(permissionHolderService.getHolders("delete:everything", true))
+                .verifyComplete();
+    }
+
+    @Test
+    void previewUpdate_should_listRolesLosingScopes_when_scopeIsRemoved() {
+        when(snapshotHolder.current()).thenReturn(Optional.of(snapshot));
+        when(permissionService.listPermissions()).thenReturn(Mono.just(PaginatedPermissionResponse.builder()
+                .content(List.of(
+                        PermissionResponse.builder().permissionName("read:data").description("Read data").build(),
+                        PermissionResponse.builder().permissionName("write:data").description("Write data").build()))
+                .build()));
+
+        UpdatePermissionsRequest request = new UpdatePermissionsRequest();
+        request.setPermissions(List.of(update("read:data", "Read all data"), update("export:data", "Export data")));
+
+        StepVerifier.create(permissionHolderService.previewUpdate(request))
+                .assertNext(preview -> {
+                    assertThat(preview.getAddedPermissions()).containsExactly("export:data");
+                    assertThat(preview.getRemovedPermissions()).containsExactly("write:data");
+                    assertThat(preview.getChangedDescriptions()).containsExactly("read:data");
+                    assertThat(preview.getAffectedRoles()).singleElement().satisfies(role -> {
+                        assertThat(role.getRoleId()).isEqualTo("role_admin");
+                        assertThat(role.getRoleName()).isEqualTo("Admin");
+                        assertThat(role.getLostPermissions()).containsExactly("write:data");
+                    });
+                    assertThat(preview.getAffectedUserCount()).isEqualTo(1);
+                })
+                .verifyComplete();
+    }
+
+    private UpdatePermissionsRequest.PermissionUpdate update(String name, String description) {
+        UpdatePermissionsRequest.PermissionUpdate update = new UpdatePermissionsRequest.PermissionUpdate();
+        update.setPermissionName(name);
+        update.setDescription(description);
+        return update;
+    }
+}
@@ -0,0 +1,76 @@
+package fer.solar.usermanagement.common.auth0;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Auth0CallDispatcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Auth0CallDispatcher dispatcher;
+    private final List<String> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new Auth0CallDispatcher(1, meterRegistry);
+    }
+
+    @Test
+    void dispatch_should_startInteractiveCallsAheadOfBulkWork_when_callsAreQueued() {
+        Sinks.Empty<Void> blocker = Sinks.empty();
+        dispatcher.dispatch(Auth0Priority.INTERACTIVE_READ, blocker.asMono()).subscribe();
+        for (int i = 0; i < 4; i++) {
+            dispatcher.dispatch(Auth0Priority.BULK_JOB, recorded("bulk-" + i)).subscribe();
+        }
+        for (int i = 0; i < 4; i++) {
+            dispatcher.dispatch(Auth0Priority.INTERACTIVE_READ, recorded("read-" + i)).subscribe();
+        }
+        assertThat(started).isEmpty();
+        assertThat(meterRegistry.get("usermanagement.auth0.queue.size").tag("priority", "bulk_job").gauge().value()).isEqualTo(4);
+
+        blocker.tryEmitEmpty();
+
+        assertThat(started).containsExactly("bulk-0", "read-0", "read-1", "read-2", "read-3", "bulk-1", "bulk-2", "bulk-3");
+        assertThat(meterRegistry.get("usermanagement.auth0.queue.wait").tag("priority", "bulk_job").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void dispatch_should_neverStartCall_when_cancelledWhileQueued() {
+        Sinks.Empty<Void> blocker = Sinks.empty();
+        dispatcher.dispatch(Auth0Priority.INTERACTIVE_READ, blocker.asMono()).subscribe();
+        Disposable queued = dispatcher.dispatch(Auth0Priority.BULK_JOB, recorded("bulk")).subscribe();
+
+        queued.dispose();
+        blocker.tryEmitEmpty();
+
+        assertThat(started).isEmpty();
+        assertThat(meterRegistry.get("usermanagement.auth0.queue.size").tag("priority", "bulk_job").gauge().value()).isZero();
+    }
+
+    @Test
+    void dispatch_should_freeSlot_when_runningCallIsCancelled() {
+        Sinks.Empty<Void> blocker = Sinks.empty();
+        Disposable running = dispatcher.dispatch(Auth0Priority.INTERACTIVE_WRITE, blocker.asMono()).subscribe();
+        dispatcher.dispatch(Auth0Priority.BACKGROUND_SYNC, recorded("sync")).subscribe();
+
+        running.dispose();
+
+        assertThat(started).containsExactly("sync");
+    }
+
+    private Mono<String> recorded(String name) {
+        return Mono.fromCallable(() -> {
+            started.add(name);
+            return name;
+        });
+    }
+}
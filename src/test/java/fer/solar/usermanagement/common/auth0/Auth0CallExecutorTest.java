@@ -0,0 +1,371 @@
+package fer.solar.usermanagement.common.auth0;
+
+import com.auth0.exception.APIException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Auth0CallExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SimpleTracer tracer;
+    private Auth0CallExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tracer = new SimpleTracer();
+        executor = new Auth0CallExecutor(meterRegistry,
+                new StaticListableBeanFactory(Map.of("tracer", tracer)).getBeanProvider(Tracer.class), 16);
+    }
+
+    @Test
+    void call_should_timeCallsByOutcomeAndCountThemPerRequest() {
+        Auth0CallCount callCount = new Auth0CallCount();
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> "user")
+                        .then(executor.call(Auth0Operation.USERS_LIST_ROLES, () -> {
+                            throw new RuntimeException("Failed to fetch roles",
+                                    new APIException("Too Many Requests", 429, null));
+                        }))
+                        .contextWrite(context -> context.put(Auth0CallCount.CONTEXT_KEY, callCount)))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        assertThat(meterRegistry.get("usermanagement.auth0.calls")
+                .tag("operation", "users.get").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("usermanagement.auth0.calls")
+                .tag("operation", "users.listRoles").tag("outcome", "rate_limited").timer().count()).isEqualTo(1);
+        assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    void call_should_traceCallAsChildOfRequestSpan_when_requestIsTraced() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+        Observation request = Observation.start("http.server.requests", observationRegistry);
+        Span requestSpan = request.getContextView()
+                .<TracingObservationHandler.TracingContext>get(TracingObservationHandler.TracingContext.class).getSpan();
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> "user")
+                        .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, request)))
+                .expectNext("user")
+                .verifyComplete();
+
+        SimpleSpan call = span("auth0 users.get");
+        assertThat(call.getTraceId()).isEqualTo(requestSpan.context().traceId());
+        assertThat(call.getParentId()).isEqualTo(requestSpan.context().spanId());
+        assertThat(call.getTags())
+                .containsEntry("auth0.operation", "users.get")
+                .containsEntry("auth0.priority", Auth0Priority.INTERACTIVE_READ.getMetricName())
+                .containsEntry("auth0.status", "success");
+        SimpleSpan scheduling = span("auth0 scheduling");
+        assertThat(scheduling.getParentId()).isEqualTo(call.getSpanId());
+        assertThat(scheduling.getEndTimestamp()).isNotNull();
+    }
+
+    @Test
+    void call_should_tagOutcomeOnSpan_when_callFails() {
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> {
+                    throw new APIException("Too Many Requests", 429, null);
+                }))
+                .expectError(APIException.class)
+                .verify();
+
+        assertThat(span("auth0 users.get").getTags()).containsEntry("auth0.status", "rate_limited");
+    }
+
+    @Test
+    void call_should_notRunCall_when_deadlineAlreadyPassed() {
+        AtomicBoolean ran = new AtomicBoolean();
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> ran.getAndSet(true))
+                        .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, Deadline.after(Duration.ZERO))))
+                .expectError(DeadlineExceededException.class)
+                .verify();
+
+        assertThat(ran).isFalse();
+        assertThat(abandoned(Auth0Operation.USERS_GET, "deadline", "queued")).isEqualTo(1);
+    }
+
+    @Test
+    void call_should_failWithDeadlineExceeded_when_callOutlivesDeadline() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        StepVerifier.create(executor.call(Auth0Operation.ROLES_LIST, () -> blockUntilInterrupted(interrupted))
+                        .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, Deadline.after(Duration.ofMillis(100)))))
+                .expectError(DeadlineExceededException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(abandoned(Auth0Operation.ROLES_LIST, "deadline", "in_flight")).isEqualTo(1);
+    }
+
+    @Test
+    void call_should_recordFailedOutcome_when_readIsAbortedInFlight() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> "fast")).expectNext("fast").verifyComplete();
+
+        StepVerifier.create(executor.call(Auth0Operation.ROLES_LIST, () -> blockUntilInterrupted(interrupted))
+                        .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, Deadline.after(Duration.ofMillis(200)))))
+                .expectError(DeadlineExceededException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Auth0CallOutcomes.Summary summary = executor.getRecentOutcomes().summarize(Duration.ofMinutes(1));
+        assertThat(summary.calls()).isEqualTo(2);
+        assertThat(summary.failures()).isEqualTo(1);
+        assertThat(summary.p95Latency()).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+    }
+
+    @Test
+    void call_should_interruptRunningRead_when_callerCancels() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Disposable subscription = executor.call(Auth0Operation.USERS_LIST, () -> {
+            started.countDown();
+            return blockUntilInterrupted(interrupted);
+        }).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        subscription.dispose();
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(abandoned(Auth0Operation.USERS_LIST, "cancelled", "in_flight")).isEqualTo(1);
+    }
+
+    @Test
+    void call_should_letRunningWriteFinish_when_callerCancels() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+
+        Disposable subscription = executor.call(Auth0Operation.USERS_CREATE, () -> {
+            started.countDown();
+            release.await();
+            finished.countDown();
+            return "created";
+        }).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        subscription.dispose();
+        release.countDown();
+
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.find("usermanagement.auth0.calls.abandoned").counters()).isEmpty();
+    }
+
+    @Test
+    void call_should_runDetachedWriteListenerAfterWriteFinishes_when_deadlinePassed() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch listened = new CountDownLatch(1);
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_CREATE, () -> {
+                            release.await();
+                            return "created";
+                        })
+                        .contextWrite(DetachedWriteListener.onFinished(listened::countDown))
+                        .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, Deadline.after(Duration.ofMillis(100)))))
+                .expectError(DeadlineExceededException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(listened.getCount()).isEqualTo(1);
+        release.countDown();
+
+        assertThat(listened.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void detached_should_runEveryCallAndThenListener_when_deadlinePassesHalfWay() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch listened = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(executor.detached(Auth0Operation.USERS_CREATE,
+                                executor.call(Auth0Operation.USERS_CREATE, () -> {
+                                            release.await();
+                                            return calls.incrementAndGet();
+                                        })
+                                        .then(executor.call(Auth0Operation.USERS_ADD_ROLES, calls::incrementAndGet)))
+                        .contextWrite(DetachedWriteListener.onFinished(listened::countDown))
+                        .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, Deadline.after(Duration.ofMillis(100)))))
+                .expectError(DeadlineExceededException.class)
+                .verify(Duration.ofSeconds(5));
+        release.countDown();
+
+        assertThat(listened.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.get("usermanagement.auth0.calls")
+                .tag("operation", "users.addRoles").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_should_notRunDetachedWriteListener_when_callerWaitedForWrite() {
+        AtomicBoolean listened = new AtomicBoolean();
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_CREATE, () -> "created")
+                        .contextWrite(DetachedWriteListener.onFinished(() -> listened.set(true))))
+                .expectNext("created")
+                .verifyComplete();
+
+        assertThat(listened).isFalse();
+    }
+
+    @Test
+    void call_should_answerFromHedge_when_primaryReadIsSlowerThanUsual() throws InterruptedException {
+        VirtualTimeScheduler hedgeTimer = enableHedging(1.0);
+        warmUp(Auth0Operation.USERS_GET);
+        // No hedge is sent before the virtual clock moves, so the first call to start is the primary
+        CountDownLatch primaryStarted = new CountDownLatch(1);
+        CountDownLatch primaryInterrupted = new CountDownLatch(1);
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> {
+                    if (primaryStarted.getCount() > 0) {
+                        primaryStarted.countDown();
+                        return blockUntilInterrupted(primaryInterrupted);
+                    }
+                    return "hedged";
+                }))
+                .then(() -> sendHedgeAfter(primaryStarted, hedgeTimer))
+                .expectNext("hedged")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(primaryInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("usermanagement.auth0.hedges.won").tag("operation", "users.get").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("usermanagement.auth0.calls.abandoned").counters()).isEmpty();
+        assertThat(executor.getRecentOutcomes().summarize(Duration.ofMinutes(1)).failures()).isZero();
+    }
+
+    @Test
+    void call_should_answerFromPrimary_when_hedgeFails() {
+        VirtualTimeScheduler hedgeTimer = enableHedging(1.0);
+        warmUp(Auth0Operation.USERS_GET);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch primaryStarted = new CountDownLatch(1);
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> {
+                    attempts.incrementAndGet();
+                    if (primaryStarted.getCount() > 0) {
+                        primaryStarted.countDown();
+                        awaitCall(Auth0Operation.USERS_GET, "rate_limited");
+                        return "primary";
+                    }
+                    throw new APIException("Too Many Requests", 429, null);
+                }))
+                .then(() -> sendHedgeAfter(primaryStarted, hedgeTimer))
+                .expectNext("primary")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(attempts).hasValue(2);
+        assertThat(meterRegistry.get("usermanagement.auth0.calls")
+                .tag("operation", "users.get").tag("outcome", "rate_limited").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void call_should_waitForPrimary_when_hedgeBudgetIsSpent() {
+        VirtualTimeScheduler hedgeTimer = enableHedging(0.0);
+        warmUp(Auth0Operation.USERS_GET);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch primaryStarted = new CountDownLatch(1);
+        CountDownLatch hedgeDue = new CountDownLatch(1);
+
+        StepVerifier.create(executor.call(Auth0Operation.USERS_GET, () -> {
+                    attempts.incrementAndGet();
+                    primaryStarted.countDown();
+                    assertThat(hedgeDue.await(5, TimeUnit.SECONDS)).isTrue();
+                    return "primary";
+                }))
+                .then(() -> {
+                    sendHedgeAfter(primaryStarted, hedgeTimer);
+                    hedgeDue.countDown();
+                })
+                .expectNext("primary")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.get("usermanagement.auth0.hedges.skipped").tag("reason", "budget").counter().count()).isEqualTo(1);
+    }
+
+    private VirtualTimeScheduler enableHedging(double budget) {
+        VirtualTimeScheduler hedgeTimer = VirtualTimeScheduler.create();
+        ReflectionTestUtils.setField(executor, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(executor, "hedgingBudget", budget);
+        ReflectionTestUtils.setField(executor, "hedgingMinDelay", Duration.ZERO);
+        ReflectionTestUtils.setField(executor, "hedgeTimer", hedgeTimer);
+        return hedgeTimer;
+    }
+
+    private void awaitCall(Auth0Operation operation, String outcome) throws InterruptedException {
+        long giveUpAt = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (meterRegistry.find("usermanagement.auth0.calls")
+                .tag("operation", operation.getMetricName()).tag("outcome", outcome).timers().stream()
+                .noneMatch(timer -> timer.count() > 0)) {
+            assertThat(System.nanoTime()).isLessThan(giveUpAt);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void sendHedgeAfter(CountDownLatch primaryStarted, VirtualTimeScheduler hedgeTimer) {
+        try {
+            assertThat(primaryStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        hedgeTimer.advanceTimeBy(Duration.ofSeconds(1));
+    }
+
+    private void warmUp(Auth0Operation operation) {
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(executor.call(operation, () -> "fast")).expectNext("fast").verifyComplete();
+        }
+    }
+
+    private static String blockUntilInterrupted(CountDownLatch interrupted) throws InterruptedException {
+        try {
+            Thread.sleep(Duration.ofSeconds(30));
+            return "finished";
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw e;
+        }
+    }
+
+    private SimpleSpan span(String name) {
+        return tracer.getSpans().stream()
+                .filter(span -> name.equals(span.getName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No span named " + name));
+    }
+
+    private double abandoned(Auth0Operation operation, String reason, String stage) {
+        return meterRegistry.get("usermanagement.auth0.calls.abandoned")
+                .tag("operation", operation.getMetricName())
+                .tag("reason", reason)
+                .tag("stage", stage)
+                .counter().count();
+    }
+}
@@ -0,0 +1,54 @@
+package fer.solar.usermanagement.common.auth0;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Auth0CallOutcomesTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final Auth0CallOutcomes outcomes = new Auth0CallOutcomes(now::get);
+
+    @Test
+    void summarize_should_countOnlyCallsWithinPeriod_when_olderCallsRecorded() {
+        outcomes.record(true, millis(10));
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        outcomes.record(false, millis(20));
+        outcomes.record(true, millis(30));
+
+        Auth0CallOutcomes.Summary summary = outcomes.summarize(Duration.ofMinutes(1));
+
+        assertThat(summary.calls()).isEqualTo(2);
+        assertThat(summary.failures()).isEqualTo(1);
+        assertThat(summary.errorRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void summarize_should_reportP95OfLastCalls_when_ringWrappedAround() {
+        for (int i = 1; i <= 300; i++) {
+            outcomes.record(false, millis(i));
+        }
+
+        Auth0CallOutcomes.Summary summary = outcomes.summarize(Duration.ofMinutes(1));
+
+        // Only the last 256 calls (45..300 ms) are kept
+        assertThat(summary.calls()).isEqualTo(256);
+        assertThat(summary.p95Latency()).isEqualTo(Duration.ofMillis(288));
+    }
+
+    @Test
+    void summarize_should_reportNoCalls_when_nothingRecorded() {
+        Auth0CallOutcomes.Summary summary = outcomes.summarize(Duration.ofMinutes(1));
+
+        assertThat(summary.calls()).isZero();
+        assertThat(summary.errorRate()).isZero();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,70 @@
+package fer.solar.usermanagement.common.auth0;
+
+import com.auth0.net.client.Auth0HttpClient;
+import com.auth0.net.client.Auth0HttpRequest;
+import com.auth0.net.client.Auth0HttpResponse;
+import com.auth0.net.client.HttpMethod;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitTrackingHttpClientTest {
+
+    @Mock
+    private Auth0HttpClient delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitTrackingHttpClient client;
+    private final Auth0HttpRequest request = Auth0HttpRequest.newBuilder("https://tenant/api/v2/users", HttpMethod.GET).build();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        client = new RateLimitTrackingHttpClient(delegate);
+        client.bindTo(meterRegistry);
+    }
+
+    @Test
+    void sendRequest_should_exportRateLimitHeaders_when_responseCarriesThemInAnyCase() throws IOException {
+        when(delegate.sendRequest(any())).thenReturn(response(Map.of(
+                "x-ratelimit-remaining", "42", "X-RateLimit-Limit", "50", "x-ratelimit-reset", "1700000000")));
+
+        client.sendRequest(request);
+
+        assertThat(gauge("usermanagement.auth0.ratelimit.remaining")).isEqualTo(42);
+        assertThat(gauge("usermanagement.auth0.ratelimit.limit")).isEqualTo(50);
+        assertThat(gauge("usermanagement.auth0.ratelimit.reset")).isEqualTo(1700000000);
+    }
+
+    @Test
+    void sendRequest_should_keepLastValues_when_responseHasNoRateLimitHeaders() throws IOException {
+        when(delegate.sendRequest(any()))
+                .thenReturn(response(Map.of("x-ratelimit-remaining", "7")))
+                .thenReturn(response(Map.of("content-type", "application/json")));
+
+        client.sendRequest(request);
+        client.sendRequest(request);
+
+        assertThat(gauge("usermanagement.auth0.ratelimit.remaining")).isEqualTo(7);
+        assertThat(gauge("usermanagement.auth0.ratelimit.limit")).isEqualTo(-1);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private static Auth0HttpResponse response(Map<String, String> headers) {
+        return Auth0HttpResponse.newBuilder().withStatusCode(200).withHeaders(headers).build();
+    }
+}
@@ -0,0 +1,120 @@
+package fer.solar.usermanagement.common.cache;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaleWhileRevalidateCacheTest {
+
+    private static final CachePolicy POLICY = new CachePolicy(Duration.ofSeconds(10), Duration.ofSeconds(60), 100);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicReference<Mono<String>> nextLoad = new AtomicReference<>();
+
+    private StaleWhileRevalidateCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StaleWhileRevalidateCache<>("test", CacheGroup.USERS, POLICY,
+                key -> {
+                    loads.incrementAndGet();
+                    return nextLoad.get();
+                },
+                nanos::get, Runnable::run);
+    }
+
+    @Test
+    void get_should_loadOnce_when_valueIsFresh() {
+        nextLoad.set(Mono.just("v1"));
+
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        advance(Duration.ofSeconds(5));
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_should_countEachLookupOnce_when_cacheEventsAreRecorded() {
+        nextLoad.set(Mono.just("v1"));
+
+        try (Recording recording = new Recording()) {
+            recording.enable("fer.solar.usermanagement.Cache");
+            recording.start();
+            StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+            StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        }
+
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_should_serveStaleValueAndRefresh_when_valueIsOlderThanFreshFor() {
+        nextLoad.set(Mono.just("v1"));
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+
+        advance(Duration.ofSeconds(20));
+        Sinks.One<String> refresh = Sinks.one();
+        nextLoad.set(refresh.asMono());
+
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        refresh.tryEmitValue("v2");
+        StepVerifier.create(cache.get("k")).expectNext("v2").verifyComplete();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_should_keepServingStaleValue_when_refreshFails() {
+        nextLoad.set(Mono.just("v1"));
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+
+        advance(Duration.ofSeconds(30));
+        nextLoad.set(Mono.error(new RuntimeException("Auth0 down")));
+
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        assertThat(cache.ageOf("k")).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void get_should_fail_when_valueIsOlderThanMaxStaleAndLoadFails() {
+        nextLoad.set(Mono.just("v1"));
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+
+        advance(Duration.ofSeconds(61));
+        nextLoad.set(Mono.error(new RuntimeException("Auth0 down")));
+
+        StepVerifier.create(cache.get("k")).expectErrorMessage("Auth0 down").verify();
+    }
+
+    @Test
+    void get_should_recordAgeInContext_when_holderIsPresent() {
+        nextLoad.set(Mono.just("v1"));
+        StepVerifier.create(cache.get("k")).expectNext("v1").verifyComplete();
+        advance(Duration.ofSeconds(7));
+
+        CacheAge cacheAge = new CacheAge();
+        StepVerifier.create(cache.get("k").contextWrite(context -> context.put(CacheAge.CONTEXT_KEY, cacheAge)))
+                .expectNext("v1")
+                .verifyComplete();
+
+        assertThat(cacheAge.getSeconds()).isEqualTo(7);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,83 @@
+package fer.solar.usermanagement.common.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightRecordingEndpointTest {
+
+    private FlightRecordingEndpoint endpoint;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        endpoint = new FlightRecordingEndpoint();
+        ReflectionTestUtils.setField(endpoint, "maxAge", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(endpoint, "maxSize", DataSize.ofMegabytes(16));
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void status_should_reportNone_when_noRecordingWasStarted() throws Exception {
+        assertThat(endpoint.status().state()).isEqualTo("NONE");
+        assertThat(endpoint.dump("recording.jfr")).isNull();
+    }
+
+    @Test
+    void dump_should_containServiceEvents_when_recordingIsRunning() throws Exception {
+        assertThat(endpoint.start(null).state()).isEqualTo("RUNNING");
+
+        SagaStepEvent.start("users.create", "createUser").next("assignRoles").failed();
+        Auth0CallEvent.start("users.get", "interactive_read").end("success");
+
+        Resource dump = endpoint.dump("recording.jfr");
+        Path file = tempDir.resolve("recording.jfr");
+        try (InputStream content = dump.getInputStream()) {
+            Files.write(file, content.readAllBytes());
+        }
+        assertThat(dump.getFile()).doesNotExist();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("fer.solar.usermanagement."))
+                .toList();
+
+        assertThat(events).extracting(event -> event.getEventType().getName()).containsExactly(
+                "fer.solar.usermanagement.SagaStep", "fer.solar.usermanagement.SagaStep", "fer.solar.usermanagement.Auth0Call");
+        assertThat(events.get(0).getBoolean("succeeded")).isTrue();
+        assertThat(events.get(1).getString("step")).isEqualTo("assignRoles");
+        assertThat(events.get(1).getBoolean("succeeded")).isFalse();
+        assertThat(events.get(2).getString("outcome")).isEqualTo("success");
+    }
+
+    @Test
+    void stop_should_keepRecordingForDownload_when_recordingWasRunning() throws Exception {
+        endpoint.start("default");
+
+        FlightRecordingEndpoint.RecordingDescriptor stopped = endpoint.stop();
+
+        assertThat(stopped.state()).isEqualTo("STOPPED");
+        assertThat(stopped.settings()).isEqualTo("default");
+        Resource dump = endpoint.dump("recording.jfr");
+        assertThat(dump.contentLength()).isPositive();
+        Files.delete(dump.getFile().toPath());
+    }
+}
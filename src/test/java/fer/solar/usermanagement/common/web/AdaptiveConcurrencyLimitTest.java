@@ -0,0 +1,74 @@
+package fer.solar.usermanagement.common.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(20).toNanos();
+
+    @Test
+    void tryAcquire_should_refuse_when_limitReached() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+
+        assertThat(limit.tryAcquire()).isEqualTo(1);
+        assertThat(limit.tryAcquire()).isEqualTo(2);
+        assertThat(limit.tryAcquire()).isEqualTo(-1);
+
+        limit.release();
+        assertThat(limit.tryAcquire()).isEqualTo(2);
+    }
+
+    @Test
+    void release_should_growLimit_when_saturatedAndLatencySteady() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 50; i++) {
+            limit.release(FAST, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void release_should_keepLimit_when_mostlyIdle() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+        for (int i = 0; i < 50; i++) {
+            limit.release(FAST, 1, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void release_should_shrinkLimit_when_latencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            limit.release(FAST, limit.getLimit(), false);
+        }
+        int steadyLimit = limit.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limit.release(FAST * 10, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(steadyLimit / 2);
+    }
+
+    @Test
+    void release_should_backOffButNotBelowMinimum_when_requestsAreDropped() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100);
+
+        limit.release(FAST, 1, true);
+        assertThat(limit.getLimit()).isLessThan(20);
+
+        for (int i = 0; i < 200; i++) {
+            limit.release(FAST, 1, true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+}
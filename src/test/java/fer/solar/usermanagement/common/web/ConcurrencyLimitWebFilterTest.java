@@ -0,0 +1,85 @@
+package fer.solar.usermanagement.common.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitWebFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitWebFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitWebFilter(meterRegistry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "minLimit", 1);
+        ReflectionTestUtils.setField(filter, "readInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "readMaxLimit", 10);
+        ReflectionTestUtils.setField(filter, "writeInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "writeMaxLimit", 10);
+        ReflectionTestUtils.setField(filter, "retryAfter", Duration.ofSeconds(2));
+        filter.init();
+    }
+
+    @Test
+    void filter_should_rejectWithRetryAfter_when_bucketIsFull() {
+        Sinks.Empty<Void> pending = Sinks.empty();
+        filter.filter(exchange(MockServerHttpRequest.post("/api/v1/users")), exchange -> pending.asMono()).subscribe();
+
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.post("/api/v1/roles"));
+        StepVerifier.create(filter.filter(rejected, exchange -> Mono.error(new AssertionError("should not run"))))
+                .verifyComplete();
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(meterRegistry.get("usermanagement.concurrency.rejected").tag("bucket", "write").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("usermanagement.concurrency.in_flight").tag("bucket", "write").gauge().value()).isEqualTo(1);
+
+        pending.tryEmitEmpty();
+        assertThat(meterRegistry.get("usermanagement.concurrency.in_flight").tag("bucket", "write").gauge().value()).isZero();
+    }
+
+    @Test
+    void filter_should_admitReads_when_writeBucketIsFull() {
+        Sinks.Empty<Void> pending = Sinks.empty();
+        filter.filter(exchange(MockServerHttpRequest.delete("/api/v1/users/u1")), exchange -> pending.asMono()).subscribe();
+
+        MockServerWebExchange read = exchange(MockServerHttpRequest.get("/api/v1/users/u1"));
+        StepVerifier.create(filter.filter(read, exchange -> Mono.empty()))
+                .verifyComplete();
+
+        assertThat(read.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void filter_should_notLimit_when_pathIsOutsideLimitedApis() {
+        Sinks.Empty<Void> pending = Sinks.empty();
+        filter.filter(exchange(MockServerHttpRequest.post("/api/v1/users")), exchange -> pending.asMono()).subscribe();
+
+        MockServerWebExchange job = exchange(MockServerHttpRequest.post("/api/v1/jobs"));
+        WebFilterChain chain = exchange -> Mono.empty();
+        StepVerifier.create(filter.filter(job, chain))
+                .verifyComplete();
+
+        assertThat(job.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+}
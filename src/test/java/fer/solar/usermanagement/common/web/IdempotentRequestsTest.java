@@ -0,0 +1,106 @@
+package fer.solar.usermanagement.common.web;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotentRequestsTest {
+
+    private IdempotentRequests idempotentRequests;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotentRequests = new IdempotentRequests(JsonMapper.builder().findAndAddModules().build());
+        ReflectionTestUtils.setField(idempotentRequests, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(idempotentRequests, "maxEntries", 100L);
+        idempotentRequests.init();
+    }
+
+    @Test
+    void execute_should_shareInFlightExecutionAndReplayIt_when_keyIsRepeated() {
+        Sinks.One<ResponseEntity<String>> upstream = Sinks.one();
+        Mono<ResponseEntity<String>> first = idempotentRequests.execute("key-1", "users.create", Map.of("email", "a"),
+                () -> counted(upstream.asMono()));
+        Mono<ResponseEntity<String>> duplicate = idempotentRequests.execute("key-1", "users.create", Map.of("email", "a"),
+                () -> counted(Mono.just(ResponseEntity.ok("second"))));
+
+        upstream.tryEmitValue(ResponseEntity.status(HttpStatus.CREATED).body("created"));
+
+        StepVerifier.create(first)
+                .assertNext(response -> {
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+                    assertThat(response.getHeaders().containsKey(IdempotentRequests.REPLAYED_HEADER)).isFalse();
+                })
+                .verifyComplete();
+        StepVerifier.create(duplicate)
+                .assertNext(response -> {
+                    assertThat(response.getBody()).isEqualTo("created");
+                    assertThat(response.getHeaders().getFirst(IdempotentRequests.REPLAYED_HEADER)).isEqualTo("true");
+                })
+                .verifyComplete();
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void execute_should_runAgain_when_previousExecutionFailed() {
+        StepVerifier.create(idempotentRequests.execute("key-1", "users.create", "request",
+                        () -> counted(Mono.<ResponseEntity<String>>error(new IllegalStateException("Auth0 is down")))))
+                .expectErrorMessage("Auth0 is down")
+                .verify();
+
+        StepVerifier.create(idempotentRequests.execute("key-1", "users.create", "request",
+                        () -> counted(Mono.just(ResponseEntity.ok("created")))))
+                .assertNext(response -> assertThat(response.getBody()).isEqualTo("created"))
+                .verifyComplete();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void execute_should_reject_when_keyIsReusedForDifferentRequest() {
+        idempotentRequests.execute("key-1", "users.create", Map.of("email", "a"),
+                () -> counted(Mono.just(ResponseEntity.ok("created")))).block();
+
+        StepVerifier.create(idempotentRequests.execute("key-1", "users.create", Map.of("email", "b"),
+                        () -> counted(Mono.just(ResponseEntity.ok("other")))))
+                .expectErrorSatisfies(error -> assertThat(error).isInstanceOf(ResponseStatusException.class)
+                        .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                        .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY))
+                .verify();
+        // The same key is independent per scope
+        StepVerifier.create(idempotentRequests.execute("key-1", "roles.create", Map.of("email", "b"),
+                        () -> counted(Mono.just(ResponseEntity.ok("role")))))
+                .assertNext(response -> assertThat(response.getBody()).isEqualTo("role"))
+                .verifyComplete();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void execute_should_runActionWithCallersContext_when_detachingIt() {
+        Mono<ResponseEntity<String>> response = idempotentRequests.execute("key-1", "users.create", "request",
+                () -> Mono.deferContextual(context -> Mono.just(ResponseEntity.ok(context.<String>get("requestId")))));
+
+        StepVerifier.create(response.contextWrite(Context.of("requestId", "req-1")))
+                .assertNext(result -> assertThat(result.getBody()).isEqualTo("req-1"))
+                .verifyComplete();
+    }
+
+    private <T> Mono<T> counted(Mono<T> action) {
+        executions.incrementAndGet();
+        return action;
+    }
+}
@@ -0,0 +1,54 @@
+package fer.solar.usermanagement.common.web;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingErrorAttributesTest {
+
+    private final TracingErrorAttributes errorAttributes = new TracingErrorAttributes();
+
+    @Test
+    void getErrorAttributes_should_includeTraceId_when_requestIsTraced() {
+        Span span = new SimpleTracer().nextSpan().start();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users"));
+        ServerRequestObservationContext observation = new ServerRequestObservationContext(
+                exchange.getRequest(), exchange.getResponse(), exchange.getAttributes());
+        TracingObservationHandler.TracingContext tracing = new TracingObservationHandler.TracingContext();
+        tracing.setSpan(span);
+        observation.put(TracingObservationHandler.TracingContext.class, tracing);
+        exchange.getAttributes().put(ServerRequestObservationContext.CURRENT_OBSERVATION_CONTEXT_ATTRIBUTE, observation);
+
+        Map<String, Object> attributes = failed(exchange);
+
+        assertThat(attributes)
+                .containsEntry("status", 500)
+                .containsEntry("traceId", span.context().traceId());
+    }
+
+    @Test
+    void getErrorAttributes_should_leaveOutTraceId_when_requestIsNotTraced() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users"));
+
+        assertThat(failed(exchange))
+                .containsEntry("status", 500)
+                .doesNotContainKey("traceId");
+    }
+
+    private Map<String, Object> failed(MockServerWebExchange exchange) {
+        errorAttributes.storeErrorInformation(new IllegalStateException("Auth0 is down"), exchange);
+        ServerRequest request = ServerRequest.create(exchange, HandlerStrategies.withDefaults().messageReaders());
+        return errorAttributes.getErrorAttributes(request, ErrorAttributeOptions.defaults());
+    }
+}
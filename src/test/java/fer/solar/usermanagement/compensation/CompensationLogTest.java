@@ -0,0 +1,117 @@
+package fer.solar.usermanagement.compensation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompensationLogTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final List<CompensationLog> opened = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (CompensationLog log : opened) {
+            log.close();
+        }
+    }
+
+    @Test
+    void open_should_returnUnfinishedOperationsWithSteps_when_previousRunStoppedMidway() throws Exception {
+        CompensationLog first = open(DataSize.ofMegabytes(4));
+        CompensationLog.Operation unfinished = first.begin("users.create", Map.of("email", "ana@example.com"));
+        unfinished.completeStep("userCreated", Map.of("userId", "auth0|1"));
+        first.begin("users.create", Map.of("email", "ivo@example.com")).complete();
+        first.close();
+
+        CompensationLog second = open(DataSize.ofMegabytes(4));
+
+        assertThat(second.pendingRecovery()).singleElement().satisfies(operation -> {
+            assertThat(operation.getId()).isEqualTo(unfinished.getId());
+            assertThat(operation.getType()).isEqualTo("users.create");
+            assertThat(operation.getIntent()).containsEntry("email", "ana@example.com");
+            assertThat(operation.getStep("userCreated")).hasValue(Map.of("userId", "auth0|1"));
+        });
+    }
+
+    @Test
+    void open_should_ignoreTornTailAndKeepAppending_when_lastWriteWasCut() throws Exception {
+        CompensationLog first = open(DataSize.ofMegabytes(4));
+        CompensationLog.Operation unfinished = first.begin("users.updateRoles", Map.of("userId", "auth0|1"));
+        first.close();
+        Files.writeString(path(), "{\"kind\":\"END\",\"operat", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        CompensationLog second = open(DataSize.ofMegabytes(4));
+        assertThat(second.pendingRecovery()).extracting(CompensationLog.Operation::getId)
+                .containsExactly(unfinished.getId());
+        second.pendingRecovery().get(0).recovered();
+        second.close();
+
+        assertThat(open(DataSize.ofMegabytes(4)).pendingRecovery()).isEmpty();
+        assertThat(Files.size(path())).isZero();
+    }
+
+    @Test
+    void begin_should_commitConcurrentAppendsDurably_when_manyOperationsRunAtOnce() throws Exception {
+        CompensationLog log = open(DataSize.ofBytes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<CompletableFuture<Void>> operations = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String email = "user" + i + "@example.com";
+                operations.add(CompletableFuture.runAsync(() -> {
+                    CompensationLog.Operation operation = log.begin("users.create", Map.of("email", email));
+                    operation.completeStep("userCreated", Map.of("userId", "auth0|" + email));
+                    operation.complete();
+                }, executor));
+            }
+            CompletableFuture.allOf(operations.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+        CompensationLog.Operation unfinished = log.begin("users.create", Map.of("email", "last@example.com"));
+        log.close();
+
+        // Compacted once nothing was open, so only the last operation is left
+        assertThat(Files.readAllLines(path())).hasSize(1);
+        assertThat(open(DataSize.ofBytes(1)).pendingRecovery()).extracting(CompensationLog.Operation::getId)
+                .containsExactly(unfinished.getId());
+    }
+
+    private CompensationLog open(DataSize compactThreshold) throws Exception {
+        CompensationLog log = new CompensationLog(objectMapper);
+        ReflectionTestUtils.setField(log, "enabled", true);
+        ReflectionTestUtils.setField(log, "path", path());
+        ReflectionTestUtils.setField(log, "maxBatch", 64);
+        ReflectionTestUtils.setField(log, "appendTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(log, "compactThreshold", compactThreshold);
+        log.open();
+        opened.add(log);
+        return log;
+    }
+
+    private Path path() {
+        return dir.resolve("compensation.log");
+    }
+}
@@ -0,0 +1,99 @@
+package fer.solar.usermanagement.health;
+
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.config.Auth0Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class Auth0HealthIndicatorTest {
+
+    @Mock
+    private Auth0Config auth0Config;
+
+    private final Auth0CallExecutor auth0Calls = new Auth0CallExecutor(new SimpleMeterRegistry(),
+            new StaticListableBeanFactory().getBeanProvider(Tracer.class), 16);
+    private Auth0HealthIndicator indicator;
+
+    @BeforeEach
+    void setUp() {
+        indicator = new Auth0HealthIndicator(auth0Calls, auth0Config);
+        ReflectionTestUtils.setField(indicator, "window", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(indicator, "degradedErrorRate", 0.1);
+        ReflectionTestUtils.setField(indicator, "downErrorRate", 0.5);
+        ReflectionTestUtils.setField(indicator, "degradedLatency", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(indicator, "probeTimeout", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void health_should_beUpWithoutProbing_when_recentCallsSucceeded() {
+        record(10, 0, 100);
+
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> {
+                    assertThat(health.getStatus()).isEqualTo(Status.UP);
+                    assertThat(health.getDetails()).containsEntry("calls", 10).containsEntry("probed", false);
+                })
+                .verifyComplete();
+        verify(auth0Config, never()).getRefreshedManagementAPI();
+    }
+
+    @Test
+    void health_should_beDegraded_when_someCallsFailOrAreSlow() {
+        record(8, 2, 100);
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> assertThat(health.getStatus()).isEqualTo(Auth0HealthIndicator.DEGRADED))
+                .verifyComplete();
+
+        ReflectionTestUtils.setField(indicator, "degradedErrorRate", 0.5);
+        record(10, 0, 3000);
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> assertThat(health.getStatus()).isEqualTo(Auth0HealthIndicator.DEGRADED))
+                .verifyComplete();
+    }
+
+    @Test
+    void health_should_beDown_when_mostCallsFail() {
+        record(4, 6, 100);
+
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> assertThat(health.getStatus()).isEqualTo(Status.DOWN))
+                .verifyComplete();
+    }
+
+    @Test
+    void health_should_probeAuth0_when_noRecentCalls() {
+        when(auth0Config.getRefreshedManagementAPI()).thenThrow(new IllegalStateException("Auth0 token is not available."));
+
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> {
+                    assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+                    assertThat(health.getDetails()).containsEntry("calls", 1).containsEntry("probed", true);
+                })
+                .verifyComplete();
+        verify(auth0Config).getRefreshedManagementAPI();
+    }
+
+    private void record(int succeeded, int failed, long latencyMillis) {
+        for (int i = 0; i < succeeded + failed; i++) {
+            auth0Calls.getRecentOutcomes().record(i < failed, TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package fer.solar.usermanagement.health;
+
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReadinessUpdaterTest {
+
+    @Mock
+    private Auth0HealthIndicator auth0Health;
+
+    @Mock
+    private DirectorySnapshotHolder snapshotHolder;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ReadinessUpdater readinessUpdater;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(readinessUpdater, "probeTimeout", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void update_should_refuseTraffic_when_auth0IsDownAndNoSnapshotIsReadable() {
+        when(auth0Health.health()).thenReturn(Mono.just(Health.down().build()));
+        when(snapshotHolder.readable()).thenReturn(Optional.empty());
+
+        readinessUpdater.update();
+        readinessUpdater.update();
+
+        assertThat(publishedStates()).containsExactly(ReadinessState.REFUSING_TRAFFIC);
+    }
+
+    @Test
+    void update_should_publishNothing_when_auth0IsDownButSnapshotIsReadable() {
+        when(auth0Health.health()).thenReturn(Mono.just(Health.down().build()));
+        when(snapshotHolder.readable()).thenReturn(Optional.of(snapshot()));
+
+        readinessUpdater.update();
+
+        verify(eventPublisher, never()).publishEvent(any(ApplicationEvent.class));
+    }
+
+    @Test
+    void update_should_acceptTrafficAgain_when_auth0Recovers() {
+        when(auth0Health.health())
+                .thenReturn(Mono.just(Health.down().build()))
+                .thenReturn(Mono.just(Health.up().build()));
+        when(snapshotHolder.readable()).thenReturn(Optional.empty());
+
+        readinessUpdater.update();
+        readinessUpdater.update();
+        readinessUpdater.update();
+
+        assertThat(publishedStates()).containsExactly(ReadinessState.REFUSING_TRAFFIC, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    private List<Object> publishedStates() {
+        ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        return events.getAllValues().stream()
+                .<Object>map(event -> ((AvailabilityChangeEvent<?>) event).getState())
+                .toList();
+    }
+
+    private static DirectorySnapshot snapshot() {
+        Instant now = Instant.now();
+        return DirectorySnapshot.of(1, now, now, true, Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+    }
+}
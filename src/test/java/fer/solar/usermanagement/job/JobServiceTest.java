@@ -0,0 +1,193 @@
+package fer.solar.usermanagement.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import fer.solar.usermanagement.job.dto.JobItemResult;
+import fer.solar.usermanagement.job.dto.JobStatusResponse;
+import fer.solar.usermanagement.job.dto.SubmitJobRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class JobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final List<String> processed = Collections.synchronizedList(new ArrayList<>());
+    private final List<JobService> services = new ArrayList<>();
+    private JobJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = newJournal();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        services.forEach(JobService::stopScheduler);
+        journal.close();
+    }
+
+    @Test
+    void submit_should_processAllItemsAndKeepFailures_when_jobRuns() {
+        JobService jobService = newService(journal, 2);
+
+        JobStatusResponse submitted = jobService.submit(request("echo", "a", "fail", "c")).block();
+
+        assertThat(submitted.getState()).isIn(JobState.QUEUED, JobState.RUNNING);
+        JobStatusResponse finished = awaitFinished(jobService, submitted.getId());
+        assertThat(finished.getState()).isEqualTo(JobState.COMPLETED);
+        assertThat(finished.getSucceededItems()).isEqualTo(2);
+        assertThat(finished.getFailedItems()).isEqualTo(1);
+        assertThat(finished.getResults()).extracting(JobItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(finished.getResults().get(1).getError()).isEqualTo("Item failed: fail");
+        assertThat(finished.getResults().get(2).getResult().asText()).isEqualTo("C");
+    }
+
+    @Test
+    void resumeOnStartup_should_processOnlyRemainingItems_when_journalHasUnfinishedJob() {
+        Job interrupted = new Job("job-1", "echo", JobPriority.NORMAL, Instant.now(),
+                List.of(TextNode.valueOf("a"), TextNode.valueOf("b"), TextNode.valueOf("c")));
+        journal.append(JobRecord.submitted(interrupted), true);
+        journal.append(JobRecord.state("job-1", JobState.RUNNING, Instant.now()), false);
+        journal.append(JobRecord.item("job-1", JobItemResult.succeeded(0, TextNode.valueOf("A"))), false);
+
+        JobService restarted = newService(newJournal(), 2);
+        restarted.resumeOnStartup();
+
+        JobStatusResponse finished = awaitFinished(restarted, "job-1");
+        assertThat(finished.getState()).isEqualTo(JobState.COMPLETED);
+        assertThat(finished.getResults()).extracting(result -> result.getResult().asText()).containsExactly("A", "B", "C");
+        assertThat(processed).containsExactlyInAnyOrder("b", "c");
+    }
+
+    @Test
+    void cancel_should_cancelQueuedJobAtOnce_when_slotsAreBusy() {
+        JobService jobService = newService(journal, 1);
+        String blocking = jobService.submit(request("echo", "block")).block().getId();
+        await().atMost(Duration.ofSeconds(5)).until(() -> processed.contains("block"));
+        String queued = jobService.submit(request("echo", "a")).block().getId();
+
+        assertThat(jobService.cancel(queued).block().getState()).isEqualTo(JobState.CANCELLED);
+        assertThat(jobService.cancel(blocking).block().getState()).isEqualTo(JobState.CANCELLING);
+        assertThat(processed).containsExactly("block");
+    }
+
+    @Test
+    void submit_should_reject_when_typeIsUnknown() {
+        JobService jobService = newService(journal, 1);
+
+        StepVerifier.create(jobService.submit(request("unknown", "a")))
+                .expectError(InvalidJobException.class)
+                .verify();
+    }
+
+    @Test
+    void rewrite_should_keepRecordAppendedDuringSnapshot_when_compacting() throws Exception {
+        Job job = new Job("job-1", "echo", JobPriority.NORMAL, Instant.now(), List.of(TextNode.valueOf("a")));
+        journal.append(JobRecord.submitted(job), true);
+        CountDownLatch snapshotting = new CountDownLatch(1);
+        CountDownLatch appendStarted = new CountDownLatch(1);
+
+        Thread compaction = new Thread(() -> journal.rewrite(() -> {
+            snapshotting.countDown();
+            try {
+                appendStarted.await(5, TimeUnit.SECONDS);
+                // Give the append the chance to slip in, which the lock must prevent
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(JobRecord.submitted(job));
+        }));
+        compaction.start();
+        snapshotting.await(5, TimeUnit.SECONDS);
+        Thread append = new Thread(() -> {
+            appendStarted.countDown();
+            journal.append(JobRecord.state("job-1", JobState.COMPLETED, Instant.now()), true);
+        });
+        append.start();
+        compaction.join(5000);
+        append.join(5000);
+
+        assertThat(newJournal().replay()).extracting(JobRecord::op)
+                .containsExactly(JobRecord.Op.SUBMITTED, JobRecord.Op.STATE);
+    }
+
+    private JobService newService(JobJournal jobJournal, int concurrency) {
+        JobService jobService = new JobService(List.of(new EchoHandler()), jobJournal);
+        ReflectionTestUtils.setField(jobService, "concurrency", concurrency);
+        ReflectionTestUtils.setField(jobService, "itemConcurrency", 2);
+        ReflectionTestUtils.setField(jobService, "threads", 4);
+        ReflectionTestUtils.setField(jobService, "retention", Duration.ofHours(1));
+        jobService.startScheduler();
+        services.add(jobService);
+        return jobService;
+    }
+
+    private JobJournal newJournal() {
+        JobJournal jobJournal = new JobJournal(objectMapper);
+        ReflectionTestUtils.setField(jobJournal, "enabled", true);
+        ReflectionTestUtils.setField(jobJournal, "path", directory.resolve("jobs.journal"));
+        return jobJournal;
+    }
+
+    private SubmitJobRequest request(String type, String... items) {
+        SubmitJobRequest request = new SubmitJobRequest();
+        request.setType(type);
+        request.setInput(objectMapper.valueToTree(items));
+        return request;
+    }
+
+    private static JobStatusResponse awaitFinished(JobService jobService, String jobId) {
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(jobId, false).map(job -> job.getState().isFinished()).orElse(false));
+        return jobService.getJob(jobId, true).orElseThrow();
+    }
+
+    /** Upper-cases text items, fails on "fail" and never completes "block". */
+    private class EchoHandler implements JobHandler {
+
+        @Override
+        public String type() {
+            return "echo";
+        }
+
+        @Override
+        public List<JsonNode> split(JsonNode input) {
+            List<JsonNode> items = new ArrayList<>();
+            input.forEach(items::add);
+            return items;
+        }
+
+        @Override
+        public Mono<JsonNode> process(JsonNode item) {
+            processed.add(item.asText());
+            return switch (item.asText()) {
+                case "fail" -> Mono.error(new IllegalStateException("Item failed: fail"));
+                case "block" -> Mono.never();
+                default -> Mono.just(TextNode.valueOf(item.asText().toUpperCase()));
+            };
+        }
+    }
+}
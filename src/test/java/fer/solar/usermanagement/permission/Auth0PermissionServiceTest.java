@@ -1,7 +1,10 @@
 package fer.solar.usermanagement.permission;
 
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
 import fer.solar.usermanagement.config.Auth0Config;
 import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PatchPermissionsRequest;
 import fer.solar.usermanagement.permission.dto.PermissionResponse;
 import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest;
 import fer.solar.usermanagement.permission.dto.UpdatePermissionsRequest.PermissionUpdate;
@@ -14,6 +17,8 @@ import com.auth0.json.mgmt.resourceserver.Scope;
 import com.auth0.net.Request;
 import com.auth0.net.Response;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,16 +26,22 @@ import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.never;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
@@ -45,6 +56,10 @@ public class Auth0PermissionServiceTest {
     @Mock
     private Auth0Config auth0Config;
 
+    @Spy
+    private Auth0CallExecutor auth0Calls = new Auth0CallExecutor(new SimpleMeterRegistry(),
+            new StaticListableBeanFactory().getBeanProvider(Tracer.class), 16);
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private ManagementAPI mockManagementAPI;
 
@@ -105,23 +120,18 @@ public class Auth0PermissionServiceTest {
     }
 
     @Test
-    void listPermissions_should_returnEmptyPaginatedPermissionResponse_when_apiThrowsException() throws Exception {
+    void listPermissions_should_propagateError_when_apiThrowsException() throws Exception {
         Auth0Exception auth0Exception = new Auth0Exception("API call failed");
         when(mockManagementAPI.resourceServers().get(API_IDENTIFIER).execute()).thenThrow(auth0Exception);
 
         Mono<PaginatedPermissionResponse> result = auth0PermissionService.listPermissions();
 
         StepVerifier.create(result)
-            .expectNextMatches(paginatedResponse -> {
-                assertThat(paginatedResponse).isNotNull();
-                assertThat(paginatedResponse.getContent()).isEmpty();
-                assertThat(paginatedResponse.getCurrentPage()).isEqualTo(0);
-                assertThat(paginatedResponse.getPageSize()).isEqualTo(0);
-                assertThat(paginatedResponse.getTotalElements()).isEqualTo(0);
-                assertThat(paginatedResponse.getTotalPages()).isEqualTo(0);
-                return true;
-            })
-            .verifyComplete();
+            .expectErrorSatisfies(throwable -> assertThat(throwable)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Failed to fetch API scopes")
+                    .hasCause(auth0Exception))
+            .verify();
     }
 
     @Test
@@ -202,6 +212,102 @@ public class Auth0PermissionServiceTest {
             .verify();
     }
 
+    @Test
+    void patchPermissions_should_writeMergedScopes_when_versionMatches() throws Exception {
+        ResourceServer server = serverWithScopes(scope("read:data", "Read data"), scope("write:data", "Write data"));
+        when(mockManagementAPI.resourceServers().get(API_IDENTIFIER).execute().getBody()).thenReturn(server);
+        String version = PermissionCatalog.of(java.util.Map.of("read:data", "Read data", "write:data", "Write data")).getVersion();
+
+        PatchPermissionsRequest request = new PatchPermissionsRequest();
+        request.setOperations(Arrays.asList(
+                new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.ADD, "export:data", "Export data"),
+                new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.REMOVE, "write:data", null)));
+
+        StepVerifier.create(auth0PermissionService.patchPermissions(request, version))
+                .assertNext(catalog -> {
+                    assertThat(catalog.getVersion()).isNotEqualTo(version);
+                    assertThat(catalog.getPermissions()).extracting(PermissionResponse::getPermissionName)
+                            .containsExactly("export:data", "read:data");
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<ResourceServer> resourceServerCaptor = ArgumentCaptor.forClass(ResourceServer.class);
+        verify(mockManagementAPI.resourceServers()).update(eq(API_IDENTIFIER), resourceServerCaptor.capture());
+        assertThat(resourceServerCaptor.getValue().getScopes())
+                .extracting(Scope::getValue, Scope::getDescription)
+                .containsExactly(tuple("export:data", "Export data"), tuple("read:data", "Read data"));
+    }
+
+    @Test
+    void patchPermissions_should_rejectPatch_when_versionIsOutdated() throws Exception {
+        ResourceServer server = serverWithScopes(scope("read:data", "Read data"));
+        when(mockManagementAPI.resourceServers().get(API_IDENTIFIER).execute().getBody()).thenReturn(server);
+
+        PatchPermissionsRequest request = new PatchPermissionsRequest();
+        request.setOperations(List.of(
+                new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.REMOVE, "read:data", null)));
+
+        StepVerifier.create(auth0PermissionService.patchPermissions(request, "\"outdated\""))
+                .expectError(CatalogVersionMismatchException.class)
+                .verify();
+
+        verify(mockManagementAPI.resourceServers(), never()).update(any(), any());
+    }
+
+    @Test
+    void patchPermissions_should_skipUpdate_when_patchChangesNothing() throws Exception {
+        ResourceServer server = serverWithScopes(scope("read:data", "Read data"));
+        when(mockManagementAPI.resourceServers().get(API_IDENTIFIER).execute().getBody()).thenReturn(server);
+
+        PatchPermissionsRequest request = new PatchPermissionsRequest();
+        request.setOperations(Arrays.asList(
+                new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.ADD, "read:data", "Read data"),
+                new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.REMOVE, "missing:scope", null)));
+
+        StepVerifier.create(auth0PermissionService.patchPermissions(request, null))
+                .assertNext(catalog -> assertThat(catalog.size()).isEqualTo(1))
+                .verifyComplete();
+
+        verify(mockManagementAPI.resourceServers(), never()).update(any(), any());
+    }
+
+    @Test
+    void patchPermissions_should_waitOutsideCallSlots_when_anotherPatchIsRunning() throws Exception {
+        ResourceServer server = serverWithScopes(scope("read:data", "Read data"));
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockManagementAPI.resourceServers().get(API_IDENTIFIER).execute().getBody()).thenAnswer(invocation -> {
+            firstStarted.countDown();
+            release.await();
+            return server;
+        });
+        PatchPermissionsRequest request = new PatchPermissionsRequest();
+        request.setOperations(List.of(
+                new PatchPermissionsRequest.Operation(PatchPermissionsRequest.Op.ADD, "read:data", "Read data")));
+
+        CompletableFuture<PermissionCatalog> first = auth0PermissionService.patchPermissions(request, null).toFuture();
+        assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<PermissionCatalog> second = auth0PermissionService.patchPermissions(request, null).toFuture();
+
+        assertThat(auth0Calls.getRunningCalls()).isEqualTo(1);
+        assertThat(Arrays.stream(Auth0Priority.values()).mapToInt(auth0Calls::getQueuedCalls).sum()).isZero();
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).size()).isEqualTo(1);
+        assertThat(second.get(5, TimeUnit.SECONDS).size()).isEqualTo(1);
+    }
+
+    private ResourceServer serverWithScopes(Scope... scopes) {
+        ResourceServer server = new ResourceServer();
+        server.setScopes(Arrays.asList(scopes));
+        return server;
+    }
+
+    private Scope scope(String value, String description) {
+        Scope scope = new Scope(value);
+        scope.setDescription(description);
+        return scope;
+    }
+
     private void setupCommonUpdateMocks() {
         when(mockManagementAPI.resourceServers()).thenReturn(mockResourceServerEntity);
         when(mockResourceServerEntity.update(eq(API_IDENTIFIER), any(ResourceServer.class))).thenReturn(mockResourceServerRequest);
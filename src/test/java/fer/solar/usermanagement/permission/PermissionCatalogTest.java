@@ -0,0 +1,70 @@
+package fer.solar.usermanagement.permission;
+
+import fer.solar.usermanagement.permission.dto.PaginatedPermissionResponse;
+import fer.solar.usermanagement.permission.dto.PermissionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissionCatalogTest {
+
+    private final PermissionCatalog catalog = PermissionCatalog.of(Map.of(
+            "read:data", "Read data",
+            "Read:Logs", "Read audit logs",
+            "write:data", "Write data",
+            "admin:users", "Manage users",
+            "read:users", "List users"));
+
+    @Test
+    void page_should_returnRequestedSlice_when_noFiltersAreGiven() {
+        PaginatedPermissionResponse page = catalog.page(1, 2, null, null);
+
+        assertThat(page.getContent()).extracting(PermissionResponse::getPermissionName)
+                .containsExactly("Read:Logs", "read:users");
+        assertThat(page.getCurrentPage()).isEqualTo(1);
+        assertThat(page.getPageSize()).isEqualTo(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+    }
+
+    @Test
+    void page_should_matchPrefixCaseInsensitively_when_prefixIsGiven() {
+        PaginatedPermissionResponse page = catalog.page(0, 0, "READ:", null);
+
+        assertThat(page.getContent()).extracting(PermissionResponse::getPermissionName)
+                .containsExactly("read:data", "Read:Logs", "read:users");
+        assertThat(page.getTotalPages()).isEqualTo(1);
+    }
+
+    @Test
+    void page_should_searchNamesAndDescriptions_when_queryIsGiven() {
+        PaginatedPermissionResponse page = catalog.page(0, 10, "read", "USERS");
+
+        assertThat(page.getContent()).extracting(PermissionResponse::getPermissionName)
+                .containsExactly("read:users");
+        assertThat(catalog.page(0, 10, null, "audit").getContent()).extracting(PermissionResponse::getPermissionName)
+                .containsExactly("Read:Logs");
+    }
+
+    @Test
+    void page_should_returnEmptyPage_when_nothingMatches() {
+        PaginatedPermissionResponse page = catalog.page(0, 10, "zzz", null);
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+        assertThat(page.getTotalPages()).isZero();
+    }
+
+    @Test
+    void version_should_changeOnlyWithContent() {
+        Map<String, String> scopes = new HashMap<>(catalog.getDescriptions());
+
+        assertThat(PermissionCatalog.of(scopes).getVersion()).isEqualTo(catalog.getVersion());
+
+        scopes.put("read:data", "Read all data");
+        assertThat(PermissionCatalog.of(scopes).getVersion()).isNotEqualTo(catalog.getVersion());
+    }
+}
@@ -0,0 +1,89 @@
+package fer.solar.usermanagement.permission;
+
+import fer.solar.usermanagement.authorization.PermissionHolderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PermissionControllerTest {
+
+    private static final PermissionCatalog CATALOG = PermissionCatalog.of(Map.of(
+            "read:data", "Read data",
+            "write:data", "Write data"));
+    private static final CacheControl PERMISSIONS_CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofSeconds(30)).cachePrivate().mustRevalidate();
+
+    @Mock
+    private PermissionService permissionService;
+    @Mock
+    private PermissionHolderService permissionHolderService;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        PermissionController controller = new PermissionController(permissionService, permissionHolderService);
+        ReflectionTestUtils.setField(controller, "permissionsMaxAge", Duration.ofSeconds(30));
+        // Registered as a ready singleton so the ${...} Duration default is not resolved without Boot's converters
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("permissionController", controller);
+        context.register(WebFluxTestConfig.class);
+        context.refresh();
+        client = WebTestClient.bindToApplicationContext(context).build();
+        when(permissionService.getCatalog()).thenReturn(Mono.just(CATALOG));
+    }
+
+    @Test
+    void listPermissions_should_returnCatalogVersionAsETagAndMaxAge_when_catalogIsLoaded() {
+        client.get().uri("/api/v1/permissions")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, CATALOG.getVersion())
+                .expectHeader().cacheControl(PERMISSIONS_CACHE_CONTROL)
+                .expectBody().jsonPath("$.content.length()").isEqualTo(2);
+    }
+
+    @Test
+    void listPermissions_should_return304WithoutBody_when_ifNoneMatchIsCatalogVersion() {
+        client.get().uri("/api/v1/permissions?prefix=read:")
+                .ifNoneMatch(CATALOG.getVersion())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, CATALOG.getVersion())
+                .expectHeader().cacheControl(PERMISSIONS_CACHE_CONTROL)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void listPermissions_should_return200WithBody_when_ifNoneMatchIsOlderVersion() {
+        String olderVersion = PermissionCatalog.of(Map.of("read:data", "Read data")).getVersion();
+
+        client.get().uri("/api/v1/permissions")
+                .ifNoneMatch(olderVersion)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, CATALOG.getVersion())
+                .expectBody().jsonPath("$.content.length()").isEqualTo(2);
+    }
+
+    @Configuration
+    @EnableWebFlux
+    static class WebFluxTestConfig {
+    }
+}
@@ -0,0 +1,128 @@
+package fer.solar.usermanagement.rbac;
+
+import fer.solar.usermanagement.rbac.dto.PlannedChange;
+import fer.solar.usermanagement.rbac.dto.PlannedChange.Action;
+import fer.solar.usermanagement.rbac.dto.RbacDocument;
+import fer.solar.usermanagement.rbac.dto.RbacDocument.RoleDefinition;
+import fer.solar.usermanagement.rbac.dto.ReconcilePlan;
+import fer.solar.usermanagement.sync.DirectorySnapshot;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RbacPlannerTest {
+
+    private final DirectorySnapshot snapshot = DirectorySnapshot.of(7, Instant.now(), Instant.now(), true,
+            Map.of(
+                    "auth0|1", new UserEntry("auth0|1", "ana@example.com", "Ana", null, null),
+                    "auth0|2", new UserEntry("auth0|2", "ivo@example.com", "Ivo", null, null)),
+            Map.of(
+                    "role_admin", new RoleEntry("role_admin", "Admin", "Administrators"),
+                    "role_viewer", new RoleEntry("role_viewer", "Viewer", "Read only")),
+            Map.of(
+                    "role_admin", Set.of("auth0|1"),
+                    "role_viewer", Set.of("auth0|1", "auth0|2")),
+            Map.of(
+                    "role_admin", Set.of("read:data", "write:data"),
+                    "role_viewer", Set.of("read:data")),
+            Map.of("read:data", "Read data", "write:data", "Write data"));
+
+    @Test
+    void plan_should_beEmpty_when_documentMatchesSnapshot() {
+        RbacDocument document = document(Map.of("read:data", "Read data", "write:data", "Write data"),
+                new RoleDefinition("Admin", "Administrators", List.of("read:data", "write:data"), List.of("ana@example.com")),
+                new RoleDefinition("Viewer", null, List.of("read:data"), List.of("auth0|1", "IVO@example.com")));
+        document.setPrune(true);
+
+        ReconcilePlan plan = RbacPlanner.plan(document, snapshot, 100);
+
+        assertThat(plan.getChanges()).isEmpty();
+        assertThat(plan.getUpstreamCalls()).isZero();
+        assertThat(plan.getSnapshotVersion()).isEqualTo(7);
+    }
+
+    @Test
+    void plan_should_containOnlyDifferences_when_documentChangesRolesAndScopes() {
+        RbacDocument document = document(Map.of("read:data", "Read all data", "write:data", "Write data", "export:data", "Export"),
+                new RoleDefinition("Viewer", null, List.of("read:data", "export:data"), List.of("ivo@example.com")),
+                new RoleDefinition("Auditor", "Audits", List.of("read:data"), List.of("auth0|2")));
+
+        ReconcilePlan plan = RbacPlanner.plan(document, snapshot, 100);
+
+        assertThat(plan.getChanges()).extracting(PlannedChange::getAction, PlannedChange::getRoleName, PlannedChange::getItems)
+                .containsExactly(
+                        tuple(Action.ADD_SCOPES, null, List.of("export:data")),
+                        tuple(Action.UPDATE_SCOPE_DESCRIPTIONS, null, List.of("read:data")),
+                        tuple(Action.ADD_ROLE_PERMISSIONS, "Viewer", List.of("export:data")),
+                        tuple(Action.REMOVE_ROLE_MEMBERS, "Viewer", List.of("auth0|1")),
+                        tuple(Action.CREATE_ROLE, "Auditor", null),
+                        tuple(Action.ADD_ROLE_PERMISSIONS, "Auditor", List.of("read:data")),
+                        tuple(Action.ADD_ROLE_MEMBERS, "Auditor", List.of("auth0|2")));
+        // Scope patch (read and replace), four role calls, one member removal
+        assertThat(plan.getUpstreamCalls()).isEqualTo(7);
+    }
+
+    @Test
+    void plan_should_deleteUnlistedRolesAndScopesWithoutRemovingThemFromRoles_when_pruning() {
+        RbacDocument document = document(Map.of("read:data", "Read data"),
+                new RoleDefinition("Admin", null, List.of("read:data"), null));
+        document.setPrune(true);
+
+        ReconcilePlan plan = RbacPlanner.plan(document, snapshot, 100);
+
+        assertThat(plan.getChanges()).extracting(PlannedChange::getAction, PlannedChange::getRoleId, PlannedChange::getItems)
+                .containsExactly(
+                        tuple(Action.DELETE_ROLE, "role_viewer", null),
+                        tuple(Action.REMOVE_SCOPES, null, List.of("write:data")));
+    }
+
+    @Test
+    void plan_should_keepMembers_when_anEmailCannotBeResolved() {
+        RbacDocument document = document(null,
+                new RoleDefinition("Viewer", null, null, List.of("ana@example.com", "nobody@example.com")));
+
+        ReconcilePlan plan = RbacPlanner.plan(document, snapshot, 100);
+
+        assertThat(plan.getChanges()).isEmpty();
+        assertThat(plan.getWarnings()).hasSize(2);
+    }
+
+    @Test
+    void plan_should_reject_when_roleReferencesUnknownScope() {
+        RbacDocument document = document(null, new RoleDefinition("Admin", null, List.of("delete:everything"), null));
+
+        assertThatThrownBy(() -> RbacPlanner.plan(document, snapshot, 100))
+                .isInstanceOf(InvalidRbacDocumentException.class)
+                .hasMessageContaining("delete:everything");
+    }
+
+    @Test
+    void plan_should_splitPermissionAdditionsIntoBatches_when_countingCalls() {
+        RbacDocument document = document(Map.of("a", "A", "b", "B", "c", "C"),
+                new RoleDefinition("Auditor", null, List.of("a", "b", "c"), null));
+
+        ReconcilePlan plan = RbacPlanner.plan(document, snapshot, 2);
+
+        // Scope patch, role creation and two permission batches
+        assertThat(plan.getUpstreamCalls()).isEqualTo(5);
+    }
+
+    private static RbacDocument document(Map<String, String> scopes, RoleDefinition... roles) {
+        RbacDocument document = new RbacDocument();
+        document.setScopes(scopes);
+        document.setRoles(List.of(roles));
+        return document;
+    }
+
+    private static org.assertj.core.groups.Tuple tuple(Object... values) {
+        return org.assertj.core.groups.Tuple.tuple(values);
+    }
+}
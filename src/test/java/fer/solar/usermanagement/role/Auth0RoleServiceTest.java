@@ -1,8 +1,11 @@
 package fer.solar.usermanagement.role;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -10,7 +13,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.Collections;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
@@ -18,7 +26,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 
 import com.auth0.client.mgmt.ManagementAPI;
 import com.auth0.client.mgmt.RolesEntity;
@@ -26,12 +36,17 @@ import com.auth0.client.mgmt.filter.PageFilter;
 import com.auth0.client.mgmt.filter.RolesFilter;
 import com.auth0.json.mgmt.permissions.Permission;
 import com.auth0.json.mgmt.permissions.PermissionsPage;
+import com.auth0.json.mgmt.resourceserver.Scope;
 import com.auth0.json.mgmt.roles.Role;
 import com.auth0.json.mgmt.roles.RolesPage;
 
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.util.FieldSelection;
 import fer.solar.usermanagement.config.Auth0Config;
 import fer.solar.usermanagement.role.dto.CreateRoleRequest;
+import fer.solar.usermanagement.role.dto.RolePermissionsResult;
 import fer.solar.usermanagement.role.dto.RoleResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.test.StepVerifier;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +55,10 @@ public class Auth0RoleServiceTest {
     @Mock
     private Auth0Config auth0Config;
 
+    @Spy
+    private Auth0CallExecutor auth0Calls = new Auth0CallExecutor(new SimpleMeterRegistry(),
+            new StaticListableBeanFactory().getBeanProvider(Tracer.class), 16);
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private ManagementAPI managementAPI;
 
@@ -205,6 +224,37 @@ public class Auth0RoleServiceTest {
         verify(auth0Config, times(3)).getRefreshedManagementAPI();
     }
 
+    @Test
+    void listRoles_should_notFetchPermissions_when_permissionsAreNotIncluded() throws Exception {
+        Role role1 = mock(Role.class);
+        when(role1.getId()).thenReturn("role_1");
+        when(role1.getName()).thenReturn("Only Role");
+
+        when(auth0Config.getRefreshedManagementAPI()).thenReturn(managementAPI);
+        RolesEntity rolesEntityMockInstance = managementAPI.roles();
+
+        RolesPage rolesPage = mock(RolesPage.class);
+        when(rolesPage.getItems()).thenReturn(Collections.singletonList(role1));
+        when(rolesPage.getTotal()).thenReturn(1);
+        when(rolesEntityMockInstance.list(any(RolesFilter.class)).execute().getBody())
+            .thenReturn(rolesPage);
+
+        StepVerifier.create(auth0RoleService.listRoles(0, 10, FieldSelection.of("id,name", "")))
+                .expectNextMatches(response -> {
+                    assertThat(response.getContent()).hasSize(1);
+                    RoleResponse role = response.getContent().get(0);
+                    assertThat(role.getId()).isEqualTo("role_1");
+                    assertThat(role.getName()).isEqualTo("Only Role");
+                    assertThat(role.getDescription()).isNull();
+                    assertThat(role.getPermissions()).isNull();
+                    return true;
+                })
+                .verifyComplete();
+
+        verify(rolesEntityMockInstance, never()).listPermissions(any(), any(PageFilter.class));
+        verify(auth0Config).getRefreshedManagementAPI();
+    }
+
     @Test
     void listRoles_should_throwRuntimeException_when_apiCallFails() throws Exception {
         int page = 0;
@@ -335,4 +385,99 @@ public class Auth0RoleServiceTest {
         verify(auth0Config).getRefreshedManagementAPI();
     }
 
+    @Test
+    void updateRolePermissions_should_sendOnlyDifferences_when_rolesAreUpdatedTogether() throws Exception {
+        ReflectionTestUtils.setField(auth0RoleService, "bulkConcurrency", 4);
+        when(auth0Config.getRefreshedManagementAPI()).thenReturn(managementAPI);
+        when(auth0Config.getApiGatewayIdentifier()).thenReturn("api");
+        when(managementAPI.resourceServers().get("api").execute().getBody().getScopes())
+                .thenReturn(List.of(new Scope("read:data"), new Scope("write:data"), new Scope("export:data")));
+        RolesEntity rolesEntityMockInstance = managementAPI.roles();
+        PermissionsPage adminPermissions = mock(PermissionsPage.class);
+        when(adminPermissions.getItems()).thenReturn(List.of(permission("read:data"), permission("write:data")));
+        when(rolesEntityMockInstance.listPermissions(eq("role_admin"), any(PageFilter.class)).execute().getBody())
+                .thenReturn(adminPermissions);
+        PermissionsPage viewerPermissions = mock(PermissionsPage.class);
+        when(viewerPermissions.getItems()).thenReturn(List.of(permission("read:data")));
+        when(rolesEntityMockInstance.listPermissions(eq("role_viewer"), any(PageFilter.class)).execute().getBody())
+                .thenReturn(viewerPermissions);
+
+        Map<String, List<String>> request = new LinkedHashMap<>();
+        request.put("role_viewer", List.of("read:data"));
+        request.put("role_admin", List.of("read:data", "export:data"));
+
+        StepVerifier.create(auth0RoleService.updateRolePermissions(request))
+                .assertNext(response -> {
+                    assertThat(response.getResults()).extracting(RolePermissionsResult::getRoleId, RolePermissionsResult::getStatus)
+                            .containsExactly(
+                                    org.assertj.core.groups.Tuple.tuple("role_admin", RolePermissionsResult.Status.UPDATED),
+                                    org.assertj.core.groups.Tuple.tuple("role_viewer", RolePermissionsResult.Status.UNCHANGED));
+                    assertThat(response.getResults().get(0).getAddedPermissions()).containsExactly("export:data");
+                    assertThat(response.getResults().get(0).getRemovedPermissions()).containsExactly("write:data");
+                })
+                .verifyComplete();
+
+        verify(rolesEntityMockInstance).addPermissions(eq("role_admin"),
+                argThat(permissions -> permissions.size() == 1 && "export:data".equals(permissions.get(0).getName())));
+        verify(rolesEntityMockInstance).removePermissions(eq("role_admin"),
+                argThat(permissions -> permissions.size() == 1 && "write:data".equals(permissions.get(0).getName())));
+        verify(rolesEntityMockInstance, never()).addPermissions(eq("role_viewer"), anyList());
+        verify(rolesEntityMockInstance, never()).removePermissions(eq("role_viewer"), anyList());
+    }
+
+    @Test
+    void updateRolePermissions_should_keepOtherApisPermissions_when_roleAlsoHoldsThem() throws Exception {
+        ReflectionTestUtils.setField(auth0RoleService, "bulkConcurrency", 4);
+        when(auth0Config.getRefreshedManagementAPI()).thenReturn(managementAPI);
+        when(auth0Config.getApiGatewayIdentifier()).thenReturn("api");
+        when(managementAPI.resourceServers().get("api").execute().getBody().getScopes())
+                .thenReturn(List.of(new Scope("read:data"), new Scope("write:data")));
+        RolesEntity rolesEntityMockInstance = managementAPI.roles();
+        PermissionsPage adminPermissions = mock(PermissionsPage.class);
+        when(adminPermissions.getItems()).thenReturn(List.of(
+                permission("read:data"), permission("read:data", "billing-api"), permission("manage:invoices", "billing-api")));
+        when(rolesEntityMockInstance.listPermissions(eq("role_admin"), any(PageFilter.class)).execute().getBody())
+                .thenReturn(adminPermissions);
+
+        StepVerifier.create(auth0RoleService.updateRolePermissions(Map.of("role_admin", List.of("read:data", "write:data"))))
+                .assertNext(response -> assertThat(response.getResults()).singleElement().satisfies(result -> {
+                    assertThat(result.getStatus()).isEqualTo(RolePermissionsResult.Status.UPDATED);
+                    assertThat(result.getAddedPermissions()).containsExactly("write:data");
+                    assertThat(result.getRemovedPermissions()).isEmpty();
+                }))
+                .verifyComplete();
+
+        verify(rolesEntityMockInstance).addPermissions(eq("role_admin"),
+                argThat(permissions -> permissions.size() == 1 && "write:data".equals(permissions.get(0).getName())));
+        verify(rolesEntityMockInstance, never()).removePermissions(eq("role_admin"), anyList());
+    }
+
+    @Test
+    void updateRolePermissions_should_failOnlyThatRole_when_permissionIsUnknown() throws Exception {
+        ReflectionTestUtils.setField(auth0RoleService, "bulkConcurrency", 4);
+        when(auth0Config.getRefreshedManagementAPI()).thenReturn(managementAPI);
+        when(auth0Config.getApiGatewayIdentifier()).thenReturn("api");
+        when(managementAPI.resourceServers().get("api").execute().getBody().getScopes())
+                .thenReturn(List.of(new Scope("read:data")));
+
+        StepVerifier.create(auth0RoleService.updateRolePermissions(Map.of("role_admin", List.of("read:data", "delete:all"))))
+                .assertNext(response -> assertThat(response.getResults()).singleElement().satisfies(result -> {
+                    assertThat(result.getStatus()).isEqualTo(RolePermissionsResult.Status.FAILED);
+                    assertThat(result.getError()).contains("delete:all");
+                }))
+                .verifyComplete();
+
+        verify(managementAPI.roles(), never()).listPermissions(eq("role_admin"), any(PageFilter.class));
+    }
+
+    private static Permission permission(String name) {
+        return permission(name, "api");
+    }
+
+    private static Permission permission(String name, String resourceServerId) {
+        Permission permission = new Permission();
+        permission.setName(name);
+        permission.setResourceServerId(resourceServerId);
+        return permission;
+    }
 }
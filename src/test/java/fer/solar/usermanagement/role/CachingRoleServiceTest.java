@@ -0,0 +1,187 @@
+package fer.solar.usermanagement.role;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fer.solar.usermanagement.authorization.EffectivePermissionIndex;
+import fer.solar.usermanagement.common.auth0.Auth0CallCount;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.auth0.Auth0Priority;
+import fer.solar.usermanagement.common.auth0.Deadline;
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.common.cache.CacheRegistry;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.role.dto.PaginatedRoleResponse;
+import fer.solar.usermanagement.role.dto.RoleResponse;
+import fer.solar.usermanagement.role.dto.UpdateRoleRequest;
+import fer.solar.usermanagement.sync.DirectorySnapshotHolder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingRoleServiceTest {
+
+    @Mock
+    private Auth0RoleService delegate;
+
+    @Mock
+    private DirectorySnapshotHolder snapshotHolder;
+
+    @Mock
+    private EffectivePermissionIndex permissionIndex;
+
+    private CachingRoleService cachingRoleService;
+
+    @BeforeEach
+    void setUp() {
+        CacheRegistry cacheRegistry = new CacheRegistry();
+        ReflectionTestUtils.setField(cacheRegistry, "rolesFreshFor", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(cacheRegistry, "rolesMaxStale", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(cacheRegistry, "maxEntries", 100L);
+        cachingRoleService = new CachingRoleService(delegate, cacheRegistry, snapshotHolder, permissionIndex);
+    }
+
+    @Test
+    void getRoleById_should_loadWithCallersDeadlineAndPriority_when_roleIsNotCached() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(2));
+        AtomicReference<ContextView> loadContext = new AtomicReference<>();
+        RoleResponse role = RoleResponse.builder().id("role-1").name("Admin").build();
+        when(delegate.getRoleById("role-1")).thenReturn(Mono.deferContextual(context -> {
+            loadContext.set(context);
+            return Mono.just(role);
+        }));
+
+        StepVerifier.create(cachingRoleService.getRoleById("role-1")
+                        .contextWrite(Context.of(Deadline.CONTEXT_KEY, deadline,
+                                Auth0Priority.CONTEXT_KEY, Auth0Priority.BULK_JOB)))
+                .expectNext(role)
+                .verifyComplete();
+
+        assertThat(Deadline.from(loadContext.get())).contains(deadline);
+        assertThat(loadContext.get().<Auth0Priority>get(Auth0Priority.CONTEXT_KEY)).isEqualTo(Auth0Priority.BULK_JOB);
+    }
+
+    @Test
+    void listRoles_should_countLoadCallsTowardsCaller_when_pageIsNotCached() {
+        Auth0CallCount callCount = new Auth0CallCount();
+        when(delegate.listRoles(0, 10, FieldSelection.all())).thenReturn(Mono.deferContextual(context -> {
+            Auth0CallCount.increment(context);
+            Auth0CallCount.increment(context);
+            return Mono.just(PaginatedRoleResponse.builder().build());
+        }));
+
+        StepVerifier.create(cachingRoleService.listRoles(0, 10, FieldSelection.all())
+                        .contextWrite(Context.of(Auth0CallCount.CONTEXT_KEY, callCount)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    void listRoles_should_traceLoadCallsUnderRequestSpan_when_pageIsNotCached() {
+        SimpleTracer tracer = new SimpleTracer();
+        Auth0CallExecutor auth0Calls = new Auth0CallExecutor(new SimpleMeterRegistry(),
+                new StaticListableBeanFactory(Map.of("tracer", tracer)).getBeanProvider(Tracer.class), 16);
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+        Observation request = Observation.start("http.server.requests", observationRegistry);
+        Span requestSpan = request.getContextView()
+                .<TracingObservationHandler.TracingContext>get(TracingObservationHandler.TracingContext.class).getSpan();
+        when(delegate.listRoles(0, 10, FieldSelection.all())).thenReturn(
+                auth0Calls.call(Auth0Operation.ROLES_LIST, () -> "page")
+                        .then(auth0Calls.call(Auth0Operation.ROLES_LIST_PERMISSIONS, () -> "permissions"))
+                        .thenReturn(PaginatedRoleResponse.builder().build()));
+
+        StepVerifier.create(cachingRoleService.listRoles(0, 10, FieldSelection.all())
+                        .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, request)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(tracer.getSpans())
+                .filteredOn(span -> span.getName() != null && span.getName().startsWith("auth0 roles."))
+                .extracting(SimpleSpan::getName, SimpleSpan::getParentId)
+                .containsExactlyInAnyOrder(
+                        tuple("auth0 roles.list", requestSpan.context().spanId()),
+                        tuple("auth0 roles.listPermissions", requestSpan.context().spanId()));
+    }
+
+    @Test
+    void listRoles_should_cancelLoad_when_noCallerIsWaiting() {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        PaginatedRoleResponse page = PaginatedRoleResponse.builder().build();
+        when(delegate.listRoles(0, 10, FieldSelection.all())).thenReturn(Mono.defer(() -> loads.incrementAndGet() == 1
+                ? Mono.<PaginatedRoleResponse>never().doOnCancel(() -> cancelled.set(true))
+                : Mono.just(page)));
+
+        Mono<PaginatedRoleResponse> first = cachingRoleService.listRoles(0, 10, FieldSelection.all());
+        StepVerifier.create(first).thenCancel().verify();
+
+        assertThat(cancelled).isTrue();
+        StepVerifier.create(cachingRoleService.listRoles(0, 10, FieldSelection.all()))
+                .expectNext(page)
+                .verifyComplete();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void listRoles_should_keepLoading_when_anotherCallerIsStillWaiting() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(delegate.listRoles(0, 10, FieldSelection.all()))
+                .thenReturn(Mono.<PaginatedRoleResponse>never().doOnCancel(() -> cancelled.set(true)));
+
+        var waiting = cachingRoleService.listRoles(0, 10, FieldSelection.all()).subscribe();
+        StepVerifier.create(cachingRoleService.listRoles(0, 10, FieldSelection.all())).thenCancel().verify();
+
+        assertThat(cancelled).isFalse();
+        waiting.dispose();
+        assertThat(cancelled).isTrue();
+    }
+
+    @Test
+    void updateRole_should_markOnlyThatRoleDirty_when_updateCompletes() {
+        RoleResponse role = RoleResponse.builder().id("role-1").name("Admin").permissions(List.of("read:data")).build();
+        UpdateRoleRequest request = new UpdateRoleRequest();
+        when(delegate.updateRole("role-1", request)).thenReturn(Mono.just(role));
+
+        StepVerifier.create(cachingRoleService.updateRole("role-1", request))
+                .expectNext(role)
+                .verifyComplete();
+
+        verify(snapshotHolder).markDirty(CacheGroup.ROLES, List.of("role-1"));
+        verify(snapshotHolder, never()).markDirty(any(CacheGroup[].class));
+    }
+}
@@ -0,0 +1,89 @@
+package fer.solar.usermanagement.role;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fer.solar.usermanagement.common.web.ConditionalResponses;
+import fer.solar.usermanagement.common.web.IdempotentRequests;
+import fer.solar.usermanagement.role.dto.RoleResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RoleControllerTest {
+
+    private static final RoleResponse VIEWER = RoleResponse.builder()
+            .id("role_viewer").name("Viewer").permissions(List.of("read:data")).build();
+
+    @Mock
+    private RoleService roleService;
+    @Mock
+    private IdempotentRequests idempotentRequests;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        RoleController controller = new RoleController(roleService,
+                new ConditionalResponses(new ObjectMapper()), idempotentRequests);
+        client = WebTestClient.bindToController(controller).build();
+    }
+
+    @Test
+    void getRoleById_should_returnStrongETagAndNoCache_when_roleExists() {
+        when(roleService.getRoleById("role_viewer")).thenReturn(Mono.just(VIEWER));
+
+        client.get().uri("/api/v1/roles/{roleId}", "role_viewer")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, etag -> assertThat(etag).matches("\"[0-9a-f]{32}\""))
+                .expectHeader().cacheControl(CacheControl.noCache().cachePrivate())
+                .expectBody().jsonPath("$.name").isEqualTo("Viewer");
+    }
+
+    @Test
+    void getRoleById_should_return304WithoutBody_when_ifNoneMatchMatches() {
+        when(roleService.getRoleById("role_viewer")).thenReturn(Mono.just(VIEWER));
+        String etag = etagOf("role_viewer");
+
+        client.get().uri("/api/v1/roles/{roleId}", "role_viewer")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectHeader().cacheControl(CacheControl.noCache().cachePrivate())
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void getRoleById_should_return200WithNewETag_when_roleChangedSinceIfNoneMatch() {
+        RoleResponse changed = RoleResponse.builder()
+                .id("role_viewer").name("Viewer").permissions(List.of("read:data", "read:logs")).build();
+        when(roleService.getRoleById("role_viewer")).thenReturn(Mono.just(VIEWER), Mono.just(changed));
+        String etag = etagOf("role_viewer");
+
+        client.get().uri("/api/v1/roles/{roleId}", "role_viewer")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, newETag -> assertThat(newETag).isNotEqualTo(etag))
+                .expectBody().jsonPath("$.permissions.length()").isEqualTo(2);
+    }
+
+    private String etagOf(String roleId) {
+        return client.get().uri("/api/v1/roles/{roleId}", roleId)
+                .exchange()
+                .returnResult(RoleResponse.class)
+                .getResponseHeaders().getETag();
+    }
+}
@@ -0,0 +1,89 @@
+package fer.solar.usermanagement.sync;
+
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class DirectorySnapshotHolderTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DirectorySnapshotHolder snapshotHolder;
+    private DirectorySnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshotHolder = new DirectorySnapshotHolder(eventPublisher);
+        ReflectionTestUtils.setField(snapshotHolder, "maxAge", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(snapshotHolder, "restoredMaxAge", Duration.ofHours(24));
+        snapshot = snapshot(1, Instant.now().minusSeconds(60));
+        snapshotHolder.publish(snapshot, SnapshotDelta.between(null, snapshot));
+    }
+
+    @Test
+    void isClean_should_keepUntouchedEntriesClean_when_otherEntryWasWritten() {
+        snapshotHolder.markDirty(CacheGroup.ROLES, List.of("role_admin"));
+
+        assertThat(snapshotHolder.isClean(snapshot, CacheGroup.ROLES, "role_admin")).isFalse();
+        assertThat(snapshotHolder.isClean(snapshot, CacheGroup.ROLES, "role_viewer")).isTrue();
+        assertThat(snapshotHolder.fresh()).contains(snapshot);
+    }
+
+    @Test
+    void readable_should_notServeListing_when_anyEntryOfTheTypeWasWritten() {
+        snapshotHolder.markDirty(CacheGroup.ROLES, List.of("role_admin"));
+
+        assertThat(snapshotHolder.readable(CacheGroup.ROLES)).isEmpty();
+        assertThat(snapshotHolder.readable(CacheGroup.USERS)).contains(snapshot);
+    }
+
+    @Test
+    void readable_should_notServeListingButKeepEntries_when_entryWasCreated() {
+        snapshotHolder.markListingDirty(CacheGroup.ROLES);
+
+        assertThat(snapshotHolder.readable(CacheGroup.ROLES)).isEmpty();
+        assertThat(snapshotHolder.isClean(snapshot, CacheGroup.ROLES, "role_admin")).isTrue();
+    }
+
+    @Test
+    void isClean_should_treatEveryEntryAsDirty_when_wholeTypeWasMarked() {
+        snapshotHolder.markDirty(CacheGroup.ROLES);
+
+        assertThat(snapshotHolder.isClean(snapshot, CacheGroup.ROLES, "role_viewer")).isFalse();
+        assertThat(snapshotHolder.readable(CacheGroup.ROLES)).isEmpty();
+    }
+
+    @Test
+    void readable_should_serveEverythingAgain_when_syncStartedAfterTheWrite() {
+        snapshotHolder.markDirty(CacheGroup.ROLES, List.of("role_admin"));
+        DirectorySnapshot next = snapshot(2, Instant.now().plusMillis(1));
+
+        snapshotHolder.publish(next, SnapshotDelta.between(snapshot, next));
+
+        assertThat(snapshotHolder.isClean(next, CacheGroup.ROLES, "role_admin")).isTrue();
+        assertThat(snapshotHolder.readable(CacheGroup.ROLES)).contains(next);
+    }
+
+    private static DirectorySnapshot snapshot(long version, Instant startedAt) {
+        return DirectorySnapshot.of(version, startedAt, startedAt, true,
+                Map.of(),
+                Map.of("role_admin", new RoleEntry("role_admin", "Admin", null),
+                        "role_viewer", new RoleEntry("role_viewer", "Viewer", null)),
+                Map.of(), Map.of(), Map.of());
+    }
+}
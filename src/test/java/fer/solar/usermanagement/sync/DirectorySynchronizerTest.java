@@ -0,0 +1,167 @@
+package fer.solar.usermanagement.sync;
+
+import com.auth0.client.mgmt.ManagementAPI;
+import com.auth0.client.mgmt.filter.PageFilter;
+import com.auth0.client.mgmt.filter.RolesFilter;
+import com.auth0.client.mgmt.filter.UserFilter;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.mgmt.permissions.Permission;
+import com.auth0.json.mgmt.permissions.PermissionsPage;
+import com.auth0.json.mgmt.resourceserver.ResourceServer;
+import com.auth0.json.mgmt.resourceserver.Scope;
+import com.auth0.json.mgmt.roles.Role;
+import com.auth0.json.mgmt.roles.RolesPage;
+import com.auth0.json.mgmt.users.User;
+import com.auth0.json.mgmt.users.UsersPage;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.config.Auth0Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DirectorySynchronizerTest {
+
+    private static final String API_IDENTIFIER = "test-api-identifier";
+
+    @Mock
+    private Auth0Config auth0Config;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private ManagementAPI managementAPI;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DirectorySnapshotHolder snapshotHolder;
+    private DirectorySynchronizer synchronizer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        snapshotHolder = new DirectorySnapshotHolder(eventPublisher);
+        synchronizer = new DirectorySynchronizer(auth0Config, snapshotHolder, meterRegistry, new Auth0CallExecutor(meterRegistry,
+                new StaticListableBeanFactory().getBeanProvider(Tracer.class), 16));
+        ReflectionTestUtils.setField(synchronizer, "pageSize", 2);
+        ReflectionTestUtils.setField(synchronizer, "concurrency", 2);
+        synchronizer.registerMeters();
+
+        when(auth0Config.getRefreshedManagementAPI()).thenReturn(managementAPI);
+        when(auth0Config.getApiGatewayIdentifier()).thenReturn(API_IDENTIFIER);
+    }
+
+    @Test
+    void synchronize_should_publishSnapshotWithMembershipsAndPermissions_when_allApiCallsSucceed() throws Auth0Exception {
+        mockDirectory(Collections.singletonList(permission("read:data")));
+
+        StepVerifier.create(synchronizer.synchronize())
+                .assertNext(snapshot -> {
+                    assertThat(snapshot.getVersion()).isEqualTo(1);
+                    assertThat(snapshot.isUsersComplete()).isTrue();
+                    assertThat(snapshot.getUsers()).containsOnlyKeys("user|1", "user|2", "user|3");
+                    assertThat(snapshot.getRoles()).containsOnlyKeys("role_1");
+                    assertThat(snapshot.rolesOfUser("user|3")).containsExactly("role_1");
+                    assertThat(snapshot.rolesOfUser("user|1")).isEmpty();
+                    assertThat(snapshot.permissionsOfRole("role_1")).containsExactly("read:data");
+                    assertThat(snapshot.getScopes()).containsOnlyKeys("read:data", "write:data");
+                })
+                .verifyComplete();
+
+        assertThat(snapshotHolder.current()).isPresent();
+        assertThat(meterRegistry.get("usermanagement.sync.items").tag("type", "users").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("usermanagement.sync.duration").tag("outcome", "success").timer().count()).isEqualTo(1);
+        verify(eventPublisher).publishEvent(any(SnapshotPublishedEvent.class));
+    }
+
+    @Test
+    void synchronize_should_keepVersion_when_nothingChanged_and_bumpVersion_when_deltaDetected() throws Auth0Exception {
+        mockDirectory(Collections.singletonList(permission("read:data")));
+        StepVerifier.create(synchronizer.synchronize()).expectNextCount(1).verifyComplete();
+        StepVerifier.create(synchronizer.synchronize())
+                .assertNext(snapshot -> assertThat(snapshot.getVersion()).isEqualTo(1))
+                .verifyComplete();
+
+        mockDirectory(Arrays.asList(permission("read:data"), permission("write:data")));
+        StepVerifier.create(synchronizer.synchronize())
+                .assertNext(snapshot -> {
+                    assertThat(snapshot.getVersion()).isEqualTo(2);
+                    assertThat(snapshot.permissionsOfRole("role_1")).containsExactlyInAnyOrder("read:data", "write:data");
+                })
+                .verifyComplete();
+
+        assertThat(meterRegistry.get("usermanagement.sync.delta")
+                .tags("type", "role_permissions", "change", "added").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void synchronize_should_failAndKeepPreviousSnapshot_when_apiCallFails() throws Auth0Exception {
+        when(managementAPI.users().list(any(UserFilter.class)).execute())
+                .thenThrow(new Auth0Exception("Auth0 unavailable"));
+
+        StepVerifier.create(synchronizer.synchronize())
+                .expectErrorMessage("Failed to fetch users (page 0) from Auth0")
+                .verify();
+
+        assertThat(snapshotHolder.current()).isEmpty();
+        assertThat(synchronizer.isRunning()).isFalse();
+    }
+
+    private void mockDirectory(List<Permission> rolePermissions) throws Auth0Exception {
+        when(managementAPI.users().list(argThat(filter -> isPage(filter, 0))).execute().getBody())
+                .thenReturn(new UsersPage(0, 2, 3, 2, Arrays.asList(user("user|1"), user("user|2"))));
+        when(managementAPI.users().list(argThat(filter -> isPage(filter, 1))).execute().getBody())
+                .thenReturn(new UsersPage(2, 1, 3, 2, Collections.singletonList(user("user|3"))));
+
+        Role role = new Role();
+        role.setName("Viewer");
+        ReflectionTestUtils.setField(role, "id", "role_1");
+        when(managementAPI.roles().list(any(RolesFilter.class)).execute().getBody())
+                .thenReturn(new RolesPage(0, 1, 1, 2, Collections.singletonList(role)));
+        when(managementAPI.roles().listUsers(eq("role_1"), any(PageFilter.class)).execute().getBody())
+                .thenReturn(new UsersPage(null, null, null, null, null, Collections.singletonList(user("user|3"))));
+        when(managementAPI.roles().listPermissions(eq("role_1"), any(PageFilter.class)).execute().getBody())
+                .thenReturn(new PermissionsPage(0, rolePermissions.size(), rolePermissions.size(), 2, rolePermissions));
+
+        ResourceServer server = new ResourceServer();
+        server.setScopes(Arrays.asList(new Scope("read:data"), new Scope("write:data")));
+        when(managementAPI.resourceServers().get(API_IDENTIFIER).execute().getBody()).thenReturn(server);
+    }
+
+    private boolean isPage(UserFilter filter, int page) {
+        return filter != null && Integer.valueOf(page).equals(filter.getAsMap().get("page"));
+    }
+
+    private User user(String id) {
+        User user = new User("conn");
+        user.setId(id);
+        user.setName(id);
+        return user;
+    }
+
+    private Permission permission(String name) {
+        Permission permission = new Permission();
+        permission.setName(name);
+        return permission;
+    }
+}
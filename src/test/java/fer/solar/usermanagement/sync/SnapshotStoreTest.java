@@ -0,0 +1,121 @@
+package fer.solar.usermanagement.sync;
+
+import fer.solar.usermanagement.common.cache.CacheGroup;
+import fer.solar.usermanagement.sync.DirectorySnapshot.RoleEntry;
+import fer.solar.usermanagement.sync.DirectorySnapshot.UserEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private DirectorySynchronizer synchronizer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private Path snapshotFile;
+    private DirectorySnapshotHolder snapshotHolder;
+    private SnapshotStore snapshotStore;
+
+    @BeforeEach
+    void setUp() {
+        snapshotFile = tempDir.resolve("nested/directory.snapshot");
+        snapshotHolder = new DirectorySnapshotHolder(eventPublisher);
+        ReflectionTestUtils.setField(snapshotHolder, "maxAge", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(snapshotHolder, "restoredMaxAge", Duration.ofHours(24));
+        snapshotStore = new SnapshotStore(snapshotHolder, synchronizer);
+        ReflectionTestUtils.setField(snapshotStore, "enabled", true);
+        ReflectionTestUtils.setField(snapshotStore, "path", snapshotFile);
+    }
+
+    @Test
+    void load_should_returnEqualSnapshot_when_snapshotWasWritten() throws IOException {
+        DirectorySnapshot snapshot = snapshot(7, Instant.parse("2024-01-01T10:00:00Z"));
+
+        snapshotStore.write(snapshot);
+
+        assertThat(snapshotStore.load()).hasValueSatisfying(loaded -> {
+            assertThat(loaded.getVersion()).isEqualTo(7);
+            assertThat(loaded.getCompletedAt()).isEqualTo(snapshot.getCompletedAt());
+            assertThat(loaded.isUsersComplete()).isFalse();
+            assertThat(loaded.getUsers()).isEqualTo(snapshot.getUsers());
+            assertThat(loaded.getRoles()).isEqualTo(snapshot.getRoles());
+            assertThat(loaded.getRoleMembers()).isEqualTo(snapshot.getRoleMembers());
+            assertThat(loaded.getRolePermissions()).isEqualTo(snapshot.getRolePermissions());
+            assertThat(loaded.getScopes()).isEqualTo(snapshot.getScopes());
+            assertThat(SnapshotDelta.between(snapshot, loaded).isEmpty()).isTrue();
+        });
+        try (var files = Files.list(snapshotFile.getParent())) {
+            assertThat(files).containsExactly(snapshotFile);
+        }
+    }
+
+    @Test
+    void load_should_returnEmpty_when_fileIsCorrupted() throws IOException {
+        snapshotStore.write(snapshot(1, Instant.now()));
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        bytes[bytes.length - 3] ^= 0x5A;
+        Files.write(snapshotFile, bytes);
+
+        assertThat(snapshotStore.load()).isEmpty();
+    }
+
+    @Test
+    void restoreOnStartup_should_serveRestoredSnapshotAndStartSync_when_fileIsOlderThanMaxAge() throws IOException {
+        snapshotStore.write(snapshot(3, Instant.now().minus(Duration.ofHours(2))));
+
+        snapshotStore.restoreOnStartup();
+
+        assertThat(snapshotHolder.readable(CacheGroup.USERS, CacheGroup.ROLES))
+                .hasValueSatisfying(restored -> assertThat(restored.getVersion()).isEqualTo(3));
+        verify(eventPublisher).publishEvent(any(SnapshotPublishedEvent.class));
+        verify(synchronizer).scheduledSync();
+    }
+
+    @Test
+    void onSnapshotPublished_should_notRewriteFile_when_versionIsUnchanged() throws IOException {
+        DirectorySnapshot snapshot = snapshot(4, Instant.now());
+        snapshotStore.onSnapshotPublished(new SnapshotPublishedEvent(snapshot, SnapshotDelta.between(null, snapshot)));
+        Files.delete(snapshotFile);
+
+        snapshotStore.onSnapshotPublished(new SnapshotPublishedEvent(snapshot, SnapshotDelta.between(snapshot, snapshot)));
+
+        assertThat(snapshotFile).doesNotExist();
+        verify(synchronizer, never()).scheduledSync();
+    }
+
+    private DirectorySnapshot snapshot(long version, Instant completedAt) {
+        return DirectorySnapshot.of(version, completedAt.minusSeconds(5), completedAt, false,
+                Map.of(
+                        "auth0|1", new UserEntry("auth0|1", "ana@example.com", "Ana", null, "2024-01-01T09:00:00Z"),
+                        "auth0|2", new UserEntry("auth0|2", "ivo@example.com", "Ivo Ivić", "https://example.com/p.png", null)),
+                Map.of("role_1", new RoleEntry("role_1", "Admin", null)),
+                Map.of("role_1", Set.of("auth0|1", "auth0|2")),
+                Map.of("role_1", Set.of("read:data", "write:data")),
+                Map.of("read:data", "Read data", "write:data", "Write data"));
+    }
+}
@@ -13,21 +13,33 @@ import com.auth0.json.mgmt.users.User;
 import com.auth0.json.mgmt.users.UsersPage;
 import com.auth0.net.Request;
 import com.auth0.net.Response;
+import fer.solar.usermanagement.common.auth0.Auth0CallExecutor;
+import fer.solar.usermanagement.common.auth0.Auth0Operation;
+import fer.solar.usermanagement.common.batch.BatchDeleteResult;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.compensation.CompensationLog;
 import fer.solar.usermanagement.config.Auth0Config;
 import fer.solar.usermanagement.user.dto.CreateUserRequest;
 import fer.solar.usermanagement.user.dto.CreateUserResponse;
 import fer.solar.usermanagement.user.dto.PaginatedUserResponse;
 import fer.solar.usermanagement.user.dto.UserResponse;
 import fer.solar.usermanagement.user.dto.RoleInfo;
+import fer.solar.usermanagement.user.dto.UpdateUserRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -41,6 +53,7 @@ import java.util.Map;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
@@ -53,6 +66,11 @@ class Auth0UserServiceTest {
 
     @Mock
     private Auth0Config auth0Config;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private CompensationLog compensationLog;
+    @Spy
+    private Auth0CallExecutor auth0Calls = new Auth0CallExecutor(new SimpleMeterRegistry(),
+            new StaticListableBeanFactory().getBeanProvider(Tracer.class), 16);
     @Mock
     private ManagementAPI managementAPI;
     @Mock
@@ -91,6 +109,7 @@ class Auth0UserServiceTest {
     private ArgumentCaptor<UserFilter> userFilterCaptor;
 
     private CreateUserRequest defaultCreateRequest;
+    private CompensationLog.Operation createOperation;
     private User createdUserMock;
     private final String expectedTicketUrl = "https://your-tenant.auth0.com/tickets/tic_abcdef123456";
 
@@ -113,6 +132,10 @@ class Auth0UserServiceTest {
         createdUserMock = new User(defaultCreateRequest.getConnection());
         createdUserMock.setEmail(defaultCreateRequest.getEmail());
         createdUserMock.setId("auth0|usr_test_123456");
+
+        createOperation = mock(CompensationLog.Operation.class);
+        when(createOperation.getId()).thenReturn("op-create-1");
+        when(compensationLog.begin(eq(UserOperationCompensator.CREATE_USER), anyMap())).thenReturn(createOperation);
     }
 
     private void setupListUsersTestData() {
@@ -143,6 +166,7 @@ class Auth0UserServiceTest {
         User capturedUser = userCaptor.getValue();
         assertThat(capturedUser.getEmail()).isEqualTo(defaultCreateRequest.getEmail());
         assertThat(capturedUser.isEmailVerified()).isFalse();
+        assertThat(capturedUser.getAppMetadata()).containsEntry(UserOperationCompensator.CREATED_BY_OPERATION, "op-create-1");
 
         assertThat(userIdCaptor.getAllValues()).contains(createdUserMock.getId());
         assertThat(rolesCaptor.getValue()).isEqualTo(defaultCreateRequest.getRoleIds());
@@ -152,6 +176,9 @@ class Auth0UserServiceTest {
         verify(createTicketRequestMock).addParameter("ttl_sec", 86400);
 
         verify(users, never()).delete(anyString());
+        verify(auth0Calls).call(eq(Auth0Operation.USERS_CREATE), any());
+        verify(auth0Calls).call(eq(Auth0Operation.USERS_ADD_ROLES), any());
+        verify(auth0Calls).call(eq(Auth0Operation.TICKETS_PASSWORD_CHANGE), any());
     }
 
     @Test
@@ -197,6 +224,8 @@ class Auth0UserServiceTest {
                 .verify();
 
         verify(users).delete(createdUserMock.getId());
+        verify(auth0Calls).call(eq(Auth0Operation.USERS_DELETE), any());
+        verify(createOperation).compensated();
     }
 
     @Test
@@ -240,6 +269,23 @@ class Auth0UserServiceTest {
         verify(users, never()).addRoles(anyString(), anyList());
         verify(tickets, never()).requestPasswordChange(any(PasswordChangeTicket.class));
         verify(users, never()).delete(anyString());
+        verify(createOperation).compensated();
+        verify(createOperation, never()).handOverToRecovery();
+    }
+
+    @Test
+    void createUser_should_leaveOperationToRecovery_when_userCreationFailsAmbiguously() throws Auth0Exception {
+        setupCreateUserTestData();
+        APIException createException = createApiException("Service unavailable", 503);
+        mockUserCreationFailure(createException);
+
+        StepVerifier.create(auth0UserService.createUser(defaultCreateRequest))
+                .expectErrorSatisfies(throwable -> assertThat(throwable).hasCause(createException))
+                .verify();
+
+        verify(users, never()).delete(anyString());
+        verify(createOperation).handOverToRecovery();
+        verify(createOperation, never()).compensated();
     }
 
     @Test
@@ -389,6 +435,56 @@ class Auth0UserServiceTest {
         verify(users).listRoles(eq(user2.getId()), isNull());
     }
 
+    @Test
+    void listUsers_should_skipRoleEnrichmentAndRequestOnlySelectedFields_when_fieldsAreRestricted() throws Auth0Exception {
+        setupListUsersTestData();
+        int page = 0;
+        int size = 10;
+
+        UsersPage usersPageResponse = mockUsersPage(Arrays.asList(user1, user2), 2L);
+        mockListUsersSuccess(usersPageResponse);
+
+        Mono<PaginatedUserResponse> resultMono = auth0UserService.listUsers(page, size, FieldSelection.of("id,email", null));
+
+        StepVerifier.create(resultMono)
+            .assertNext(response -> {
+                assertThat(response.getContent()).hasSize(2);
+                assertThat(response.getContent()).allSatisfy(resUser -> {
+                    assertThat(resUser.getId()).isNotNull();
+                    assertThat(resUser.getEmail()).isNotNull();
+                    assertThat(resUser.getName()).isNull();
+                    assertThat(resUser.getRoles()).isNull();
+                });
+            })
+            .verifyComplete();
+
+        verify(users).list(userFilterCaptor.capture());
+        assertThat(userFilterCaptor.getValue().getAsMap()).containsEntry("fields", "user_id,email");
+        assertThat(userFilterCaptor.getValue().getAsMap()).containsEntry("include_fields", true);
+        verify(users, never()).listRoles(anyString(), any());
+    }
+
+    @Test
+    void listUsers_should_enrichWithRoles_when_rolesAreExplicitlyIncluded() throws Auth0Exception {
+        setupListUsersTestData();
+        UsersPage usersPageResponse = mockUsersPage(Collections.singletonList(user1), 1L);
+        mockListUsersSuccess(usersPageResponse);
+        mockListRolesSuccess(user1.getId(), Arrays.asList("Role1"));
+
+        Mono<PaginatedUserResponse> resultMono = auth0UserService.listUsers(0, 10, FieldSelection.of("id", "roles"));
+
+        StepVerifier.create(resultMono)
+            .assertNext(response -> {
+                UserResponse resUser = response.getContent().get(0);
+                assertThat(resUser.getId()).isEqualTo(user1.getId());
+                assertThat(resUser.getEmail()).isNull();
+                assertThat(resUser.getRoles()).extracting(RoleInfo::getName).containsExactly("Role1");
+            })
+            .verifyComplete();
+
+        verify(users).listRoles(eq(user1.getId()), isNull());
+    }
+
     @Test
     void listUsers_should_calculatePaginationCorrectly_when_sizeIsZeroOrLess() throws Auth0Exception {
         setupListUsersTestData();
@@ -641,4 +737,116 @@ class Auth0UserServiceTest {
 
         verify(users).delete(eq(targetUserId));
     }
-} 
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleteUsers_should_reportEachUser_when_someDeletionsFail() throws Auth0Exception {
+        ReflectionTestUtils.setField(auth0UserService, "batchDeleteConcurrency", 2);
+        Request<Void> deleted = mock(Request.class);
+        Request<Void> missing = mock(Request.class);
+        Request<Void> failing = mock(Request.class);
+        when(users.delete("auth0|1")).thenReturn(deleted);
+        when(users.delete("auth0|2")).thenReturn(missing);
+        when(users.delete("auth0|3")).thenReturn(failing);
+        when(missing.execute()).thenThrow(new APIException("Not found", 404, null));
+        when(failing.execute()).thenThrow(new APIException("Too many requests", 429, null));
+
+        StepVerifier.create(auth0UserService.deleteUsers(List.of("auth0|1", "auth0|2", "auth0|3", "auth0|1")).collectList())
+                .assertNext(results -> {
+                    assertThat(results).hasSize(3);
+                    Map<String, BatchDeleteResult.Status> statuses = new HashMap<>();
+                    results.forEach(result -> statuses.put(result.getId(), result.getStatus()));
+                    assertThat(statuses).containsEntry("auth0|1", BatchDeleteResult.Status.DELETED)
+                            .containsEntry("auth0|2", BatchDeleteResult.Status.NOT_FOUND)
+                            .containsEntry("auth0|3", BatchDeleteResult.Status.FAILED);
+                })
+                .verifyComplete();
+
+        verify(users, times(1)).delete("auth0|1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateUser_should_leaveOperationToRecovery_when_reAddingRemovedRolesFails() throws Auth0Exception {
+        CompensationLog.Operation operation = mockViewerToAdminUpdate();
+        Request<Void> addAdmin = mock(Request.class);
+        Request<Void> reAddViewer = mock(Request.class);
+        when(users.addRoles("auth0|1", List.of("role_admin"))).thenReturn(addAdmin);
+        when(users.addRoles("auth0|1", List.of("role_viewer"))).thenReturn(reAddViewer);
+        when(addAdmin.execute()).thenThrow(createApiException("Role not found", 404));
+        when(reAddViewer.execute()).thenThrow(createApiException("Rollback failed", 500));
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setRoleIds(List.of("role_admin"));
+
+        StepVerifier.create(auth0UserService.updateUser("auth0|1", request))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        verify(operation).completeStep(eq("rolesRemoved"), isNull());
+        verify(operation).handOverToRecovery();
+        verify(operation, never()).compensated();
+        verify(operation, never()).complete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateUser_should_reAddRemovedRoles_when_addingRolesIsRejected() throws Auth0Exception {
+        CompensationLog.Operation operation = mockViewerToAdminUpdate();
+        Request<Void> addAdmin = mock(Request.class);
+        Request<Void> reAddViewer = mock(Request.class);
+        when(users.addRoles("auth0|1", List.of("role_admin"))).thenReturn(addAdmin);
+        when(users.addRoles("auth0|1", List.of("role_viewer"))).thenReturn(reAddViewer);
+        when(addAdmin.execute()).thenThrow(createApiException("Role not found", 404));
+        Response<Void> reAdded = createMockResponse(null);
+        when(reAddViewer.execute()).thenReturn(reAdded);
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setRoleIds(List.of("role_admin"));
+
+        StepVerifier.create(auth0UserService.updateUser("auth0|1", request))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        verify(reAddViewer).execute();
+        verify(operation).compensated();
+        verify(operation, never()).handOverToRecovery();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateUser_should_leaveOperationToRecovery_when_addingRolesFailsAmbiguously() throws Auth0Exception {
+        CompensationLog.Operation operation = mockViewerToAdminUpdate();
+        Request<Void> addAdmin = mock(Request.class);
+        when(users.addRoles("auth0|1", List.of("role_admin"))).thenReturn(addAdmin);
+        when(addAdmin.execute()).thenThrow(createApiException("Service Unavailable", 503));
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setRoleIds(List.of("role_admin"));
+
+        StepVerifier.create(auth0UserService.updateUser("auth0|1", request))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        // Re-adding the viewer role alone would leave the admin role in place if the addition went through
+        verify(users, never()).addRoles("auth0|1", List.of("role_viewer"));
+        verify(operation).handOverToRecovery();
+        verify(operation, never()).compensated();
+        verify(operation, never()).complete();
+    }
+
+    // The user holds the viewer role and the update swaps it for the admin role
+    @SuppressWarnings("unchecked")
+    private CompensationLog.Operation mockViewerToAdminUpdate() throws Auth0Exception {
+        CompensationLog.Operation operation = mock(CompensationLog.Operation.class);
+        when(compensationLog.begin(eq(UserOperationCompensator.UPDATE_USER_ROLES), anyMap())).thenReturn(operation);
+        Role viewer = mock(Role.class);
+        RolesPage currentRoles = mock(RolesPage.class);
+        Request<RolesPage> listRoles = mock(Request.class);
+        when(viewer.getId()).thenReturn("role_viewer");
+        when(currentRoles.getItems()).thenReturn(List.of(viewer));
+        Response<RolesPage> listRolesResponse = createMockResponse(currentRoles);
+        when(users.listRoles(eq("auth0|1"), isNull())).thenReturn(listRoles);
+        when(listRoles.execute()).thenReturn(listRolesResponse);
+        Request<Void> removeViewer = mock(Request.class);
+        when(users.removeRoles("auth0|1", List.of("role_viewer"))).thenReturn(removeViewer);
+        return operation;
+    }
+}
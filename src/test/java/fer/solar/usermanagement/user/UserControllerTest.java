@@ -0,0 +1,73 @@
+package fer.solar.usermanagement.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fer.solar.usermanagement.common.util.FieldSelection;
+import fer.solar.usermanagement.common.web.ConditionalResponses;
+import fer.solar.usermanagement.common.web.IdempotentRequests;
+import fer.solar.usermanagement.user.dto.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserControllerTest {
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private IdempotentRequests idempotentRequests;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        UserController controller = new UserController(userService,
+                new ConditionalResponses(new ObjectMapper()), idempotentRequests);
+        client = WebTestClient.bindToController(controller).build();
+        when(userService.getUserById("auth0|1", FieldSelection.of(null, null))).thenReturn(Mono.just(
+                UserResponse.builder().id("auth0|1").email("jane@example.com").build()));
+    }
+
+    @Test
+    void getUserById_should_returnStrongETagAndNoCache_when_userExists() {
+        client.get().uri("/api/v1/users/{userId}", "auth0|1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, etag -> assertThat(etag).matches("\"[0-9a-f]{32}\""))
+                .expectHeader().cacheControl(CacheControl.noCache().cachePrivate())
+                .expectBody().jsonPath("$.email").isEqualTo("jane@example.com");
+    }
+
+    @Test
+    void getUserById_should_return304WithoutBody_when_ifNoneMatchMatches() {
+        String etag = client.get().uri("/api/v1/users/{userId}", "auth0|1")
+                .exchange()
+                .returnResult(UserResponse.class)
+                .getResponseHeaders().getETag();
+
+        client.get().uri("/api/v1/users/{userId}", "auth0|1")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void getUserById_should_return200WithBody_when_ifNoneMatchDiffers() {
+        client.get().uri("/api/v1/users/{userId}", "auth0|1")
+                .ifNoneMatch("\"00000000000000000000000000000000\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo("auth0|1");
+    }
+}
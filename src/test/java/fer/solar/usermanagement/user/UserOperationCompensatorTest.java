@@ -0,0 +1,114 @@
+package fer.solar.usermanagement.user;
+
+import com.auth0.client.mgmt.ManagementAPI;
+import com.auth0.client.mgmt.UsersEntity;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.mgmt.users.User;
+import com.auth0.net.Request;
+import com.auth0.net.Response;
+import fer.solar.usermanagement.compensation.CompensationLog;
+import fer.solar.usermanagement.config.Auth0Config;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserOperationCompensatorTest {
+
+    @Mock
+    private Auth0Config auth0Config;
+    @Mock
+    private ManagementAPI managementAPI;
+    @Mock
+    private UsersEntity users;
+    @Mock
+    private CompensationLog.Operation operation;
+
+    @InjectMocks
+    private UserOperationCompensator compensator;
+
+    @BeforeEach
+    void setUp() {
+        when(auth0Config.getRefreshedManagementAPI()).thenReturn(managementAPI);
+        when(managementAPI.users()).thenReturn(users);
+        when(operation.getType()).thenReturn(UserOperationCompensator.CREATE_USER);
+    }
+
+    @Test
+    void compensate_should_deleteRecordedUser_when_userCreatedStepWasLogged() throws Auth0Exception {
+        when(operation.getStep(UserOperationCompensator.USER_CREATED_STEP)).thenReturn(Optional.of(Map.of("userId", "auth0|1")));
+        Request<Void> delete = mockRequest(null);
+        when(users.delete("auth0|1")).thenReturn(delete);
+
+        compensator.compensate(operation);
+
+        verify(delete).execute();
+    }
+
+    @Test
+    void compensate_should_deleteOnlyUserCarryingOperationId_when_noStepWasLogged() throws Auth0Exception {
+        when(operation.getId()).thenReturn("op-1");
+        when(operation.getIntent()).thenReturn(Map.of("email", "ana@example.com"));
+        when(operation.getStep(UserOperationCompensator.USER_CREATED_STEP)).thenReturn(Optional.empty());
+        User createdByOperation = user("auth0|1", Map.of(UserOperationCompensator.CREATED_BY_OPERATION, "op-1"));
+        User createdByRetry = user("auth0|2", Map.of(UserOperationCompensator.CREATED_BY_OPERATION, "op-2"));
+        User unmarked = user("auth0|3", null);
+        Request<List<User>> listByEmail = mockRequest(List.of(createdByOperation, createdByRetry, unmarked));
+        when(users.listByEmail(eq("ana@example.com"), isNull())).thenReturn(listByEmail);
+        Request<Void> delete = mockRequest(null);
+        when(users.delete("auth0|1")).thenReturn(delete);
+
+        compensator.compensate(operation);
+
+        verify(delete).execute();
+        verify(users, never()).delete("auth0|2");
+        verify(users, never()).delete("auth0|3");
+    }
+
+    @Test
+    void compensate_should_deleteNothing_when_noUserCarriesOperationId() throws Auth0Exception {
+        when(operation.getId()).thenReturn("op-1");
+        when(operation.getIntent()).thenReturn(Map.of("email", "ana@example.com"));
+        when(operation.getStep(UserOperationCompensator.USER_CREATED_STEP)).thenReturn(Optional.empty());
+        Request<List<User>> listByEmail = mockRequest(List.of(
+                user("auth0|2", Map.of(UserOperationCompensator.CREATED_BY_OPERATION, "op-2"))));
+        when(users.listByEmail(eq("ana@example.com"), isNull())).thenReturn(listByEmail);
+
+        compensator.compensate(operation);
+
+        verify(users, never()).delete(anyString());
+    }
+
+    private static User user(String id, Map<String, Object> appMetadata) {
+        User user = new User("Username-Password-Authentication");
+        user.setId(id);
+        user.setAppMetadata(appMetadata);
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Request<T> mockRequest(T body) throws Auth0Exception {
+        Request<T> request = mock(Request.class);
+        Response<T> response = mock(Response.class);
+        if (body != null) {
+            when(response.getBody()).thenReturn(body);
+        }
+        when(request.execute()).thenReturn(response);
+        return request;
+    }
+}